@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.util.List;
+
+import game.BalanceReport;
+import game.BalanceTuner;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Plays simulated games under every Balance of a sweep and prints, for
+ * each, the share of games won with its 95% confidence interval, the
+ * shares lost and stuck, the mean game length with its 95% confidence
+ * interval, and how many games a second were played.
+ *
+ * Usage: BalanceBenchmark [games] [seed]
+ */
+public final class BalanceBenchmark
+{
+  private static final long DEFAULT_GAMES = 100000;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private BalanceBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args games for each Balance, and seed, both optional
+   */
+  public static void main(String[] args)
+  {
+    final long games = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_GAMES;
+    final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+    final BalanceTuner tuner = new BalanceTuner();
+
+    // warm up
+    tuner.sweep(Math.min(games, 2000), seed);
+
+    final long start = System.nanoTime();
+    final List<BalanceReport> reports = tuner.sweep(games, seed);
+    final long nanos = System.nanoTime() - start;
+
+    System.out.printf("%d games each, seed %d%n", games, seed);
+    System.out.printf("%-32s %7s %15s %7s %7s %9s %7s %7s %9s%n", "balance", "won %", "95% CI",
+        "lost %", "stuck %", "mean s", "+-", "duels", "games/s");
+    for (BalanceReport r : reports)
+    {
+      final double[] won = r.getRateInterval(BalanceReport.Ending.WON);
+      System.out.printf("%-32s %7.1f %7.1f-%-7.1f %7.1f %7.1f %9.1f %7.2f %7.2f %9.0f%n",
+          r.getBalance(), 100 * r.getRate(BalanceReport.Ending.WON), 100 * won[0], 100 * won[1],
+          100 * r.getRate(BalanceReport.Ending.LOST), 100 * r.getRate(BalanceReport.Ending.STUCK),
+          r.getMeanMillis() / 1000, r.getMeanMillisMargin() / 1000, r.getMeanDuels(),
+          r.getGamesPerSecond());
+    }
+    System.out.printf("%d balances in %.1f s%n", reports.size(), nanos / 1e9);
+  }
+}
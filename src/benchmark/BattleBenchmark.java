@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import game.BattleReport;
+import game.BattleSimulator;
+import game.BattleStrategy;
+import game.Game;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Fights simulated duels at every Difficulty with every strategy the
+ * Human can pick up, as objects and in batches of arrays, and prints
+ * how each fared in batches, how far the two ways differ, and how many
+ * duels a second each fought.
+ *
+ * Usage: BattleBenchmark [duels] [seed]
+ */
+public final class BattleBenchmark
+{
+  private static final long DEFAULT_DUELS = 1000000;
+  private static final BattleStrategy[] STRATEGIES = BattleStrategy.values();
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private BattleBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args duels for each Difficulty and strategy, and seed, both optional
+   */
+  public static void main(String[] args)
+  {
+    final long duels = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_DUELS;
+    final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+    final BattleSimulator objects = new BattleSimulator();
+    final BattleSimulator batched = new BattleSimulator(ForkJoinPool.commonPool(),
+        BattleSimulator.Mode.BATCHED, BattleSimulator.DEFAULT_POKE_INTERVAL_MS,
+        BattleSimulator.DEFAULT_MAX_DUEL_MS, 0, Game.DEFAULT_SACKS_TO_WIN);
+
+    // warm up
+    objects.simulateAll(Math.min(duels, 10000), seed);
+    batched.simulateAll(Math.min(duels, 10000), seed);
+
+    long start = System.nanoTime();
+    final List<BattleReport> slow = objects.simulateAll(duels, seed);
+    final long objectNanos = System.nanoTime() - start;
+    start = System.nanoTime();
+    final List<BattleReport> reports = batched.simulateAll(duels, seed);
+    final long batchNanos = System.nanoTime() - start;
+
+    System.out.printf("%d duels each, seed %d%n", duels, seed);
+    System.out.printf("%-8s %-9s %7s %7s %7s %8s %8s %8s %7s", "level", "strategy", "won %",
+        "lost %", "drawn %", "mean s", "p90 s", "exch", "sacks");
+    for (BattleStrategy against : STRATEGIES)
+    {
+      System.out.printf(" %9s", "vs " + against);
+    }
+    System.out.println();
+    for (BattleReport r : reports)
+    {
+      System.out.printf("%-8s %-9s %7.1f %7.1f %7.1f %8.1f %8d %8.1f %+7.2f", r.getDifficulty(),
+          r.getStrategy() == null ? "None" : r.getStrategy(),
+          100 * r.getRate(BattleReport.Outcome.WON), 100 * r.getRate(BattleReport.Outcome.LOST),
+          100 * r.getRate(BattleReport.Outcome.DRAWN), r.getMeanMillis() / 1000,
+          r.getMillisPercentile(0.9) / 1000, r.getMeanExchanges(), r.getMeanSacksWon());
+      for (BattleStrategy against : STRATEGIES)
+      {
+        System.out.printf(" %9s", Double.isNaN(r.getWinRateAgainst(against)) ? "-"
+            : String.format("%.1f", 100 * r.getWinRateAgainst(against)));
+      }
+      System.out.println();
+    }
+    final BattleReport sample = reports.get(0);
+    System.out.printf("sacks won by the Human, %s, %s:", sample.getDifficulty(), "None");
+    for (int s = sample.getMinSacksWon(); s <= sample.getMaxSacksWon(); s++)
+    {
+      System.out.printf(" %d:%d", s, sample.getSackCount(s));
+    }
+    System.out.println();
+    double worst = 0;
+    for (int i = 0; i < reports.size(); i++)
+    {
+      worst = Math.max(worst, Math.abs(reports.get(i).getRate(BattleReport.Outcome.WON)
+          - slow.get(i).getRate(BattleReport.Outcome.WON)));
+    }
+    System.out.printf("win rates of objects and batches differ by %.2f points at most%n", 100 * worst);
+    final double fought = (double)reports.size() * duels * 1e9;
+    System.out.printf("%.0f duels/s as objects, %.0f duels/s in batches, %.1fx, on %d threads%n",
+        fought / objectNanos, fought / batchNanos, (double)objectNanos / batchNanos,
+        Runtime.getRuntime().availableProcessors());
+  }
+}
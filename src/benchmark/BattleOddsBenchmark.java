@@ -0,0 +1,135 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import game.BattleOdds;
+import game.BattleReport;
+import game.BattleSimulator;
+import game.BattleStrategy;
+import game.Game;
+import players.Gruman;
+import players.Human;
+import utility.SingleRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Works out the odds of duels between new Humans and Grumans at every
+ * Difficulty, and prints the mean chance of winning beside the share of
+ * simulated duels won, then how long the odds took to work out, to look
+ * up again, and to look up again after saving them to a file and
+ * loading them back.
+ *
+ * Usage: BattleOddsBenchmark [duels] [seed] [file]
+ */
+public final class BattleOddsBenchmark
+{
+  private static final int DEFAULT_DUELS = 1000;
+  private static final long SIMULATED_DUELS = 200000;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private BattleOddsBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args duels for each Difficulty, seed, and the file to save the
+   *  odds to, all optional
+   * @throws IOException if the odds cannot be saved or loaded
+   */
+  public static void main(String[] args) throws IOException
+  {
+    final int duels = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DUELS;
+    final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+    final File file = args.length > 2 ? new File(args[2])
+        : File.createTempFile("battle", ".odds");
+    final Game.Difficulty[] levels = Game.Difficulty.values();
+    final int n = duels * levels.length;
+    final Human[] humans = new Human[n];
+    final Gruman[] grumans = new Gruman[n];
+    SingleRandom.getInstance().setSeed((int)seed);
+    for (int i = 0; i < n; i++)
+    {
+      humans[i] = new Human("Benchmark Human");
+      humans[i].pickupStrategy(BattleSimulator.HUMAN_STRATEGIES.get(
+          i % BattleSimulator.HUMAN_STRATEGIES.size()));
+      grumans[i] = new Gruman("Benchmark Gruman");
+    }
+
+    final BattleOdds odds = new BattleOdds();
+    final BattleSimulator simulator = new BattleSimulator();
+    System.out.printf("%d duels each, seed %d%n", duels, seed);
+    System.out.printf("%-8s %9s %9s %9s %9s %12s%n", "level", "win %", "lost %", "sacks",
+        "sim win %", "worth it %");
+    long start = System.nanoTime();
+    for (int l = 0; l < levels.length; l++)
+    {
+      double won = 0;
+      double lost = 0;
+      double sacks = 0;
+      int worth = 0;
+      for (int i = l * duels; i < (l + 1) * duels; i++)
+      {
+        final BattleOdds.Result r = odds.odds(levels[l], humans[i], grumans[i]);
+        won += r.getChance(BattleReport.Outcome.WON);
+        lost += r.getChance(BattleReport.Outcome.LOST);
+        sacks += r.getExpectedSacksWon();
+        worth += r.isWorthFighting() ? 1 : 0;
+      }
+      double simulated = 0;
+      for (BattleStrategy strategy : BattleSimulator.HUMAN_STRATEGIES)
+      {
+        simulated += simulator.simulate(levels[l], strategy, SIMULATED_DUELS, seed)
+            .getRate(BattleReport.Outcome.WON);
+      }
+      System.out.printf("%-8s %9.1f %9.1f %+9.2f %9.1f %12.1f%n", levels[l], 100 * won / duels,
+          100 * lost / duels, sacks / duels,
+          100 * simulated / BattleSimulator.HUMAN_STRATEGIES.size(), 100.0 * worth / duels);
+    }
+    final long solveNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    lookUp(odds, levels, humans, grumans, duels);
+    final long lookupNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    odds.save(file);
+    final BattleOdds loaded = new BattleOdds();
+    final int entries = loaded.load(file);
+    final long ioNanos = System.nanoTime() - start;
+    start = System.nanoTime();
+    lookUp(loaded, levels, humans, grumans, duels);
+    final long loadedNanos = System.nanoTime() - start;
+
+    System.out.printf("worked out %d odds in %.1f s with simulations, looked up in %.2f us each%n",
+        odds.size(), solveNanos / 1e9, lookupNanos / 1e3 / n);
+    System.out.printf("saved and loaded %d odds, %d bytes, in %.1f ms, looked up in %.2f us each%n",
+        entries, file.length(), ioNanos / 1e6, loadedNanos / 1e3 / n);
+    if (args.length <= 2 && !file.delete())
+    {
+      file.deleteOnExit();
+    }
+  }
+
+  /**
+   * Looks up the odds of every duel.
+   * @param odds
+   * @param levels
+   * @param humans
+   * @param grumans
+   * @param duels for each Difficulty
+   */
+  private static void lookUp(final BattleOdds odds, final Game.Difficulty[] levels,
+      final Human[] humans, final Gruman[] grumans, final int duels)
+  {
+    for (int i = 0; i < humans.length; i++)
+    {
+      odds.odds(levels[i / duels], humans[i], grumans[i]);
+    }
+  }
+}
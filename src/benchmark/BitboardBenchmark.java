@@ -0,0 +1,137 @@
+package benchmark;
+
+import java.util.BitSet;
+
+import demesnes.Chamber;
+import demesnes.ChamberIndex;
+import demesnes.Direction;
+import demesnes.Location;
+import demesnes.Maze;
+import demesnes.MazeBitboard;
+import demesnes.RegionMazeGenerator;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Times a whole-maze reachability scan done chamber by chamber through
+ * Maze.getChamber() against the same scan on a MazeBitboard, and checks
+ * that both find the same chambers, and that the bitboard streamed out
+ * of the generator matches the one built from the maze.
+ *
+ * Usage: BitboardBenchmark [chambers] [seed]
+ */
+public final class BitboardBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 1000000;
+  private static final int WARMUP_RUNS = 2;
+  private static final int TIMED_RUNS = 5;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private BitboardBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers and seed, both optional
+   */
+  public static void main(String[] args)
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+    final RegionMazeGenerator generator = new RegionMazeGenerator(seed);
+    final Maze maze = generator.generate(chambers);
+    final MazeBitboard board = maze.toBitboard();
+    final MazeBitboard streamed = generator.generateBitboard(chambers);
+    final Location origin = new Location(0, 0);
+
+    for (Location l : maze.getKeySet())
+    {
+      for (Direction d : Direction.values())
+      {
+        if (streamed.hasDoorAt(d, l) != maze.hasDoorAt(d, l))
+        {
+          throw new IllegalStateException("Streamed bitboard differs at " + l);
+        }
+      }
+    }
+    if (streamed.getChamberCount() != maze.getTotalChambers())
+    {
+      throw new IllegalStateException("Streamed bitboard has "
+          + streamed.getChamberCount() + " chambers");
+    }
+
+    long bestChambers = Long.MAX_VALUE;
+    long bestBits = Long.MAX_VALUE;
+    int reached = 0;
+    BitSet reachable = null;
+    for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++)
+    {
+      long start = System.nanoTime();
+      reached = walk(maze);
+      final long chamberTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      reachable = board.reachableFrom(origin);
+      final long bitTime = System.nanoTime() - start;
+
+      if (run >= WARMUP_RUNS)
+      {
+        bestChambers = Math.min(bestChambers, chamberTime);
+        bestBits = Math.min(bestBits, bitTime);
+      }
+    }
+    if (reachable.cardinality() != reached)
+    {
+      throw new IllegalStateException("Bitboard reached " + reachable.cardinality()
+          + " chambers, not " + reached);
+    }
+
+    System.out.printf("%d chambers, seed %d, bounding box %dx%d%n",
+        chambers, seed, board.getWidth(), board.getHeight());
+    System.out.printf("%-22s %10.2f ms%n", "chamber by chamber", bestChambers / 1e6);
+    System.out.printf("%-22s %10.2f ms%n", "bitboard", bestBits / 1e6);
+    System.out.printf("%-22s %10.1f%n", "speedup", (double)bestChambers / bestBits);
+  }
+
+  /**
+   * Counts the chambers reachable from the entrance, a chamber at a time.
+   * @param maze
+   * @return the number of chambers reached
+   */
+  private static int walk(Maze maze)
+  {
+    final ChamberIndex seen = new ChamberIndex(maze.getTotalChambers());
+    final long[] queue = new long[maze.getTotalChambers()];
+    int head = 0;
+    int tail = 0;
+    final Chamber entrance = maze.getChamber(0, 0);
+    seen.put(entrance);
+    queue[tail++] = ChamberIndex.key(0, 0);
+    while (head < tail)
+    {
+      final long key = queue[head++];
+      final int column = ChamberIndex.column(key);
+      final int row = ChamberIndex.row(key);
+      final Chamber c = maze.getChamber(column, row);
+      for (Direction d : Direction.values())
+      {
+        if (c.hasDoor(d))
+        {
+          final int nextColumn = column + d.getHorizontalOffset();
+          final int nextRow = row + d.getVerticalOffset();
+          final Chamber next = maze.getChamber(nextColumn, nextRow);
+          if (next != null && !seen.contains(nextColumn, nextRow))
+          {
+            seen.put(next);
+            queue[tail++] = ChamberIndex.key(nextColumn, nextRow);
+          }
+        }
+      }
+    }
+    return tail;
+  }
+}
@@ -0,0 +1,142 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import demesnes.Chamber;
+import demesnes.Direction;
+import demesnes.Location;
+import demesnes.Maze;
+import demesnes.RegionMazeGenerator;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Compares chamber lookups in a maze kept on the heap with lookups in
+ * the same maze kept in a memory-mapped file: random lookups all over
+ * the maze, which mostly miss the mapped maze's cache, and a random
+ * walk, which mostly hits it. Also checks that both mazes are the same.
+ *
+ * Usage: MappedMazeBenchmark [chambers] [seed] [file]
+ */
+public final class MappedMazeBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 1000000;
+  private static final int LOOKUPS = 2000000;
+  private static final int WARMUP_RUNS = 2;
+  private static final int TIMED_RUNS = 3;
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private MappedMazeBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers, seed and file, all optional
+   * @throws IOException if the maze file cannot be written
+   */
+  public static void main(String[] args) throws IOException
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+    final File file = args.length > 2 ? new File(args[2]) : File.createTempFile("maze", ".chambers");
+    file.deleteOnExit();
+    final RegionMazeGenerator generator = new RegionMazeGenerator(seed);
+
+    long start = System.nanoTime();
+    final Maze heap = generator.generate(chambers);
+    System.out.printf("%d chambers, seed %d%n", chambers, seed);
+    System.out.printf("%-10s generated in %8.1f ms%n", "heap", (System.nanoTime() - start) / 1e6);
+    start = System.nanoTime();
+    final Maze mapped = generator.generateMapped(chambers, file);
+    System.out.printf("%-10s generated in %8.1f ms, %d MB file%n", "mapped",
+        (System.nanoTime() - start) / 1e6, file.length() >> 20);
+
+    if (RegionMazeBenchmark.fingerprint(heap) != RegionMazeBenchmark.fingerprint(mapped))
+    {
+      throw new IllegalStateException("The mapped maze differs from the heap maze");
+    }
+
+    final int[] columns = new int[LOOKUPS];
+    final int[] rows = new int[LOOKUPS];
+    final Random rng = new Random(seed);
+    final int reach = (int)Math.sqrt(chambers) / 2;
+    for (int i = 0; i < LOOKUPS; i++)
+    {
+      columns[i] = rng.nextInt(2 * reach + 1) - reach;
+      rows[i] = rng.nextInt(2 * reach + 1) - reach;
+    }
+
+    System.out.printf("%-10s %16s %16s%n", "maze", "random ns", "walk ns");
+    for (Maze maze : new Maze[] {heap, mapped})
+    {
+      long bestRandom = Long.MAX_VALUE;
+      long bestWalk = Long.MAX_VALUE;
+      for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++)
+      {
+        start = System.nanoTime();
+        lookUp(maze, columns, rows);
+        final long random = System.nanoTime() - start;
+        start = System.nanoTime();
+        walk(maze, LOOKUPS, seed);
+        final long walk = System.nanoTime() - start;
+        if (run >= WARMUP_RUNS)
+        {
+          bestRandom = Math.min(bestRandom, random);
+          bestWalk = Math.min(bestWalk, walk);
+        }
+      }
+      System.out.printf("%-10s %16.1f %16.1f%n", maze == heap ? "heap" : "mapped",
+          (double)bestRandom / LOOKUPS, (double)bestWalk / LOOKUPS);
+    }
+  }
+
+  /**
+   * Looks up chambers at given columns and rows.
+   * @param maze
+   * @param columns
+   * @param rows
+   * @return the number of doors found, so the lookups are not optimised away
+   */
+  private static int lookUp(Maze maze, int[] columns, int[] rows)
+  {
+    int doors = 0;
+    for (int i = 0; i < columns.length; i++)
+    {
+      final Chamber c = maze.getChamber(columns[i], rows[i]);
+      if (c != null)
+      {
+        doors += Integer.bitCount(c.getDoors());
+      }
+    }
+    return doors;
+  }
+
+  /**
+   * Walks the maze at random, looking up each chamber along the way.
+   * @param maze
+   * @param moves
+   * @param seed
+   * @return where the walk ended
+   */
+  private static Location walk(Maze maze, int moves, long seed)
+  {
+    final Random rng = new Random(seed);
+    Chamber chamber = maze.getEntrance();
+    for (int i = 0; i < moves; i++)
+    {
+      final Chamber next = maze.getNeighbor(chamber, DIRECTIONS[rng.nextInt(DIRECTIONS.length)]);
+      if (next != null)
+      {
+        chamber = next;
+      }
+    }
+    return chamber.getLocation();
+  }
+}
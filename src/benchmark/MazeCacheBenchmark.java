@@ -0,0 +1,93 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import demesnes.Maze;
+import demesnes.MazeCache;
+import demesnes.RegionMazeGenerator;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Times generating seeded mazes of growing size against reading them back
+ * from a MazeCache, checks both give the same maze, and reports the
+ * size from which reading wins at every size tried.
+ *
+ * Usage: MazeCacheBenchmark [directory] [seed]
+ */
+public final class MazeCacheBenchmark
+{
+  private static final int[] SIZES = {100, 1000, 10000, 100000, 1000000, 4000000};
+  private static final int WARMUP_RUNS = 2;
+  private static final int TIMED_RUNS = 5;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private MazeCacheBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args cache directory and seed, both optional
+   * @throws IOException if the cache directory cannot be made
+   */
+  public static void main(String[] args) throws IOException
+  {
+    final File directory = args.length > 0 ? new File(args[0])
+        : new File(System.getProperty("java.io.tmpdir"), "maze-cache-benchmark");
+    final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+    final MazeCache cache = new MazeCache(directory, Long.MAX_VALUE);
+    final RegionMazeGenerator generator = new RegionMazeGenerator(seed);
+
+    System.out.printf("seed %d, cache in %s%n", seed, directory);
+    System.out.printf("%10s %14s %14s %10s%n", "chambers", "generate ms", "cached ms", "speedup");
+    int crossover = -1;
+    for (int n : SIZES)
+    {
+      final long expected = RegionMazeBenchmark.fingerprint(generator.generate(n));
+      cache.get(generator, n);
+
+      long bestGenerate = Long.MAX_VALUE;
+      long bestCached = Long.MAX_VALUE;
+      for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++)
+      {
+        long start = System.nanoTime();
+        Maze maze = generator.generate(n);
+        final long generate = System.nanoTime() - start;
+        maze = null;
+
+        start = System.nanoTime();
+        maze = cache.get(generator, n);
+        final long cached = System.nanoTime() - start;
+        if (RegionMazeBenchmark.fingerprint(maze) != expected)
+        {
+          throw new IllegalStateException("The cached maze of " + n + " chambers differs");
+        }
+
+        if (run >= WARMUP_RUNS)
+        {
+          bestGenerate = Math.min(bestGenerate, generate);
+          bestCached = Math.min(bestCached, cached);
+        }
+      }
+      if (bestCached >= bestGenerate)
+      {
+        crossover = -1;
+      }
+      else if (crossover < 0)
+      {
+        crossover = n;
+      }
+      System.out.printf("%10d %14.2f %14.2f %10.2f%n", n, bestGenerate / 1e6, bestCached / 1e6,
+          (double)bestGenerate / bestCached);
+    }
+    System.out.println(crossover < 0 ? "generating wins at the largest size tried"
+        : "reading wins from " + crossover + " chambers up");
+    System.out.printf("%d hits, %d misses, %d KB on disk%n", cache.getHits(), cache.getMisses(),
+        cache.size() >> 10);
+  }
+}
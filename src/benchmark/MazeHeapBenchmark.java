@@ -0,0 +1,67 @@
+package benchmark;
+
+import demesnes.Maze;
+import demesnes.RegionMazeGenerator;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Measures how much heap a generated maze holds on to,
+ * per maze and per chamber, after garbage collection settles.
+ *
+ * Usage: MazeHeapBenchmark [chambers] [seed]
+ */
+public final class MazeHeapBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 1000000;
+  private static final int GC_ROUNDS = 5;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private MazeHeapBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers and seed, both optional
+   */
+  public static void main(String[] args)
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+    final long before = usedHeap();
+    Maze maze = new RegionMazeGenerator(seed).generate(chambers);
+    final long after = usedHeap();
+    final long bytes = after - before;
+
+    System.out.printf("%d chambers: %.1f MB, %.1f bytes per chamber%n",
+        maze.getTotalChambers(), bytes / (1024.0 * 1024.0), (double)bytes / maze.getTotalChambers());
+    maze = null;
+  }
+
+  /**
+   * Returns the heap in use once collection has settled.
+   * @return bytes in use
+   */
+  static long usedHeap()
+  {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < GC_ROUNDS; i++)
+    {
+      System.gc();
+      try
+      {
+        Thread.sleep(50);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import game.Game;
+import game.MazePool;
+import utility.VirtualClock;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Times Create Game, Game.resetGame(), for a player who plays each game
+ * for a while before starting the next, against making the maze on the
+ * spot. With the maze pool filling in the background between games,
+ * starting one should cost next to nothing once the first maze is ready.
+ *
+ * Usage: MazePoolBenchmark [chambers] [layout] [games] [playMillis]
+ */
+public final class MazePoolBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 200000;
+  private static final int DEFAULT_GAMES = 10;
+  private static final int DEFAULT_PLAY_MS = 1000;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private MazePoolBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers, layout, games and milliseconds of play, all optional
+   * @throws InterruptedException if interrupted while playing
+   */
+  public static void main(String[] args) throws InterruptedException
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final Game.Layout layout = args.length > 1 ? Game.Layout.valueOf(args[1]) : Game.Layout.CLASSIC;
+    final int games = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_GAMES;
+    final int play = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PLAY_MS;
+
+    final MazePool pool = new MazePool(Game.MAZE_POOL_DEPTH, Game.MAZE_POOL_BUDGET);
+    final Game game = new Game(pool);
+    // no game time passes here, so no Swing ticker keeps the program running
+    game.setClock(new VirtualClock());
+    game.configureGame(Game.DEFAULT_NAME, chambers, Game.DEFAULT_SACKS_TO_WIN,
+        Game.Difficulty.MEDIUM, layout);
+    // as Create Game does, which starts the pool
+    game.prepareGame();
+    System.out.printf("%d chambers, %s layout, %d games of %d ms%n", chambers, layout, games, play);
+    System.out.printf("%6s %16s %16s%n", "game", "pooled ms", "on the spot ms");
+
+    long pooledTotal = 0;
+    long spotTotal = 0;
+    for (int i = 1; i <= games; i++)
+    {
+      Thread.sleep(play);
+      long start = System.nanoTime();
+      game.resetGame();
+      final long pooled = System.nanoTime() - start;
+
+      // what resetGame() cost before the pool
+      final Game alone = new Game();
+      alone.setClock(new VirtualClock());
+      alone.configureGame(Game.DEFAULT_NAME, chambers, Game.DEFAULT_SACKS_TO_WIN,
+          Game.Difficulty.MEDIUM, layout);
+      start = System.nanoTime();
+      alone.resetGame();
+      final long spot = System.nanoTime() - start;
+
+      pooledTotal += pooled;
+      spotTotal += spot;
+      System.out.printf("%6d %16.1f %16.1f%n", i, pooled / 1e6, spot / 1e6);
+    }
+    System.out.printf("%6s %16.1f %16.1f%n", "mean", pooledTotal / 1e6 / games,
+        spotTotal / 1e6 / games);
+    System.out.println("pool: " + pool);
+    pool.shutdown();
+  }
+}
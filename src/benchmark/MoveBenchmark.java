@@ -0,0 +1,151 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import demesnes.Chamber;
+import demesnes.Direction;
+import demesnes.Location;
+import demesnes.Maze;
+import demesnes.RegionMazeGenerator;
+import players.Gruman;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Times a long random walk through a maze the way Game.moveHuman()
+ * used to make it - a new Location per move and a lookup for each of
+ * the strategy, the visit and the gruman - against a walk along the
+ * chambers' neighbour links, and reports the bytes each move allocates
+ * where the JVM can tell.
+ *
+ * Usage: MoveBenchmark [chambers] [moves] [seed]
+ */
+public final class MoveBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 1000000;
+  private static final int DEFAULT_MOVES = 10000000;
+  private static final int WARMUP_RUNS = 2;
+  private static final int TIMED_RUNS = 3;
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private MoveBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers, moves and seed, all optional
+   */
+  public static void main(String[] args)
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final int moves = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MOVES;
+    final long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+    final Maze maze = new RegionMazeGenerator(seed).generate(chambers);
+
+    final boolean canCount = allocatedBytes() >= 0;
+    System.out.printf("%d chambers, %d moves, seed %d%n", chambers, moves, seed);
+    System.out.printf("%-12s %12s %16s %12s%n", "walk", "ns per move", "bytes per move", "end");
+    for (int kind = 0; kind < 2; kind++)
+    {
+      long best = Long.MAX_VALUE;
+      long allocated = 0;
+      long end = 0;
+      for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++)
+      {
+        final long bytes = allocatedBytes();
+        final long start = System.nanoTime();
+        end = kind == 0 ? walkByLocation(maze, moves, seed) : walkByLink(maze, moves, seed);
+        final long elapsed = System.nanoTime() - start;
+        if (run >= WARMUP_RUNS)
+        {
+          best = Math.min(best, elapsed);
+          allocated = allocatedBytes() - bytes;
+        }
+      }
+      System.out.printf("%-12s %12.1f %16s %12x%n", kind == 0 ? "by location" : "by link",
+          (double)best / moves, !canCount ? "n/a" : String.format("%.2f", (double)allocated / moves), end);
+    }
+  }
+
+  /**
+   * Walks the maze a Location at a time.
+   * @param maze
+   * @param moves
+   * @param seed
+   * @return where the walk ended, packed into a long
+   */
+  private static long walkByLocation(Maze maze, int moves, long seed)
+  {
+    final Random rng = new Random(seed);
+    Location location = Location.ORIGIN;
+    int grumans = 0;
+    for (int i = 0; i < moves; i++)
+    {
+      final Direction dir = DIRECTIONS[rng.nextInt(DIRECTIONS.length)];
+      if (maze.hasDoorAt(dir, location))
+      {
+        location = new Location(location, dir);
+        maze.getStrategy(location);
+        maze.visit(location);
+        final Gruman g = maze.getGruman(location);
+        if (g != null)
+        {
+          grumans++;
+        }
+      }
+    }
+    return ((long)location.getColumn() << 32 | (location.getRow() & 0xFFFFFFFFL)) + grumans;
+  }
+
+  /**
+   * Walks the maze along the chambers' neighbour links.
+   * @param maze
+   * @param moves
+   * @param seed
+   * @return where the walk ended, packed into a long
+   */
+  private static long walkByLink(Maze maze, int moves, long seed)
+  {
+    final Random rng = new Random(seed);
+    Chamber chamber = maze.getEntrance();
+    int grumans = 0;
+    for (int i = 0; i < moves; i++)
+    {
+      final Chamber next = maze.getNeighbor(chamber, DIRECTIONS[rng.nextInt(DIRECTIONS.length)]);
+      if (next != null)
+      {
+        chamber = next;
+        chamber.getStrategy();
+        maze.visit(chamber);
+        final Gruman g = maze.getGruman(chamber);
+        if (g != null)
+        {
+          grumans++;
+        }
+      }
+    }
+    return ((long)chamber.getColumn() << 32 | (chamber.getRow() & 0xFFFFFFFFL)) + grumans;
+  }
+
+  /**
+   * Returns the bytes this thread has allocated, or -1 if the JVM cannot tell.
+   * @return bytes allocated
+   */
+  private static long allocatedBytes()
+  {
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean)
+    {
+      return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,115 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import demesnes.Chamber;
+import demesnes.Direction;
+import demesnes.Maze;
+import demesnes.RegionMazeGenerator;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Explores a paged maze for a long time and reports the heap in use as it
+ * goes, which should stay flat however much of the maze has been seen.
+ * The explorer prefers doors to chambers it has not visited, and every so
+ * often jumps to a chamber somewhere else, as a bot scanning the maze would.
+ *
+ * Usage: PagingBenchmark [chambers] [budgetMB] [moves] [seed]
+ */
+public final class PagingBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 4000000;
+  private static final int DEFAULT_BUDGET_MB = 16;
+  private static final int DEFAULT_MOVES = 4000000;
+  private static final int MOVES_PER_JUMP = 20000;
+  private static final int REPORTS = 8;
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private PagingBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers, heap budget in MB, moves and seed, all optional
+   * @throws IOException if the scratch file cannot be written
+   */
+  public static void main(String[] args) throws IOException
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final long budget = (args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_BUDGET_MB) << 20;
+    final int moves = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MOVES;
+    final long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+    final File scratch = File.createTempFile("maze", ".scratch");
+    scratch.deleteOnExit();
+
+    final long before = MazeHeapBenchmark.usedHeap();
+    long start = System.nanoTime();
+    final Maze maze = new RegionMazeGenerator(seed).generatePaged(chambers, budget, scratch);
+    System.out.printf("%d chambers, %d MB budget, seed %d, generated in %.1f ms%n",
+        chambers, budget >> 20, seed, (System.nanoTime() - start) / 1e6);
+    System.out.printf("%12s %12s %12s %14s%n", "moves", "visited", "heap MB", "ns per move");
+
+    final Random rng = new Random(seed);
+    final int reach = (int)Math.sqrt(chambers) / 2;
+    Chamber chamber = maze.getEntrance();
+    start = System.nanoTime();
+    for (int move = 1; move <= moves; move++)
+    {
+      if (move % MOVES_PER_JUMP == 0)
+      {
+        final Chamber jump = maze.getChamber(rng.nextInt(2 * reach + 1) - reach,
+            rng.nextInt(2 * reach + 1) - reach);
+        if (jump != null)
+        {
+          chamber = jump;
+        }
+      }
+      chamber = step(maze, chamber, rng);
+      maze.approach(chamber);
+      maze.visit(chamber);
+      maze.getGruman(chamber);
+
+      if (move % (moves / REPORTS) == 0)
+      {
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("%12d %12d %12.1f %14.1f%n", move, maze.getChambersVisited(),
+            (MazeHeapBenchmark.usedHeap() - before) / 1048576.0, (double)elapsed / (moves / REPORTS));
+        start = System.nanoTime();
+      }
+    }
+  }
+
+  /**
+   * Takes a door to a chamber not yet visited if there is one, or else any door.
+   * @param maze
+   * @param chamber
+   * @param rng
+   * @return the chamber stepped to
+   */
+  private static Chamber step(Maze maze, Chamber chamber, Random rng)
+  {
+    final int first = rng.nextInt(DIRECTIONS.length);
+    Chamber any = chamber;
+    for (int k = 0; k < DIRECTIONS.length; k++)
+    {
+      final Chamber next = maze.getNeighbor(chamber, DIRECTIONS[(first + k) % DIRECTIONS.length]);
+      if (next != null)
+      {
+        if (!next.hasVisited())
+        {
+          return next;
+        }
+        any = next;
+      }
+    }
+    return any;
+  }
+}
@@ -0,0 +1,132 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import utility.SingleRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Times random draws made from a growing number of threads at once,
+ * through one java.util.Random shared by them all, the way SingleRandom
+ * used to draw, against SingleRandom's streams of one per thread.
+ *
+ * Usage: RandomBenchmark [draws per thread] [most threads]
+ */
+public final class RandomBenchmark
+{
+  private static final int DEFAULT_DRAWS = 10000000;
+  private static final int WARMUP_RUNS = 2;
+  private static final int TIMED_RUNS = 3;
+  private static final int BOUND = 100;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private RandomBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args draws per thread and the most threads, both optional
+   * @throws InterruptedException if interrupted while waiting for the threads
+   * @throws ExecutionException if a thread fails
+   */
+  public static void main(String[] args) throws InterruptedException, ExecutionException
+  {
+    final int draws = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DRAWS;
+    final int most = args.length > 1 ? Integer.parseInt(args[1])
+        : Runtime.getRuntime().availableProcessors();
+    final Random shared = new Random(42);
+    SingleRandom.getInstance().setSeed(42);
+
+    System.out.printf("%d draws per thread%n", draws);
+    System.out.printf("%8s %20s %20s %10s%n", "threads", "shared M draws/s", "per-thread M draws/s",
+        "speedup");
+    for (int threads = 1; threads <= most; threads *= 2)
+    {
+      final ExecutorService pool = Executors.newFixedThreadPool(threads);
+      long bestShared = Long.MAX_VALUE;
+      long bestStreams = Long.MAX_VALUE;
+      for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++)
+      {
+        final long sharedNanos = time(pool, threads, new Callable<Long>()
+        {
+          @Override
+          public Long call()
+          {
+            long sum = 0;
+            for (int i = 0; i < draws; i++)
+            {
+              sum += shared.nextInt(BOUND);
+            }
+            return sum;
+          }
+        });
+        final long streamNanos = time(pool, threads, new Callable<Long>()
+        {
+          @Override
+          public Long call()
+          {
+            final SingleRandom random = SingleRandom.getInstance();
+            long sum = 0;
+            for (int i = 0; i < draws; i++)
+            {
+              sum += random.nextInt(BOUND);
+            }
+            return sum;
+          }
+        });
+        if (run >= WARMUP_RUNS)
+        {
+          bestShared = Math.min(bestShared, sharedNanos);
+          bestStreams = Math.min(bestStreams, streamNanos);
+        }
+      }
+      pool.shutdown();
+      final double total = (double)draws * threads;
+      System.out.printf("%8d %20.1f %20.1f %10.1f%n", threads, total / bestShared * 1e3,
+          total / bestStreams * 1e3, (double)bestShared / bestStreams);
+    }
+  }
+
+  /**
+   * Runs a task on each of a number of threads at once and times them all.
+   * @param pool the threads
+   * @param threads how many copies of the task to run
+   * @param task the task
+   * @return nanoseconds until the last copy finished
+   * @throws InterruptedException if interrupted while waiting
+   * @throws ExecutionException if a copy fails
+   */
+  private static long time(ExecutorService pool, int threads, Callable<Long> task)
+      throws InterruptedException, ExecutionException
+  {
+    final List<Callable<Long>> tasks = new ArrayList<>();
+    for (int t = 0; t < threads; t++)
+    {
+      tasks.add(task);
+    }
+    final long start = System.nanoTime();
+    long sum = 0;
+    for (Future<Long> f : pool.invokeAll(tasks))
+    {
+      sum += f.get();
+    }
+    final long nanos = System.nanoTime() - start;
+    if (sum < 0)
+    {
+      System.out.println(sum);
+    }
+    return nanos;
+  }
+}
@@ -0,0 +1,140 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import demesnes.Chamber;
+import demesnes.Location;
+import demesnes.Maze;
+import demesnes.RegionMazeGenerator;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Times viewport queries on a large maze: every chamber in a square
+ * around a random point, found with one Maze.getChambersIn() call against
+ * a Location lookup for every cell of the square, as MazeFacade used to.
+ * Also checks both find the same chambers.
+ *
+ * Usage: RangeQueryBenchmark [chambers] [radius] [seed]
+ */
+public final class RangeQueryBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 1000000;
+  private static final int DEFAULT_RADIUS = 10;
+  private static final int QUERIES = 20000;
+  private static final int WARMUP_RUNS = 2;
+  private static final int TIMED_RUNS = 5;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private RangeQueryBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers, radius and seed, all optional
+   */
+  public static void main(String[] args)
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final int radius = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RADIUS;
+    final long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+    final Maze maze = new RegionMazeGenerator(seed).generate(chambers);
+
+    final int[] columns = new int[QUERIES];
+    final int[] rows = new int[QUERIES];
+    final Random rng = new Random(seed);
+    final int reach = (int)Math.sqrt(chambers) / 2;
+    for (int i = 0; i < QUERIES; i++)
+    {
+      columns[i] = rng.nextInt(2 * reach + 1) - reach;
+      rows[i] = rng.nextInt(2 * reach + 1) - reach;
+    }
+
+    long bestLookups = Long.MAX_VALUE;
+    long bestRange = Long.MAX_VALUE;
+    int byLookup = 0;
+    int byRange = 0;
+    for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++)
+    {
+      long start = System.nanoTime();
+      byLookup = lookUp(maze, columns, rows, radius);
+      final long lookups = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      byRange = range(maze, columns, rows, radius);
+      final long range = System.nanoTime() - start;
+
+      if (run >= WARMUP_RUNS)
+      {
+        bestLookups = Math.min(bestLookups, lookups);
+        bestRange = Math.min(bestRange, range);
+      }
+    }
+    if (byLookup != byRange)
+    {
+      throw new IllegalStateException("Range queries found " + byRange
+          + " chambers, not " + byLookup);
+    }
+
+    System.out.printf("%d chambers, seed %d, %d queries of %dx%d, %.1f chambers each%n",
+        chambers, seed, QUERIES, 2 * radius + 1, 2 * radius + 1, (double)byRange / QUERIES);
+    System.out.printf("%-22s %10.2f us per query%n", "location lookups", bestLookups / 1e3 / QUERIES);
+    System.out.printf("%-22s %10.2f us per query%n", "range query", bestRange / 1e3 / QUERIES);
+    System.out.printf("%-22s %10.1f%n", "speedup", (double)bestLookups / bestRange);
+  }
+
+  /**
+   * Looks up every location of each square.
+   * @param maze
+   * @param columns
+   * @param rows
+   * @param radius
+   * @return the number of chambers found
+   */
+  private static int lookUp(Maze maze, int[] columns, int[] rows, int radius)
+  {
+    int found = 0;
+    for (int i = 0; i < columns.length; i++)
+    {
+      final List<Chamber> view = new ArrayList<>();
+      for (int row = rows[i] - radius; row <= rows[i] + radius; row++)
+      {
+        for (int column = columns[i] - radius; column <= columns[i] + radius; column++)
+        {
+          final Chamber c = maze.getChamber(new Location(column, row));
+          if (c != null)
+          {
+            view.add(c);
+          }
+        }
+      }
+      found += view.size();
+    }
+    return found;
+  }
+
+  /**
+   * Asks the maze for each square at once.
+   * @param maze
+   * @param columns
+   * @param rows
+   * @param radius
+   * @return the number of chambers found
+   */
+  private static int range(Maze maze, int[] columns, int[] rows, int radius)
+  {
+    int found = 0;
+    for (int i = 0; i < columns.length; i++)
+    {
+      found += maze.getChambersIn(columns[i] - radius, rows[i] - radius,
+          columns[i] + radius, rows[i] + radius).size();
+    }
+    return found;
+  }
+}
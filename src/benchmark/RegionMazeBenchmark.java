@@ -0,0 +1,105 @@
+package benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+import demesnes.Chamber;
+import demesnes.Direction;
+import demesnes.Location;
+import demesnes.Maze;
+import demesnes.RegionMazeGenerator;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Times region-based maze generation on fork-join pools of 1 to N threads,
+ * and checks that every pool builds exactly the same maze from the seed.
+ *
+ * Usage: RegionMazeBenchmark [chambers] [maxThreads] [seed]
+ */
+public final class RegionMazeBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 1000000;
+  private static final int WARMUP_RUNS = 2;
+  private static final int TIMED_RUNS = 3;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private RegionMazeBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers, maximum threads and seed, all optional
+   */
+  public static void main(String[] args)
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+        : Runtime.getRuntime().availableProcessors();
+    final long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+    final RegionMazeGenerator generator = new RegionMazeGenerator(seed);
+
+    System.out.printf("%d chambers, seed %d%n", chambers, seed);
+    System.out.printf("%8s %12s %10s %18s%n", "threads", "best ms", "speedup", "fingerprint");
+    long baseline = 0;
+    long expected = 0;
+    for (int threads = 1; threads <= maxThreads; threads++)
+    {
+      final ForkJoinPool pool = new ForkJoinPool(threads);
+      long best = Long.MAX_VALUE;
+      long fingerprint = 0;
+      for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++)
+      {
+        final long start = System.nanoTime();
+        final Maze maze = generator.generate(chambers, pool);
+        final long elapsed = System.nanoTime() - start;
+        if (run >= WARMUP_RUNS)
+        {
+          best = Math.min(best, elapsed);
+        }
+        fingerprint = fingerprint(maze);
+      }
+      pool.shutdown();
+
+      if (threads == 1)
+      {
+        baseline = best;
+        expected = fingerprint;
+      }
+      else if (fingerprint != expected)
+      {
+        throw new IllegalStateException(threads + " threads built a different maze");
+      }
+      System.out.printf("%8d %12.1f %10.2f %18x%n",
+          threads, best / 1e6, (double)baseline / best, fingerprint);
+    }
+  }
+
+  /**
+   * Hashes the layout of a maze, independent of the order of its chambers.
+   * @param maze
+   * @return the fingerprint
+   */
+  static long fingerprint(Maze maze)
+  {
+    long sum = 0;
+    for (Location l : maze.getKeySet())
+    {
+      final Chamber c = maze.getChamber(l);
+      long h = ((long)l.getColumn() << 32) ^ (l.getRow() & 0xFFFFFFFFL);
+      for (Direction d : Direction.values())
+      {
+        h = 31 * h + (c.hasDoor(d) ? 1 : 0);
+      }
+      h = 31 * h + c.getGrumanID();
+      h = 31 * h + (c.getStrategy() == null ? -1 : c.getStrategy().ordinal());
+      h ^= h >>> 29;
+      h *= 0xBF58476D1CE4E5B9L;
+      sum += h ^ (h >>> 32);
+    }
+    return sum;
+  }
+}
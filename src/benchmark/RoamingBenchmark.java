@@ -0,0 +1,105 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import demesnes.Location;
+import demesnes.Maze;
+import demesnes.RegionMazeGenerator;
+import demesnes.RoamingGrumans;
+import utility.KeyedRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Lets the grumans of a big maze roam for a while on fork-join pools of 1
+ * to N threads, asking who is in or next to a thousand chambers after each
+ * tick, and prints how long a tick took against the
+ * {@value RoamingGrumans#TICK_MS} ms between ticks. Checks that every pool
+ * moves the grumans exactly the same way.
+ *
+ * Usage: RoamingBenchmark [chambers] [maxThreads] [seconds] [seed]
+ */
+public final class RoamingBenchmark
+{
+  private static final int DEFAULT_CHAMBERS = 160000;
+  private static final int DEFAULT_SECONDS = 10;
+  private static final int QUERIES_PER_TICK = 1000;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private RoamingBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args chambers, maximum threads, seconds of roaming and seed,
+   *  all optional
+   */
+  public static void main(String[] args)
+  {
+    final int chambers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHAMBERS;
+    final int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+        : Runtime.getRuntime().availableProcessors();
+    final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+    final long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+    final Maze maze = new RegionMazeGenerator(seed).generate(chambers);
+    final List<Location> places = new ArrayList<>(maze.getKeySet());
+    final KeyedRandom random = new KeyedRandom(seed);
+    final int ticks = seconds * RoamingGrumans.TICKS_PER_SECOND;
+
+    long expected = 0;
+    for (int threads = 1; threads <= maxThreads; threads++)
+    {
+      final ForkJoinPool pool = new ForkJoinPool(threads);
+      final RoamingGrumans roamers = new RoamingGrumans(maze, seed);
+      if (threads == 1)
+      {
+        System.out.printf("%d grumans roaming %d chambers in %d regions, %d ticks, seed %d%n",
+            roamers.size(), roamers.getChamberCount(), roamers.getRegionCount(), ticks, seed);
+        System.out.printf("%8s %12s %12s %12s %18s%n", "threads", "tick ms", "of budget",
+            "query us", "fingerprint");
+      }
+      long tickNanos = 0;
+      long queryNanos = 0;
+      long found = 0;
+      for (int t = 0; t < ticks; t++)
+      {
+        long start = System.nanoTime();
+        roamers.tick(pool);
+        tickNanos += System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int q = 0; q < QUERIES_PER_TICK; q++)
+        {
+          final int i = random.nextInt(KeyedRandom.Purpose.ROAM, t, q, 0, places.size());
+          found += roamers.getGrumansNear(places.get(i)).length;
+        }
+        queryNanos += System.nanoTime() - start;
+      }
+      pool.shutdown();
+
+      long fingerprint = found;
+      for (int g = 0; g < roamers.size(); g++)
+      {
+        final Location l = roamers.getLocation(g);
+        fingerprint = KeyedRandom.mix(fingerprint ^ ((long)l.getColumn() << 32 | l.getRow() & 0xFFFFFFFFL));
+      }
+      if (threads == 1)
+      {
+        expected = fingerprint;
+      }
+      else if (fingerprint != expected)
+      {
+        throw new IllegalStateException(threads + " threads moved the grumans differently");
+      }
+      final double tickMS = tickNanos / 1e6 / ticks;
+      System.out.printf("%8d %12.2f %11.1f%% %12.2f %18x%n", threads, tickMS,
+          100 * tickMS / RoamingGrumans.TICK_MS, queryNanos / 1e3 / ticks / QUERIES_PER_TICK,
+          fingerprint);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import demesnes.Direction;
+import demesnes.Maze;
+import game.Game;
+import utility.SingleRandom;
+import utility.VirtualClock;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Plays whole games to the end on a VirtualClock, with a script that pokes
+ * each Gruman met until it has no sacks left, then walks on, taking its
+ * time over each step as a player would. Prints how long a game took to
+ * play, in game time and in real time, and checks that playing the same
+ * games again had every roar fall at the same game time, and each game
+ * end with the Human as healthy.
+ *
+ * Usage: ScriptedGameBenchmark [games] [chambers] [seed]
+ */
+public final class ScriptedGameBenchmark
+{
+  private static final int DEFAULT_GAMES = 2000;
+  private static final int DEFAULT_CHAMBERS = 200;
+  private static final int SACKS_TO_WIN = 8;
+  private static final long STEP_MS = 400;
+  private static final int MAX_STEPS = 5000;
+
+  /**
+   * What happened in the games played.
+   */
+  private static final class Tally
+  {
+    private long roars;
+    private long gameMillis;
+    private long won;
+    private long events = 1;
+  }
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private ScriptedGameBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args games, chambers of the maze, and seed, all optional
+   */
+  public static void main(String[] args)
+  {
+    final int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+    final int chambers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CHAMBERS;
+    final long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+    SingleRandom.getInstance().setSeed((int)seed);
+    final Maze maze = new Maze(chambers);
+
+    // warm up
+    play(maze, Math.min(games, 200), seed);
+
+    final long start = System.nanoTime();
+    final Tally tally = play(maze, games, seed);
+    final long nanos = System.nanoTime() - start;
+    final Tally again = play(maze, games, seed);
+
+    System.out.printf("%d games of %d chambers, seed %d: %.1f%% won, %d roars%n",
+        games, chambers, seed, 100.0 * tally.won / games, tally.roars);
+    System.out.printf("%.1f s of game time a game played in %.1f us, %.0f times real time%n",
+        tally.gameMillis / 1e3 / games, nanos / 1e3 / games, tally.gameMillis * 1e6 / nanos);
+    System.out.printf("replayed with the same events at the same times: %b%n",
+        tally.events == again.events && tally.gameMillis == again.gameMillis);
+  }
+
+  /**
+   * Plays games to the end, or until the script runs out of steps.
+   * @param maze
+   * @param games
+   * @param seed
+   * @return what happened
+   */
+  private static Tally play(final Maze maze, final int games, final long seed)
+  {
+    final Tally tally = new Tally();
+    final Random random = new Random(seed);
+    final VirtualClock clock = new VirtualClock();
+    final Game game = new Game();
+    // a new Game logs everything, and every game lost would be logged
+    Logger.getLogger("Game").setLevel(Level.WARNING);
+    game.configureGame("Benchmark Human", maze.getTotalChambers(), SACKS_TO_WIN,
+        Game.Difficulty.EASY, Game.Layout.CLASSIC);
+    game.setClock(clock);
+    final Runnable terrify = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        if (game.getState() == Game.State.ACTIVE)
+        {
+          game.defendHuman(game.attackHuman());
+          tally.roars++;
+          tally.events = tally.events * 31 + clock.now();
+        }
+      }
+    };
+    final Direction[] directions = Direction.values();
+
+    SingleRandom.getInstance().setSeed((int)seed);
+    for (int g = 0; g < games; g++)
+    {
+      game.resetGame(maze);
+      final long start = clock.now();
+      for (int step = 0; step < MAX_STEPS && game.getState() == Game.State.ACTIVE; step++)
+      {
+        if (game.hasGruman() && game.getGrumanSacks() > 0)
+        {
+          game.defendGruman(game.attackGruman());
+        }
+        else
+        {
+          game.moveHuman(directions[random.nextInt(directions.length)], terrify, null);
+        }
+        clock.runFor(STEP_MS);
+      }
+      tally.gameMillis += clock.now() - start;
+      tally.events = tally.events * 31 + game.aString().hashCode();
+      tally.won += game.getState() == Game.State.VICTORY ? 1 : 0;
+    }
+    return tally;
+  }
+}
@@ -0,0 +1,69 @@
+package benchmark;
+
+import game.Game;
+import utility.VirtualClock;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Times Game.updateStatus(), which runs on every move, poke and terrify,
+ * on games whose mazes range from a handful to millions of chambers.
+ * With the maze counting visits as they happen, the cost per refresh
+ * should not depend on the size of the maze.
+ *
+ * Usage: StatusBenchmark [chambers...]
+ */
+public final class StatusBenchmark
+{
+  private static final int[] DEFAULT_SIZES = {10, 1000, 100000, 1000000};
+  private static final int WARMUP_CALLS = 200000;
+  private static final int TIMED_CALLS = 1000000;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private StatusBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args maze sizes to time, optional
+   */
+  public static void main(String[] args)
+  {
+    int[] sizes = DEFAULT_SIZES;
+    if (args.length > 0)
+    {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++)
+      {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.out.printf("%12s %14s%n", "chambers", "ns per status");
+    for (int chambers : sizes)
+    {
+      final Game game = new Game();
+      // no game time passes here, so no Swing ticker keeps the program running
+      game.setClock(new VirtualClock());
+      game.configureGame(Game.DEFAULT_NAME, chambers, Game.DEFAULT_SACKS_TO_WIN,
+          Game.Difficulty.MEDIUM, Game.Layout.REGIONS);
+      game.resetGame();
+
+      for (int i = 0; i < WARMUP_CALLS; i++)
+      {
+        game.updateStatus();
+      }
+      final long start = System.nanoTime();
+      for (int i = 0; i < TIMED_CALLS; i++)
+      {
+        game.updateStatus();
+      }
+      final long elapsed = System.nanoTime() - start;
+      System.out.printf("%12d %14.1f   %s%n", chambers, (double)elapsed / TIMED_CALLS, game);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.util.Random;
+
+import utility.TimingWheel;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Schedules many repeating timers, as many Grumans roaring at once would,
+ * then advances a TimingWheel a millisecond at a time for a while,
+ * cancelling and scheduling some timers as it goes, and prints how long a
+ * tick took and how many timers ran.
+ *
+ * Usage: TimingWheelBenchmark [timers] [seconds] [seed]
+ */
+public final class TimingWheelBenchmark
+{
+  private static final int DEFAULT_TIMERS = 10000;
+  private static final int DEFAULT_SECONDS = 600;
+  private static final int MAX_DELAY_MS = 5000;
+  private static final int MAX_INTERVAL_MS = 5000;
+
+  /**
+   * Private constructor, this class only has a main method.
+   */
+  private TimingWheelBenchmark()
+  {
+  }
+
+  /**
+   * Runs the benchmark.
+   * @param args timers, seconds of game time, and seed, all optional
+   */
+  public static void main(String[] args)
+  {
+    final int timers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TIMERS;
+    final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+    final long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+    final Random random = new Random(seed);
+    final long[] runs = new long[1];
+    final Runnable task = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        runs[0]++;
+      }
+    };
+
+    final TimingWheel wheel = new TimingWheel();
+    final TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[timers];
+    for (int i = 0; i < timers; i++)
+    {
+      timeouts[i] = wheel.schedule(task, random.nextInt(MAX_DELAY_MS),
+          1 + random.nextInt(MAX_INTERVAL_MS));
+    }
+
+    final long ticks = seconds * 1000L;
+    final long start = System.nanoTime();
+    for (long tick = 0; tick < ticks; tick++)
+    {
+      // a Gruman is left and another met now and then
+      final int i = random.nextInt(timers);
+      timeouts[i].cancel();
+      timeouts[i] = wheel.schedule(task, random.nextInt(MAX_DELAY_MS),
+          1 + random.nextInt(MAX_INTERVAL_MS));
+      wheel.advance(1);
+    }
+    final long nanos = System.nanoTime() - start;
+
+    System.out.printf("%d timers, %d ticks of 1 ms: %.1f ms, %.0f ns a tick, %d runs%n",
+        timers, ticks, nanos / 1e6, (double)nanos / ticks, runs[0]);
+  }
+}
@@ -0,0 +1,140 @@
+package demesnes;
+
+import java.io.Serializable;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * A rectangle of columns and rows, both ends included.
+ */
+public final class Bounds implements Serializable
+{
+  private final int west;
+  private final int south;
+  private final int east;
+  private final int north;
+
+  /**
+   * Constructs the bounds of a rectangle.
+   * @param west the westmost column
+   * @param south the southmost row
+   * @param east the eastmost column
+   * @param north the northmost row
+   * @throws IllegalArgumentException if the rectangle is empty
+   */
+  public Bounds(int west, int south, int east, int north)
+  {
+    if (west > east || south > north)
+    {
+      throw new IllegalArgumentException("Empty bounds: columns " + west + " to " + east
+          + ", rows " + south + " to " + north);
+    }
+    this.west = west;
+    this.south = south;
+    this.east = east;
+    this.north = north;
+  }
+
+  /**
+   * Returns the westmost column.
+   * @return column
+   */
+  public int getWest()
+  {
+    return west;
+  }
+
+  /**
+   * Returns the southmost row.
+   * @return row
+   */
+  public int getSouth()
+  {
+    return south;
+  }
+
+  /**
+   * Returns the eastmost column.
+   * @return column
+   */
+  public int getEast()
+  {
+    return east;
+  }
+
+  /**
+   * Returns the northmost row.
+   * @return row
+   */
+  public int getNorth()
+  {
+    return north;
+  }
+
+  /**
+   * Returns the number of columns.
+   * @return width
+   */
+  public int getWidth()
+  {
+    return east - west + 1;
+  }
+
+  /**
+   * Returns the number of rows.
+   * @return height
+   */
+  public int getHeight()
+  {
+    return north - south + 1;
+  }
+
+  /**
+   * Predicate method whether a column and row lie within the bounds
+   * @param column
+   * @param row
+   * @return true/false
+   */
+  public boolean contains(int column, int row)
+  {
+    return west <= column && column <= east && south <= row && row <= north;
+  }
+
+  /**
+   * Returns the smallest bounds holding both these and others.
+   * @param other
+   * @return the union
+   */
+  public Bounds union(Bounds other)
+  {
+    return new Bounds(Math.min(west, other.west), Math.min(south, other.south),
+        Math.max(east, other.east), Math.max(north, other.north));
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (!(o instanceof Bounds))
+    {
+      return false;
+    }
+    final Bounds b = (Bounds)o;
+    return west == b.west && south == b.south && east == b.east && north == b.north;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return ((west * 31 + south) * 31 + east) * 31 + north;
+  }
+
+  /**
+   * String representation of the bounds
+   */
+  @Override
+  public String toString()
+  {
+    return "Columns " + west + " to " + east + ", rows " + south + " to " + north;
+  }
+}
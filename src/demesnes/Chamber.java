@@ -6,10 +6,8 @@ import java.io.Serializable;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
-import java.util.Random;
 
 import utility.SingleRandom;
-import demesnes.Location;
 
 /**
  * Final Project
@@ -24,34 +22,48 @@ public class Chamber implements Serializable
 	
   public static final int NONE = -1;
   
+  /**
+   * The walls for every mask of doors, shared by all chambers
+   */
+  private static final Map<Direction, Wall>[] WALLS = wallsByMask();
+  private static final BattleStrategy[] STRATEGIES = BattleStrategy.values();
+  
 	/**
 	 * Initialize instance variables
+	 * The walls are a mask of doors, one bit per direction,
+	 * and the strategy is an ordinal, or NONE
 	 */
 	private boolean visited;
-	private Location location;
-	private int grumanID;
-	private BattleStrategy strategy;
-	private final Map<Direction, Wall> walls;
+	private final byte doors;
+	private byte strategy;
+	private final int column;
+	private final int row;
+	private final int grumanID;
+	
+	/**
+	 * The chambers through each door, linked the first time they are
+	 * walked to. They are transient so that saving a maze does not
+	 * recurse from chamber to chamber; a loaded maze links them again
+	 * as the human walks.
+	 */
+	private transient Chamber north;
+	private transient Chamber east;
+	private transient Chamber south;
+	private transient Chamber west;
 	
 	/**
 	 * Constructor
 	 */
 	public Chamber()
 	{
-		final Map<Direction, Wall> walls = new EnumMap<>(Direction.class);
-		for (Direction d : Direction.values())
-		{
-			walls.put(d, Wall.BLANK);
-		}
+		int pick = SingleRandom.getInstance().nextInt(Direction.values().length);
 		
-		int pick = SingleRandom.getInstance().nextInt(walls.size());
-		walls.put(Direction.values()[pick], Wall.DOOR);
-		
-		this.walls = Collections.unmodifiableMap(walls);
-		this.location=new Location();
+		this.doors = (byte)Direction.values()[pick].getMask();
+		this.column = 0;
+		this.row = 0;
 		this.visited=false;
 		this.grumanID=NONE;
-		strategy = null;
+		this.strategy = NONE;
 	}
 	
 	/**
@@ -62,11 +74,62 @@ public class Chamber implements Serializable
 	 */
 	public Chamber(EnumMap<Direction, Wall> walls, Location l, int i, BattleStrategy strategy)
 	{
-		this.walls=Collections.unmodifiableMap(walls.clone());
-		this.location = l;
+		this(maskOf(walls), l, i, strategy);
+	}
+	
+	/**
+	 * Constructor from a mask of doors, one bit per direction
+	 * @param doors mask of Direction bits that are doors
+	 * @param location
+	 * @param int id
+	 * @param strategy
+	 */
+	public Chamber(int doors, Location l, int i, BattleStrategy strategy)
+	{
+		this.doors = (byte)doors;
+		this.column = l.getColumn();
+		this.row = l.getRow();
 		this.visited=false;
 		this.grumanID=i;
-		this.strategy = strategy;
+		this.strategy = (byte)(strategy == null ? NONE : strategy.ordinal());
+	}
+	
+	/**
+	 * Folds a map of walls into a mask of doors
+	 * @param walls
+	 * @return mask of Direction bits that are doors
+	 */
+	private static int maskOf(Map<Direction, Wall> walls)
+	{
+		int doors = 0;
+		for (Direction d : Direction.values())
+		{
+			if (walls.get(d) == Wall.DOOR)
+			{
+				doors |= d.getMask();
+			}
+		}
+		return doors;
+	}
+	
+	/**
+	 * Builds the unmodifiable walls for each of the sixteen masks of doors
+	 * @return walls indexed by mask
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Map<Direction, Wall>[] wallsByMask()
+	{
+		final Map<Direction, Wall>[] walls = new Map[1 << Direction.values().length];
+		for (int doors = 0; doors < walls.length; doors++)
+		{
+			final EnumMap<Direction, Wall> map = new EnumMap<>(Direction.class);
+			for (Direction d : Direction.values())
+			{
+				map.put(d, (doors & d.getMask()) != 0 ? Wall.DOOR : Wall.BLANK);
+			}
+			walls[doors] = Collections.unmodifiableMap(map);
+		}
+		return walls;
 	}
 	
 	/**
@@ -75,7 +138,25 @@ public class Chamber implements Serializable
 	 */
 	public Location getLocation()
 	{
-		return this.location;
+		return new Location(column, row);
+	}
+	
+	/**
+	 * returns the column of the chamber
+	 * @return column
+	 */
+	public int getColumn()
+	{
+		return column;
+	}
+	
+	/**
+	 * returns the row of the chamber
+	 * @return row
+	 */
+	public int getRow()
+	{
+		return row;
 	}
 	
 	/**
@@ -112,7 +193,71 @@ public class Chamber implements Serializable
 	 */
 	public boolean hasDoor(Direction d)
 	{
-		return walls.get(d)==Wall.DOOR;
+		return (doors & d.getMask()) != 0;
+	}
+	
+	/**
+	 * returns the doors of the chamber as a mask, one bit per direction
+	 * (see Direction.getMask())
+	 * @return mask of doors
+	 */
+	public int getDoors()
+	{
+		return doors;
+	}
+	
+	/**
+	 * returns the chamber linked through the door in direction d
+	 * @param direction
+	 * @return the neighbouring chamber, or null if it is not linked yet
+	 */
+	Chamber getNeighbor(Direction d)
+	{
+		switch (d)
+		{
+			case NORTH:
+				return north;
+			case EAST:
+				return east;
+			case SOUTH:
+				return south;
+			default:
+				return west;
+		}
+	}
+	
+	/**
+	 * links the chamber through the door in direction d
+	 * @param direction
+	 * @param neighbor the chamber on the other side
+	 */
+	void setNeighbor(Direction d, Chamber neighbor)
+	{
+		switch (d)
+		{
+			case NORTH:
+				north = neighbor;
+				break;
+			case EAST:
+				east = neighbor;
+				break;
+			case SOUTH:
+				south = neighbor;
+				break;
+			default:
+				west = neighbor;
+				break;
+		}
+	}
+	
+	/**
+	 * returns whether or not the chamber has a door in every direction of a mask
+	 * @param mask of Direction bits
+	 * @return boolean
+	 */
+	public boolean hasDoors(int mask)
+	{
+		return (doors & mask) == mask;
 	}
 	
 	/**
@@ -122,12 +267,16 @@ public class Chamber implements Serializable
 	 */
 	public Wall getWall(Direction d)
 	{
-		return walls.get(d);
+		return hasDoor(d) ? Wall.DOOR : Wall.BLANK;
 	}
 	
+	/**
+	 * returns the walls of the chamber, which cannot be modified
+	 * @return map of walls
+	 */
 	public Map<Direction, Wall> getWalls()
 	{
-	  return walls;
+	  return WALLS[doors];
 	}
 	
 	/**
@@ -136,8 +285,7 @@ public class Chamber implements Serializable
 	 */
 	public BattleStrategy getStrategy()
 	{
-	  //System.out.println(strategy);
-	  return strategy;
+	  return strategy == NONE ? null : STRATEGIES[strategy];
 	}
 	
 	/**
@@ -146,7 +294,7 @@ public class Chamber implements Serializable
 	 */
 	public boolean isOrigin()
 	{
-		return location.isOrigin();
+		return column == 0 && row == 0;
 	}
 	
 	/**
@@ -155,7 +303,7 @@ public class Chamber implements Serializable
 	public void setVisited()
 	{
 		this.visited = true;
-		strategy = null;
+		strategy = NONE;
 	}
 	
 	/**
@@ -168,7 +316,7 @@ public class Chamber implements Serializable
 		
 		for (Direction d : Direction.values())
 		{
-			s += "Wall in direction: "+d+" is "+walls.get(d).name()+"\n";
+			s += "Wall in direction: "+d+" is "+getWall(d).name()+"\n";
 		}
 		
 		return s;
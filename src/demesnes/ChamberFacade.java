@@ -14,14 +14,40 @@ public class ChamberFacade
 {
   //Chamber instance variable
   private final Chamber chamber;
+  private final boolean visited;
+  private final boolean gruman;
   
   /**
    * Facade constructor
    * @param chamber
    */
   public ChamberFacade(final Chamber chamber)
+  {
+    this(chamber, chamber.hasVisited());
+  }
+  
+  /**
+   * Facade constructor for a chamber as one game sees it
+   * @param chamber
+   * @param visited whether the game has visited it
+   */
+  public ChamberFacade(final Chamber chamber, final boolean visited)
+  {
+    this(chamber, visited, chamber.hasGruman());
+  }
+
+  /**
+   * Facade constructor for a chamber as one game sees it, with grumans
+   * that may have roamed in or out of it
+   * @param chamber
+   * @param visited whether the game has visited it
+   * @param gruman whether a gruman is in it
+   */
+  public ChamberFacade(final Chamber chamber, final boolean visited, final boolean gruman)
   {
     this.chamber = chamber;
+    this.visited = visited;
+    this.gruman = gruman;
   }
 
   /**
@@ -30,7 +56,7 @@ public class ChamberFacade
    */
   public boolean hasVisited()
   {
-    return chamber.hasVisited();
+    return visited;
   }
 
   /**
@@ -39,7 +65,7 @@ public class ChamberFacade
    */
   public boolean hasGruman()
   {
-    return chamber.hasGruman();
+    return gruman;
   }
 
   /**
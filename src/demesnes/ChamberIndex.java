@@ -0,0 +1,534 @@
+package demesnes;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * An index of chambers keyed by their column and row packed into a long.
+ *
+ * Chambers live in primitive, open-addressed arrays,
+ * so looking one up allocates neither a boxed key nor a Location,
+ * and each chamber costs two array slots instead of a hash map entry.
+ *
+ * A coarser grid keeps one bit per chamber for each region of the plane
+ * holding any, so the chambers in a rectangle are found a row of a region
+ * at a time, at a cost that follows the number found.
+ */
+public class ChamberIndex implements ChamberStore, Serializable
+{
+  private static final int MIN_CAPACITY = 16;
+
+  /**
+   * The table grows once it is this many quarters full.
+   */
+  private static final int MAX_LOAD_QUARTERS = 3;
+
+  /**
+   * The table never grows past this many slots.
+   */
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * The most slots made up front for an expected number of chambers;
+   * past it the table grows as chambers are indexed.
+   */
+  private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+
+  /**
+   * The most chambers the index holds.
+   */
+  public static final int MAX_CHAMBERS = (int)((long)MAX_CAPACITY * MAX_LOAD_QUARTERS / 4);
+
+  private long[] keys;
+  private Chamber[] chambers;
+  private int size;
+
+  /**
+   * For each region holding chambers, a word per row with a bit per column.
+   */
+  private final Map<Long, long[]> regions;
+  private int west;
+  private int south;
+  private int east;
+  private int north;
+
+  /**
+   * Constructs an empty index.
+   */
+  public ChamberIndex()
+  {
+    this(0);
+  }
+
+  /**
+   * Constructs an empty index with room for an expected number of chambers,
+   * up to a modest number; it grows for more as they are indexed.
+   *
+   * @param expected the number of chambers expected
+   */
+  public ChamberIndex(final int expected)
+  {
+    final int capacity = Math.min(MAX_INITIAL_CAPACITY, capacityFor(expected));
+    keys = new long[capacity];
+    chambers = new Chamber[capacity];
+    size = 0;
+    regions = new HashMap<>();
+    west = south = Integer.MAX_VALUE;
+    east = north = Integer.MIN_VALUE;
+  }
+
+  /**
+   * Packs a column and row into a single key.
+   *
+   * @param column the column
+   * @param row the row
+   * @return the packed key
+   */
+  public static long key(final int column, final int row)
+  {
+    return ((long)column << 32) | (row & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Packs a location into a single key.
+   *
+   * @param l the location
+   * @return the packed key
+   */
+  public static long key(final Location l)
+  {
+    return key(l.getColumn(), l.getRow());
+  }
+
+  /**
+   * Returns the column of a packed key.
+   *
+   * @param key the packed key
+   * @return the column
+   */
+  public static int column(final long key)
+  {
+    return (int)(key >> 32);
+  }
+
+  /**
+   * Returns the row of a packed key.
+   *
+   * @param key the packed key
+   * @return the row
+   */
+  public static int row(final long key)
+  {
+    return (int)key;
+  }
+
+  /**
+   * Returns the number of chambers in the index.
+   *
+   * @return the number of chambers
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns whether there is a chamber at a column and row.
+   *
+   * @param column the column
+   * @param row the row
+   * @return true if a chamber is indexed there
+   */
+  @Override
+  public boolean contains(final int column, final int row)
+  {
+    return get(key(column, row)) != null;
+  }
+
+  /**
+   * Returns the chamber at a column and row.
+   *
+   * @param column the column
+   * @param row the row
+   * @return the chamber, or null if there is none
+   */
+  @Override
+  public Chamber get(final int column, final int row)
+  {
+    return get(key(column, row));
+  }
+
+  /**
+   * Returns the chamber at a packed key.
+   *
+   * @param key the packed key
+   * @return the chamber, or null if there is none
+   */
+  public Chamber get(final long key)
+  {
+    final int mask = keys.length - 1;
+    int slot = slotFor(key, mask);
+    Chamber c;
+    while ((c = chambers[slot]) != null)
+    {
+      if (keys[slot] == key)
+      {
+        return c;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Indexes a chamber at its location, replacing any chamber already there.
+   *
+   * @param c the chamber
+   * @return the chamber replaced, or null if there was none
+   * @throws IllegalStateException if the index already holds MAX_CHAMBERS
+   */
+  public Chamber put(final Chamber c)
+  {
+    if (c == null)
+    {
+      throw new NullPointerException("Cannot index a null chamber");
+    }
+    if (isFull() && keys.length < MAX_CAPACITY)
+    {
+      resize(2 * keys.length);
+    }
+    final long key = key(c.getColumn(), c.getRow());
+    final int mask = keys.length - 1;
+    int slot = slotFor(key, mask);
+    Chamber old;
+    while ((old = chambers[slot]) != null)
+    {
+      if (keys[slot] == key)
+      {
+        chambers[slot] = c;
+        return old;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (isFull())
+    {
+      throw new IllegalStateException("Cannot index more than " + MAX_CHAMBERS + " chambers");
+    }
+    keys[slot] = key;
+    chambers[slot] = c;
+    size++;
+    occupy(c.getColumn(), c.getRow());
+    return null;
+  }
+
+  /**
+   * Returns the smallest rectangle holding every indexed chamber.
+   *
+   * @return the bounds, or null if the index is empty
+   */
+  @Override
+  public Bounds bounds()
+  {
+    return size == 0 ? null : new Bounds(west, south, east, north);
+  }
+
+  /**
+   * Adds every chamber in a rectangle to a collection,
+   * scanning only the regions of the plane that hold chambers.
+   *
+   * @param west the westmost column
+   * @param south the southmost row
+   * @param east the eastmost column
+   * @param north the northmost row
+   * @param into the collection to add the chambers to
+   */
+  @Override
+  public void collect(int west, int south, int east, int north, final Collection<Chamber> into)
+  {
+    west = Math.max(west, this.west);
+    south = Math.max(south, this.south);
+    east = Math.min(east, this.east);
+    north = Math.min(north, this.north);
+    if (west > east || south > north)
+    {
+      return;
+    }
+    for (int regionRow = Region.regionOf(south); regionRow <= Region.regionOf(north); regionRow++)
+    {
+      for (int regionColumn = Region.regionOf(west); regionColumn <= Region.regionOf(east);
+          regionColumn++)
+      {
+        final long[] rows = regions.get(key(regionColumn, regionRow));
+        if (rows == null)
+        {
+          continue;
+        }
+        final int column0 = Region.columnOf(regionColumn, 0);
+        final int row0 = Region.rowOf(regionRow, 0);
+        final int fromX = Math.max(west, column0) - column0;
+        final int toX = Math.min(east, column0 + Region.SIZE - 1) - column0;
+        final long mask = (-1L >>> (Region.SIZE - 1 - toX)) & (-1L << fromX);
+        final int toY = Math.min(north, row0 + Region.SIZE - 1) - row0;
+        for (int y = Math.max(south, row0) - row0; y <= toY; y++)
+        {
+          long bits = rows[y] & mask;
+          while (bits != 0)
+          {
+            into.add(get(column0 + Long.numberOfTrailingZeros(bits), row0 + y));
+            bits &= bits - 1;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns an iterator over the indexed chambers, in no particular order.
+   *
+   * @return the iterator
+   */
+  @Override
+  public Iterator<Chamber> iterator()
+  {
+    return new Iterator<Chamber>()
+    {
+      private int slot = advance(0);
+
+      private int advance(int from)
+      {
+        while (from < chambers.length && chambers[from] == null)
+        {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext()
+      {
+        return slot < chambers.length;
+      }
+
+      @Override
+      public Chamber next()
+      {
+        if (!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+        final Chamber c = chambers[slot];
+        slot = advance(slot + 1);
+        return c;
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException("Chambers cannot be removed");
+      }
+    };
+  }
+
+  /**
+   * Returns an unmodifiable view of the indexed locations.
+   *
+   * @return the locations
+   */
+  @Override
+  public Set<Location> locations()
+  {
+    return new AbstractSet<Location>()
+    {
+      @Override
+      public Iterator<Location> iterator()
+      {
+        final Iterator<Chamber> it = ChamberIndex.this.iterator();
+        return new Iterator<Location>()
+        {
+          @Override
+          public boolean hasNext()
+          {
+            return it.hasNext();
+          }
+
+          @Override
+          public Location next()
+          {
+            return it.next().getLocation();
+          }
+
+          @Override
+          public void remove()
+          {
+            it.remove();
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(final Object o)
+      {
+        return o instanceof Location && get(key((Location)o)) != null;
+      }
+
+      @Override
+      public int size()
+      {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Does nothing, since every chamber is already indexed.
+   *
+   * @param column the human's column
+   * @param row the human's row
+   */
+  @Override
+  public void approach(final int column, final int row)
+  {
+  }
+
+  /**
+   * Marks a chamber visited.
+   *
+   * @param c the chamber
+   */
+  @Override
+  public void visit(final Chamber c)
+  {
+    c.setVisited();
+  }
+
+  /**
+   * The chambers are kept on the heap for good.
+   *
+   * @return true
+   */
+  @Override
+  public boolean isResident()
+  {
+    return true;
+  }
+
+  /**
+   * String representation of the index
+   */
+  @Override
+  public String toString()
+  {
+    final StringBuilder s = new StringBuilder("{");
+    for (final Chamber c : this)
+    {
+      if (s.length() > 1)
+      {
+        s.append(", ");
+      }
+      s.append(c.getLocation()).append('=').append(c);
+    }
+    return s.append('}').toString();
+  }
+
+  /**
+   * Sets the bit of a newly indexed chamber in its region, and widens the bounds.
+   *
+   * @param column the column
+   * @param row the row
+   */
+  private void occupy(final int column, final int row)
+  {
+    final long regionKey = key(Region.regionOf(column), Region.regionOf(row));
+    long[] rows = regions.get(regionKey);
+    if (rows == null)
+    {
+      rows = new long[Region.SIZE];
+      regions.put(regionKey, rows);
+    }
+    final int cell = Region.cellOf(column, row);
+    rows[cell / Region.SIZE] |= 1L << (cell % Region.SIZE);
+    west = Math.min(west, column);
+    south = Math.min(south, row);
+    east = Math.max(east, column);
+    north = Math.max(north, row);
+  }
+
+  /**
+   * Returns whether one more chamber would load the table past its maximum.
+   *
+   * @return true if the table should grow first
+   */
+  private boolean isFull()
+  {
+    return 4L * (size + 1) > (long)MAX_LOAD_QUARTERS * keys.length;
+  }
+
+  /**
+   * Rehashes every chamber into a table of a new capacity.
+   *
+   * @param capacity the new capacity, a power of two
+   */
+  private void resize(final int capacity)
+  {
+    final long[] oldKeys = keys;
+    final Chamber[] oldChambers = chambers;
+    keys = new long[capacity];
+    chambers = new Chamber[capacity];
+    final int mask = capacity - 1;
+    for (int i = 0; i < oldChambers.length; i++)
+    {
+      if (oldChambers[i] != null)
+      {
+        int slot = slotFor(oldKeys[i], mask);
+        while (chambers[slot] != null)
+        {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        chambers[slot] = oldChambers[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the smallest power-of-two capacity
+   * that holds an expected number of chambers under the maximum load.
+   *
+   * @param expected the number of chambers expected
+   * @return the capacity
+   */
+  private static int capacityFor(final int expected)
+  {
+    final long needed = Math.max(MIN_CAPACITY, 4L * expected / MAX_LOAD_QUARTERS + 1);
+    if (needed > MAX_CAPACITY)
+    {
+      return MAX_CAPACITY;
+    }
+    return Integer.highestOneBit((int)needed - 1) << 1;
+  }
+
+  /**
+   * Scrambles a key into a slot, since neighbouring chambers have neighbouring keys.
+   *
+   * @param key the packed key
+   * @param mask the table size less one
+   * @return the home slot of the key
+   */
+  static int slotFor(long key, final int mask)
+  {
+    key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+    key = (key ^ (key >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    key ^= key >>> 33;
+    return (int)key & mask;
+  }
+}
@@ -0,0 +1,78 @@
+package demesnes;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Where a maze keeps its chambers, looked up by column and row.
+ */
+interface ChamberStore extends Iterable<Chamber>
+{
+  /**
+   * Returns the chamber at a column and row.
+   * @param column
+   * @param row
+   * @return the chamber, or null if there is none
+   */
+  Chamber get(int column, int row);
+
+  /**
+   * Returns whether there is a chamber at a column and row.
+   * @param column
+   * @param row
+   * @return true if there is a chamber
+   */
+  boolean contains(int column, int row);
+
+  /**
+   * Returns the number of chambers held.
+   * @return the number of chambers
+   */
+  int size();
+
+  /**
+   * Returns the smallest rectangle holding every chamber held.
+   * @return the bounds, or null if there are no chambers
+   */
+  Bounds bounds();
+
+  /**
+   * Adds every chamber in a rectangle to a collection.
+   * @param west the westmost column
+   * @param south the southmost row
+   * @param east the eastmost column
+   * @param north the northmost row
+   * @param into the collection to add the chambers to
+   */
+  void collect(int west, int south, int east, int north, Collection<Chamber> into);
+
+  /**
+   * Returns an unmodifiable view of the locations of the chambers held.
+   * @return the locations
+   */
+  Set<Location> locations();
+
+  /**
+   * Tells the store the human is at a column and row,
+   * so it can have the chambers around them ready.
+   * @param column
+   * @param row
+   */
+  void approach(int column, int row);
+
+  /**
+   * Marks a chamber of the store visited.
+   * @param c
+   */
+  void visit(Chamber c);
+
+  /**
+   * Returns whether the store hands out the same chamber object for a
+   * location every time, so chambers may be linked to their neighbours.
+   * @return true if the chambers stay on the heap
+   */
+  boolean isResident();
+}
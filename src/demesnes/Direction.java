@@ -104,6 +104,16 @@ public enum Direction
     return verticalOffset;
   }
   
+  /**
+   * returns the bit standing for this direction in a mask of walls,
+   * one bit per direction in declaration order
+   * @return mask bit
+   */
+  public int getMask()
+  {
+    return 1 << ordinal();
+  }
+  
   /**
    * returns the opposite direction (ex. north -> south)
    * @return direction
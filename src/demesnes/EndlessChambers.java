@@ -0,0 +1,229 @@
+package demesnes;
+
+import game.BattleStrategy;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+import utility.KeyedRandom;
+import utility.KeyedRandom.Purpose;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * The chambers of an endless maze, carved a region at a time
+ * as the human comes near them or someone asks for them.
+ *
+ * Every region is carved full and stitched to all four of its neighbours,
+ * so the maze goes on forever in every direction. A region's layout is
+ * a pure function of the seed and its coordinates, and once carved it is
+ * kept, so the heap grows with how much has been explored.
+ */
+class EndlessChambers implements ChamberStore, Serializable
+{
+  /**
+   * The power-ups that may lie somewhere in each region.
+   */
+  private static final BattleStrategy[] POWER_UPS =
+    {BattleStrategy.SHIELD, BattleStrategy.CANE, BattleStrategy.UMBRELLA};
+
+  private final KeyedRandom random;
+  private final int radius;
+  private final ChamberIndex carved;
+  private int grumanCount;
+
+  /**
+   * Constructs an endless maze, carving the region around the entrance.
+   * @param seed the maze seed
+   * @param radius how many chambers around the human to have carved
+   */
+  EndlessChambers(long seed, int radius)
+  {
+    if (radius < 0)
+    {
+      throw new IllegalArgumentException("Radius must not be negative: " + radius);
+    }
+    this.random = new KeyedRandom(seed);
+    this.radius = radius;
+    this.carved = new ChamberIndex(Region.CELLS);
+    this.grumanCount = 0;
+    approach(0, 0);
+  }
+
+  /**
+   * Returns the chamber at a column and row, carving its region first if need be.
+   * @param column
+   * @param row
+   * @return the chamber
+   */
+  @Override
+  public Chamber get(int column, int row)
+  {
+    Chamber c = carved.get(column, row);
+    if (c == null)
+    {
+      carve(Region.regionOf(column), Region.regionOf(row));
+      c = carved.get(column, row);
+    }
+    return c;
+  }
+
+  /**
+   * Every location of an endless maze has a chamber.
+   * @param column
+   * @param row
+   * @return true
+   */
+  @Override
+  public boolean contains(int column, int row)
+  {
+    return true;
+  }
+
+  /**
+   * Returns the number of chambers carved so far.
+   * @return the number of chambers carved
+   */
+  @Override
+  public int size()
+  {
+    return carved.size();
+  }
+
+  @Override
+  public Set<Location> locations()
+  {
+    return carved.locations();
+  }
+
+  /**
+   * Returns the smallest rectangle holding the chambers carved so far.
+   * @return the bounds
+   */
+  @Override
+  public Bounds bounds()
+  {
+    return carved.bounds();
+  }
+
+  /**
+   * Adds every chamber in a rectangle to a collection,
+   * carving the regions it covers first.
+   * @param west the westmost column
+   * @param south the southmost row
+   * @param east the eastmost column
+   * @param north the northmost row
+   * @param into the collection to add the chambers to
+   */
+  @Override
+  public void collect(int west, int south, int east, int north, Collection<Chamber> into)
+  {
+    for (int regionColumn = Region.regionOf(west); regionColumn <= Region.regionOf(east); regionColumn++)
+    {
+      for (int regionRow = Region.regionOf(south); regionRow <= Region.regionOf(north); regionRow++)
+      {
+        if (!carved.contains(regionColumn * Region.SIZE, regionRow * Region.SIZE))
+        {
+          carve(regionColumn, regionRow);
+        }
+      }
+    }
+    carved.collect(west, south, east, north, into);
+  }
+
+  @Override
+  public Iterator<Chamber> iterator()
+  {
+    return carved.iterator();
+  }
+
+  /**
+   * Marks a chamber visited.
+   * @param c the chamber
+   */
+  @Override
+  public void visit(Chamber c)
+  {
+    c.setVisited();
+  }
+
+  /**
+   * The chambers carved are kept on the heap for good.
+   * @return true
+   */
+  @Override
+  public boolean isResident()
+  {
+    return true;
+  }
+
+  /**
+   * String representation of the chambers carved so far
+   */
+  @Override
+  public String toString()
+  {
+    return carved.toString();
+  }
+
+  /**
+   * Carves every region within the radius of the human.
+   * @param column the human's column
+   * @param row the human's row
+   */
+  @Override
+  public void approach(int column, int row)
+  {
+    final int west = Region.regionOf(column - radius);
+    final int east = Region.regionOf(column + radius);
+    final int south = Region.regionOf(row - radius);
+    final int north = Region.regionOf(row + radius);
+    for (int regionColumn = west; regionColumn <= east; regionColumn++)
+    {
+      for (int regionRow = south; regionRow <= north; regionRow++)
+      {
+        if (!carved.contains(regionColumn * Region.SIZE, regionRow * Region.SIZE))
+        {
+          carve(regionColumn, regionRow);
+        }
+      }
+    }
+  }
+
+  /**
+   * Carves a region, stitches it to all its neighbours and keeps its chambers.
+   * @param regionColumn
+   * @param regionRow
+   */
+  private void carve(int regionColumn, int regionRow)
+  {
+    final Region region = new Region(regionColumn, regionRow);
+    region.grow(Region.carving(random, regionColumn, regionRow), Region.cellOf(0, 0), Region.CELLS);
+    for (Direction d : Direction.values())
+    {
+      region.stitch(random, d);
+    }
+    region.placeGrumans(random, Maze.GRUMAN_ODDS);
+    final int powerUpCell = random.nextInt(Purpose.POWER_UP, regionColumn, regionRow, 0, Region.CELLS);
+    final BattleStrategy powerUp = POWER_UPS[random.nextInt(Purpose.POWER_UP, regionColumn, regionRow,
+        1, POWER_UPS.length)];
+
+    for (int cell = 0; cell < Region.CELLS; cell++)
+    {
+      int id = Chamber.NONE;
+      if (region.hasGruman(cell))
+      {
+        id = grumanCount++;
+      }
+      final Chamber c = region.toChamber(cell, id, cell == powerUpCell ? powerUp : null);
+      if (c.isOrigin())
+      {
+        c.setVisited();
+      }
+      carved.put(c);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package demesnes;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * The locations still waiting to become chambers while a maze is generated.
+ *
+ * Locations come off in last-in, first-out order, like the list they replace,
+ * but a hash set kept alongside the stack answers membership in constant time,
+ * so generation no longer rescans every pending location for each door it opens.
+ */
+class Frontier
+{
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] stack;
+  private int size;
+
+  private long[] keys;
+  private boolean[] used;
+
+  /**
+   * Constructs an empty frontier.
+   */
+  Frontier()
+  {
+    stack = new long[MIN_CAPACITY];
+    keys = new long[MIN_CAPACITY];
+    used = new boolean[MIN_CAPACITY];
+    size = 0;
+  }
+
+  /**
+   * Returns whether there are no locations waiting.
+   * @return true if the frontier is empty
+   */
+  boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of locations waiting.
+   * @return the size of the frontier
+   */
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns whether a location is waiting.
+   * @param key the packed location
+   * @return true if the location is on the frontier
+   */
+  boolean contains(final long key)
+  {
+    return find(key) >= 0;
+  }
+
+  /**
+   * Adds a location to the top of the frontier unless it is already waiting.
+   * @param key the packed location
+   * @return true if the location was added
+   */
+  boolean add(final long key)
+  {
+    if (contains(key))
+    {
+      return false;
+    }
+    if (size == stack.length)
+    {
+      final long[] bigger = new long[2 * size];
+      System.arraycopy(stack, 0, bigger, 0, size);
+      stack = bigger;
+    }
+    if (4 * (size + 1) > 3 * keys.length)
+    {
+      rehash(2 * keys.length);
+    }
+    stack[size++] = key;
+    insert(key);
+    return true;
+  }
+
+  /**
+   * Removes and returns the location most recently added.
+   * @return the packed location
+   */
+  long remove()
+  {
+    final long key = stack[--size];
+    delete(find(key));
+    return key;
+  }
+
+  /**
+   * Returns the slot holding a key.
+   * @param key the packed location
+   * @return the slot, or -1 if the key is absent
+   */
+  private int find(final long key)
+  {
+    final int mask = keys.length - 1;
+    int slot = ChamberIndex.slotFor(key, mask);
+    while (used[slot])
+    {
+      if (keys[slot] == key)
+      {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Places a key known to be absent.
+   * @param key the packed location
+   */
+  private void insert(final long key)
+  {
+    final int mask = keys.length - 1;
+    int slot = ChamberIndex.slotFor(key, mask);
+    while (used[slot])
+    {
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    used[slot] = true;
+  }
+
+  /**
+   * Empties a slot, shifting back any later keys of the same probe run
+   * so that lookups never stop short at the hole.
+   * @param hole the slot to empty
+   */
+  private void delete(int hole)
+  {
+    final int mask = keys.length - 1;
+    int slot = hole;
+    while (true)
+    {
+      slot = (slot + 1) & mask;
+      if (!used[slot])
+      {
+        break;
+      }
+      final int home = ChamberIndex.slotFor(keys[slot], mask);
+      final boolean stays = hole <= slot
+          ? hole < home && home <= slot
+          : hole < home || home <= slot;
+      if (!stays)
+      {
+        keys[hole] = keys[slot];
+        hole = slot;
+      }
+    }
+    used[hole] = false;
+  }
+
+  /**
+   * Moves every waiting key into a table of a new capacity.
+   * @param capacity the new capacity, a power of two
+   */
+  private void rehash(final int capacity)
+  {
+    keys = new long[capacity];
+    used = new boolean[capacity];
+    for (int i = 0; i < size; i++)
+    {
+      insert(stack[i]);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package demesnes;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * How far a maze being generated has got, for showing progress on
+ * another thread and for stopping it partway. The generator reports
+ * chambers as it makes them; once the maze is cancelled, the next report
+ * throws a CancellationException out of the generator.
+ */
+public final class GenerationProgress
+{
+  private final long total;
+  private final AtomicLong made;
+  private volatile long start;
+  private volatile boolean cancelled;
+  private volatile boolean finished;
+
+  /**
+   * Creates the progress of a maze not yet started.
+   * @param total the number of chambers the maze will have
+   */
+  public GenerationProgress(long total)
+  {
+    this.total = total;
+    made = new AtomicLong();
+    start = System.nanoTime();
+  }
+
+  /**
+   * Creates the progress of a maze that is already made.
+   * @param total the number of chambers of the maze
+   * @return the progress
+   */
+  public static GenerationProgress finished(long total)
+  {
+    final GenerationProgress progress = new GenerationProgress(total);
+    progress.made.set(total);
+    progress.finish();
+    return progress;
+  }
+
+  /**
+   * Restarts the clock the ETA is worked out from, for a maze queued
+   * for a while before it was started.
+   */
+  public void start()
+  {
+    start = System.nanoTime();
+  }
+
+  /**
+   * Reports that some more chambers have been made.
+   * May be called from many threads at once.
+   * @param chambers the chambers made since the last report
+   * @throws CancellationException if the maze has been cancelled
+   */
+  public void advance(long chambers)
+  {
+    if (cancelled)
+    {
+      throw new CancellationException("Maze generation cancelled");
+    }
+    made.addAndGet(chambers);
+  }
+
+  /**
+   * Asks the generator to stop at its next report.
+   */
+  public void cancel()
+  {
+    cancelled = true;
+  }
+
+  /**
+   * Marks the maze as made and handed over.
+   */
+  public void finish()
+  {
+    finished = true;
+  }
+
+  /**
+   * Predicate method whether the maze was cancelled, or could not be made
+   * @return true/false
+   */
+  public boolean isCancelled()
+  {
+    return cancelled;
+  }
+
+  /**
+   * Predicate method whether the maze is made and handed over
+   * @return true/false
+   */
+  public boolean isFinished()
+  {
+    return finished;
+  }
+
+  /**
+   * Returns the number of chambers made so far
+   * @return chambers
+   */
+  public long getChambersMade()
+  {
+    return Math.min(made.get(), total);
+  }
+
+  /**
+   * Returns the number of chambers the maze will have
+   * @return chambers
+   */
+  public long getTotalChambers()
+  {
+    return total;
+  }
+
+  /**
+   * Returns the share of the chambers made so far
+   * @return from 0 to 1
+   */
+  public double getFraction()
+  {
+    return total == 0 ? 1 : (double)getChambersMade() / total;
+  }
+
+  /**
+   * Returns the time since the maze was started
+   * @return milliseconds
+   */
+  public long getElapsedMillis()
+  {
+    return (System.nanoTime() - start) / 1000000;
+  }
+
+  /**
+   * Estimates the time left at the rate chambers have been made so far
+   * @return milliseconds, or -1 if nothing has been made yet to tell
+   */
+  public long getRemainingMillis()
+  {
+    final long done = getChambersMade();
+    long remaining = -1;
+    if (finished)
+    {
+      remaining = 0;
+    }
+    else if (done > 0)
+    {
+      remaining = (long)((double)getElapsedMillis() * (total - done) / done);
+    }
+    return remaining;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%d of %d chambers, %.0f%%", getChambersMade(), total,
+        100 * getFraction());
+  }
+}
@@ -0,0 +1,525 @@
+package demesnes;
+
+import game.BattleStrategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * The chambers of a maze kept in fixed-width records of a memory-mapped
+ * file, so a maze may be far bigger than the heap.
+ *
+ * The file holds a record for every cell of the regions covering the
+ * maze, region after region, so a region's chambers lie together on disk.
+ * Each record is {@value #RECORD_BYTES} bytes: the doors mask with flags
+ * for whether the cell is a chamber and whether it has been visited,
+ * the strategy lying there, and the gruman ID. Only the chambers most
+ * recently looked up live on the heap; visiting one writes it back.
+ *
+ * Saving a maze writes every record into the save, as the file may be
+ * gone by the time the maze is loaded; loading it writes the records to a
+ * new temporary file, kept until the program exits, and maps that.
+ */
+class MappedChambers implements ChamberStore, Serializable
+{
+  static final int RECORD_BYTES = 8;
+
+  /**
+   * The number of chambers kept on the heap.
+   */
+  static final int CACHE_SIZE = 4096;
+
+  private static final int DOORS = Region.DOORS;
+  private static final int PRESENT = 1 << 4;
+  private static final int VISITED = 1 << 5;
+  private static final int STRATEGY_OFFSET = 1;
+  private static final int GRUMAN_OFFSET = 4;
+
+  /**
+   * The number of records mapped at a time; a whole number of regions
+   * so no region straddles two mappings.
+   */
+  private static final int SEGMENT_RECORDS = 1 << 26;
+
+  private static final BattleStrategy[] STRATEGIES = BattleStrategy.values();
+
+  /**
+   * The bytes of records copied at a time when the maze is saved or loaded.
+   */
+  private static final int COPY_BYTES = 1 << 16;
+
+  private transient File file;
+  private final int size;
+  private final int minRegionColumn;
+  private final int minRegionRow;
+  private final int regionsWide;
+  private final int regionsHigh;
+  private final Bounds bounds;
+  private transient MappedByteBuffer[] segments;
+  private transient Map<Long, Chamber> cache;
+
+  /**
+   * Creates the file of records for the regions in a rectangle, all empty.
+   * @param file the file to keep the chambers in, replaced if it exists
+   * @param size the number of chambers the maze will have
+   * @param minRegionColumn the westmost region column
+   * @param minRegionRow the southmost region row
+   * @param regionsWide the number of region columns
+   * @param regionsHigh the number of region rows
+   * @param bounds the smallest rectangle that will hold every chamber
+   * @throws IOException if the file cannot be created or mapped
+   */
+  MappedChambers(File file, int size, int minRegionColumn, int minRegionRow,
+      int regionsWide, int regionsHigh, Bounds bounds) throws IOException
+  {
+    this.file = file;
+    this.size = size;
+    this.minRegionColumn = minRegionColumn;
+    this.minRegionRow = minRegionRow;
+    this.regionsWide = regionsWide;
+    this.regionsHigh = regionsHigh;
+    this.bounds = bounds;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+    {
+      raf.setLength(0);
+      raf.setLength(fileBytes());
+    }
+    map();
+  }
+
+  /**
+   * Returns the file the chambers are kept in.
+   * @return file
+   */
+  File getFile()
+  {
+    return file;
+  }
+
+  /**
+   * Returns the chamber at a column and row, from the heap if it was looked up lately.
+   * @param column
+   * @param row
+   * @return the chamber, or null if there is none
+   */
+  @Override
+  public Chamber get(int column, int row)
+  {
+    final Long key = ChamberIndex.key(column, row);
+    Chamber c = cache.get(key);
+    if (c == null)
+    {
+      c = read(column, row, recordOf(column, row));
+      if (c != null)
+      {
+        cache.put(key, c);
+      }
+    }
+    return c;
+  }
+
+  @Override
+  public boolean contains(int column, int row)
+  {
+    final long record = recordOf(column, row);
+    return record >= 0 && (flags(record) & PRESENT) != 0;
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public Bounds bounds()
+  {
+    return bounds;
+  }
+
+  /**
+   * Adds every chamber in a rectangle to a collection, reading each
+   * straight from the file without putting it in the cache.
+   * @param west the westmost column
+   * @param south the southmost row
+   * @param east the eastmost column
+   * @param north the northmost row
+   * @param into the collection to add the chambers to
+   */
+  @Override
+  public void collect(int west, int south, int east, int north, Collection<Chamber> into)
+  {
+    for (int row = Math.max(south, bounds.getSouth()); row <= Math.min(north, bounds.getNorth()); row++)
+    {
+      for (int column = Math.max(west, bounds.getWest()); column <= Math.min(east, bounds.getEast());
+          column++)
+      {
+        final Long key = ChamberIndex.key(column, row);
+        Chamber c = cache.get(key);
+        if (c == null)
+        {
+          c = read(column, row, recordOf(column, row));
+        }
+        if (c != null)
+        {
+          into.add(c);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns an unmodifiable view of the locations of the chambers,
+   * read from the file as it is iterated.
+   * @return the locations
+   */
+  @Override
+  public Set<Location> locations()
+  {
+    return new AbstractSet<Location>()
+    {
+      @Override
+      public Iterator<Location> iterator()
+      {
+        final Iterator<Chamber> it = MappedChambers.this.iterator();
+        return new Iterator<Location>()
+        {
+          @Override
+          public boolean hasNext()
+          {
+            return it.hasNext();
+          }
+
+          @Override
+          public Location next()
+          {
+            return it.next().getLocation();
+          }
+
+          @Override
+          public void remove()
+          {
+            it.remove();
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(final Object o)
+      {
+        return o instanceof Location
+            && MappedChambers.this.contains(((Location)o).getColumn(), ((Location)o).getRow());
+      }
+
+      @Override
+      public int size()
+      {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator over the chambers in file order.
+   * The chambers it reads are not kept on the heap.
+   * @return the iterator
+   */
+  @Override
+  public Iterator<Chamber> iterator()
+  {
+    return new Iterator<Chamber>()
+    {
+      private final long records = (long)regionsWide * regionsHigh * Region.CELLS;
+      private long record = advance(0);
+
+      private long advance(long from)
+      {
+        while (from < records && (flags(from) & PRESENT) == 0)
+        {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext()
+      {
+        return record < records;
+      }
+
+      @Override
+      public Chamber next()
+      {
+        if (!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+        final int region = (int)(record / Region.CELLS);
+        final int cell = (int)(record % Region.CELLS);
+        final Chamber c = read(Region.columnOf(minRegionColumn + region % regionsWide, cell),
+            Region.rowOf(minRegionRow + region / regionsWide, cell), record);
+        record = advance(record + 1);
+        return c;
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException("Chambers cannot be removed");
+      }
+    };
+  }
+
+  /**
+   * Does nothing, since every chamber is already in the file.
+   * @param column the human's column
+   * @param row the human's row
+   */
+  @Override
+  public void approach(int column, int row)
+  {
+  }
+
+  /**
+   * Marks a chamber visited and writes it back to the file.
+   * @param c
+   */
+  @Override
+  public void visit(Chamber c)
+  {
+    c.setVisited();
+    final long record = recordOf(c.getColumn(), c.getRow());
+    final MappedByteBuffer segment = segments[(int)(record / SEGMENT_RECORDS)];
+    final int at = (int)(record % SEGMENT_RECORDS) * RECORD_BYTES;
+    segment.put(at, (byte)(segment.get(at) | VISITED));
+    segment.put(at + STRATEGY_OFFSET, (byte)Chamber.NONE);
+  }
+
+  /**
+   * The chambers are read from the file afresh once they leave the cache,
+   * so they cannot be linked to one another.
+   * @return false
+   */
+  @Override
+  public boolean isResident()
+  {
+    return false;
+  }
+
+  /**
+   * String representation of the chambers
+   */
+  @Override
+  public String toString()
+  {
+    final StringBuilder s = new StringBuilder("{");
+    for (final Chamber c : this)
+    {
+      if (s.length() > 1)
+      {
+        s.append(", ");
+      }
+      s.append(c.getLocation()).append('=').append(c);
+    }
+    return s.append('}').toString();
+  }
+
+  /**
+   * Writes the record of a chamber.
+   * @param column
+   * @param row
+   * @param doors mask of Direction bits
+   * @param grumanID the ID of its gruman, or Chamber.NONE
+   * @param strategy the power-up lying there, or null
+   */
+  void write(int column, int row, int doors, int grumanID, BattleStrategy strategy)
+  {
+    final long record = recordOf(column, row);
+    final MappedByteBuffer segment = segments[(int)(record / SEGMENT_RECORDS)];
+    final int at = (int)(record % SEGMENT_RECORDS) * RECORD_BYTES;
+    segment.put(at, (byte)(PRESENT | doors));
+    segment.put(at + STRATEGY_OFFSET, (byte)(strategy == null ? Chamber.NONE : strategy.ordinal()));
+    segment.putInt(at + GRUMAN_OFFSET, grumanID);
+  }
+
+  /**
+   * Adds a number to the IDs of every gruman in a region.
+   * @param regionColumn
+   * @param regionRow
+   * @param base the number to add
+   */
+  void renumber(int regionColumn, int regionRow, int base)
+  {
+    final long first = (long)((regionRow - minRegionRow) * regionsWide
+        + regionColumn - minRegionColumn) * Region.CELLS;
+    final MappedByteBuffer segment = segments[(int)(first / SEGMENT_RECORDS)];
+    for (int cell = 0; cell < Region.CELLS; cell++)
+    {
+      final int at = (int)((first + cell) % SEGMENT_RECORDS) * RECORD_BYTES + GRUMAN_OFFSET;
+      final int id = segment.getInt(at);
+      if ((segment.get(at - GRUMAN_OFFSET) & PRESENT) != 0 && id != Chamber.NONE)
+      {
+        segment.putInt(at, id + base);
+      }
+    }
+  }
+
+  /**
+   * Returns the record of a column and row.
+   * @param column
+   * @param row
+   * @return the record number, or -1 outside the file
+   */
+  private long recordOf(int column, int row)
+  {
+    final int x = Region.regionOf(column) - minRegionColumn;
+    final int y = Region.regionOf(row) - minRegionRow;
+    if (x < 0 || x >= regionsWide || y < 0 || y >= regionsHigh)
+    {
+      return -1;
+    }
+    return ((long)y * regionsWide + x) * Region.CELLS + Region.cellOf(column, row);
+  }
+
+  private int flags(long record)
+  {
+    return segments[(int)(record / SEGMENT_RECORDS)].get((int)(record % SEGMENT_RECORDS) * RECORD_BYTES);
+  }
+
+  /**
+   * Reads the chamber in a record.
+   * @param column
+   * @param row
+   * @param record
+   * @return the chamber, or null if the record is not a chamber
+   */
+  private Chamber read(int column, int row, long record)
+  {
+    if (record < 0)
+    {
+      return null;
+    }
+    final MappedByteBuffer segment = segments[(int)(record / SEGMENT_RECORDS)];
+    final int at = (int)(record % SEGMENT_RECORDS) * RECORD_BYTES;
+    final int flags = segment.get(at);
+    if ((flags & PRESENT) == 0)
+    {
+      return null;
+    }
+    final int strategy = segment.get(at + STRATEGY_OFFSET);
+    final Chamber c = new Chamber(flags & DOORS, new Location(column, row),
+        segment.getInt(at + GRUMAN_OFFSET), strategy == Chamber.NONE ? null : STRATEGIES[strategy]);
+    if ((flags & VISITED) != 0)
+    {
+      c.setVisited();
+    }
+    return c;
+  }
+
+  /**
+   * Maps the file a segment at a time and starts an empty cache.
+   * @throws IOException if the file cannot be mapped
+   */
+  private void map() throws IOException
+  {
+    final long records = fileBytes() / RECORD_BYTES;
+    segments = new MappedByteBuffer[(int)((records + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS)];
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+    {
+      final FileChannel channel = raf.getChannel();
+      for (int i = 0; i < segments.length; i++)
+      {
+        final long first = (long)i * SEGMENT_RECORDS;
+        segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, first * RECORD_BYTES,
+            Math.min(SEGMENT_RECORDS, records - first) * RECORD_BYTES);
+      }
+    }
+    cache = new LinkedHashMap<Long, Chamber>(2 * CACHE_SIZE, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Chamber> eldest)
+      {
+        return size() > CACHE_SIZE;
+      }
+    };
+  }
+
+  /**
+   * Returns the number of bytes of records in the file.
+   * @return bytes
+   */
+  private long fileBytes()
+  {
+    return (long)regionsWide * regionsHigh * Region.CELLS * RECORD_BYTES;
+  }
+
+  /**
+   * Saves the maze with every record of its file.
+   * @param out
+   * @throws IOException
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException
+  {
+    out.defaultWriteObject();
+    final byte[] bytes = new byte[COPY_BYTES];
+    for (MappedByteBuffer segment : segments)
+    {
+      final ByteBuffer copy = segment.duplicate();
+      copy.clear();
+      while (copy.hasRemaining())
+      {
+        final int length = Math.min(bytes.length, copy.remaining());
+        copy.get(bytes, 0, length);
+        out.write(bytes, 0, length);
+      }
+    }
+  }
+
+  /**
+   * Writes the saved records to a new temporary file when a saved maze is
+   * loaded, and maps that.
+   * @param in
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    if (size < 0 || regionsWide <= 0 || regionsHigh <= 0 || bounds == null)
+    {
+      throw new InvalidObjectException("Not the chambers of a maze");
+    }
+    file = File.createTempFile("maze", ".chambers");
+    file.deleteOnExit();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+    {
+      final byte[] bytes = new byte[COPY_BYTES];
+      for (long left = fileBytes(); left > 0; )
+      {
+        final int length = (int)Math.min(bytes.length, left);
+        in.readFully(bytes, 0, length);
+        raf.write(bytes, 0, length);
+        left -= length;
+      }
+    }
+    map();
+  }
+}
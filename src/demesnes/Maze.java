@@ -5,8 +5,6 @@ import game.BattleStrategy;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +15,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import players.Gruman;
+import repository.GrumanNames;
+import utility.KeyedRandom;
 import utility.MathHelper;
 import utility.SingleRandom;
 
@@ -37,8 +37,21 @@ public class Maze implements Serializable
 	 */
   public static final int MIN_NUMBER_CHAMBERS = 5;
   
+  /**
+   * The largest maze whose chambers are written out to the log in full.
+   */
+  private static final int MAX_CHAMBERS_TO_LOG = 1000;
+  
+  /**
+   * How many chambers are made between reports of progress.
+   */
+  static final int CHAMBERS_PER_REPORT = 1024;
+  
 	private static final int NONE = Chamber.NONE;
-	private static final int GRUMAN_ODDS = 3;
+	/**
+	 * A chamber has a gruman unless a roll of this many comes up 0.
+	 */
+	public static final int GRUMAN_ODDS = 3;
 	private static final int DOOR_ODDS = 3;
 	
 	/**
@@ -47,12 +60,18 @@ public class Maze implements Serializable
 	private int chambersLeft;
 	private int minChambersLeft;
 	private int counter;
+	private int chambersVisited;
 	private static Logger log;
 	static{
 	    setUpLogging();
 	}
-	private Map<Location, Chamber> map;
-	private ArrayList<Gruman> grumans;
+	private final ChamberStore chambers;
+	private final KeyedRandom random;
+	/**
+	 * The grumans met or made so far, by gruman ID, which may be sparse:
+	 * a far-off gruman of a huge maze has an ID in the millions
+	 */
+	private HashMap<Integer, Gruman> grumans;
 	private final int whereShield;
 	private final int whereCane;
 	private final int whereUmbrella;
@@ -63,17 +82,30 @@ public class Maze implements Serializable
 	 * @param int
 	 */
 	public Maze(int n)
+	{
+		this(n, null);
+	}
+	
+	/**
+	 * Maze constructor, creates a maze with a given amount of chambers,
+	 * reporting its progress as it goes
+	 * @param n
+	 * @param progress where to report progress, or null
+	 * @throws java.util.concurrent.CancellationException
+	 *  if the progress is cancelled before the maze is done
+	 */
+	public Maze(int n, GenerationProgress progress)
 	{
 		counter = 0;
 		chambersLeft = n-1;
 		minChambersLeft = MIN_NUMBER_CHAMBERS;
 		int grumanCount = 0;
 		int grumanID;
-		ArrayList<Location> toDoList = new ArrayList<Location>();
-		final Map<Location, Chamber> map = new HashMap<>();
-		grumans = new ArrayList<Gruman>();
+		final Frontier toDoList = new Frontier();
+		final ChamberIndex chambers = new ChamberIndex(n);
+		grumans = new HashMap<Integer, Gruman>();
 		Chamber entrance = this.createEntranceChamber(toDoList);
-		this.addToMap(map, entrance);
+		this.addToMap(chambers, entrance);
 		
 		whereShield = n / 4;
 		whereCane = n / 2;
@@ -84,15 +116,44 @@ public class Maze implements Serializable
 			grumanID = NONE;
 			if (SingleRandom.getInstance().nextInt(GRUMAN_ODDS)>0)
 			{
-				grumans.add(new Gruman());
 				grumanID = grumanCount;
+				grumans.put(grumanID, new Gruman());
 				grumanCount++;
 			}
-			addToMap(map, createRemainingChambers(map, toDoList, grumanID));
+			addToMap(chambers, createRemainingChambers(chambers, toDoList, grumanID));
+			if (progress != null && counter % CHAMBERS_PER_REPORT == 0)
+			{
+				progress.advance(CHAMBERS_PER_REPORT);
+			}
+		}
+		if (progress != null)
+		{
+			progress.advance(counter % CHAMBERS_PER_REPORT);
 		}
 		
-		showFinishedMaze(map);
-		this.map = Collections.unmodifiableMap(map);
+		showFinishedMaze(chambers);
+		this.chambers = chambers;
+		this.random = null;
+		this.chambersVisited = countVisited();
+	}
+	
+	/**
+	 * Maze constructor for chambers generated elsewhere,
+	 * whose grumans are created the first time they are asked for;
+	 * the roster only grows as far as the highest gruman ID met.
+	 * Grumans of a seeded maze are rolled from draws keyed by their
+	 * chambers, so the same seed always rolls the same grumans
+	 * @param chambers the chambers of the maze
+	 * @param random the random source of the seed, or null to roll at random
+	 */
+	Maze(ChamberStore chambers, KeyedRandom random)
+	{
+		this.chambers = chambers;
+		this.random = random;
+		this.counter = chambers.size();
+		this.grumans = new HashMap<Integer, Gruman>();
+		whereShield = whereCane = whereUmbrella = NONE;
+		this.chambersVisited = countVisited();
 	}
 		
 	/**
@@ -102,16 +163,36 @@ public class Maze implements Serializable
 	 */
 	public boolean hasChamber(Location l)
 	{
-		return map.containsValue(l);
+		return chambers.contains(l.getColumn(), l.getRow());
 	}
 	
 	/**
-	 * Returns the keySet of the map
+	 * Predicate method whether the maze goes on forever,
+	 * in which case it only counts the chambers carved so far
+	 * @return true/false
+	 */
+	public boolean isEndless()
+	{
+		return chambers instanceof EndlessChambers;
+	}
+	
+	/**
+	 * Predicate method whether the maze keeps its chambers in a file
+	 * rather than all of them on the heap
+	 * @return true/false
+	 */
+	public boolean isOffHeap()
+	{
+		return chambers instanceof MappedChambers || chambers instanceof PagedChambers;
+	}
+	
+	/**
+	 * Returns the locations of the chambers in the maze
 	 * @return KeySet
 	 */
 	public Set<Location> getKeySet()
 	{
-		return map.keySet();
+		return chambers.locations();
 	}
 	
 	/**
@@ -120,20 +201,68 @@ public class Maze implements Serializable
 	 * @return Gruman
 	 */
 	public Gruman getGruman(Location l)
+	{
+	  return getGruman(getChamber(l));
+	}
+	
+	/**
+	 * Returns the gruman in a chamber
+	 * @param c the chamber, or null
+	 * @return Gruman
+	 */
+	public Gruman getGruman(Chamber c)
 	{
 	  Gruman gruman = null;
-	  final Chamber c = getChamber(l);
-	  if (c != null)
+	  if (c != null && chambers instanceof PagedChambers)
 	  {
-  	  final int id = c.getGrumanID();
-  	  if (id != NONE)
-  	  {
-  	    gruman = grumans.get(id);
-  	  }
+	    // paged grumans are paged out with their regions
+	    gruman = ((PagedChambers)chambers).getGruman(c);
+	  }
+	  else if (c != null && c.hasGruman())
+	  {
+	    gruman = rosterGruman(c);
 	  }
 		return gruman;
 	}
 	
+	/**
+	 * Returns a gruman from the roster, creating it the first time.
+	 * Sessions sharing the maze may ask from many threads at once
+	 * @param c the chamber of the gruman
+	 * @return Gruman
+	 */
+	private synchronized Gruman rosterGruman(Chamber c)
+	{
+	  final int id = c.getGrumanID();
+	  Gruman gruman = grumans.get(id);
+	  if (gruman == null)
+	  {
+	    gruman = random == null ? new Gruman()
+	        : new Gruman(GrumanNames.getInstance().takeName(), random, c.getColumn(), c.getRow());
+	    grumans.put(id, gruman);
+	  }
+	  return gruman;
+	}
+	
+	/**
+	 * Lets the maze know the human has reached a location,
+	 * so that an endless maze can carve the chambers around it
+	 * @param l
+	 */
+	public void approach(Location l)
+	{
+	  chambers.approach(l.getColumn(), l.getRow());
+	}
+	
+	/**
+	 * Lets the maze know the human has reached a chamber
+	 * @param c
+	 */
+	public void approach(Chamber c)
+	{
+	  chambers.approach(c.getColumn(), c.getRow());
+	}
+	
 	/**
 	 * Returns the amount of sacks a gruman in a chamber has
 	 * @param location
@@ -156,7 +285,7 @@ public class Maze implements Serializable
 	 */
 	public int getTotalChambers()
 	{
-		return getKeySet().size();
+		return chambers.size();
 	}
 	
 	/**
@@ -165,19 +294,16 @@ public class Maze implements Serializable
 	 */
 	public int getChambersLeft()
 	{
-		Set<Location> keySet = getKeySet(); 
-		ArrayList<Location> keyList = new ArrayList<Location>(keySet);
-		int count = keySet.size();
-		  
-		for (Location key : keyList)
-		{ 
-		Chamber chamber = getChamber(key);
-		if(chamber.hasVisited())
-		{
-			count--;
-		}
-		}
-		return count;
+		return chambers.size() - chambersVisited;
+	}
+	
+	/**
+	 * Returns the amount of chambers visited in the maze
+	 * @return number of chambers visited
+	 */
+	public int getChambersVisited()
+	{
+		return chambersVisited;
 	}
 	
 	/**
@@ -187,7 +313,7 @@ public class Maze implements Serializable
 	 */
 	public BattleStrategy getStrategy(Location location)
 	{
-	  return map.get(location).getStrategy();
+	  return getChamber(location).getStrategy();
 	}
 	
 	/**
@@ -212,7 +338,20 @@ public class Maze implements Serializable
    */
   public void visit(final Location location)
   {
-	 map.get(location).setVisited();
+    visit(getChamber(location));
+  }
+
+  /**
+   * Sets a chamber on the maze to visited
+   * @param c
+   */
+  public void visit(final Chamber c)
+  {
+    if (!c.hasVisited())
+    {
+      chambersVisited++;
+    }
+    chambers.visit(c);
   }
 
   /**
@@ -236,6 +375,57 @@ public class Maze implements Serializable
     return getChamber(location).hasDoor(dir);
   }
 	
+  /**
+   * Returns the entrance chamber, at the origin
+   * @return chamber
+   */
+  public Chamber getEntrance()
+  {
+    return chambers.get(0, 0);
+  }
+  
+  /**
+   * Returns the chamber through the door in a direction from another.
+   * The two are linked the first time, so walking back and forth
+   * needs neither a Location nor a lookup
+   * @param c the chamber to leave
+   * @param dir
+   * @return the chamber through the door, or null if there is no door
+   */
+  public Chamber getNeighbor(Chamber c, Direction dir)
+  {
+    Chamber next = null;
+    if (c.hasDoor(dir))
+    {
+      next = c.getNeighbor(dir);
+      if (next == null)
+      {
+        next = chambers.get(c.getColumn() + dir.getHorizontalOffset(),
+            c.getRow() + dir.getVerticalOffset());
+        // chambers read afresh each time cannot be linked
+        if (next != null && chambers.isResident())
+        {
+          c.setNeighbor(dir, next);
+          if (next.hasDoor(dir.opposite()))
+          {
+            next.setNeighbor(dir.opposite(), c);
+          }
+        }
+      }
+    }
+    return next;
+  }
+  
+  /**
+   * Returns a bitboard snapshot of the maze's topology,
+   * for scanning the whole maze many times over
+   * @return bitboard
+   */
+  public MazeBitboard toBitboard()
+  {
+    return MazeBitboard.of(this);
+  }
+	
   /**
    * Returns the chamber from a certain location
    * @param l
@@ -243,10 +433,111 @@ public class Maze implements Serializable
    */
   public Chamber getChamber(Location l)
   {
-    return map.get(l);
+    return chambers.get(l.getColumn(), l.getRow());
+  }
+  
+  /**
+   * Returns the chamber at a column and row
+   * @param column
+   * @param row
+   * @return chamber, or null if there is none
+   */
+  public Chamber getChamber(int column, int row)
+  {
+    return chambers.get(column, row);
+  }
+  
+  /**
+   * Returns the smallest rectangle holding every chamber; for an endless
+   * maze, every chamber carved so far
+   * @return bounds, or null if there are no chambers
+   */
+  public Bounds getBounds()
+  {
+    return chambers.bounds();
+  }
+  
+  /**
+   * Returns the chambers in a rectangle, row by row from the south.
+   * Only the regions the rectangle covers are looked at, so the cost
+   * follows the size of the rectangle, not of the maze
+   * @param west the westmost column
+   * @param south the southmost row
+   * @param east the eastmost column
+   * @param north the northmost row
+   * @return chambers, empty if there are none
+   */
+  public List<Chamber> getChambersIn(int west, int south, int east, int north)
+  {
+    final List<Chamber> found = new ArrayList<>();
+    chambers.collect(west, south, east, north, found);
+    return found;
+  }
+  
+  /**
+   * Returns the chambers in a rectangle
+   * @param bounds
+   * @return chambers, empty if there are none
+   */
+  public List<Chamber> getChambersIn(Bounds bounds)
+  {
+    return getChambersIn(bounds.getWest(), bounds.getSouth(), bounds.getEast(), bounds.getNorth());
+  }
+  
+  /**
+   * Returns the chambers that can be reached from a chamber through
+   * at most a given number of doors, nearest first, the chamber itself
+   * included. Only the chambers found are looked at
+   * @param from the chamber to start from
+   * @param doors the most doors to go through
+   * @return chambers
+   */
+  public List<Chamber> getChambersWithin(Chamber from, int doors)
+  {
+    final List<Chamber> found = new ArrayList<>();
+    final ChamberIndex seen = new ChamberIndex(16);
+    found.add(from);
+    seen.put(from);
+    int head = 0;
+    for (int step = 0; step < doors && head < found.size(); step++)
+    {
+      final int end = found.size();
+      for (; head < end; head++)
+      {
+        final Chamber c = found.get(head);
+        for (Direction d : Direction.values())
+        {
+          final Chamber next = getNeighbor(c, d);
+          if (next != null && !seen.contains(next.getColumn(), next.getRow()))
+          {
+            seen.put(next);
+            found.add(next);
+          }
+        }
+      }
+    }
+    return found;
   }
   
 	
+  /**
+   * Counts the chambers already visited, once, when the maze is made;
+   * from then on visit() keeps the count
+   * @return number of chambers visited
+   */
+  private int countVisited()
+  {
+    int count = 0;
+    for (Chamber c : chambers)
+    {
+      if (c.hasVisited())
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+  
   /**
    * Sets up the logger for the maze, to Maze.txt
    */
@@ -271,7 +562,7 @@ public class Maze implements Serializable
    * @param toDoList
    * @return Chamber
    */
-  private Chamber createEntranceChamber(ArrayList<Location> toDoList)
+  private Chamber createEntranceChamber(Frontier toDoList)
   {
     Chamber c = new Chamber();
     chambersLeft--;
@@ -279,7 +570,7 @@ public class Maze implements Serializable
     {
       if (c.hasDoor(d))
       {
-        toDoList.add(new Location(c.getLocation(), d));
+        toDoList.add(ChamberIndex.key(d.getHorizontalOffset(), d.getVerticalOffset()));
       }
     }
     c.setVisited();
@@ -289,45 +580,40 @@ public class Maze implements Serializable
   
   /**
    * Creates the remaining chambers for the maze, these may or may not have grumans
-   * @param map TODO
+   * @param chambers the chambers created so far
    * @param toDoList
    * @param grumanID
    * @return Chamber with walls, location, and grumanIDs
    */
-  private Chamber createRemainingChambers(Map<Location, Chamber> map, ArrayList<Location> toDoList, int grumanID)
+  private Chamber createRemainingChambers(ChamberIndex chambers, Frontier toDoList, int grumanID)
   {
     final int where = counter;
-    Location l = toDoList.remove(toDoList.size() - 1);
-    EnumMap<Direction, Wall>walls = new EnumMap<Direction,Wall>(Direction.class);
+    final long key = toDoList.remove();
+    final int column = ChamberIndex.column(key);
+    final int row = ChamberIndex.row(key);
+    int doors = 0;
     
     for (Direction d : Direction.values())
     {
-      Location neighbor = new Location(l, d);
-      if (map.containsKey(neighbor))
+      final int neighborColumn = column + d.getHorizontalOffset();
+      final int neighborRow = row + d.getVerticalOffset();
+      final Chamber built = chambers.get(neighborColumn, neighborRow);
+      if (built != null)
       {
-        if (map.get(neighbor).getWall(d.opposite())==Wall.DOOR)
-        {
-          walls.put(d, Wall.DOOR);
-        }
-        else
+        if (built.hasDoor(d.opposite()))
         {
-          walls.put(d, Wall.BLANK);
+          doors |= d.getMask();
         }
       }
       else if(chambersLeft>0 && (SingleRandom.getInstance().nextInt(DOOR_ODDS)>0 || minChambersLeft > 0))
       {
-        walls.put(d, Wall.DOOR);
-        if (!toDoList.contains(neighbor))
+        doors |= d.getMask();
+        if (toDoList.add(ChamberIndex.key(neighborColumn, neighborRow)))
         {
-          toDoList.add(neighbor);
           chambersLeft--;
           minChambersLeft--;
         }
       }
-      else
-      {
-        walls.put(d, Wall.BLANK);
-      }
     }
     
     BattleStrategy strategy = null;
@@ -346,27 +632,35 @@ public class Maze implements Serializable
       //log.info("Here's the umbrella");
       strategy = BattleStrategy.UMBRELLA;
     }
-    return new Chamber(walls, l, grumanID, strategy);
+    return new Chamber(doors, new Location(column, row), grumanID, strategy);
   }
   
   /**
-   * Adds the chamber to the HashMap map
-   * @param map
+   * Adds the chamber to the chamber index
+   * @param chambers
    * @param c
    */
-  private void addToMap(Map<Location, Chamber> map, Chamber c)
+  private void addToMap(ChamberIndex chambers, Chamber c)
   {
-    map.put(c.getLocation(), c);
+    chambers.put(c);
     counter++;
   }
   
   /**
-   * Sends the finished maze to the logger as a string
-   * @param map
+   * Sends the finished maze to the logger as a string,
+   * or just its size if it is too big to write out
+   * @param chambers
    */
-  private void showFinishedMaze(Map<Location, Chamber> map)
+  private void showFinishedMaze(ChamberStore chambers)
   {
-    log.info(map.toString());
+    if (chambers.size() <= MAX_CHAMBERS_TO_LOG)
+    {
+      log.info(chambers.toString());
+    }
+    else
+    {
+      log.info("Created a maze of " + chambers.size() + " chambers");
+    }
   }
   
 	
@@ -378,8 +672,8 @@ public class Maze implements Serializable
   {
 	return "Chambers Left: "+chambersLeft+"\n"+
 			"Count: "+counter+"\n"+
-			"Map: "+map.toString()+"\n"+
-			"Grumans: "+grumans.toString();
+			"Map: "+chambers.toString()+"\n"+
+			"Grumans: "+grumans.values().toString();
   }
   
 }
@@ -0,0 +1,626 @@
+package demesnes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * The topology of a maze as bitboards: one bit per cell of the maze's
+ * bounding box for whether it is a chamber, for each of its four doors,
+ * and for whether it has been visited.
+ *
+ * Each row of cells takes a whole number of longs, with the column
+ * bits in ascending order, so whole-maze queries such as reachability
+ * and which chambers border the visited ones work on 64 chambers a word.
+ * A bitboard is a snapshot; it does not follow later visits.
+ *
+ * Cell sets are handed out as BitSets indexed by indexOf(column, row).
+ */
+public final class MazeBitboard
+{
+  private static final int NORTH = Direction.NORTH.ordinal();
+  private static final int EAST = Direction.EAST.ordinal();
+  private static final int SOUTH = Direction.SOUTH.ordinal();
+  private static final int WEST = Direction.WEST.ordinal();
+
+  private final int minColumn;
+  private final int minRow;
+  private final int width;
+  private final int height;
+  private final int words;
+
+  private final long[] present;
+  private final long[][] doors;
+  private final long[] visited;
+
+  /**
+   * Constructs an empty bitboard over a bounding box.
+   * @param minColumn the westmost column
+   * @param minRow the southmost row
+   * @param width the number of columns
+   * @param height the number of rows
+   * @throws IllegalArgumentException if the box is empty or too big
+   */
+  MazeBitboard(int minColumn, int minRow, int width, int height)
+  {
+    if (width <= 0 || height <= 0)
+    {
+      throw new IllegalArgumentException("Bounding box is empty: " + width + " by " + height);
+    }
+    final long length = (long)height * ((width + 63) >>> 6);
+    if (length > Integer.MAX_VALUE / Long.SIZE)
+    {
+      throw new IllegalArgumentException("Bounding box is too big: " + width + " by " + height);
+    }
+    this.minColumn = minColumn;
+    this.minRow = minRow;
+    this.width = width;
+    this.height = height;
+    this.words = (width + 63) >>> 6;
+    this.present = new long[(int)length];
+    this.doors = new long[4][(int)length];
+    this.visited = new long[(int)length];
+  }
+
+  /**
+   * Builds the bitboard of a maze's chambers.
+   * An endless maze gives only the chambers carved so far.
+   * @param maze
+   * @return the bitboard
+   */
+  public static MazeBitboard of(Maze maze)
+  {
+    int west = Integer.MAX_VALUE;
+    int east = Integer.MIN_VALUE;
+    int south = Integer.MAX_VALUE;
+    int north = Integer.MIN_VALUE;
+    for (Location l : maze.getKeySet())
+    {
+      west = Math.min(west, l.getColumn());
+      east = Math.max(east, l.getColumn());
+      south = Math.min(south, l.getRow());
+      north = Math.max(north, l.getRow());
+    }
+    final MazeBitboard board = new MazeBitboard(west, south, east - west + 1, north - south + 1);
+    for (Location l : maze.getKeySet())
+    {
+      final Chamber c = maze.getChamber(l);
+      board.put(c.getColumn(), c.getRow(), c.getDoors(), c.hasVisited());
+    }
+    return board;
+  }
+
+  /**
+   * Returns the westmost column of the bounding box.
+   * @return column
+   */
+  public int getMinColumn()
+  {
+    return minColumn;
+  }
+
+  /**
+   * Returns the southmost row of the bounding box.
+   * @return row
+   */
+  public int getMinRow()
+  {
+    return minRow;
+  }
+
+  /**
+   * Returns the number of columns in the bounding box.
+   * @return width
+   */
+  public int getWidth()
+  {
+    return width;
+  }
+
+  /**
+   * Returns the number of rows in the bounding box.
+   * @return height
+   */
+  public int getHeight()
+  {
+    return height;
+  }
+
+  /**
+   * Returns the bit index of a cell, or -1 outside the bounding box.
+   * @param column
+   * @param row
+   * @return the index
+   */
+  public int indexOf(int column, int row)
+  {
+    final int x = column - minColumn;
+    final int y = row - minRow;
+    if (x < 0 || x >= width || y < 0 || y >= height)
+    {
+      return -1;
+    }
+    return (y * words << 6) + x;
+  }
+
+  /**
+   * Returns the column of a bit index.
+   * @param index
+   * @return column
+   */
+  public int columnOf(int index)
+  {
+    return minColumn + index % (words << 6);
+  }
+
+  /**
+   * Returns the row of a bit index.
+   * @param index
+   * @return row
+   */
+  public int rowOf(int index)
+  {
+    return minRow + index / (words << 6);
+  }
+
+  /**
+   * Predicate method whether a cell is a chamber
+   * @param column
+   * @param row
+   * @return true/false
+   */
+  public boolean hasChamber(int column, int row)
+  {
+    return test(present, indexOf(column, row));
+  }
+
+  /**
+   * Predicate method whether a location is a chamber
+   * @param l
+   * @return true/false
+   */
+  public boolean hasChamber(Location l)
+  {
+    return hasChamber(l.getColumn(), l.getRow());
+  }
+
+  /**
+   * Returns whether or not there is a door in the direction at a given chamber
+   * @param dir
+   * @param location
+   * @return boolean
+   */
+  public boolean hasDoorAt(Direction dir, Location location)
+  {
+    return hasDoorAt(dir, location.getColumn(), location.getRow());
+  }
+
+  /**
+   * Returns whether or not there is a door in the direction at a column and row
+   * @param dir
+   * @param column
+   * @param row
+   * @return boolean
+   */
+  public boolean hasDoorAt(Direction dir, int column, int row)
+  {
+    return test(doors[dir.ordinal()], indexOf(column, row));
+  }
+
+  /**
+   * Predicate method whether the chamber at a column and row had been visited
+   * @param column
+   * @param row
+   * @return true/false
+   */
+  public boolean hasVisited(int column, int row)
+  {
+    return test(visited, indexOf(column, row));
+  }
+
+  /**
+   * Returns the number of chambers.
+   * @return chamber count
+   */
+  public int getChamberCount()
+  {
+    return count(present);
+  }
+
+  /**
+   * Returns the number of chambers visited.
+   * @return visited count
+   */
+  public int getVisitedCount()
+  {
+    return count(visited);
+  }
+
+  /**
+   * Returns the chambers visited.
+   * @return the visited cells
+   */
+  public BitSet getVisited()
+  {
+    return BitSet.valueOf(visited);
+  }
+
+  /**
+   * Returns every chamber that can be walked to from a location,
+   * including the chamber itself.
+   * @param from
+   * @return the reachable cells, empty if there is no chamber there
+   */
+  public BitSet reachableFrom(Location from)
+  {
+    final long[] cells = new long[present.length];
+    final int index = indexOf(from.getColumn(), from.getRow());
+    if (test(present, index))
+    {
+      cells[index >>> 6] |= 1L << index;
+      fill(cells);
+    }
+    return BitSet.valueOf(cells);
+  }
+
+  /**
+   * Returns every chamber that can be walked to from a set of cells,
+   * including those of the cells that are chambers.
+   * @param from the cells to start from
+   * @return the reachable cells
+   */
+  public BitSet reachableFrom(BitSet from)
+  {
+    final long[] cells = toWords(from);
+    fill(cells);
+    return BitSet.valueOf(cells);
+  }
+
+  /**
+   * Predicate method whether every chamber can be walked to from every other
+   * @return true/false
+   */
+  public boolean isConnected()
+  {
+    final long[] cells = new long[present.length];
+    for (int i = 0; i < present.length; i++)
+    {
+      if (present[i] != 0)
+      {
+        cells[i] = Long.lowestOneBit(present[i]);
+        break;
+      }
+    }
+    fill(cells);
+    return Arrays.equals(cells, present);
+  }
+
+  /**
+   * Returns the chambers one door away from a set of cells and not in it.
+   * @param cells
+   * @return the adjacent chambers
+   */
+  public BitSet adjacentTo(BitSet cells)
+  {
+    final long[] from = toWords(cells);
+    final long[] next = new long[from.length];
+    spread(from, next);
+    for (int i = 0; i < next.length; i++)
+    {
+      next[i] &= ~from[i];
+    }
+    return BitSet.valueOf(next);
+  }
+
+  /**
+   * Returns the chambers not yet visited one door away from a visited chamber.
+   * @return the chambers the human could visit next
+   */
+  public BitSet adjacentToVisited()
+  {
+    final long[] next = new long[visited.length];
+    spread(visited, next);
+    for (int i = 0; i < next.length; i++)
+    {
+      next[i] &= ~visited[i];
+    }
+    return BitSet.valueOf(next);
+  }
+
+  /**
+   * String representation of the bitboard
+   */
+  @Override
+  public String toString()
+  {
+    return "MazeBitboard[" + width + "x" + height + " from (" + minColumn + "," + minRow + "), "
+        + getChamberCount() + " chambers]";
+  }
+
+  /**
+   * Adds a chamber.
+   * @param column
+   * @param row
+   * @param doorMask mask of Direction bits
+   * @param isVisited whether the chamber has been visited
+   */
+  void put(int column, int row, int doorMask, boolean isVisited)
+  {
+    final int index = indexOf(column, row);
+    if (index < 0)
+    {
+      throw new IllegalArgumentException("(" + column + "," + row + ") is outside " + this);
+    }
+    final int word = index >>> 6;
+    final long bit = 1L << index;
+    present[word] |= bit;
+    for (int d = 0; d < doors.length; d++)
+    {
+      if ((doorMask & (1 << d)) != 0)
+      {
+        doors[d][word] |= bit;
+      }
+    }
+    if (isVisited)
+    {
+      visited[word] |= bit;
+    }
+  }
+
+  /**
+   * Adds the chambers of a carved region a row of 64 cells at a time.
+   * Regions whose west edges fall on a word boundary write words of
+   * their own, so they may be added from several threads at once.
+   * @param region
+   */
+  void add(Region region)
+  {
+    for (int y = 0; y < Region.SIZE; y++)
+    {
+      long isPresent = 0;
+      final long[] isDoor = new long[doors.length];
+      for (int x = Region.SIZE - 1; x >= 0; x--)
+      {
+        final int cell = x + Region.SIZE * y;
+        isPresent = (isPresent << 1) | (region.isPresent(cell) ? 1 : 0);
+        final int mask = region.doorsAt(cell);
+        for (int d = 0; d < doors.length; d++)
+        {
+          isDoor[d] = (isDoor[d] << 1) | ((mask >>> d) & 1);
+        }
+      }
+      if (isPresent == 0)
+      {
+        continue;
+      }
+      final int west = region.columnOf(Region.SIZE * y);
+      final int row = region.rowOf(Region.SIZE * y);
+      orRow(present, west, row, isPresent);
+      for (int d = 0; d < doors.length; d++)
+      {
+        orRow(doors[d], west, row, isDoor[d] & isPresent);
+      }
+    }
+  }
+
+  /**
+   * Marks a chamber visited.
+   * @param column
+   * @param row
+   */
+  void setVisited(int column, int row)
+  {
+    final int index = indexOf(column, row);
+    visited[index >>> 6] |= 1L << index;
+  }
+
+  /**
+   * Ors 64 bits into a row, starting at a column on a word boundary or not.
+   * @param board
+   * @param column the column of the lowest bit
+   * @param row
+   * @param bits
+   */
+  private void orRow(long[] board, int column, int row, long bits)
+  {
+    final int x = column - minColumn;
+    final int base = (row - minRow) * words;
+    final int shift = x & 63;
+    board[base + (x >>> 6)] |= bits << shift;
+    if (shift != 0 && (x >>> 6) + 1 < words)
+    {
+      board[base + (x >>> 6) + 1] |= bits >>> (64 - shift);
+    }
+  }
+
+  /**
+   * Grows a set of cells to every chamber it can reach.
+   * Each pass fills along rows word by word, pushing north on the way up
+   * and south on the way down, until nothing changes.
+   * @param cells the cells, grown in place
+   */
+  private void fill(long[] cells)
+  {
+    for (int i = 0; i < cells.length; i++)
+    {
+      cells[i] &= present[i];
+    }
+    boolean changed = true;
+    while (changed)
+    {
+      changed = false;
+      for (int y = 0; y < height; y++)
+      {
+        changed |= fillRow(cells, y);
+        if (y + 1 < height)
+        {
+          changed |= push(cells, y, y + 1, doors[NORTH]);
+        }
+      }
+      for (int y = height - 1; y >= 0; y--)
+      {
+        changed |= fillRow(cells, y);
+        if (y > 0)
+        {
+          changed |= push(cells, y, y - 1, doors[SOUTH]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Grows the cells of a row east and west through doors as far as they go,
+   * first sweeping east word by word, then west.
+   * @param cells
+   * @param y the row, from the south edge
+   * @return true if any cell was added
+   */
+  private boolean fillRow(long[] cells, int y)
+  {
+    final int base = y * words;
+    final long[] east = doors[EAST];
+    final long[] west = doors[WEST];
+    boolean changed = false;
+    long carry = 0;
+    for (int i = base; i < base + words; i++)
+    {
+      final long before = cells[i];
+      // a cell can be entered from the west if its west neighbour has an east door
+      final long g = smearUp(before | (carry & present[i]), (east[i] << 1) & present[i]);
+      cells[i] = g;
+      carry = (g & east[i]) >>> 63;
+      changed |= g != before;
+    }
+    carry = 0;
+    for (int i = base + words - 1; i >= base; i--)
+    {
+      final long before = cells[i];
+      final long g = smearDown(before | (carry & present[i]), (west[i] >>> 1) & present[i]);
+      cells[i] = g;
+      carry = (g & west[i]) << 63;
+      changed |= g != before;
+    }
+    return changed;
+  }
+
+  /**
+   * Moves the cells of a row through its doors into another row.
+   * @param cells
+   * @param from the row moved from
+   * @param to the row moved to
+   * @param door the doors leading from one to the other
+   * @return true if any cell was added
+   */
+  private boolean push(long[] cells, int from, int to, long[] door)
+  {
+    boolean changed = false;
+    for (int w = 0; w < words; w++)
+    {
+      final int i = to * words + w;
+      final long g = cells[i] | (cells[from * words + w] & door[from * words + w] & present[i]);
+      changed |= g != cells[i];
+      cells[i] = g;
+    }
+    return changed;
+  }
+
+  /**
+   * Adds every chamber one door away from a set of cells to another set.
+   * @param from
+   * @param to
+   */
+  private void spread(long[] from, long[] to)
+  {
+    for (int y = 0; y < height; y++)
+    {
+      long eastCarry = 0;
+      for (int w = 0; w < words; w++)
+      {
+        final int i = y * words + w;
+        long g = (from[i] & doors[EAST][i]) << 1 | eastCarry;
+        eastCarry = (from[i] & doors[EAST][i]) >>> 63;
+        g |= (from[i] & doors[WEST][i]) >>> 1;
+        if (w + 1 < words)
+        {
+          g |= (from[i + 1] & doors[WEST][i + 1]) << 63;
+        }
+        if (y > 0)
+        {
+          g |= from[i - words] & doors[NORTH][i - words];
+        }
+        if (y + 1 < height)
+        {
+          g |= from[i + words] & doors[SOUTH][i + words];
+        }
+        to[i] |= g & present[i];
+      }
+    }
+  }
+
+  /**
+   * Spreads set bits upwards through runs of cells that can be entered, in log steps.
+   * @param g the set bits
+   * @param q bit x is set if x can be entered from x - 1
+   * @return the spread bits
+   */
+  private static long smearUp(long g, long q)
+  {
+    g |= q & (g << 1);
+    q &= q << 1;
+    g |= q & (g << 2);
+    q &= q << 2;
+    g |= q & (g << 4);
+    q &= q << 4;
+    g |= q & (g << 8);
+    q &= q << 8;
+    g |= q & (g << 16);
+    q &= q << 16;
+    return g | (q & (g << 32));
+  }
+
+  /**
+   * Spreads set bits downwards through runs of cells that can be entered, in log steps.
+   * @param g the set bits
+   * @param q bit x is set if x can be entered from x + 1
+   * @return the spread bits
+   */
+  private static long smearDown(long g, long q)
+  {
+    g |= q & (g >>> 1);
+    q &= q >>> 1;
+    g |= q & (g >>> 2);
+    q &= q >>> 2;
+    g |= q & (g >>> 4);
+    q &= q >>> 4;
+    g |= q & (g >>> 8);
+    q &= q >>> 8;
+    g |= q & (g >>> 16);
+    q &= q >>> 16;
+    return g | (q & (g >>> 32));
+  }
+
+  private long[] toWords(BitSet cells)
+  {
+    final long[] bits = cells.toLongArray();
+    final long[] words = new long[present.length];
+    System.arraycopy(bits, 0, words, 0, Math.min(bits.length, words.length));
+    return words;
+  }
+
+  private static boolean test(long[] board, int index)
+  {
+    return index >= 0 && (board[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private static int count(long[] board)
+  {
+    int count = 0;
+    for (long word : board)
+    {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+}
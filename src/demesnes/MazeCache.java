@@ -0,0 +1,347 @@
+package demesnes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import utility.KeyedRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * A directory of region-generated mazes saved to disk, so a seed played
+ * again is read back instead of carved again.
+ *
+ * Each maze is saved under a fingerprint of everything that decides its
+ * layout: the seed, the number of chambers, the gruman and door odds and
+ * the version of the carving rules, so changing any of them misses the
+ * cache rather than loading a stale maze. A maze is saved as the carved
+ * cells of its regions, a byte per cell, deflated; the chambers are
+ * built from them just as the generator builds them, so loading skips
+ * only the carving. Grumans are rolled when first met either way.
+ *
+ * When the directory grows past its size bound, the mazes least recently
+ * used are deleted.
+ */
+public class MazeCache
+{
+  private static final int MAGIC = 0x5A4D415A; // "ZMAZ"
+  private static final String SUFFIX = ".maze";
+  private static final Logger log = Logger.getLogger(MazeCache.class.getName());
+
+  private final File directory;
+  private final long maxBytes;
+  private int hits;
+  private int misses;
+
+  /**
+   * Creates a cache in a directory, making the directory if need be.
+   * @param directory where to keep the mazes
+   * @param maxBytes the most bytes of mazes to keep
+   * @throws IOException if the directory cannot be made
+   */
+  public MazeCache(File directory, long maxBytes) throws IOException
+  {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    if (!directory.isDirectory() && !directory.mkdirs())
+    {
+      throw new IOException("Cannot make the maze cache " + directory);
+    }
+  }
+
+  /**
+   * Returns the fingerprint of a maze: a hash of its seed, its number of
+   * chambers, the odds that shape it, and the version of the carving rules.
+   * @param seed the maze seed
+   * @param n the number of chambers
+   * @return fingerprint
+   */
+  public static long fingerprint(long seed, int n)
+  {
+    long h = KeyedRandom.mix(seed);
+    h = KeyedRandom.mix(h ^ n);
+    h = KeyedRandom.mix(h ^ Maze.GRUMAN_ODDS);
+    h = KeyedRandom.mix(h ^ Region.LOOP_ODDS);
+    h = KeyedRandom.mix(h ^ Region.STITCH_ODDS);
+    return KeyedRandom.mix(h ^ RegionMazeGenerator.VERSION);
+  }
+
+  /**
+   * Returns the maze a generator makes with n chambers, read from the
+   * cache if it is there, or else generated on the common fork-join pool
+   * and saved for next time.
+   * @param generator the generator of the seed
+   * @param n the number of chambers
+   * @return the same maze generator.generate(n) would make
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   */
+  public Maze get(RegionMazeGenerator generator, int n)
+  {
+    return get(generator, n, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the maze a generator makes with n chambers, read from the
+   * cache if it is there, or else generated and saved for next time.
+   * A maze that cannot be read or saved is generated as usual.
+   * @param generator the generator of the seed
+   * @param n the number of chambers
+   * @param pool the pool to carve and build regions on
+   * @return the same maze generator.generate(n, pool) would make
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   */
+  public Maze get(RegionMazeGenerator generator, int n, ForkJoinPool pool)
+  {
+    if (n < Maze.MIN_NUMBER_CHAMBERS)
+    {
+      throw new IllegalArgumentException("A maze needs at least " + Maze.MIN_NUMBER_CHAMBERS
+          + " chambers, not " + n);
+    }
+    final File file = fileFor(generator.getSeed(), n);
+    final RegionMazeGenerator.Plan plan = new RegionMazeGenerator.Plan(n);
+    if (file.isFile())
+    {
+      try
+      {
+        read(file, generator.getSeed(), plan);
+        file.setLastModified(System.currentTimeMillis());
+        synchronized (this)
+        {
+          hits++;
+        }
+        return generator.assemble(plan, pool, null);
+      }
+      catch (IOException e)
+      {
+        log.warning("Cannot read " + file + ", generating the maze again: " + e);
+        Arrays.fill(plan.regions, null);
+      }
+    }
+    synchronized (this)
+    {
+      misses++;
+    }
+    generator.carveAll(plan, pool, null);
+    try
+    {
+      write(file, generator.getSeed(), plan);
+      evict(file);
+    }
+    catch (IOException e)
+    {
+      log.warning("Cannot save " + file + ": " + e);
+    }
+    return generator.assemble(plan, pool, null);
+  }
+
+  /**
+   * Predicate method whether a maze is in the cache
+   * @param seed
+   * @param n
+   * @return true/false
+   */
+  public boolean contains(long seed, int n)
+  {
+    return fileFor(seed, n).isFile();
+  }
+
+  /**
+   * Returns the bytes of mazes in the cache
+   * @return bytes
+   */
+  public long size()
+  {
+    long bytes = 0;
+    for (File f : entries())
+    {
+      bytes += f.length();
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns how many mazes were read from the cache
+   * @return hits
+   */
+  public synchronized int getHits()
+  {
+    return hits;
+  }
+
+  /**
+   * Returns how many mazes had to be generated
+   * @return misses
+   */
+  public synchronized int getMisses()
+  {
+    return misses;
+  }
+
+  /**
+   * Returns the file a maze is saved in.
+   * @param seed
+   * @param n
+   * @return file
+   */
+  private File fileFor(long seed, int n)
+  {
+    return new File(directory, String.format("%016x%s", fingerprint(seed, n), SUFFIX));
+  }
+
+  /**
+   * Returns the mazes saved in the directory.
+   * @return files
+   */
+  private File[] entries()
+  {
+    final File[] files = directory.listFiles();
+    if (files == null)
+    {
+      return new File[0];
+    }
+    int k = 0;
+    for (File f : files)
+    {
+      if (f.getName().endsWith(SUFFIX))
+      {
+        files[k++] = f;
+      }
+    }
+    return Arrays.copyOf(files, k);
+  }
+
+  /**
+   * Saves the carved regions of a plan, to a temporary file first
+   * and then moved into place, so a reader never sees half a maze.
+   * @param file
+   * @param seed
+   * @param plan
+   * @throws IOException if the file cannot be written
+   */
+  private void write(File file, long seed, RegionMazeGenerator.Plan plan) throws IOException
+  {
+    final File temp = File.createTempFile("maze", ".part", directory);
+    try
+    {
+      final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(temp))))
+      {
+        out.writeInt(MAGIC);
+        out.writeInt(RegionMazeGenerator.VERSION);
+        out.writeLong(seed);
+        out.writeInt(plan.n);
+        final DeflaterOutputStream cells = new DeflaterOutputStream(out, deflater, 1 << 16);
+        for (Region region : plan.regions)
+        {
+          cells.write(region.cells);
+        }
+        cells.finish();
+      }
+      finally
+      {
+        deflater.end();
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally
+    {
+      if (temp.exists() && !temp.delete())
+      {
+        temp.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Reads the carved regions of a plan back from a file.
+   * @param file
+   * @param seed the seed expected
+   * @param plan the plan to fill
+   * @throws IOException if the file cannot be read or is of another maze
+   */
+  private static void read(File file, long seed, RegionMazeGenerator.Plan plan) throws IOException
+  {
+    final Inflater inflater = new Inflater();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(file))))
+    {
+      if (in.readInt() != MAGIC || in.readInt() != RegionMazeGenerator.VERSION
+          || in.readLong() != seed || in.readInt() != plan.n)
+      {
+        throw new IOException("It holds another maze");
+      }
+      final DataInputStream cells = new DataInputStream(new InflaterInputStream(in, inflater,
+          1 << 16));
+      for (int i = 0; i < plan.count; i++)
+      {
+        final byte[] bytes = new byte[Region.CELLS];
+        cells.readFully(bytes);
+        plan.regions[i] = new Region(plan.columns[i], plan.rows[i], bytes);
+      }
+    }
+    catch (EOFException e)
+    {
+      throw new IOException("It is cut short", e);
+    }
+    finally
+    {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Deletes the mazes least recently used until the cache fits its bound,
+   * keeping the one just saved.
+   * @param keep
+   */
+  private synchronized void evict(File keep)
+  {
+    final File[] files = entries();
+    long bytes = 0;
+    for (File f : files)
+    {
+      bytes += f.length();
+    }
+    Arrays.sort(files, new Comparator<File>()
+    {
+      @Override
+      public int compare(File a, File b)
+      {
+        return Long.compare(a.lastModified(), b.lastModified());
+      }
+    });
+    for (int i = 0; i < files.length && bytes > maxBytes; i++)
+    {
+      if (!files[i].equals(keep))
+      {
+        final long length = files[i].length();
+        if (files[i].delete())
+        {
+          bytes -= length;
+        }
+      }
+    }
+  }
+}
@@ -20,32 +20,52 @@ import players.Gruman;
 public class MazeFacade
 {
   //Instantiate variables	
-  private final Maze maze;
+  private final MazeSession session;
+  private final RoamingGrumans roamers;
   private final Map<Location, ChamberFacade> chambers;
 
   /**
-   * MazeFacade constructor, takes in a maze object and a current 
+   * MazeFacade constructor, takes in a game's session of a maze and a current 
    * @param current
-   * @param maze
+   * @param session
    */
-  public MazeFacade(final Location current, final Maze maze)
+  public MazeFacade(final Location current, final MazeSession session)
   {
-    this.maze = maze;
+    this(current, session, 1);
+  }
+
+  /**
+   * MazeFacade constructor for a wider view, with every chamber no more
+   * than a number of columns and rows from the current one
+   * @param current
+   * @param session
+   * @param radius how many columns and rows to see on each side
+   */
+  public MazeFacade(final Location current, final MazeSession session, final int radius)
+  {
+    this(current, session, radius, null);
+  }
+
+  /**
+   * MazeFacade constructor for a maze whose grumans roam, showing each
+   * where it is now rather than in the chamber it started in
+   * @param current
+   * @param session
+   * @param radius how many columns and rows to see on each side
+   * @param roamers the roaming grumans, or null if they stay put
+   */
+  public MazeFacade(final Location current, final MazeSession session, final int radius,
+      final RoamingGrumans roamers)
+  {
+    this.session = session;
+    this.roamers = roamers;
     final Map<Location, ChamberFacade> chambers = new HashMap<>();
-    final Location north = new Location(current, Direction.NORTH);
-    final Location south = new Location(current, Direction.SOUTH);
-    final Location[] locations = {current, north, south,
-        new Location(current, Direction.EAST), new Location(current, Direction.WEST),
-        new Location(north, Direction.EAST), new Location(north, Direction.WEST),
-        new Location(south, Direction.EAST), new Location(south, Direction.WEST)};
-    
-    for (final Location l : locations)
+    for (final Chamber c : session.getMaze().getChambersIn(current.getColumn() - radius,
+        current.getRow() - radius, current.getColumn() + radius, current.getRow() + radius))
     {
-      final Chamber c = maze.getChamber(l);
-      if (c != null)
-      {
-        chambers.put(l, new ChamberFacade(c));
-      }
+      final boolean gruman = roamers == null ? c.hasGruman()
+          : roamers.getGrumansIn(c.getLocation()).length > 0;
+      chambers.put(c.getLocation(), new ChamberFacade(c, session.hasVisited(c), gruman));
     }
     this.chambers = Collections.unmodifiableMap(chambers);
   }
@@ -76,7 +96,8 @@ public class MazeFacade
    */
   public int getGrumanSacks(final Location l)
   {
-    return maze.getGrumanSacks(l);
+    final Gruman g = getGruman(l);
+    return g == null ? -1 : g.getSacks();
   }
   
   /**
@@ -86,6 +107,32 @@ public class MazeFacade
    */
   public BattleStrategy getGrumanStrategy(Location location)
   {
-    return maze.getGrumanStrategy(location);
+    final Gruman g = getGruman(location);
+    return g == null ? null : g.getStrategy();
+  }
+
+  /**
+   * Returns the game's gruman in a chamber: where the grumans roam, the
+   * lowest numbered one there, the one the human would meet
+   * @param l
+   * @return Gruman, or null if there is none
+   */
+  private Gruman getGruman(final Location l)
+  {
+    final Maze maze = session.getMaze();
+    Gruman gruman = null;
+    if (roamers == null)
+    {
+      gruman = session.getGruman(maze.getChamber(l));
+    }
+    else
+    {
+      final int[] here = roamers.getGrumansIn(l);
+      if (here.length > 0)
+      {
+        gruman = session.getGruman(maze.getChamber(roamers.getHome(here[0])));
+      }
+    }
+    return gruman;
   }
 }
@@ -0,0 +1,255 @@
+package demesnes;
+
+import game.BattleStrategy;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import players.Gruman;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * One game's view of a maze that many games may share. The maze keeps
+ * only the layout: doors, where the grumans and strategies start, and
+ * the chambers visited before any game began. What a game changes lives
+ * here instead: the chambers it has visited, which also marks the
+ * strategies it has picked up, and its own copies of the grumans it has
+ * met. A thousand sessions on one maze pay for the layout once, and each
+ * pays only for the regions it has walked and the grumans it has fought.
+ *
+ * Sessions on different threads may share a maze held on the heap, as
+ * made by new Maze(n) or RegionMazeGenerator.generate(). Endless, mapped
+ * and paged mazes change as they are read, so all sessions on one of
+ * them must stay on one thread.
+ *
+ * A game playing a mapped or paged maze by itself has no one to hide its
+ * changes from, and an overlay on the heap would grow with every region
+ * it walks while the maze keeps those to its file. Its session, made by
+ * writingThrough(), visits the maze's own chambers and fights the maze's
+ * own grumans instead, so they are spilled with the rest of their region.
+ */
+public class MazeSession implements Serializable
+{
+  private final Maze maze;
+
+  /**
+   * For each region walked, a bit per cell for the chambers visited
+   * in this session.
+   */
+  private final Map<Long, BitSet> visited;
+  private final Map<Integer, Gruman> grumans;
+  private final boolean writeThrough;
+  private int chambersVisited;
+
+  /**
+   * Starts a session on a maze, as though no one had played it.
+   * @param maze the maze to share
+   */
+  public MazeSession(final Maze maze)
+  {
+    this(maze, false);
+  }
+
+  /**
+   * Starts a session
+   * @param maze
+   * @param writeThrough whether the session changes the maze itself
+   */
+  private MazeSession(final Maze maze, final boolean writeThrough)
+  {
+    this.maze = maze;
+    this.writeThrough = writeThrough;
+    visited = writeThrough ? null : new HashMap<Long, BitSet>();
+    grumans = writeThrough ? null : new HashMap<Integer, Gruman>();
+    chambersVisited = maze.getChambersVisited();
+  }
+
+  /**
+   * Starts a session that visits the maze's chambers and fights its
+   * grumans itself, keeping nothing of its own. Only one game may play
+   * the maze.
+   * @param maze the maze to play
+   * @return the session
+   */
+  public static MazeSession writingThrough(final Maze maze)
+  {
+    return new MazeSession(maze, true);
+  }
+
+  /**
+   * Returns the shared maze
+   * @return maze
+   */
+  public Maze getMaze()
+  {
+    return maze;
+  }
+
+  /**
+   * Returns the entrance chamber, at the origin
+   * @return chamber
+   */
+  public Chamber getEntrance()
+  {
+    return maze.getEntrance();
+  }
+
+  /**
+   * Returns the chamber through the door in a direction from another
+   * @param c the chamber to leave
+   * @param dir
+   * @return the chamber through the door, or null if there is no door
+   */
+  public Chamber getNeighbor(final Chamber c, final Direction dir)
+  {
+    return maze.getNeighbor(c, dir);
+  }
+
+  /**
+   * Lets the maze know the human has reached a chamber
+   * @param c
+   */
+  public void approach(final Chamber c)
+  {
+    maze.approach(c);
+  }
+
+  /**
+   * Predicate method whether this session has visited a chamber,
+   * or it was visited before the maze was shared
+   * @param c
+   * @return true/false
+   */
+  public boolean hasVisited(final Chamber c)
+  {
+    if (c.hasVisited())
+    {
+      return true;
+    }
+    if (writeThrough)
+    {
+      return false;
+    }
+    final BitSet cells = visited.get(regionKey(c));
+    return cells != null && cells.get(Region.cellOf(c.getColumn(), c.getRow()));
+  }
+
+  /**
+   * Marks a chamber as visited in this session, leaving the maze as it is
+   * unless the session writes through to it
+   * @param c
+   */
+  public void visit(final Chamber c)
+  {
+    if (writeThrough)
+    {
+      if (!c.hasVisited())
+      {
+        maze.visit(c);
+        chambersVisited++;
+      }
+    }
+    else if (!hasVisited(c))
+    {
+      final Long key = regionKey(c);
+      BitSet cells = visited.get(key);
+      if (cells == null)
+      {
+        cells = new BitSet(Region.CELLS);
+        visited.put(key, cells);
+      }
+      cells.set(Region.cellOf(c.getColumn(), c.getRow()));
+      chambersVisited++;
+    }
+  }
+
+  /**
+   * Returns the strategy still lying in a chamber in this session
+   * @param c
+   * @return the strategy, or null if there is none or it was picked up
+   */
+  public BattleStrategy getStrategy(final Chamber c)
+  {
+    return hasVisited(c) ? null : c.getStrategy();
+  }
+
+  /**
+   * Returns this session's gruman in a chamber, copied from the maze's
+   * the first time it is met, or the maze's own if the session writes
+   * through to it
+   * @param c the chamber, or null
+   * @return Gruman, or null if there is none
+   */
+  public Gruman getGruman(final Chamber c)
+  {
+    Gruman gruman = null;
+    if (writeThrough)
+    {
+      gruman = maze.getGruman(c);
+    }
+    else if (c != null && c.hasGruman())
+    {
+      gruman = grumans.get(c.getGrumanID());
+      if (gruman == null)
+      {
+        gruman = new Gruman(maze.getGruman(c));
+        grumans.put(c.getGrumanID(), gruman);
+      }
+    }
+    return gruman;
+  }
+
+  /**
+   * Returns the amount of sacks this session's gruman in a chamber has
+   * @param l
+   * @return number of sacks, or -1 if there is no gruman
+   */
+  public int getGrumanSacks(final Location l)
+  {
+    final Gruman g = getGruman(maze.getChamber(l));
+    return g == null ? -1 : g.getSacks();
+  }
+
+  /**
+   * Returns the strategy of this session's gruman in a chamber
+   * @param l
+   * @return the gruman's strategy, or null if there is no gruman
+   */
+  public BattleStrategy getGrumanStrategy(final Location l)
+  {
+    final Gruman g = getGruman(maze.getChamber(l));
+    return g == null ? null : g.getStrategy();
+  }
+
+  /**
+   * Returns the amount of chambers visited in this session
+   * @return number of chambers visited
+   */
+  public int getChambersVisited()
+  {
+    return chambersVisited;
+  }
+
+  /**
+   * Returns the amount of chambers this session has not yet visited
+   * @return number of chambers unvisited
+   */
+  public int getChambersLeft()
+  {
+    return maze.getTotalChambers() - chambersVisited;
+  }
+
+  /**
+   * Returns the key of the region holding a chamber
+   * @param c
+   * @return key
+   */
+  private static Long regionKey(final Chamber c)
+  {
+    return ChamberIndex.key(Region.regionOf(c.getColumn()), Region.regionOf(c.getRow()));
+  }
+}
@@ -0,0 +1,586 @@
+package demesnes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import players.Gruman;
+import repository.GrumanNames;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * The chambers of a region-generated maze, paged in a region at a time
+ * under a heap budget.
+ *
+ * Only the regions used most recently stay on the heap. When one more
+ * would go over the budget, the region least recently used is dropped.
+ * A region nobody has changed since it was paged in is simply carved
+ * again from the seed the next time it is needed. One whose chambers
+ * have been visited, or whose grumans have been met, is first written
+ * to a scratch file: its visited bits and its grumans. These are read
+ * back over the carved region when it returns. The maze keeps its
+ * grumans here rather than in its own roster, so they are paged too.
+ *
+ * Saving a maze writes out every changed region and puts what the scratch
+ * file holds of each into the save, as the file may be gone by the time
+ * the maze is loaded; loading it starts a new temporary scratch file,
+ * kept until the program exits, with those regions.
+ */
+class PagedChambers implements ChamberStore, Serializable
+{
+  /**
+   * A rough heap cost of a paged-in region, most of it its chambers.
+   */
+  static final long REGION_BYTES = Region.CELLS * 48L;
+
+  /**
+   * The fewest regions kept, enough for every region near the human.
+   */
+  static final int MIN_REGIONS = 4;
+
+  /**
+   * How near the human, in chambers, a region must be to be paged in ahead of them.
+   */
+  static final int NEAR = 8;
+
+  private static final int VISITED_BYTES = Region.CELLS / Byte.SIZE;
+
+  private final long seed;
+  private final int size;
+  private final int[] grumanBase;
+  private final int maxRegions;
+  private transient File scratch;
+  private final Bounds bounds;
+  private final long[] spillOffsets;
+  private final int[] spillLengths;
+  private transient RegionMazeGenerator generator;
+  private transient RegionMazeGenerator.Plan plan;
+  private transient LinkedHashMap<Integer, Page> resident;
+  private transient BitSet dirty;
+  private transient RandomAccessFile spill;
+
+  /**
+   * Constructs the paged chambers of a region-generated maze, none of them paged in.
+   * @param seed the maze seed
+   * @param n the number of chambers
+   * @param grumanBase the first gruman ID of each region in the spiral
+   * @param heapBudget the bytes of heap the chambers may take
+   * @param scratch the file to write changed regions to, replaced if it exists
+   * @param bounds the smallest rectangle holding every chamber
+   * @throws IOException if the scratch file cannot be created
+   */
+  PagedChambers(long seed, int n, int[] grumanBase, long heapBudget, File scratch, Bounds bounds)
+      throws IOException
+  {
+    this.seed = seed;
+    this.size = n;
+    this.grumanBase = grumanBase;
+    this.maxRegions = (int)Math.max(MIN_REGIONS, Math.min(grumanBase.length, heapBudget / REGION_BYTES));
+    this.scratch = scratch;
+    this.bounds = bounds;
+    this.spillOffsets = new long[grumanBase.length];
+    this.spillLengths = new int[grumanBase.length];
+    try (RandomAccessFile raf = new RandomAccessFile(scratch, "rw"))
+    {
+      raf.setLength(0);
+    }
+    start();
+  }
+
+  /**
+   * Returns the chamber at a column and row, paging its region in if need be.
+   * @param column
+   * @param row
+   * @return the chamber, or null if there is none
+   */
+  @Override
+  public Chamber get(int column, int row)
+  {
+    final int i = plan.indexOf(Region.regionOf(column), Region.regionOf(row));
+    return i < 0 ? null : page(i).cells[Region.cellOf(column, row)];
+  }
+
+  @Override
+  public boolean contains(int column, int row)
+  {
+    return get(column, row) != null;
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public Bounds bounds()
+  {
+    return bounds;
+  }
+
+  /**
+   * Adds every chamber in a rectangle to a collection, paging in
+   * each region it covers in turn.
+   * @param west the westmost column
+   * @param south the southmost row
+   * @param east the eastmost column
+   * @param north the northmost row
+   * @param into the collection to add the chambers to
+   */
+  @Override
+  public void collect(int west, int south, int east, int north, Collection<Chamber> into)
+  {
+    west = Math.max(west, bounds.getWest());
+    south = Math.max(south, bounds.getSouth());
+    east = Math.min(east, bounds.getEast());
+    north = Math.min(north, bounds.getNorth());
+    for (int regionRow = Region.regionOf(south); regionRow <= Region.regionOf(north); regionRow++)
+    {
+      for (int regionColumn = Region.regionOf(west); regionColumn <= Region.regionOf(east);
+          regionColumn++)
+      {
+        final int i = plan.indexOf(regionColumn, regionRow);
+        if (i < 0)
+        {
+          continue;
+        }
+        final Chamber[] cells = page(i).cells;
+        final int column0 = Region.columnOf(regionColumn, 0);
+        final int row0 = Region.rowOf(regionRow, 0);
+        for (int row = Math.max(south, row0); row <= Math.min(north, row0 + Region.SIZE - 1); row++)
+        {
+          for (int column = Math.max(west, column0);
+              column <= Math.min(east, column0 + Region.SIZE - 1); column++)
+          {
+            final Chamber c = cells[Region.cellOf(column, row)];
+            if (c != null)
+            {
+              into.add(c);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns an unmodifiable view of the locations of the chambers.
+   * @return the locations
+   */
+  @Override
+  public Set<Location> locations()
+  {
+    return new AbstractSet<Location>()
+    {
+      @Override
+      public Iterator<Location> iterator()
+      {
+        final Iterator<Chamber> it = PagedChambers.this.iterator();
+        return new Iterator<Location>()
+        {
+          @Override
+          public boolean hasNext()
+          {
+            return it.hasNext();
+          }
+
+          @Override
+          public Location next()
+          {
+            return it.next().getLocation();
+          }
+
+          @Override
+          public void remove()
+          {
+            it.remove();
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(final Object o)
+      {
+        return o instanceof Location
+            && PagedChambers.this.contains(((Location)o).getColumn(), ((Location)o).getRow());
+      }
+
+      @Override
+      public int size()
+      {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator over the chambers, region by region.
+   * Regions not on the heap are carved for the iterator alone,
+   * so iterating does not page out the regions in use.
+   * @return the iterator
+   */
+  @Override
+  public Iterator<Chamber> iterator()
+  {
+    return new Iterator<Chamber>()
+    {
+      private int i = -1;
+      private Chamber[] cells = new Chamber[0];
+      private int cell = advance(0);
+
+      private int advance(int next)
+      {
+        while (true)
+        {
+          while (next < cells.length && cells[next] == null)
+          {
+            next++;
+          }
+          if (next < cells.length || i + 1 >= plan.count)
+          {
+            return next;
+          }
+          i++;
+          cells = (resident.containsKey(i) ? resident.get(i) : load(i)).cells;
+          next = 0;
+        }
+      }
+
+      @Override
+      public boolean hasNext()
+      {
+        return cell < cells.length;
+      }
+
+      @Override
+      public Chamber next()
+      {
+        if (!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+        final Chamber c = cells[cell];
+        cell = advance(cell + 1);
+        return c;
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException("Chambers cannot be removed");
+      }
+    };
+  }
+
+  /**
+   * Pages in the regions near the human, so they are the last to go.
+   * @param column the human's column
+   * @param row the human's row
+   */
+  @Override
+  public void approach(int column, int row)
+  {
+    for (int regionColumn = Region.regionOf(column - NEAR);
+        regionColumn <= Region.regionOf(column + NEAR); regionColumn++)
+    {
+      for (int regionRow = Region.regionOf(row - NEAR);
+          regionRow <= Region.regionOf(row + NEAR); regionRow++)
+      {
+        final int i = plan.indexOf(regionColumn, regionRow);
+        if (i >= 0)
+        {
+          page(i);
+        }
+      }
+    }
+    page(plan.indexOf(Region.regionOf(column), Region.regionOf(row)));
+  }
+
+  /**
+   * Marks a chamber visited, along with the paged-in copy of it,
+   * so its region is written out before it is dropped.
+   * @param c
+   */
+  @Override
+  public void visit(Chamber c)
+  {
+    c.setVisited();
+    final int i = plan.indexOf(Region.regionOf(c.getColumn()), Region.regionOf(c.getRow()));
+    page(i).cells[Region.cellOf(c.getColumn(), c.getRow())].setVisited();
+    dirty.set(i);
+  }
+
+  /**
+   * Returns the gruman in a chamber, creating it the first time it is met.
+   * @param c the chamber
+   * @return the gruman, or null if the chamber has none
+   */
+  Gruman getGruman(Chamber c)
+  {
+    Gruman gruman = null;
+    if (c.hasGruman())
+    {
+      final int i = plan.indexOf(Region.regionOf(c.getColumn()), Region.regionOf(c.getRow()));
+      final Page page = page(i);
+      final int cell = Region.cellOf(c.getColumn(), c.getRow());
+      if (page.grumans == null)
+      {
+        page.grumans = new Gruman[Region.CELLS];
+      }
+      gruman = page.grumans[cell];
+      if (gruman == null)
+      {
+        gruman = new Gruman(GrumanNames.getInstance().takeName(), generator.getRandom(),
+            c.getColumn(), c.getRow());
+        page.grumans[cell] = gruman;
+      }
+      // a gruman met may be poked, so its region must be written out
+      dirty.set(i);
+    }
+    return gruman;
+  }
+
+  /**
+   * Regions are carved afresh once paged out, so chambers cannot be linked.
+   * @return false
+   */
+  @Override
+  public boolean isResident()
+  {
+    return false;
+  }
+
+  /**
+   * String representation of the chambers
+   */
+  @Override
+  public String toString()
+  {
+    final StringBuilder s = new StringBuilder("{");
+    for (final Chamber c : this)
+    {
+      if (s.length() > 1)
+      {
+        s.append(", ");
+      }
+      s.append(c.getLocation()).append('=').append(c);
+    }
+    return s.append('}').toString();
+  }
+
+  /**
+   * Returns a region, paging it in if need be
+   * and paging out the region least recently used if that goes over budget.
+   * @param i the index of the region in the spiral
+   * @return the region's page
+   */
+  private Page page(int i)
+  {
+    Page page = resident.get(i);
+    if (page == null)
+    {
+      page = load(i);
+      resident.put(i, page);
+    }
+    return page;
+  }
+
+  /**
+   * Carves a region from the seed and puts back what was written out
+   * when it was last paged out: which chambers were visited, and its grumans.
+   * @param i the index of the region in the spiral
+   * @return the region's page
+   */
+  private Page load(int i)
+  {
+    final Page page = new Page();
+    final Region region = generator.carve(plan, i);
+    plan.regions[i] = region;
+    for (Chamber c : RegionMazeGenerator.build(plan, i, grumanBase[i]))
+    {
+      page.cells[Region.cellOf(c.getColumn(), c.getRow())] = c;
+    }
+    plan.regions[i] = null;
+    if (spillLengths[i] > 0)
+    {
+      final byte[] bytes = new byte[spillLengths[i]];
+      try
+      {
+        spill.seek(spillOffsets[i]);
+        spill.readFully(bytes);
+        final BitSet visited = BitSet.valueOf(Arrays.copyOf(bytes, VISITED_BYTES));
+        for (int cell = visited.nextSetBit(0); cell >= 0; cell = visited.nextSetBit(cell + 1))
+        {
+          page.cells[cell].setVisited();
+        }
+        if (bytes.length > VISITED_BYTES)
+        {
+          final ObjectInputStream in = new ObjectInputStream(
+              new ByteArrayInputStream(bytes, VISITED_BYTES, bytes.length - VISITED_BYTES));
+          page.grumans = (Gruman[])in.readObject();
+        }
+      }
+      catch (IOException | ClassNotFoundException e)
+      {
+        throw new IllegalStateException("Cannot read region " + i + " from " + scratch, e);
+      }
+    }
+    return page;
+  }
+
+  /**
+   * Writes the visited bits and grumans of a changed region to the scratch file,
+   * over its last copy if there is room, or else at the end.
+   * @param i the index of the region in the spiral
+   * @param page the region's page
+   */
+  private void write(int i, Page page)
+  {
+    final BitSet visited = new BitSet(Region.CELLS);
+    for (int cell = 0; cell < Region.CELLS; cell++)
+    {
+      if (page.cells[cell] != null && page.cells[cell].hasVisited())
+      {
+        visited.set(cell);
+      }
+    }
+    try
+    {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream(VISITED_BYTES);
+      final byte[] bits = visited.toByteArray();
+      bytes.write(bits);
+      bytes.write(new byte[VISITED_BYTES - bits.length]);
+      if (page.grumans != null)
+      {
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(page.grumans);
+        out.close();
+      }
+      if (bytes.size() > spillLengths[i])
+      {
+        spillOffsets[i] = spill.length();
+      }
+      spill.seek(spillOffsets[i]);
+      spill.write(bytes.toByteArray());
+      spillLengths[i] = bytes.size();
+    }
+    catch (IOException e)
+    {
+      throw new IllegalStateException("Cannot write region " + i + " to " + scratch, e);
+    }
+    dirty.clear(i);
+  }
+
+  /**
+   * Sets up the plan, the scratch file and an empty set of paged-in regions.
+   * @throws IOException if the scratch file cannot be opened
+   */
+  private void start() throws IOException
+  {
+    generator = new RegionMazeGenerator(seed);
+    plan = new RegionMazeGenerator.Plan(size);
+    dirty = new BitSet();
+    spill = new RandomAccessFile(scratch, "rw");
+    resident = new LinkedHashMap<Integer, Page>(2 * maxRegions, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest)
+      {
+        if (size() <= maxRegions)
+        {
+          return false;
+        }
+        if (dirty.get(eldest.getKey()))
+        {
+          write(eldest.getKey(), eldest.getValue());
+        }
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Writes out every changed region before saving, and saves what the
+   * scratch file holds of each.
+   * @param out
+   * @throws IOException
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException
+  {
+    for (Map.Entry<Integer, Page> e : resident.entrySet())
+    {
+      if (dirty.get(e.getKey()))
+      {
+        write(e.getKey(), e.getValue());
+      }
+    }
+    out.defaultWriteObject();
+    for (int i = 0; i < spillLengths.length; i++)
+    {
+      if (spillLengths[i] > 0)
+      {
+        final byte[] bytes = new byte[spillLengths[i]];
+        spill.seek(spillOffsets[i]);
+        spill.readFully(bytes);
+        out.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * Starts a new scratch file with the saved regions when a saved maze is loaded.
+   * @param in
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    if (grumanBase == null || spillOffsets == null || spillLengths == null
+        || spillLengths.length != grumanBase.length || spillOffsets.length != grumanBase.length)
+    {
+      throw new InvalidObjectException("Not the chambers of a paged maze");
+    }
+    scratch = File.createTempFile("maze", ".scratch");
+    scratch.deleteOnExit();
+    start();
+    spill.setLength(0);
+    for (int i = 0; i < spillLengths.length; i++)
+    {
+      if (spillLengths[i] > 0)
+      {
+        final byte[] bytes = new byte[spillLengths[i]];
+        in.readFully(bytes);
+        spillOffsets[i] = spill.length();
+        spill.seek(spillOffsets[i]);
+        spill.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * The chambers of a region on the heap, and the grumans met in it.
+   */
+  private static final class Page
+  {
+    final Chamber[] cells = new Chamber[Region.CELLS];
+    Gruman[] grumans;
+  }
+}
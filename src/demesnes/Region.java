@@ -0,0 +1,478 @@
+package demesnes;
+
+import game.BattleStrategy;
+
+import java.util.Random;
+
+import utility.KeyedRandom;
+import utility.KeyedRandom.Purpose;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * A square block of the plane, carved into chambers on its own.
+ *
+ * Everything about a region - which cells are chambers, their doors,
+ * which of them hold grumans, and the doors through its borders -
+ * is a pure function of the maze seed and the region's coordinates,
+ * so regions can be carved in any order, on any thread, and agree
+ * with their neighbours about the doors they share.
+ */
+final class Region
+{
+  /**
+   * The number of cells along each side of a region.
+   */
+  static final int SIZE = 64;
+
+  /**
+   * The number of cells in a region.
+   */
+  static final int CELLS = SIZE * SIZE;
+
+  /**
+   * Cell flag: the cell is a chamber.
+   */
+  static final int PRESENT = 1 << 4;
+
+  /**
+   * Cell flag: the chamber holds a gruman.
+   */
+  static final int GRUMAN = 1 << 5;
+
+  /**
+   * The doors mask within a cell.
+   */
+  static final int DOORS = PRESENT - 1;
+
+  /**
+   * One in this many walls between two chambers of a region
+   * becomes a door after the region is carved, making loops.
+   */
+  static final int LOOP_ODDS = 4;
+
+  /**
+   * One in this many walls along a border between two regions becomes a door.
+   */
+  static final int STITCH_ODDS = 8;
+
+  private static final int HALF = SIZE / 2;
+  private static final Direction[] DIRECTIONS = Direction.values();
+  private static final Direction[] LOOP_SIDES = {Direction.NORTH, Direction.EAST};
+
+  /**
+   * The region's column and row among regions.
+   */
+  final int regionColumn;
+  final int regionRow;
+
+  /**
+   * One byte per cell: its doors mask and flags.
+   */
+  final byte[] cells;
+
+  private int chambers;
+  private int grumans;
+
+  /**
+   * Constructs an uncarved region.
+   * @param regionColumn
+   * @param regionRow
+   */
+  Region(int regionColumn, int regionRow)
+  {
+    this.regionColumn = regionColumn;
+    this.regionRow = regionRow;
+    this.cells = new byte[CELLS];
+  }
+
+  /**
+   * Constructs a region carved before, from its cells.
+   * @param regionColumn
+   * @param regionRow
+   * @param cells one byte per cell, as carved
+   */
+  Region(int regionColumn, int regionRow, byte[] cells)
+  {
+    this.regionColumn = regionColumn;
+    this.regionRow = regionRow;
+    this.cells = cells;
+    for (int cell = 0; cell < CELLS; cell++)
+    {
+      if (isPresent(cell))
+      {
+        chambers++;
+      }
+      if (hasGruman(cell))
+      {
+        grumans++;
+      }
+    }
+  }
+
+  /**
+   * Returns the region coordinate holding a chamber coordinate.
+   * Region (0,0) is centred on the origin.
+   * @param coordinate a column or row
+   * @return the region column or row
+   */
+  static int regionOf(int coordinate)
+  {
+    return Math.floorDiv(coordinate + HALF, SIZE);
+  }
+
+  /**
+   * Returns the cell of a region holding a chamber location.
+   * @param column
+   * @param row
+   * @return the cell index within its region
+   */
+  static int cellOf(int column, int row)
+  {
+    return Math.floorMod(column + HALF, SIZE) + SIZE * Math.floorMod(row + HALF, SIZE);
+  }
+
+  /**
+   * Returns the column of a cell of this region.
+   * @param cell
+   * @return the column
+   */
+  int columnOf(int cell)
+  {
+    return columnOf(regionColumn, cell);
+  }
+
+  /**
+   * Returns the column of a cell of a region.
+   * @param regionColumn
+   * @param cell
+   * @return the column
+   */
+  static int columnOf(int regionColumn, int cell)
+  {
+    return regionColumn * SIZE - HALF + cell % SIZE;
+  }
+
+  /**
+   * Returns the row of a cell of this region.
+   * @param cell
+   * @return the row
+   */
+  int rowOf(int cell)
+  {
+    return rowOf(regionRow, cell);
+  }
+
+  /**
+   * Returns the row of a cell of a region.
+   * @param regionRow
+   * @param cell
+   * @return the row
+   */
+  static int rowOf(int regionRow, int cell)
+  {
+    return regionRow * SIZE - HALF + cell / SIZE;
+  }
+
+  /**
+   * Returns the number of chambers carved.
+   * @return chamber count
+   */
+  int getChambers()
+  {
+    return chambers;
+  }
+
+  /**
+   * Returns the number of grumans placed.
+   * @return gruman count
+   */
+  int getGrumans()
+  {
+    return grumans;
+  }
+
+  /**
+   * Returns the smallest rectangle holding the chambers carved.
+   * @return the bounds, or null if none are carved
+   */
+  Bounds bounds()
+  {
+    int west = SIZE;
+    int east = -1;
+    int south = SIZE;
+    int north = -1;
+    for (int cell = 0; cell < CELLS; cell++)
+    {
+      if (isPresent(cell))
+      {
+        west = Math.min(west, cell % SIZE);
+        east = Math.max(east, cell % SIZE);
+        south = Math.min(south, cell / SIZE);
+        north = Math.max(north, cell / SIZE);
+      }
+    }
+    if (east < 0)
+    {
+      return null;
+    }
+    return new Bounds(columnOf(west), rowOf(south * SIZE), columnOf(east), rowOf(north * SIZE));
+  }
+
+  /**
+   * Returns whether a cell is a chamber.
+   * @param cell
+   * @return true if the cell is a chamber
+   */
+  boolean isPresent(int cell)
+  {
+    return (cells[cell] & PRESENT) != 0;
+  }
+
+  /**
+   * Returns the doors mask of a cell.
+   * @param cell
+   * @return mask of Direction bits
+   */
+  int doorsAt(int cell)
+  {
+    return cells[cell] & DOORS;
+  }
+
+  /**
+   * Returns whether the chamber at a cell holds a gruman.
+   * @param cell
+   * @return true if a gruman lives here
+   */
+  boolean hasGruman(int cell)
+  {
+    return (cells[cell] & GRUMAN) != 0;
+  }
+
+  /**
+   * Builds the chamber at a cell.
+   * @param cell
+   * @param grumanID the ID of its gruman, or Chamber.NONE
+   * @param strategy the power-up lying there, or null
+   * @return the chamber
+   */
+  Chamber toChamber(int cell, int grumanID, BattleStrategy strategy)
+  {
+    return new Chamber(doorsAt(cell), new Location(columnOf(cell), rowOf(cell)), grumanID, strategy);
+  }
+
+  /**
+   * Returns the neighbouring cell in a direction, if it is in this region.
+   * @param cell
+   * @param d
+   * @return the neighbouring cell, or -1 across the border
+   */
+  static int neighbor(int cell, Direction d)
+  {
+    final int x = cell % SIZE + d.getHorizontalOffset();
+    final int y = cell / SIZE + d.getVerticalOffset();
+    return x < 0 || x >= SIZE || y < 0 || y >= SIZE ? -1 : x + SIZE * y;
+  }
+
+  /**
+   * Returns the cell on a border of the region at an offset along it.
+   * @param d the side of the region
+   * @param offset distance along the side, from the south or west end
+   * @return the cell
+   */
+  static int borderCell(Direction d, int offset)
+  {
+    switch (d)
+    {
+      case NORTH:
+        return offset + SIZE * (SIZE - 1);
+      case EAST:
+        return SIZE - 1 + SIZE * offset;
+      case SOUTH:
+        return offset;
+      default:
+        return SIZE * offset;
+    }
+  }
+
+  /**
+   * Grows a tree of chambers through random walls out from a starting cell,
+   * then knocks through a few more walls inside the region to make loops.
+   * @param rng the region's random source
+   * @param start the first cell
+   * @param quota the number of chambers to carve
+   */
+  void grow(Random rng, int start, int quota)
+  {
+    final int[] edges = new int[4 * CELLS];
+    int edgeCount = 0;
+    addCell(start);
+    edgeCount = pushEdges(edges, edgeCount, start);
+    while (chambers < quota && edgeCount > 0)
+    {
+      final int pick = rng.nextInt(edgeCount);
+      final int edge = edges[pick];
+      edges[pick] = edges[--edgeCount];
+      final int from = edge >> 2;
+      final Direction d = DIRECTIONS[edge & 3];
+      final int to = neighbor(from, d);
+      if (!isPresent(to))
+      {
+        addCell(to);
+        openDoor(from, d);
+        edgeCount = pushEdges(edges, edgeCount, to);
+      }
+    }
+    for (int cell = 0; cell < CELLS; cell++)
+    {
+      if (isPresent(cell))
+      {
+        for (Direction d : LOOP_SIDES)
+        {
+          final int to = neighbor(cell, d);
+          if (to >= 0 && isPresent(to) && (doorsAt(cell) & d.getMask()) == 0
+              && rng.nextInt(LOOP_ODDS) == 0)
+          {
+            openDoor(cell, d);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Opens the border doors this region shares with a fully carved neighbour.
+   * @param random the maze's random source
+   * @param d the side the neighbour is on
+   */
+  void stitch(KeyedRandom random, Direction d)
+  {
+    for (int offset = 0; offset < SIZE; offset++)
+    {
+      final int cell = borderCell(d, offset);
+      if (isPresent(cell) && hasBorderDoor(random, columnOf(cell), rowOf(cell), d))
+      {
+        cells[cell] |= d.getMask();
+      }
+    }
+  }
+
+  /**
+   * Opens the single border door through which a partly carved region
+   * joins the neighbour it grew from.
+   * @param d the side the door is on
+   * @param offset distance along the side
+   */
+  void openGate(Direction d, int offset)
+  {
+    cells[borderCell(d, offset)] |= d.getMask();
+  }
+
+  /**
+   * Decides which chambers hold grumans, each on a draw of its own.
+   * The chamber at the origin is the entrance and never does.
+   * @param random the maze's random source
+   * @param odds the gruman odds of the maze
+   */
+  void placeGrumans(KeyedRandom random, int odds)
+  {
+    for (int cell = 0; cell < CELLS; cell++)
+    {
+      if (isPresent(cell) && rollsGruman(random, columnOf(cell), rowOf(cell), odds))
+      {
+        cells[cell] |= GRUMAN;
+        grumans++;
+      }
+    }
+  }
+
+  /**
+   * Returns the random source a region is carved with.
+   * @param random the maze's random source
+   * @param regionColumn
+   * @param regionRow
+   * @return the region's stream of draws
+   */
+  static Random carving(KeyedRandom random, int regionColumn, int regionRow)
+  {
+    return random.stream(Purpose.CARVE, regionColumn, regionRow);
+  }
+
+  /**
+   * Returns whether the chamber at a column and row holds a gruman.
+   * The chamber at the origin is the entrance and never does.
+   * @param random the maze's random source
+   * @param column
+   * @param row
+   * @param odds the gruman odds of the maze
+   * @return true if it does
+   */
+  static boolean rollsGruman(KeyedRandom random, int column, int row, int odds)
+  {
+    return (column != 0 || row != 0)
+        && random.nextInt(Purpose.GRUMAN_PLACEMENT, column, row, 0, odds) > 0;
+  }
+
+  /**
+   * Returns where along a side a partly carved region opens its gate.
+   * @param random the maze's random source
+   * @param regionColumn the partly carved region
+   * @param regionRow the partly carved region
+   * @return the offset along the side
+   */
+  static int gateOffset(KeyedRandom random, int regionColumn, int regionRow)
+  {
+    return random.nextInt(Purpose.GATE, regionColumn, regionRow, 0, SIZE);
+  }
+
+  /**
+   * Returns whether the wall on one side of a chamber on a region border is a door.
+   * Both chambers sharing the wall get the same answer.
+   * @param random the maze's random source
+   * @param column the chamber's column
+   * @param row the chamber's row
+   * @param d the side of the wall
+   * @return true if the wall is a door
+   */
+  static boolean hasBorderDoor(KeyedRandom random, int column, int row, Direction d)
+  {
+    if (d == Direction.WEST || d == Direction.SOUTH)
+    {
+      column += d.getHorizontalOffset();
+      row += d.getVerticalOffset();
+      d = d.opposite();
+    }
+    final int along = d == Direction.EAST ? row : column;
+    final int across = d == Direction.EAST ? regionOf(column) : regionOf(row);
+    final int start = d == Direction.EAST ? regionOf(row) : regionOf(column);
+    // a border is keyed by the region it runs along and which of its sides it is
+    final int always = random.nextInt(Purpose.BORDER, across, start, d.ordinal(), SIZE);
+    return Math.floorMod(along + HALF, SIZE) == always
+        || random.nextInt(Purpose.STITCH, across, along, d.ordinal(), STITCH_ODDS) == 0;
+  }
+
+  private void addCell(int cell)
+  {
+    cells[cell] |= PRESENT;
+    chambers++;
+  }
+
+  private void openDoor(int from, Direction d)
+  {
+    cells[from] |= d.getMask();
+    cells[neighbor(from, d)] |= d.opposite().getMask();
+  }
+
+  private static int pushEdges(int[] edges, int edgeCount, int cell)
+  {
+    for (Direction d : DIRECTIONS)
+    {
+      if (neighbor(cell, d) >= 0)
+      {
+        edges[edgeCount++] = (cell << 2) | d.ordinal();
+      }
+    }
+    return edgeCount;
+  }
+}
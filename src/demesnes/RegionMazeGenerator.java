@@ -0,0 +1,703 @@
+package demesnes;
+
+import game.BattleStrategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import utility.KeyedRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Generates a maze by carving square regions of the plane in parallel
+ * on a fork-join pool, then stitching doors along the region borders.
+ *
+ * Regions are laid out in a spiral around the entrance. Every region but
+ * the last is carved full; the last grows only as many chambers as are
+ * left, out from a single gate onto the region before it. Since each
+ * region is a pure function of the seed and its coordinates, a seed
+ * always gives the same maze, however many threads carve it.
+ *
+ * Grumans are only placed here; each is rolled the first time the maze
+ * is asked for it, from draws keyed by its chamber, so it is rolled the
+ * same whenever it is met.
+ *
+ * The same regions, all carved full, also make up endless mazes,
+ * carved lazily around the human.
+ */
+public class RegionMazeGenerator
+{
+  /**
+   * The version of the carving rules. It changes whenever a seed
+   * would carve a different maze, so saved mazes are not mistaken
+   * for the ones a seed now makes.
+   */
+  public static final int VERSION = 2;
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final long seed;
+  private final KeyedRandom random;
+
+  /**
+   * Constructs a generator for a seed.
+   * @param seed the maze seed
+   */
+  public RegionMazeGenerator(long seed)
+  {
+    this.seed = seed;
+    this.random = new KeyedRandom(seed);
+  }
+
+  /**
+   * Returns the seed of the mazes this generator makes.
+   * @return seed
+   */
+  public long getSeed()
+  {
+    return seed;
+  }
+
+  /**
+   * Returns the random source every draw about the mazes is made from.
+   * @return the random source of the seed
+   */
+  public KeyedRandom getRandom()
+  {
+    return random;
+  }
+
+  /**
+   * Generates a maze on the common fork-join pool.
+   * @param n the number of chambers
+   * @return the maze
+   */
+  public Maze generate(int n)
+  {
+    return generate(n, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Generates a maze on a given fork-join pool.
+   * @param n the number of chambers
+   * @param pool the pool to carve regions on
+   * @return the maze
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   */
+  public Maze generate(int n, ForkJoinPool pool)
+  {
+    return generate(n, pool, null);
+  }
+
+  /**
+   * Generates a maze on a given fork-join pool, reporting each region
+   * as it is finished.
+   * @param n the number of chambers
+   * @param pool the pool to carve regions on
+   * @param progress where to report progress, or null
+   * @return the maze
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   * @throws java.util.concurrent.CancellationException
+   *  if the progress is cancelled before the maze is done
+   */
+  public Maze generate(final int n, ForkJoinPool pool, final GenerationProgress progress)
+  {
+    if (n < Maze.MIN_NUMBER_CHAMBERS)
+    {
+      throw new IllegalArgumentException("A maze needs at least " + Maze.MIN_NUMBER_CHAMBERS
+          + " chambers, not " + n);
+    }
+    final Plan plan = new Plan(n);
+    carveAll(plan, pool, progress);
+    return assemble(plan, pool, progress);
+  }
+
+  /**
+   * Carves every region of a plan.
+   * @param plan
+   * @param pool the pool to carve regions on
+   * @param progress where to report progress, or null
+   */
+  void carveAll(final Plan plan, ForkJoinPool pool, final GenerationProgress progress)
+  {
+    pool.invoke(new Span(0, plan.count, new IntConsumer()
+    {
+      @Override
+      public void accept(int i)
+      {
+        report(progress, 0);
+        plan.regions[i] = carve(plan, i);
+      }
+    }));
+  }
+
+  /**
+   * Numbers the grumans of a plan whose regions are all carved,
+   * and builds their chambers into a maze on the heap.
+   * @param plan
+   * @param pool the pool to build regions on
+   * @param progress where to report progress, or null
+   * @return the maze
+   */
+  Maze assemble(final Plan plan, ForkJoinPool pool, final GenerationProgress progress)
+  {
+    final int[] grumanBase = new int[plan.count];
+    int grumanCount = 0;
+    for (int i = 0; i < plan.count; i++)
+    {
+      grumanBase[i] = grumanCount;
+      grumanCount += plan.regions[i].getGrumans();
+    }
+
+    final Chamber[][] built = new Chamber[plan.count][];
+    pool.invoke(new Span(0, plan.count, new IntConsumer()
+    {
+      @Override
+      public void accept(int i)
+      {
+        built[i] = build(plan, i, grumanBase[i]);
+        plan.regions[i] = null;
+        report(progress, plan.quota(i));
+      }
+    }));
+
+    final ChamberIndex chambers = new ChamberIndex(plan.n);
+    for (int i = 0; i < plan.count; i++)
+    {
+      for (Chamber c : built[i])
+      {
+        chambers.put(c);
+      }
+      built[i] = null;
+    }
+    chambers.get(0, 0).setVisited();
+    return new Maze(chambers, random);
+  }
+
+  /**
+   * Generates a maze into a memory-mapped file on the common fork-join pool.
+   * @param n the number of chambers
+   * @param file the file to keep the chambers in, replaced if it exists
+   * @return the maze
+   * @throws IOException if the file cannot be written
+   */
+  public Maze generateMapped(int n, File file) throws IOException
+  {
+    return generateMapped(n, file, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Generates a maze into a memory-mapped file, for mazes bigger than the heap.
+   * Each region is written to the file as soon as it is carved, numbering
+   * its grumans from zero; once every region's count is known, a second
+   * pass numbers them on from the regions before. Regions have records
+   * of their own, so they are written in parallel.
+   * @param n the number of chambers
+   * @param file the file to keep the chambers in, replaced if it exists
+   * @param pool the pool to carve regions on
+   * @return the same maze generate(n, pool) would make
+   * @throws IOException if the file cannot be written
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   */
+  public Maze generateMapped(int n, File file, ForkJoinPool pool) throws IOException
+  {
+    return generateMapped(n, file, pool, null);
+  }
+
+  /**
+   * Generates a maze into a memory-mapped file,
+   * reporting each region as it is written.
+   * @param n the number of chambers
+   * @param file the file to keep the chambers in, replaced if it exists
+   * @param pool the pool to carve regions on
+   * @param progress where to report progress, or null
+   * @return the same maze generate(n, pool) would make
+   * @throws IOException if the file cannot be written
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   * @throws java.util.concurrent.CancellationException
+   *  if the progress is cancelled before the maze is done
+   */
+  public Maze generateMapped(final int n, File file, ForkJoinPool pool,
+      final GenerationProgress progress) throws IOException
+  {
+    if (n < Maze.MIN_NUMBER_CHAMBERS)
+    {
+      throw new IllegalArgumentException("A maze needs at least " + Maze.MIN_NUMBER_CHAMBERS
+          + " chambers, not " + n);
+    }
+    final Plan plan = new Plan(n);
+    final MappedChambers chambers = new MappedChambers(file, n, plan.west, plan.south,
+        plan.wide(), plan.high(), boundsOf(plan));
+
+    final int[] grumans = new int[plan.count];
+    pool.invoke(new Span(0, plan.count, new IntConsumer()
+    {
+      @Override
+      public void accept(int i)
+      {
+        report(progress, 0);
+        final Region region = carve(plan, i);
+        grumans[i] = region.getGrumans();
+        write(plan, i, region, chambers);
+        report(progress, plan.quota(i));
+      }
+    }));
+
+    final int[] grumanBase = new int[plan.count];
+    for (int i = 1; i < plan.count; i++)
+    {
+      grumanBase[i] = grumanBase[i - 1] + grumans[i - 1];
+    }
+    pool.invoke(new Span(1, plan.count, new IntConsumer()
+    {
+      @Override
+      public void accept(int i)
+      {
+        chambers.renumber(plan.columns[i], plan.rows[i], grumanBase[i]);
+      }
+    }));
+    chambers.visit(chambers.get(0, 0));
+    return new Maze(chambers, random);
+  }
+
+  /**
+   * Generates a maze paged in under a heap budget, on the common fork-join pool.
+   * @param n the number of chambers
+   * @param heapBudget the bytes of heap its chambers may take
+   * @param scratch the file to write changed regions to, replaced if it exists
+   * @return the maze
+   * @throws IOException if the scratch file cannot be created
+   */
+  public Maze generatePaged(int n, long heapBudget, File scratch) throws IOException
+  {
+    return generatePaged(n, heapBudget, scratch, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Generates a maze whose regions are paged in as they are needed and
+   * dropped when they go over a heap budget. Every region is carved once
+   * up front to number its grumans, then thrown away.
+   * @param n the number of chambers
+   * @param heapBudget the bytes of heap its chambers may take
+   * @param scratch the file to write changed regions to, replaced if it exists
+   * @param pool the pool to carve regions on
+   * @return the same maze generate(n, pool) would make
+   * @throws IOException if the scratch file cannot be created
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   */
+  public Maze generatePaged(int n, long heapBudget, File scratch, ForkJoinPool pool)
+      throws IOException
+  {
+    return generatePaged(n, heapBudget, scratch, pool, null);
+  }
+
+  /**
+   * Generates a paged maze, reporting each region as it is numbered.
+   * @param n the number of chambers
+   * @param heapBudget the bytes of heap its chambers may take
+   * @param scratch the file to write changed regions to, replaced if it exists
+   * @param pool the pool to carve regions on
+   * @param progress where to report progress, or null
+   * @return the same maze generate(n, pool) would make
+   * @throws IOException if the scratch file cannot be created
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   * @throws java.util.concurrent.CancellationException
+   *  if the progress is cancelled before the maze is done
+   */
+  public Maze generatePaged(final int n, long heapBudget, File scratch, ForkJoinPool pool,
+      final GenerationProgress progress) throws IOException
+  {
+    if (n < Maze.MIN_NUMBER_CHAMBERS)
+    {
+      throw new IllegalArgumentException("A maze needs at least " + Maze.MIN_NUMBER_CHAMBERS
+          + " chambers, not " + n);
+    }
+    final Plan plan = new Plan(n);
+    final int[] grumans = new int[plan.count];
+    pool.invoke(new Span(0, plan.count, new IntConsumer()
+    {
+      @Override
+      public void accept(int i)
+      {
+        report(progress, 0);
+        grumans[i] = carve(plan, i).getGrumans();
+        report(progress, plan.quota(i));
+      }
+    }));
+
+    final int[] grumanBase = new int[plan.count];
+    for (int i = 1; i < plan.count; i++)
+    {
+      grumanBase[i] = grumanBase[i - 1] + grumans[i - 1];
+    }
+    final PagedChambers chambers = new PagedChambers(seed, n, grumanBase, heapBudget, scratch,
+        boundsOf(plan));
+    chambers.visit(chambers.get(0, 0));
+    return new Maze(chambers, random);
+  }
+
+  /**
+   * Generates just the topology of a maze on the common fork-join pool.
+   * @param n the number of chambers
+   * @return the bitboard of the maze generate(n) would make
+   */
+  public MazeBitboard generateBitboard(int n)
+  {
+    return generateBitboard(n, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Generates just the topology of a maze, streaming each region into
+   * a bitboard as soon as it is carved, without building any chambers.
+   * The bitboard's bounding box starts on a region edge, so every row
+   * of a region is one word and regions are added in parallel.
+   * @param n the number of chambers
+   * @param pool the pool to carve regions on
+   * @return the bitboard of the maze generate(n, pool) would make
+   * @throws IllegalArgumentException
+   *  if n is less than {@value Maze#MIN_NUMBER_CHAMBERS}
+   */
+  public MazeBitboard generateBitboard(final int n, ForkJoinPool pool)
+  {
+    if (n < Maze.MIN_NUMBER_CHAMBERS)
+    {
+      throw new IllegalArgumentException("A maze needs at least " + Maze.MIN_NUMBER_CHAMBERS
+          + " chambers, not " + n);
+    }
+    final Plan plan = new Plan(n);
+    final MazeBitboard board = new MazeBitboard(Region.columnOf(plan.west, 0),
+        Region.rowOf(plan.south, 0), plan.wide() * Region.SIZE, plan.high() * Region.SIZE);
+
+    pool.invoke(new Span(0, plan.count, new IntConsumer()
+    {
+      @Override
+      public void accept(int i)
+      {
+        board.add(carve(plan, i));
+      }
+    }));
+    board.setVisited(0, 0);
+    return board;
+  }
+
+  /**
+   * Generates an endless maze, whose regions are carved
+   * as the human comes within a radius of them.
+   * The same seed always carves the same regions.
+   * @param radius how many chambers around the human to have carved
+   * @return the maze
+   */
+  public Maze generateEndless(int radius)
+  {
+    final EndlessChambers chambers = new EndlessChambers(seed, radius);
+    return new Maze(chambers, random);
+  }
+
+  /**
+   * Reports chambers made, if anyone is listening,
+   * which also stops the work if it has been cancelled.
+   * @param progress where to report, or null
+   * @param chambers the chambers made
+   */
+  private static void report(GenerationProgress progress, int chambers)
+  {
+    if (progress != null)
+    {
+      progress.advance(chambers);
+    }
+  }
+
+  /**
+   * Works out the smallest rectangle holding every chamber of a plan.
+   * Full regions fill their squares, so only a partial last region
+   * has to be carved to find its extent.
+   * @param plan
+   * @return the bounds
+   */
+  private Bounds boundsOf(Plan plan)
+  {
+    Bounds bounds = null;
+    for (int i = 0; i < plan.count; i++)
+    {
+      final Bounds b;
+      if (plan.isPartial(i))
+      {
+        b = carve(plan, i).bounds();
+      }
+      else
+      {
+        final int west = Region.columnOf(plan.columns[i], 0);
+        final int south = Region.rowOf(plan.rows[i], 0);
+        b = new Bounds(west, south, west + Region.SIZE - 1, south + Region.SIZE - 1);
+      }
+      bounds = bounds == null ? b : bounds.union(b);
+    }
+    return bounds;
+  }
+
+  /**
+   * Carves one region of the plan and opens its border doors.
+   * @param plan
+   * @param i the index of the region in the spiral
+   * @return the carved region
+   */
+  Region carve(Plan plan, int i)
+  {
+    final int regionColumn = plan.columns[i];
+    final int regionRow = plan.rows[i];
+    final Region region = new Region(regionColumn, regionRow);
+    int start = Region.cellOf(0, 0);
+    if (plan.isPartial(i) && i > 0)
+    {
+      start = Region.borderCell(plan.sideOf(i, i - 1),
+          Region.gateOffset(random, regionColumn, regionRow));
+    }
+    region.grow(Region.carving(random, regionColumn, regionRow), start, plan.quota(i));
+
+    for (Direction d : DIRECTIONS)
+    {
+      final int j = plan.indexOf(regionColumn + d.getHorizontalOffset(),
+          regionRow + d.getVerticalOffset());
+      if (j < 0)
+      {
+        continue;
+      }
+      if (!plan.isPartial(i) && !plan.isPartial(j))
+      {
+        region.stitch(random, d);
+      }
+      else if (plan.isPartial(i) && j == i - 1)
+      {
+        region.openGate(d, Region.gateOffset(random, regionColumn, regionRow));
+      }
+      else if (plan.isPartial(j) && i == j - 1)
+      {
+        region.openGate(d, Region.gateOffset(random, plan.columns[j], plan.rows[j]));
+      }
+    }
+    region.placeGrumans(random, Maze.GRUMAN_ODDS);
+    return region;
+  }
+
+  /**
+   * Builds the chambers of a carved region, numbering its grumans
+   * on from those of the regions before it.
+   * @param plan
+   * @param i the index of the region in the spiral
+   * @param grumanID the first gruman ID of the region
+   * @return the chambers in cell order
+   */
+  static Chamber[] build(Plan plan, int i, int grumanID)
+  {
+    final Region region = plan.regions[i];
+    final Chamber[] chambers = new Chamber[region.getChambers()];
+    // the entrance counts as the first chamber, so it never holds a power-up
+    int where = i == 0 ? 1 : i * Region.CELLS;
+    int k = 0;
+    for (int cell = 0; cell < Region.CELLS; cell++)
+    {
+      if (region.isPresent(cell))
+      {
+        int id = Chamber.NONE;
+        if (region.hasGruman(cell))
+        {
+          id = grumanID++;
+        }
+        final boolean isEntrance = region.columnOf(cell) == 0 && region.rowOf(cell) == 0;
+        final BattleStrategy strategy = isEntrance ? null : plan.strategyAt(where++);
+        chambers[k++] = region.toChamber(cell, id, strategy);
+      }
+    }
+    return chambers;
+  }
+
+  /**
+   * Writes the chambers of a carved region to a file,
+   * numbering its grumans from zero.
+   * @param plan
+   * @param i the index of the region in the spiral
+   * @param region the carved region
+   * @param chambers the file of chambers
+   */
+  private static void write(Plan plan, int i, Region region, MappedChambers chambers)
+  {
+    int where = i == 0 ? 1 : i * Region.CELLS;
+    int grumanID = 0;
+    for (int cell = 0; cell < Region.CELLS; cell++)
+    {
+      if (region.isPresent(cell))
+      {
+        int id = Chamber.NONE;
+        if (region.hasGruman(cell))
+        {
+          id = grumanID++;
+        }
+        final int column = region.columnOf(cell);
+        final int row = region.rowOf(cell);
+        final boolean isEntrance = column == 0 && row == 0;
+        chambers.write(column, row, region.doorsAt(cell), id,
+            isEntrance ? null : plan.strategyAt(where++));
+      }
+    }
+  }
+
+  /**
+   * The spiral of regions making up a maze of a given size.
+   */
+  static final class Plan
+  {
+    final int n;
+    final int count;
+    final int[] columns;
+    final int[] rows;
+    final Region[] regions;
+    int west;
+    int east;
+    int south;
+    int north;
+    private final Map<Long, Integer> indices;
+
+    Plan(int n)
+    {
+      this.n = n;
+      count = (int)((n + (long)Region.CELLS - 1) / Region.CELLS);
+      columns = new int[count];
+      rows = new int[count];
+      regions = new Region[count];
+      indices = new HashMap<>();
+
+      int column = 0;
+      int row = 0;
+      int run = 1;
+      Direction d = Direction.EAST;
+      int i = 0;
+      while (i < count)
+      {
+        for (int turn = 0; turn < 2 && i < count; turn++)
+        {
+          for (int step = 0; step < run && i < count; step++)
+          {
+            columns[i] = column;
+            rows[i] = row;
+            indices.put(ChamberIndex.key(column, row), i);
+            west = Math.min(west, column);
+            east = Math.max(east, column);
+            south = Math.min(south, row);
+            north = Math.max(north, row);
+            i++;
+            column += d.getHorizontalOffset();
+            row += d.getVerticalOffset();
+          }
+          // turn left
+          d = d.opposite().next();
+        }
+        run++;
+      }
+    }
+
+    int indexOf(int regionColumn, int regionRow)
+    {
+      final Integer i = indices.get(ChamberIndex.key(regionColumn, regionRow));
+      return i == null ? -1 : i;
+    }
+
+    int wide()
+    {
+      return east - west + 1;
+    }
+
+    int high()
+    {
+      return north - south + 1;
+    }
+
+    int quota(int i)
+    {
+      return i < count - 1 ? Region.CELLS : n - (count - 1) * Region.CELLS;
+    }
+
+    boolean isPartial(int i)
+    {
+      return quota(i) < Region.CELLS;
+    }
+
+    Direction sideOf(int i, int j)
+    {
+      for (Direction d : DIRECTIONS)
+      {
+        if (columns[i] + d.getHorizontalOffset() == columns[j]
+            && rows[i] + d.getVerticalOffset() == rows[j])
+        {
+          return d;
+        }
+      }
+      throw new IllegalStateException("Regions " + i + " and " + j + " are not neighbours");
+    }
+
+    BattleStrategy strategyAt(int where)
+    {
+      BattleStrategy strategy = null;
+      if (where == n / 4)
+      {
+        strategy = BattleStrategy.SHIELD;
+      }
+      else if (where == n / 2)
+      {
+        strategy = BattleStrategy.CANE;
+      }
+      else if (where == 3 * n / 4)
+      {
+        strategy = BattleStrategy.UMBRELLA;
+      }
+      return strategy;
+    }
+  }
+
+  /**
+   * Splits a range of regions across the pool, one region per leaf,
+   * each leaf doing the same work on its region.
+   */
+  private static final class Span extends RecursiveAction
+  {
+    private final int lo;
+    private final int hi;
+    private final IntConsumer work;
+
+    Span(int lo, int hi, IntConsumer work)
+    {
+      this.lo = lo;
+      this.hi = hi;
+      this.work = work;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (hi - lo <= 1)
+      {
+        if (hi > lo)
+        {
+          work.accept(lo);
+        }
+      }
+      else
+      {
+        final int mid = (lo + hi) >>> 1;
+        invokeAll(new Span(lo, mid, work), new Span(mid, hi, work));
+      }
+    }
+  }
+}
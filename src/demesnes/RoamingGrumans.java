@@ -0,0 +1,457 @@
+package demesnes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import utility.KeyedRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * The grumans of a maze wandering through its doors, a tick at a time,
+ * with an index of which chamber each is in.
+ *
+ * Each gruman is known by a number from 0 to size()-1, and remembers the
+ * chamber it started in, whose gruman ID it keeps. The chambers are
+ * numbered region by region, each with its four neighbours through its
+ * doors, and the index lists the grumans of each chamber one chamber after
+ * another, so who is in a chamber, or in it and the chambers next to it,
+ * is a few array reads.
+ *
+ * On a tick, each gruman not held in place moves through one of its
+ * chamber's doors, chosen at random, one tick in {@value #MOVE_ODDS}. The
+ * regions roll their grumans' moves in parallel, then the index is built
+ * again in one pass over the grumans and one over the chambers. Every roll
+ * is keyed by the gruman and the tick, so the same seed makes the same
+ * moves however many threads share the work.
+ *
+ * An endless maze roams only over the chambers carved when it is indexed.
+ * Ticks and queries are made by one thread at a time.
+ */
+public final class RoamingGrumans implements Serializable
+{
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * How many times a second grumans may move.
+   */
+  public static final int TICKS_PER_SECOND = 20;
+
+  /**
+   * The time between ticks.
+   */
+  public static final int TICK_MS = 1000 / TICKS_PER_SECOND;
+
+  /**
+   * A gruman moves one tick in this many, on average.
+   */
+  public static final int MOVE_ODDS = 10;
+
+  private static final int NONE = -1;
+  private static final int DIRECTIONS = Direction.values().length;
+  private static final int CELL_BITS = 12;
+
+  private final KeyedRandom random;
+
+  // chambers, region by region
+  private final int[] columns;
+  private final int[] rows;
+  private final int[] neighbors; // DIRECTIONS per chamber, NONE where there is no door
+  private final int[] regionFirst; // the first chamber of each region, and the chamber count
+  private final long[] lookupKeys;
+  private final int[] lookupChambers;
+
+  // grumans
+  private final int[] grumanIDs;
+  private final int[] homes;
+  private final int[] chamberOf;
+  private final boolean[] held;
+
+  // the index: the grumans of chamber c are occupants[first[c]] to occupants[first[c + 1] - 1]
+  private final int[] first;
+  private final int[] occupants;
+
+  private long ticks;
+
+  /**
+   * Indexes the chambers of a maze and puts each of its grumans in the
+   * chamber it belongs to.
+   * @param maze
+   * @param seed what the moves are rolled from
+   */
+  public RoamingGrumans(final Maze maze, final long seed)
+  {
+    random = new KeyedRandom(seed);
+
+    // order the chambers by region, then by cell
+    final Location[] locations = maze.getKeySet().toArray(new Location[0]);
+    final int count = locations.length;
+    final Map<Long, Integer> regionKeys = new HashMap<>();
+    final long[] regionOf = new long[count];
+    for (int i = 0; i < count; i++)
+    {
+      regionOf[i] = ChamberIndex.key(Region.regionOf(locations[i].getColumn()),
+          Region.regionOf(locations[i].getRow()));
+      regionKeys.put(regionOf[i], 0);
+    }
+    final long[] sortedRegions = new long[regionKeys.size()];
+    int r = 0;
+    for (Long key : regionKeys.keySet())
+    {
+      sortedRegions[r++] = key;
+    }
+    Arrays.sort(sortedRegions);
+    for (r = 0; r < sortedRegions.length; r++)
+    {
+      regionKeys.put(sortedRegions[r], r);
+    }
+    final long[] order = new long[count];
+    for (int i = 0; i < count; i++)
+    {
+      final long place = (long)regionKeys.get(regionOf[i]) << CELL_BITS
+          | Region.cellOf(locations[i].getColumn(), locations[i].getRow());
+      order[i] = place << Integer.SIZE | i;
+    }
+    Arrays.sort(order);
+
+    columns = new int[count];
+    rows = new int[count];
+    regionFirst = new int[sortedRegions.length + 1];
+    final int capacity = Integer.highestOneBit(Math.max(1, 2 * count - 1)) << 1;
+    lookupKeys = new long[capacity];
+    lookupChambers = new int[capacity];
+    Arrays.fill(lookupChambers, NONE);
+    for (int c = 0; c < count; c++)
+    {
+      final Location l = locations[(int)order[c]];
+      columns[c] = l.getColumn();
+      rows[c] = l.getRow();
+      regionFirst[(int)(order[c] >>> Integer.SIZE + CELL_BITS) + 1] = c + 1;
+      int slot = ChamberIndex.slotFor(ChamberIndex.key(columns[c], rows[c]), capacity - 1);
+      while (lookupChambers[slot] != NONE)
+      {
+        slot = (slot + 1) & (capacity - 1);
+      }
+      lookupKeys[slot] = ChamberIndex.key(columns[c], rows[c]);
+      lookupChambers[slot] = c;
+    }
+
+    // link the doors, and find the grumans
+    neighbors = new int[count * DIRECTIONS];
+    final int[] foundIDs = new int[count];
+    final int[] foundHomes = new int[count];
+    int grumans = 0;
+    for (int c = 0; c < count; c++)
+    {
+      final Chamber chamber = maze.getChamber(columns[c], rows[c]);
+      for (Direction d : Direction.values())
+      {
+        neighbors[c * DIRECTIONS + d.ordinal()] = chamber.hasDoor(d)
+            ? chamberAt(columns[c] + d.getHorizontalOffset(), rows[c] + d.getVerticalOffset())
+            : NONE;
+      }
+      if (chamber.hasGruman())
+      {
+        foundIDs[grumans] = chamber.getGrumanID();
+        foundHomes[grumans] = c;
+        grumans++;
+      }
+    }
+    grumanIDs = Arrays.copyOf(foundIDs, grumans);
+    homes = Arrays.copyOf(foundHomes, grumans);
+    chamberOf = homes.clone();
+    held = new boolean[grumans];
+    first = new int[count + 1];
+    occupants = new int[grumans];
+    index();
+  }
+
+  /**
+   * Moves the grumans, with the regions shared out over the common pool.
+   */
+  public void tick()
+  {
+    tick(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Moves the grumans, with the regions shared out over a pool.
+   * @param pool
+   */
+  public void tick(final ForkJoinPool pool)
+  {
+    final long tick = ticks;
+    pool.invoke(new Regions(0, regionFirst.length - 1, tick));
+    index();
+    ticks++;
+  }
+
+  /**
+   * Returns how many ticks have passed
+   * @return ticks
+   */
+  public long getTicks()
+  {
+    return ticks;
+  }
+
+  /**
+   * Returns the number of grumans
+   * @return grumans
+   */
+  public int size()
+  {
+    return occupants.length;
+  }
+
+  /**
+   * Returns the number of chambers the grumans roam
+   * @return chambers
+   */
+  public int getChamberCount()
+  {
+    return columns.length;
+  }
+
+  /**
+   * Returns the number of regions the chambers are in
+   * @return regions
+   */
+  public int getRegionCount()
+  {
+    return regionFirst.length - 1;
+  }
+
+  /**
+   * Returns the grumans in a chamber, in order of their numbers
+   * @param l
+   * @return the grumans' numbers, none if the chamber is not roamed
+   */
+  public int[] getGrumansIn(final Location l)
+  {
+    final int c = chamberAt(l.getColumn(), l.getRow());
+    return c == NONE ? new int[0] : Arrays.copyOfRange(occupants, first[c], first[c + 1]);
+  }
+
+  /**
+   * Returns the grumans in a chamber and in the chambers through its
+   * doors, those in it first
+   * @param l
+   * @return the grumans' numbers, none if the chamber is not roamed
+   */
+  public int[] getGrumansNear(final Location l)
+  {
+    int[] near = new int[0];
+    final int c = chamberAt(l.getColumn(), l.getRow());
+    if (c != NONE)
+    {
+      int found = first[c + 1] - first[c];
+      for (int d = 0; d < DIRECTIONS; d++)
+      {
+        final int n = neighbors[c * DIRECTIONS + d];
+        found += n == NONE ? 0 : first[n + 1] - first[n];
+      }
+      near = new int[found];
+      found = copyOccupants(c, near, 0);
+      for (int d = 0; d < DIRECTIONS; d++)
+      {
+        final int n = neighbors[c * DIRECTIONS + d];
+        found = n == NONE ? found : copyOccupants(n, near, found);
+      }
+    }
+    return near;
+  }
+
+  /**
+   * Returns where a gruman is
+   * @param gruman its number
+   * @return the location of its chamber
+   */
+  public Location getLocation(final int gruman)
+  {
+    final int c = chamberOf[gruman];
+    return new Location(columns[c], rows[c]);
+  }
+
+  /**
+   * Returns where a gruman started, the chamber whose gruman it is
+   * @param gruman its number
+   * @return the location of the chamber
+   */
+  public Location getHome(final int gruman)
+  {
+    final int c = homes[gruman];
+    return new Location(columns[c], rows[c]);
+  }
+
+  /**
+   * Returns the gruman ID of the chamber a gruman started in
+   * @param gruman its number
+   * @return the gruman ID
+   */
+  public int getGrumanID(final int gruman)
+  {
+    return grumanIDs[gruman];
+  }
+
+  /**
+   * Keeps a gruman where it is, such as while it fights, until released.
+   * @param gruman its number
+   */
+  public void hold(final int gruman)
+  {
+    held[gruman] = true;
+  }
+
+  /**
+   * Lets a gruman held roam again.
+   * @param gruman its number
+   */
+  public void release(final int gruman)
+  {
+    held[gruman] = false;
+  }
+
+  /**
+   * Predicate method whether a gruman is held where it is
+   * @param gruman its number
+   * @return true/false
+   */
+  public boolean isHeld(final int gruman)
+  {
+    return held[gruman];
+  }
+
+  /**
+   * Returns the number of a chamber
+   * @param column
+   * @param row
+   * @return the chamber, or NONE if it is not roamed
+   */
+  private int chamberAt(final int column, final int row)
+  {
+    final long key = ChamberIndex.key(column, row);
+    final int mask = lookupKeys.length - 1;
+    int slot = ChamberIndex.slotFor(key, mask);
+    while (lookupChambers[slot] != NONE && lookupKeys[slot] != key)
+    {
+      slot = (slot + 1) & mask;
+    }
+    return lookupChambers[slot];
+  }
+
+  /**
+   * Copies the grumans of a chamber into an array.
+   * @param c the chamber
+   * @param into
+   * @param at where in the array to copy them to
+   * @return where the next go
+   */
+  private int copyOccupants(final int c, final int[] into, final int at)
+  {
+    final int length = first[c + 1] - first[c];
+    System.arraycopy(occupants, first[c], into, at, length);
+    return at + length;
+  }
+
+  /**
+   * Rolls the moves of the grumans in the chambers of a region.
+   * @param region
+   * @param tick
+   */
+  private void roam(final int region, final long tick)
+  {
+    for (int c = regionFirst[region]; c < regionFirst[region + 1]; c++)
+    {
+      for (int k = first[c]; k < first[c + 1]; k++)
+      {
+        final int g = occupants[k];
+        final long bits = held[g] ? 0 : random.bits(KeyedRandom.Purpose.ROAM, g, 0, tick);
+        if (!held[g] && (int)(((bits >>> 32) * MOVE_ODDS) >>> 32) == 0)
+        {
+          int doors = 0;
+          for (int d = 0; d < DIRECTIONS; d++)
+          {
+            doors += neighbors[c * DIRECTIONS + d] == NONE ? 0 : 1;
+          }
+          if (doors > 0)
+          {
+            int door = (int)(((bits & 0xFFFFFFFFL) * doors) >>> 32);
+            int d = 0;
+            while (neighbors[c * DIRECTIONS + d] == NONE || door-- > 0)
+            {
+              d++;
+            }
+            chamberOf[g] = neighbors[c * DIRECTIONS + d];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds the index of which grumans are in each chamber, in order of
+   * their numbers, with a counting sort.
+   */
+  private void index()
+  {
+    Arrays.fill(first, 0);
+    for (int g = 0; g < chamberOf.length; g++)
+    {
+      first[chamberOf[g] + 1]++;
+    }
+    for (int c = 0; c < columns.length; c++)
+    {
+      first[c + 1] += first[c];
+    }
+    // fill from the back, so each chamber's first ends up where it starts
+    for (int g = chamberOf.length - 1; g >= 0; g--)
+    {
+      occupants[--first[chamberOf[g] + 1]] = g;
+    }
+    // first[c + 1] now marks where chamber c starts: shift back by one
+    System.arraycopy(first, 1, first, 0, columns.length);
+    first[columns.length] = occupants.length;
+  }
+
+  /**
+   * Splits a range of regions across the pool, one region per leaf.
+   */
+  private final class Regions extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final int lo;
+    private final int hi;
+    private final long tick;
+
+    Regions(final int lo, final int hi, final long tick)
+    {
+      this.lo = lo;
+      this.hi = hi;
+      this.tick = tick;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (hi - lo <= 1)
+      {
+        if (hi > lo)
+        {
+          roam(lo, tick);
+        }
+      }
+      else
+      {
+        final int mid = (lo + hi) >>> 1;
+        invokeAll(new Regions(lo, mid, tick), new Regions(mid, hi, tick));
+      }
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package game;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * What came of many simulated games played under one Balance: how often
+ * the Human won, lost, or ran out of chambers first, and how long the
+ * games took, each with a 95% confidence interval.
+ *
+ * A report is filled by one thread at a time; reports filled apart are
+ * merged into one.
+ */
+public final class BalanceReport
+{
+  /**
+   * How a game ended.
+   */
+  public enum Ending
+  {
+    /** The Human had enough sacks to win. */
+    WON,
+    /** The Human ran out of health. */
+    LOST,
+    /** The Human ran out of chambers before either. */
+    STUCK
+  }
+
+  /**
+   * The normal quantile of a 95% confidence interval.
+   */
+  public static final double Z_95 = 1.959964;
+
+  private final BalanceTuner.Balance balance;
+  private final long[] endings;
+  private long games;
+  private double totalMillis;
+  private double totalSquaredMillis;
+  private long totalChambers;
+  private long totalDuels;
+  private long nanos;
+
+  /**
+   * Creates an empty report.
+   * @param balance the constants the games are played under
+   */
+  public BalanceReport(final BalanceTuner.Balance balance)
+  {
+    this.balance = balance;
+    endings = new long[Ending.values().length];
+  }
+
+  /**
+   * Counts one game.
+   * @param ending how it ended
+   * @param millis how long it lasted
+   * @param chambers how many chambers the Human entered
+   * @param duels how many Grumans it fought
+   */
+  void add(final Ending ending, final long millis, final int chambers, final int duels)
+  {
+    games++;
+    endings[ending.ordinal()]++;
+    totalMillis += millis;
+    totalSquaredMillis += (double)millis * millis;
+    totalChambers += chambers;
+    totalDuels += duels;
+  }
+
+  /**
+   * Adds the counts of another report of the same games.
+   * @param other
+   */
+  void merge(final BalanceReport other)
+  {
+    games += other.games;
+    for (int i = 0; i < endings.length; i++)
+    {
+      endings[i] += other.endings[i];
+    }
+    totalMillis += other.totalMillis;
+    totalSquaredMillis += other.totalSquaredMillis;
+    totalChambers += other.totalChambers;
+    totalDuels += other.totalDuels;
+  }
+
+  /**
+   * Records how long the games took to simulate.
+   * @param nanos
+   */
+  void setNanos(final long nanos)
+  {
+    this.nanos = nanos;
+  }
+
+  /**
+   * Returns the constants the games were played under
+   * @return balance
+   */
+  public BalanceTuner.Balance getBalance()
+  {
+    return balance;
+  }
+
+  /**
+   * Returns the number of games
+   * @return games
+   */
+  public long getGames()
+  {
+    return games;
+  }
+
+  /**
+   * Returns the share of games that ended a way
+   * @param ending
+   * @return from 0 to 1
+   */
+  public double getRate(final Ending ending)
+  {
+    return games == 0 ? 0 : (double)endings[ending.ordinal()] / games;
+  }
+
+  /**
+   * Returns the 95% Wilson score interval of the share of games that
+   * ended a way, which stays inside 0 to 1 even for shares near either
+   * @param ending
+   * @return the low and high ends, from 0 to 1
+   */
+  public double[] getRateInterval(final Ending ending)
+  {
+    double[] interval = {0, 1};
+    if (games > 0)
+    {
+      final double p = getRate(ending);
+      final double z2n = Z_95 * Z_95 / games;
+      final double centre = (p + z2n / 2) / (1 + z2n);
+      final double margin = Z_95 * Math.sqrt(p * (1 - p) / games + z2n / (4 * games))
+          / (1 + z2n);
+      interval = new double[]{Math.max(0, centre - margin), Math.min(1, centre + margin)};
+    }
+    return interval;
+  }
+
+  /**
+   * Returns the mean length of a game, in game time
+   * @return milliseconds
+   */
+  public double getMeanMillis()
+  {
+    return games == 0 ? 0 : totalMillis / games;
+  }
+
+  /**
+   * Returns the half width of the 95% confidence interval of the mean
+   * length of a game
+   * @return milliseconds
+   */
+  public double getMeanMillisMargin()
+  {
+    double margin = 0;
+    if (games > 1)
+    {
+      final double mean = getMeanMillis();
+      final double variance = Math.max(0, (totalSquaredMillis - games * mean * mean) / (games - 1));
+      margin = Z_95 * Math.sqrt(variance / games);
+    }
+    return margin;
+  }
+
+  /**
+   * Returns the mean number of chambers entered in a game
+   * @return chambers
+   */
+  public double getMeanChambers()
+  {
+    return games == 0 ? 0 : (double)totalChambers / games;
+  }
+
+  /**
+   * Returns the mean number of Grumans fought in a game
+   * @return duels
+   */
+  public double getMeanDuels()
+  {
+    return games == 0 ? 0 : (double)totalDuels / games;
+  }
+
+  /**
+   * Returns how many games were simulated a second
+   * @return games per second, or 0 if not timed
+   */
+  public double getGamesPerSecond()
+  {
+    return nanos == 0 ? 0 : games * 1e9 / nanos;
+  }
+
+  @Override
+  public String toString()
+  {
+    final double[] won = getRateInterval(Ending.WON);
+    return String.format("%s: %d games, %.1f%% won (%.1f-%.1f), %.1f%% lost, %.1f%% stuck, "
+        + "%.1f +- %.1f s, %.1f chambers and %.1f duels on average",
+        balance, games, 100 * getRate(Ending.WON), 100 * won[0], 100 * won[1],
+        100 * getRate(Ending.LOST), 100 * getRate(Ending.STUCK), getMeanMillis() / 1000,
+        getMeanMillisMargin() / 1000, getMeanChambers(), getMeanDuels());
+  }
+}
@@ -0,0 +1,496 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import demesnes.Maze;
+import players.Gruman;
+import players.Player;
+import utility.KeyedRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Plays whole games with no Swing, no maze and no waiting, under balance
+ * constants other than those the game is built with: the Difficulty
+ * factor, the strategies' attack factors and deflect odds, and the most
+ * sacks a Gruman holds. Sweeping them shows how the chance of winning
+ * and the length of a game answer to each.
+ *
+ * A game is played as the classic maze plays it. A new Human, its health
+ * cut by the Difficulty factor, walks from the entrance into one new
+ * chamber after another, taking a move interval each time. A chamber
+ * has a Gruman at the maze's odds, and holds a strategy to pick up where
+ * the classic maze puts its shield, cane and umbrella. The Human fights
+ * each Gruman it meets until one of them has no sacks left to take, the
+ * Human has enough to win or no health left, or time runs out and the
+ * Human walks on. In the first chamber with no Gruman after a fight, it
+ * waits to heal as the game heals it. A game ends when the Human wins,
+ * loses, or has entered every chamber without winning.
+ *
+ * The duels are fought in DuelBatch lanes, one game to a lane, with all
+ * the games of a task taking their next duel together. The games are
+ * split into tasks on a fork-join pool, each seeded from the seed and
+ * its place in the split, so a seed always gives the same report
+ * whichever threads play it. Every Balance of a sweep is played from the
+ * same seed, so the same Humans meet the same rolls and a change of a
+ * constant is not lost in the noise of a change of games.
+ */
+public final class BalanceTuner
+{
+  /**
+   * How long the simulated player takes to move to the next chamber,
+   * in milliseconds.
+   */
+  public static final int DEFAULT_MOVE_MS = 1000;
+
+  private static final int GAMES_PER_TASK = 2048;
+  private static final BattleStrategy[] STRATEGIES = BattleStrategy.values();
+  private static final double[] DIFFICULTY_SCALES = {0.8, 0.9, 1.1, 1.2};
+  private static final double[] AMPLIFIER_SCALES = {0.5, 0.75, 1.25, 1.5};
+  private static final double[] DEFLECT_CHANGES = {-0.2, -0.1, 0.1, 0.2};
+  private static final int[] SACK_CHANGES = {-5, -2, 2, 5};
+
+  private final ForkJoinPool pool;
+  private final int numChambers;
+  private final int sacksToWin;
+  private final int moveMS;
+  private final int pokeIntervalMS;
+  private final int maxDuelMS;
+
+  /**
+   * Balance constants a game may be played under.
+   */
+  public static final class Balance
+  {
+    private final String name;
+    private final double difficultyFactor;
+    private final double[] attackFactor;
+    private final double[] deflectOdds;
+    private final int maxGrumanSacks;
+
+    /**
+     * Creates the constants the game is built with, at a Difficulty.
+     * @param difficulty
+     */
+    public Balance(final Game.Difficulty difficulty)
+    {
+      this(difficulty.toString(), difficulty.FACTOR, DuelBatch.attackFactors(),
+          DuelBatch.deflectOdds(), Gruman.MAX_SACKS_TO_START);
+    }
+
+    /**
+     * Creates constants.
+     * @param name what to call them
+     * @param difficultyFactor what the Human's health is multiplied by
+     * @param attackFactor the attack factor of each strategy, by ordinal
+     * @param deflectOdds the deflect odds of each strategy, by ordinal
+     * @param maxGrumanSacks the most sacks a Gruman starts with and holds
+     */
+    private Balance(final String name, final double difficultyFactor,
+        final double[] attackFactor, final double[] deflectOdds, final int maxGrumanSacks)
+    {
+      this.name = name;
+      this.difficultyFactor = difficultyFactor;
+      this.attackFactor = attackFactor;
+      this.deflectOdds = deflectOdds;
+      this.maxGrumanSacks = maxGrumanSacks;
+    }
+
+    /**
+     * Returns these constants with another Difficulty factor.
+     * @param factor what the Human's health is multiplied by
+     * @return balance
+     */
+    public Balance withDifficultyFactor(final double factor)
+    {
+      return new Balance(String.format("%s, health x%.2f", name, factor), factor, attackFactor,
+          deflectOdds, maxGrumanSacks);
+    }
+
+    /**
+     * Returns these constants with another attack factor for a strategy.
+     * @param strategy
+     * @param factor
+     * @return balance
+     */
+    public Balance withAttackFactor(final BattleStrategy strategy, final double factor)
+    {
+      final double[] factors = attackFactor.clone();
+      factors[strategy.ordinal()] = factor;
+      return new Balance(String.format("%s, %s x%.2f", name, strategy, factor),
+          difficultyFactor, factors, deflectOdds, maxGrumanSacks);
+    }
+
+    /**
+     * Returns these constants with other deflect odds for a strategy.
+     * @param strategy
+     * @param odds from 0 to 1
+     * @return balance
+     */
+    public Balance withDeflectOdds(final BattleStrategy strategy, final double odds)
+    {
+      final double[] deflect = deflectOdds.clone();
+      deflect[strategy.ordinal()] = odds;
+      return new Balance(String.format("%s, %s deflects %.2f", name, strategy, odds),
+          difficultyFactor, attackFactor, deflect, maxGrumanSacks);
+    }
+
+    /**
+     * Returns these constants with another most sacks a Gruman holds.
+     * @param sacks
+     * @return balance
+     */
+    public Balance withMaxGrumanSacks(final int sacks)
+    {
+      return new Balance(String.format("%s, %d sacks", name, sacks), difficultyFactor,
+          attackFactor, deflectOdds, sacks);
+    }
+
+    /**
+     * Returns what the Human's health is multiplied by
+     * @return factor
+     */
+    public double getDifficultyFactor()
+    {
+      return difficultyFactor;
+    }
+
+    /**
+     * Returns the attack factor of a strategy
+     * @param strategy
+     * @return factor
+     */
+    public double getAttackFactor(final BattleStrategy strategy)
+    {
+      return attackFactor[strategy.ordinal()];
+    }
+
+    /**
+     * Returns the deflect odds of a strategy
+     * @param strategy
+     * @return from 0 to 1
+     */
+    public double getDeflectOdds(final BattleStrategy strategy)
+    {
+      return deflectOdds[strategy.ordinal()];
+    }
+
+    /**
+     * Returns the most sacks a Gruman holds
+     * @return sacks
+     */
+    public int getMaxGrumanSacks()
+    {
+      return maxGrumanSacks;
+    }
+
+    @Override
+    public String toString()
+    {
+      return name;
+    }
+  }
+
+  /**
+   * Creates a tuner on the common pool, for games of the default number
+   * of chambers and sacks to win, played by a player who pokes every
+   * {@value BattleSimulator#DEFAULT_POKE_INTERVAL_MS} ms and moves every
+   * {@value #DEFAULT_MOVE_MS} ms.
+   */
+  public BalanceTuner()
+  {
+    this(ForkJoinPool.commonPool(), Game.DEFAULT_NUM_CHAMBERS, Game.DEFAULT_SACKS_TO_WIN,
+        DEFAULT_MOVE_MS, BattleSimulator.DEFAULT_POKE_INTERVAL_MS,
+        BattleSimulator.DEFAULT_MAX_DUEL_MS);
+  }
+
+  /**
+   * Creates a tuner.
+   * @param pool the threads to play on
+   * @param numChambers the chambers of a game, its entrance included
+   * @param sacksToWin the sacks that win a game
+   * @param moveMS how long the player takes to move to the next chamber
+   * @param pokeIntervalMS how often the player pokes
+   * @param maxDuelMS how long a duel may last before the player walks on
+   * @throws IllegalArgumentException if there are fewer than
+   *  {@value Maze#MIN_NUMBER_CHAMBERS} chambers, or a number is not positive
+   */
+  public BalanceTuner(final ForkJoinPool pool, final int numChambers, final int sacksToWin,
+      final int moveMS, final int pokeIntervalMS, final int maxDuelMS)
+  {
+    if (numChambers < Maze.MIN_NUMBER_CHAMBERS || sacksToWin <= 0 || moveMS <= 0
+        || pokeIntervalMS <= 0 || maxDuelMS <= 0)
+    {
+      throw new IllegalArgumentException("Cannot play games of " + numChambers + " chambers to "
+          + sacksToWin + " sacks, moving every " + moveMS + " ms and poking every "
+          + pokeIntervalMS + " ms for up to " + maxDuelMS + " ms");
+    }
+    this.pool = pool;
+    this.numChambers = numChambers;
+    this.sacksToWin = sacksToWin;
+    this.moveMS = moveMS;
+    this.pokeIntervalMS = pokeIntervalMS;
+    this.maxDuelMS = maxDuelMS;
+  }
+
+  /**
+   * Returns the constants a sweep plays: those the game is built with at
+   * every Difficulty, and at each Difficulty those with one constant
+   * changed. The Difficulty factor is scaled by 0.8, 0.9, 1.1 and 1.2,
+   * leaving out any above 1, as a Human's health is capped at its most.
+   * Each amplifier is scaled by a half, three quarters, five quarters and
+   * three halves, the shield's deflect odds are moved 0.1 and 0.2 either
+   * way, and the most sacks a Gruman holds 2 and 5 either way.
+   * @return balances, by Difficulty
+   */
+  public static List<Balance> sweepBalances()
+  {
+    final List<Balance> balances = new ArrayList<>();
+    for (Game.Difficulty difficulty : Game.Difficulty.values())
+    {
+      final Balance built = new Balance(difficulty);
+      balances.add(built);
+      for (double scale : DIFFICULTY_SCALES)
+      {
+        final double factor = built.getDifficultyFactor() * scale;
+        if (factor <= 1.0)
+        {
+          balances.add(built.withDifficultyFactor(factor));
+        }
+      }
+      for (BattleStrategy strategy : STRATEGIES)
+      {
+        final double factor = built.getAttackFactor(strategy);
+        if (factor != 1.0)
+        {
+          for (double scale : AMPLIFIER_SCALES)
+          {
+            balances.add(built.withAttackFactor(strategy, factor * scale));
+          }
+        }
+      }
+      final double odds = built.getDeflectOdds(BattleStrategy.SHIELD);
+      for (double change : DEFLECT_CHANGES)
+      {
+        balances.add(built.withDeflectOdds(BattleStrategy.SHIELD,
+            Math.max(0, Math.min(1, odds + change))));
+      }
+      for (int change : SACK_CHANGES)
+      {
+        balances.add(built.withMaxGrumanSacks(Math.max(1, built.getMaxGrumanSacks() + change)));
+      }
+    }
+    return balances;
+  }
+
+  /**
+   * Plays games under one Balance.
+   * @param balance the constants
+   * @param games how many games to play
+   * @param seed the seed of the games
+   * @return the report
+   */
+  public BalanceReport tune(final Balance balance, final long games, final long seed)
+  {
+    final long start = System.nanoTime();
+    final BalanceReport report = pool.invoke(new Games(balance, seed, 0, games));
+    report.setNanos(System.nanoTime() - start);
+    return report;
+  }
+
+  /**
+   * Plays games under every Balance of a sweep, all from the same seed.
+   * @param games how many games to play under each
+   * @param seed the seed of the games
+   * @return a report for each, in the order of sweepBalances()
+   */
+  public List<BalanceReport> sweep(final long games, final long seed)
+  {
+    final List<BalanceReport> reports = new ArrayList<>();
+    for (Balance balance : sweepBalances())
+    {
+      reports.add(tune(balance, games, seed));
+    }
+    return reports;
+  }
+
+  /**
+   * The games from one index up to another, split in halves until few
+   * enough are left to play on one thread.
+   */
+  private final class Games extends RecursiveTask<BalanceReport>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final Balance balance;
+    private final long seed;
+    private final long from;
+    private final long to;
+
+    /**
+     * Creates the task.
+     * @param balance
+     * @param seed
+     * @param from the first game
+     * @param to the game after the last
+     */
+    Games(final Balance balance, final long seed, final long from, final long to)
+    {
+      this.balance = balance;
+      this.seed = seed;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected BalanceReport compute()
+    {
+      final BalanceReport report;
+      if (to - from > GAMES_PER_TASK)
+      {
+        final long middle = from + (to - from) / 2;
+        final Games right = new Games(balance, seed, middle, to);
+        right.fork();
+        report = new Games(balance, seed, from, middle).compute();
+        report.merge(right.join());
+      }
+      else
+      {
+        report = new BalanceReport(balance);
+        play((int)(to - from), new SplittableRandom(KeyedRandom.mix(seed ^ KeyedRandom.mix(from))),
+            report);
+      }
+      return report;
+    }
+
+    /**
+     * Plays games side by side, each fighting its next Gruman in a lane
+     * of one batch, until every game has ended.
+     * @param games how many
+     * @param random the stream to roll from
+     * @param report where to count them
+     */
+    private void play(final int games, final SplittableRandom random, final BalanceReport report)
+    {
+      final DuelBatch batch = new DuelBatch(games, balance.attackFactor, balance.deflectOdds,
+          balance.maxGrumanSacks);
+      final double[] health = new double[games];
+      final double[] maxHealth = new double[games];
+      final double[] strength = new double[games];
+      final double[] maxStrength = new double[games];
+      final int[] sacks = new int[games];
+      final BattleStrategy[] strategy = new BattleStrategy[games];
+      final int[] chamber = new int[games];
+      final int[] duels = new int[games];
+      final long[] millis = new long[games];
+      final boolean[] hurt = new boolean[games];
+      final int[] lane = new int[games];
+      final int[] playing = new int[games];
+      for (int i = 0; i < games; i++)
+      {
+        maxHealth[i] = 1 + random.nextInt(Player.MAX_HEALTH_POSSIBLE);
+        health[i] = Math.max(0, maxHealth[i] * balance.difficultyFactor);
+        maxStrength[i] = strength[i] = 1 + random.nextInt(Player.MAX_STRENGTH_POSSIBLE);
+        playing[i] = i;
+      }
+      int count = games;
+      while (count > 0)
+      {
+        batch.clear();
+        int walking = 0;
+        for (int k = 0; k < count; k++)
+        {
+          final int i = playing[k];
+          lane[i] = -1;
+          while (lane[i] < 0 && chamber[i] < numChambers - 1)
+          {
+            chamber[i]++;
+            millis[i] += moveMS;
+            final BattleStrategy powerUp = powerUpAt(chamber[i]);
+            if (powerUp != null)
+            {
+              strategy[i] = powerUp;
+            }
+            if (random.nextInt(Maze.GRUMAN_ODDS) > 0)
+            {
+              lane[i] = batch.add(health[i], maxHealth[i], strength[i], maxStrength[i], sacks[i],
+                  strategy[i], random);
+              duels[i]++;
+            }
+            else if (hurt[i])
+            {
+              // Player.restoreHealth() and restoreStrength(), as a Human regenerates
+              millis[i] += Game.HEAL_HUMAN_DELAY_MS;
+              health[i] = Math.min(health[i] + maxHealth[i] / Player.STRENGTH_SCALE, maxHealth[i]);
+              strength[i] = Math.min(strength[i] + maxStrength[i] / (2 * Player.STRENGTH_SCALE),
+                  maxStrength[i]);
+              hurt[i] = false;
+            }
+          }
+          if (lane[i] < 0)
+          {
+            report.add(BalanceReport.Ending.STUCK, millis[i], chamber[i], duels[i]);
+          }
+          else
+          {
+            playing[walking++] = i;
+          }
+        }
+        batch.fight(pokeIntervalMS, maxDuelMS, sacksToWin, random);
+        count = 0;
+        for (int k = 0; k < walking; k++)
+        {
+          final int i = playing[k];
+          final int l = lane[i];
+          health[i] = batch.getHumanHealth(l);
+          strength[i] = batch.getHumanStrength(l);
+          sacks[i] = batch.getHumanSacks(l);
+          millis[i] += batch.getMillis(l);
+          hurt[i] = true;
+          if (batch.getOutcome(l) == BattleReport.Outcome.LOST)
+          {
+            report.add(BalanceReport.Ending.LOST, millis[i], chamber[i], duels[i]);
+          }
+          else if (sacks[i] >= sacksToWin)
+          {
+            report.add(BalanceReport.Ending.WON, millis[i], chamber[i], duels[i]);
+          }
+          else
+          {
+            playing[count++] = i;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the strategy a chamber holds, where the classic maze puts them:
+   * the shield a quarter of the way through its chambers, the cane half
+   * way, and the umbrella three quarters of the way.
+   * @param chamber the chamber's number, 0 for the entrance
+   * @return the strategy, or null for none
+   */
+  private BattleStrategy powerUpAt(final int chamber)
+  {
+    BattleStrategy strategy = null;
+    if (chamber == numChambers / 4)
+    {
+      strategy = BattleStrategy.SHIELD;
+    }
+    else if (chamber == numChambers / 2)
+    {
+      strategy = BattleStrategy.CANE;
+    }
+    else if (chamber == 3 * numChambers / 4)
+    {
+      strategy = BattleStrategy.UMBRELLA;
+    }
+    return strategy;
+  }
+}
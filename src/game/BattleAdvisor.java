@@ -0,0 +1,285 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import players.Gruman;
+import players.Human;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Works out the odds of the duel at hand on a background thread, for a
+ * hint whether to poke the Gruman met, so neither reading the table of
+ * odds from its file nor working out odds not in it holds up the game.
+ *
+ * Asking for the odds never waits: it returns them if they have been
+ * worked out for the stats asked about, and otherwise has them worked
+ * out and returns null. Once they are, the advisor runs its callback on
+ * its own thread, so the hint can be shown.
+ *
+ * The table for each number of sacks to win is loaded from its file the
+ * first time it is needed, and saved when another replaces it and when
+ * save() is called. Its thread stops once it has been idle a while.
+ */
+public final class BattleAdvisor
+{
+  /**
+   * The start of the name of the files in the user's home directory the
+   * odds of duels are kept in between runs, one for each number of sacks
+   * to win.
+   */
+  public static final String ODDS_FILE_PREFIX = ".zork-odds-";
+
+  private static final Logger log = Logger.getLogger("Game");
+
+  /**
+   * How long the worker thread waits idle for odds to work out before it stops.
+   */
+  private static final long IDLE_SECONDS = 30;
+
+  private final ThreadPoolExecutor worker;
+  private final Runnable oddsCallback;
+
+  // guarded by this
+  private Question asked;
+  private Question answered;
+  private BattleOdds.Result answer;
+  private boolean busy;
+
+  // guarded by tableLock
+  private final Object tableLock = new Object();
+  private BattleOdds table;
+  private int tableSaved;
+
+  /**
+   * A duel to work out the odds of, with the stats it was asked about.
+   */
+  private static final class Question
+  {
+    private final int sacksToWin;
+    private final BattleOdds.Side human;
+    private final BattleOdds.Side gruman;
+    private final int roarDelayMS;
+    private final int roarIntervalMS;
+    private final List<Object> stats;
+
+    /**
+     * Creates a question from the stats the Human and Gruman have now.
+     * @param sacksToWin
+     * @param invader
+     * @param citizen
+     */
+    Question(final int sacksToWin, final Human invader, final Gruman citizen)
+    {
+      this.sacksToWin = sacksToWin;
+      human = new BattleOdds.Side(invader);
+      gruman = new BattleOdds.Side(citizen);
+      roarDelayMS = citizen.getAttackDelay();
+      roarIntervalMS = citizen.getAttackInterval();
+      stats = Arrays.<Object>asList(sacksToWin, roarDelayMS, roarIntervalMS,
+          invader.getHealth(), invader.getStrength(), invader.getSacks(), invader.getStrategy(),
+          citizen.getHealth(), citizen.getStrength(), citizen.getSacks(), citizen.getStrategy());
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+      return other instanceof Question && stats.equals(((Question)other).stats);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return stats.hashCode();
+    }
+  }
+
+  /**
+   * Creates an advisor, which starts no thread until it is asked.
+   * @param oddsCallback run on the advisor's thread when odds asked for
+   *  are worked out, or null
+   */
+  public BattleAdvisor(final Runnable oddsCallback)
+  {
+    this.oddsCallback = oddsCallback;
+    worker = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable r)
+      {
+        final Thread t = new Thread(r, "battle-odds");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+      }
+    });
+    worker.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Returns the odds of a Human fighting a Gruman from their stats now,
+   * if they have been worked out, or else has them worked out.
+   * @param sacksToWin the sacks the game is won with
+   * @param invader the Human
+   * @param citizen the Gruman
+   * @return the odds, or null until they are worked out
+   */
+  public synchronized BattleOdds.Result advise(final int sacksToWin, final Human invader,
+      final Gruman citizen)
+  {
+    final Question question = new Question(sacksToWin, invader, citizen);
+    BattleOdds.Result odds = null;
+    if (question.equals(answered))
+    {
+      odds = answer;
+    }
+    else if (!question.equals(asked))
+    {
+      asked = question;
+      if (!busy && !worker.isShutdown())
+      {
+        busy = true;
+        worker.execute(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            answer();
+          }
+        });
+      }
+    }
+    return odds;
+  }
+
+  /**
+   * Works out the odds last asked for, on the worker, until no more are.
+   */
+  private void answer()
+  {
+    while (true)
+    {
+      final Question question;
+      synchronized (this)
+      {
+        question = asked;
+        if (question == null)
+        {
+          busy = false;
+          return;
+        }
+      }
+      BattleOdds.Result odds = null;
+      try
+      {
+        synchronized (tableLock)
+        {
+          odds = loadTable(question.sacksToWin).odds(question.human, question.gruman,
+              question.roarDelayMS, question.roarIntervalMS);
+        }
+      }
+      catch (RuntimeException e)
+      {
+        log.warning("Cannot work out the odds of a duel: " + e);
+      }
+      boolean current;
+      synchronized (this)
+      {
+        current = asked == question;
+        if (current)
+        {
+          asked = null;
+          answered = question;
+          answer = odds;
+        }
+      }
+      if (current && odds != null && oddsCallback != null)
+      {
+        oddsCallback.run();
+      }
+    }
+  }
+
+  /**
+   * Returns the table of odds for a number of sacks to win, loading it
+   * from its file if it is not loaded yet, and saving the table of
+   * another number of sacks it replaces.
+   * @param sacksToWin
+   * @return the table
+   */
+  private BattleOdds loadTable(final int sacksToWin)
+  {
+    if (table == null || table.getSacksToWin() != sacksToWin)
+    {
+      saveTable();
+      table = new BattleOdds(BattleSimulator.DEFAULT_POKE_INTERVAL_MS,
+          BattleSimulator.DEFAULT_MAX_DUEL_MS, sacksToWin);
+      final File file = oddsFile(sacksToWin);
+      if (file.exists())
+      {
+        try
+        {
+          table.load(file);
+        }
+        catch (IOException e)
+        {
+          log.warning("Cannot load the odds in " + file + ", working them out again: " + e);
+        }
+      }
+      tableSaved = table.size();
+    }
+    return table;
+  }
+
+  /**
+   * Saves the odds worked out since the table was loaded to its file,
+   * if any were, waiting for the odds being worked out.
+   */
+  public void save()
+  {
+    synchronized (tableLock)
+    {
+      saveTable();
+    }
+  }
+
+  /**
+   * Saves the table to its file, if it has odds not saved yet.
+   */
+  private void saveTable()
+  {
+    if (table != null && table.size() > tableSaved)
+    {
+      final File file = oddsFile(table.getSacksToWin());
+      try
+      {
+        table.save(file);
+        tableSaved = table.size();
+      }
+      catch (IOException e)
+      {
+        log.warning("Cannot save the odds to " + file + ": " + e);
+      }
+    }
+  }
+
+  /**
+   * Returns the file the odds of a number of sacks to win are kept in.
+   * @param sacksToWin
+   * @return the file
+   */
+  private static File oddsFile(final int sacksToWin)
+  {
+    return new File(System.getProperty("user.home"), ODDS_FILE_PREFIX + sacksToWin);
+  }
+}
@@ -0,0 +1,896 @@
+package game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import players.Gruman;
+import players.Human;
+import players.Player;
+import utility.KeyedRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * The odds of a duel, worked out instead of simulated: the chance that
+ * the Human wins, loses or draws, and how many sacks it can expect to
+ * win.
+ *
+ * A duel is played by the rules of BattleSimulator.fight() and Duel. The
+ * intervals fix the order of pokes and roars, so the only chance in a
+ * duel is a SHIELD deflecting a force, and every duel the shields can
+ * make is followed at once, one exchange at a time. Duels whose stats
+ * fall in the same cell of a grid of {@value #HEALTH_STEP} health and
+ * {@value #STRENGTH_STEP} strength go on as one, with their chances added
+ * and their stats at the mean. A duel with no shield is followed exactly;
+ * one with a shield comes within a cell of the duels the game plays.
+ * Chances under {@value #MIN_CHANCE} are given up as drawn.
+ *
+ * Odds are worked out from the duel's stats rounded to the grid and
+ * kept in a table by them, so a duel seen before costs only a lookup.
+ * The table may be saved to a file and loaded back; it holds the odds of
+ * one poke interval, time limit and number of sacks to win, for the
+ * strategies as they were when it was saved.
+ */
+public final class BattleOdds
+{
+  /**
+   * The health a stat is rounded to.
+   */
+  public static final double HEALTH_STEP = 0.5;
+
+  /**
+   * The strength a stat is rounded to.
+   */
+  public static final double STRENGTH_STEP = 0.05;
+
+  /**
+   * The version of the rules the odds are worked out by.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * The chance below which a duel is given up as drawn.
+   */
+  public static final double MIN_CHANCE = 1e-12;
+
+  private static final int MAGIC = 0x5A4F4444; // "ZODD"
+  private static final BattleStrategy[] STRATEGIES = BattleStrategy.values();
+  private static final int STEP_BITS = 12;
+  private static final int STEP_MASK = (1 << STEP_BITS) - 1;
+  private static final int SACK_BITS = 10;
+  private static final int MAX_SACKS_TO_WIN = (1 << SACK_BITS) - 1;
+  private static final int KEY_LENGTH = 14;
+
+  private final int pokeIntervalMS;
+  private final int maxDuelMS;
+  private final int sacksToWin;
+  private final double[] attackFactor;
+  private final double[] deflectOdds;
+  private final long fingerprint;
+  private final Map<Key, Result> table = new ConcurrentHashMap<>();
+
+  /**
+   * The stats one side of a duel starts with.
+   */
+  public static final class Side
+  {
+    private final double health;
+    private final double maxHealth;
+    private final double strength;
+    private final double maxStrength;
+    private final int sacks;
+    private final BattleStrategy strategy;
+
+    /**
+     * Creates a side.
+     * @param health
+     * @param maxHealth
+     * @param strength
+     * @param maxStrength
+     * @param sacks
+     * @param strategy or null for none
+     */
+    public Side(final double health, final double maxHealth, final double strength,
+        final double maxStrength, final int sacks, final BattleStrategy strategy)
+    {
+      this.health = health;
+      this.maxHealth = maxHealth;
+      this.strength = strength;
+      this.maxStrength = maxStrength;
+      this.sacks = sacks;
+      this.strategy = strategy;
+    }
+
+    /**
+     * Creates a side with the stats a Player has now.
+     * @param player
+     */
+    public Side(final Player player)
+    {
+      this(player.getHealth(), player.MAX_HEALTH, player.getStrength(), player.MAX_STRENGTH,
+          player.getSacks(), player.getStrategy());
+    }
+  }
+
+  /**
+   * How a duel can be expected to end.
+   */
+  public static final class Result
+  {
+    private final double won;
+    private final double lost;
+    private final double drawn;
+    private final double sacksWon;
+
+    /**
+     * Creates a result.
+     * @param won the chance the Human wins
+     * @param lost the chance the Human loses
+     * @param drawn the chance time runs out
+     * @param sacksWon the sacks the Human can expect to win
+     */
+    Result(final double won, final double lost, final double drawn, final double sacksWon)
+    {
+      this.won = won;
+      this.lost = lost;
+      this.drawn = drawn;
+      this.sacksWon = sacksWon;
+    }
+
+    /**
+     * Returns the chance the duel ends a way
+     * @param outcome
+     * @return from 0 to 1
+     */
+    public double getChance(final BattleReport.Outcome outcome)
+    {
+      final double chance;
+      if (outcome == BattleReport.Outcome.WON)
+      {
+        chance = won;
+      }
+      else if (outcome == BattleReport.Outcome.LOST)
+      {
+        chance = lost;
+      }
+      else
+      {
+        chance = drawn;
+      }
+      return chance;
+    }
+
+    /**
+     * Returns the sacks the Human can expect to win
+     * @return sacks, negative if it can expect to lose some
+     */
+    public double getExpectedSacksWon()
+    {
+      return sacksWon;
+    }
+
+    /**
+     * Predicate method whether the Human is better off fighting than not:
+     * it can expect to win sacks, or is likelier to win than lose
+     * @return true/false
+     */
+    public boolean isWorthFighting()
+    {
+      return sacksWon > 0 || won > lost;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%.1f%% won, %.1f%% lost, %.1f%% drawn, %+.2f sacks",
+          100 * won, 100 * lost, 100 * drawn, sacksWon);
+    }
+  }
+
+  /**
+   * The stats of a duel on the grid, and the times of its first roar and
+   * the roars after.
+   */
+  private static final class Key
+  {
+    private final int[] values;
+    private final int hash;
+
+    /**
+     * Creates a key.
+     * @param values
+     */
+    Key(final int[] values)
+    {
+      this.values = values;
+      hash = Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+      return other instanceof Key && Arrays.equals(values, ((Key)other).values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return hash;
+    }
+  }
+
+  /**
+   * The duels being followed, by the cell of the grid their stats are in:
+   * the chance of reaching the cell, and the stats of the duels in it
+   * summed by their chances, so the cell holds their mean. They are kept
+   * in an open-addressed table, so following a duel boxes nothing.
+   */
+  private static final class Duels
+  {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] cells = new long[INITIAL_CAPACITY];
+    private double[] chances = new double[INITIAL_CAPACITY];
+    private double[] humanHealth = new double[INITIAL_CAPACITY];
+    private double[] humanStrength = new double[INITIAL_CAPACITY];
+    private double[] grumanHealth = new double[INITIAL_CAPACITY];
+    private double[] grumanStrength = new double[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a duel with some chance to the cell its stats are in. A chance
+     * of none is not followed.
+     * @param e the duel's stats
+     * @param chance
+     */
+    void add(final Exchange e, final double chance)
+    {
+      if (chance > 0)
+      {
+        add(pack(cell(e.h, HEALTH_STEP), cell(e.hs, STRENGTH_STEP), e.hSacks,
+            cell(e.g, HEALTH_STEP), cell(e.gs, STRENGTH_STEP), e.gSacks),
+            chance, chance * e.h, chance * e.hs, chance * e.g, chance * e.gs);
+      }
+    }
+
+    /**
+     * Stops following every duel.
+     */
+    void clear()
+    {
+      Arrays.fill(chances, 0);
+      size = 0;
+    }
+
+    /**
+     * Adds chance and stats summed by it to a cell.
+     * @param cell
+     * @param chance
+     * @param h
+     * @param hs
+     * @param g
+     * @param gs
+     */
+    private void add(final long cell, final double chance, final double h, final double hs,
+        final double g, final double gs)
+    {
+      if (2 * (size + 1) > cells.length)
+      {
+        grow();
+      }
+      final int mask = cells.length - 1;
+      int i = (int)KeyedRandom.mix(cell) & mask;
+      while (chances[i] > 0 && cells[i] != cell)
+      {
+        i = (i + 1) & mask;
+      }
+      if (!(chances[i] > 0))
+      {
+        cells[i] = cell;
+        humanHealth[i] = humanStrength[i] = grumanHealth[i] = grumanStrength[i] = 0;
+        size++;
+      }
+      chances[i] += chance;
+      humanHealth[i] += h;
+      humanStrength[i] += hs;
+      grumanHealth[i] += g;
+      grumanStrength[i] += gs;
+    }
+
+    /**
+     * Doubles the table.
+     */
+    private void grow()
+    {
+      final long[] oldCells = cells;
+      final double[] oldChances = chances;
+      final double[] oldHumanHealth = humanHealth;
+      final double[] oldHumanStrength = humanStrength;
+      final double[] oldGrumanHealth = grumanHealth;
+      final double[] oldGrumanStrength = grumanStrength;
+      final int capacity = 2 * oldCells.length;
+      cells = new long[capacity];
+      chances = new double[capacity];
+      humanHealth = new double[capacity];
+      humanStrength = new double[capacity];
+      grumanHealth = new double[capacity];
+      grumanStrength = new double[capacity];
+      size = 0;
+      for (int i = 0; i < oldCells.length; i++)
+      {
+        if (oldChances[i] > 0)
+        {
+          add(oldCells[i], oldChances[i], oldHumanHealth[i], oldHumanStrength[i],
+              oldGrumanHealth[i], oldGrumanStrength[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * The stats of one duel while it suffers one exchange, by the rules of
+   * Duel.
+   */
+  private static final class Exchange
+  {
+    private final double hMaxHealth;
+    private final double hMaxStrength;
+    private final double gMaxHealth;
+    private final double gMaxStrength;
+    private double h;
+    private double hs;
+    private int hSacks;
+    private double g;
+    private double gs;
+    private int gSacks;
+
+    /**
+     * Creates an exchange between sides of the most health and strength.
+     * @param hMaxHealth
+     * @param hMaxStrength
+     * @param gMaxHealth
+     * @param gMaxStrength
+     */
+    Exchange(final double hMaxHealth, final double hMaxStrength, final double gMaxHealth,
+        final double gMaxStrength)
+    {
+      this.hMaxHealth = hMaxHealth;
+      this.hMaxStrength = hMaxStrength;
+      this.gMaxHealth = gMaxHealth;
+      this.gMaxStrength = gMaxStrength;
+    }
+
+    /**
+     * Takes the mean stats of a cell of followed duels.
+     * @param duels
+     * @param i the cell's slot
+     */
+    void load(final Duels duels, final int i)
+    {
+      final double chance = duels.chances[i];
+      final long cell = duels.cells[i];
+      h = duels.humanHealth[i] / chance;
+      hs = duels.humanStrength[i] / chance;
+      hSacks = (int)(cell >>> 2 * STEP_BITS & MAX_SACKS_TO_WIN);
+      g = duels.grumanHealth[i] / chance;
+      gs = duels.grumanStrength[i] / chance;
+      gSacks = (int)(cell >>> 4 * STEP_BITS + SACK_BITS);
+    }
+
+    /**
+     * Makes the Gruman suffer a poke, as Duel.defendGruman() does.
+     * @param force
+     */
+    void defendGruman(final double force)
+    {
+      g = Math.max(Math.min(g - force, gMaxHealth), 0);
+      gs = Math.max(Math.min(gs - force / Player.STRENGTH_SCALE, gMaxStrength), 0);
+      if (!(gs > 0 && g > 0) && gSacks > 0)
+      {
+        gSacks--;
+        gs = Math.min(gs + gMaxStrength / (2 * Player.STRENGTH_SCALE), gMaxStrength);
+        hSacks++;
+        h = Math.min(h + hMaxHealth / Player.STRENGTH_SCALE, hMaxHealth);
+        hs = Math.max(hs - hMaxStrength / (2 * Player.STRENGTH_SCALE), 0);
+      }
+    }
+
+    /**
+     * Makes the Human suffer a roar, as Duel.defendHuman() does.
+     * @param force
+     */
+    void defendHuman(final double force)
+    {
+      h = Math.max(Math.min(h - force, hMaxHealth), 0);
+      hs = Math.max(Math.min(hs - force / Player.STRENGTH_SCALE, hMaxStrength), 0);
+      if (!(hs > 0 && h > 0) && hSacks > 0)
+      {
+        hSacks--;
+        hs = Math.min(hs + hMaxStrength / (2 * Player.STRENGTH_SCALE), hMaxStrength);
+        gSacks = Math.min(gSacks + 1, Gruman.MAX_SACKS_TO_START);
+        g = Math.min(g + gMaxHealth / Player.STRENGTH_SCALE, gMaxHealth);
+        gs = Math.max(gs - gMaxStrength / (2 * Player.STRENGTH_SCALE), 0);
+      }
+    }
+  }
+
+  /**
+   * What the followed duels came to.
+   */
+  private static final class Tally
+  {
+    private final int startSacks;
+    private final double[] chances = new double[BattleReport.Outcome.values().length];
+    private double sacksWon;
+
+    /**
+     * Creates an empty tally.
+     * @param startSacks the sacks the Human started with
+     */
+    Tally(final int startSacks)
+    {
+      this.startSacks = startSacks;
+    }
+
+    /**
+     * Counts a duel that ended.
+     * @param outcome how
+     * @param chance its chance
+     * @param sacks the sacks the Human ended with
+     */
+    void end(final BattleReport.Outcome outcome, final double chance, final int sacks)
+    {
+      chances[outcome.ordinal()] += chance;
+      sacksWon += chance * (sacks - startSacks);
+    }
+
+    /**
+     * Returns the result.
+     * @return result
+     */
+    Result result()
+    {
+      return new Result(chances[BattleReport.Outcome.WON.ordinal()],
+          chances[BattleReport.Outcome.LOST.ordinal()],
+          chances[BattleReport.Outcome.DRAWN.ordinal()], sacksWon);
+    }
+  }
+
+  /**
+   * Creates an empty table for a Human who pokes every
+   * {@value BattleSimulator#DEFAULT_POKE_INTERVAL_MS} ms and wins with
+   * {@value Game#DEFAULT_SACKS_TO_WIN} sacks.
+   */
+  public BattleOdds()
+  {
+    this(BattleSimulator.DEFAULT_POKE_INTERVAL_MS, BattleSimulator.DEFAULT_MAX_DUEL_MS,
+        Game.DEFAULT_SACKS_TO_WIN);
+  }
+
+  /**
+   * Creates an empty table.
+   * @param pokeIntervalMS how often the Human pokes
+   * @param maxDuelMS how long a duel may last
+   * @param sacksToWin the sacks that win the game
+   * @throws IllegalArgumentException if an interval or limit is not positive,
+   *  or sacksToWin is more than the table can count
+   */
+  public BattleOdds(final int pokeIntervalMS, final int maxDuelMS, final int sacksToWin)
+  {
+    if (pokeIntervalMS <= 0 || maxDuelMS <= 0 || sacksToWin <= 0
+        || sacksToWin > MAX_SACKS_TO_WIN)
+    {
+      throw new IllegalArgumentException("Cannot work out odds of poking every " + pokeIntervalMS
+          + " ms for up to " + maxDuelMS + " ms, to " + sacksToWin + " sacks");
+    }
+    this.pokeIntervalMS = pokeIntervalMS;
+    this.maxDuelMS = maxDuelMS;
+    this.sacksToWin = sacksToWin;
+    // slot 0 is no strategy, as in DuelBatch
+    attackFactor = new double[STRATEGIES.length + 1];
+    deflectOdds = new double[STRATEGIES.length + 1];
+    attackFactor[0] = 1.0;
+    long h = KeyedRandom.mix(VERSION);
+    h = KeyedRandom.mix(h ^ pokeIntervalMS);
+    h = KeyedRandom.mix(h ^ maxDuelMS);
+    h = KeyedRandom.mix(h ^ sacksToWin);
+    for (BattleStrategy s : STRATEGIES)
+    {
+      attackFactor[s.ordinal() + 1] = s.getAttackFactor();
+      deflectOdds[s.ordinal() + 1] = s.getDeflectOdds();
+      h = KeyedRandom.mix(h ^ Double.doubleToLongBits(s.getAttackFactor()));
+      h = KeyedRandom.mix(h ^ Double.doubleToLongBits(s.getDeflectOdds()));
+    }
+    fingerprint = h;
+  }
+
+  /**
+   * Returns the odds of a Human fighting a Gruman from their stats now,
+   * as if the Human had just met it and it roars after its attack delay.
+   * @param invader the Human
+   * @param citizen the Gruman
+   * @return the odds
+   */
+  public Result odds(final Human invader, final Gruman citizen)
+  {
+    return odds(new Side(invader), new Side(citizen), citizen.getAttackDelay(),
+        citizen.getAttackInterval());
+  }
+
+  /**
+   * Returns the odds of a Human as a new game at a Difficulty leaves it,
+   * with its health cut by the Difficulty, fighting a Gruman as it is.
+   * @param difficulty the Difficulty
+   * @param invader the Human
+   * @param citizen the Gruman
+   * @return the odds
+   */
+  public Result odds(final Game.Difficulty difficulty, final Human invader, final Gruman citizen)
+  {
+    return odds(new Side(invader.MAX_HEALTH * difficulty.FACTOR, invader.MAX_HEALTH,
+        invader.MAX_STRENGTH, invader.MAX_STRENGTH, invader.getSacks(), invader.getStrategy()),
+        new Side(citizen), citizen.getAttackDelay(), citizen.getAttackInterval());
+  }
+
+  /**
+   * Returns the odds of a duel, from the table if they have been worked
+   * out before, or else worked out and kept in it.
+   * @param human the Human's side
+   * @param gruman the Gruman's side
+   * @param roarDelayMS when the Gruman first roars
+   * @param roarIntervalMS how often it roars after
+   * @return the odds
+   * @throws IllegalArgumentException if a stat is off the grid's scale
+   *  or an interval is not positive
+   */
+  public Result odds(final Side human, final Side gruman, final int roarDelayMS,
+      final int roarIntervalMS)
+  {
+    final Key key = keyOf(human, gruman, roarDelayMS, roarIntervalMS);
+    Result result = table.get(key);
+    if (result == null)
+    {
+      result = solve(key.values);
+      table.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the sacks that win the game
+   * @return sacks
+   */
+  public int getSacksToWin()
+  {
+    return sacksToWin;
+  }
+
+  /**
+   * Returns how many duels the table holds the odds of
+   * @return size
+   */
+  public int size()
+  {
+    return table.size();
+  }
+
+  /**
+   * Adds the odds saved in a file to the table.
+   * @param file
+   * @return how many odds were read
+   * @throws IOException if the file cannot be read or holds odds of other
+   *  intervals, limits or strategies
+   */
+  public int load(final File file) throws IOException
+  {
+    final Map<Key, Result> read = new HashMap<>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(file))))
+    {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint)
+      {
+        throw new IOException("It holds other odds");
+      }
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++)
+      {
+        final int[] values = new int[KEY_LENGTH];
+        for (int j = 0; j < KEY_LENGTH; j++)
+        {
+          values[j] = in.readInt();
+        }
+        read.put(new Key(values), new Result(in.readDouble(), in.readDouble(), in.readDouble(),
+            in.readDouble()));
+      }
+    }
+    catch (EOFException e)
+    {
+      throw new IOException("It is cut short", e);
+    }
+    table.putAll(read);
+    return read.size();
+  }
+
+  /**
+   * Saves the table to a file, to a temporary file first and then moved
+   * into place, so a reader never sees half a table.
+   * @param file
+   * @throws IOException if the file cannot be written
+   */
+  public void save(final File file) throws IOException
+  {
+    final Map<Key, Result> entries = new HashMap<>(table);
+    final File directory = file.getAbsoluteFile().getParentFile();
+    final File temp = File.createTempFile("odds", ".part", directory);
+    try
+    {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(temp))))
+      {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(fingerprint);
+        out.writeInt(entries.size());
+        for (Map.Entry<Key, Result> entry : entries.entrySet())
+        {
+          for (int value : entry.getKey().values)
+          {
+            out.writeInt(value);
+          }
+          final Result result = entry.getValue();
+          out.writeDouble(result.won);
+          out.writeDouble(result.lost);
+          out.writeDouble(result.drawn);
+          out.writeDouble(result.sacksWon);
+        }
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally
+    {
+      if (temp.exists() && !temp.delete())
+      {
+        temp.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Returns the key of a duel, its stats rounded to the grid. A Human
+   * with more sacks than win the game is keyed as having just enough.
+   * @param human
+   * @param gruman
+   * @param roarDelayMS
+   * @param roarIntervalMS
+   * @return key
+   * @throws IllegalArgumentException if a stat is off the grid's scale
+   *  or an interval is not positive
+   */
+  private Key keyOf(final Side human, final Side gruman, final int roarDelayMS,
+      final int roarIntervalMS)
+  {
+    if (roarDelayMS < 0 || roarIntervalMS <= 0 || human.sacks < 0 || gruman.sacks < 0
+        || gruman.sacks > Gruman.MAX_SACKS_TO_START)
+    {
+      throw new IllegalArgumentException("Cannot work out odds of roaring after " + roarDelayMS
+          + " ms and every " + roarIntervalMS + " ms, with " + human.sacks + " and "
+          + gruman.sacks + " sacks");
+    }
+    final int[] values = new int[KEY_LENGTH];
+    values[0] = healthSteps(human.maxHealth);
+    values[1] = Math.min(healthSteps(human.health), values[0]);
+    values[2] = strengthSteps(human.maxStrength);
+    values[3] = Math.min(strengthSteps(human.strength), values[2]);
+    values[4] = Math.min(human.sacks, sacksToWin);
+    values[5] = slotOf(human.strategy);
+    values[6] = healthSteps(gruman.maxHealth);
+    values[7] = Math.min(healthSteps(gruman.health), values[6]);
+    values[8] = strengthSteps(gruman.maxStrength);
+    values[9] = Math.min(strengthSteps(gruman.strength), values[8]);
+    values[10] = gruman.sacks;
+    values[11] = slotOf(gruman.strategy);
+    values[12] = roarDelayMS;
+    values[13] = roarIntervalMS;
+    return new Key(values);
+  }
+
+  /**
+   * Works out the odds of a duel. The duels the shields can make are
+   * followed by the cells of the grid their stats are in, one exchange at
+   * a time; those that reach the same cell after the same exchange go on
+   * as one, at their mean stats. A duel leaves the cells when it ends, and
+   * those left when time runs out are drawn.
+   * @param key the duel's stats on the grid
+   * @return the odds
+   */
+  private Result solve(final int[] key)
+  {
+    final double hForce = attackFactor[key[5]] / Player.HEALTH_SCALE;
+    final double hDeflect = deflectOdds[key[5]];
+    final double gForce = attackFactor[key[11]] / Player.HEALTH_SCALE;
+    final double gDeflect = deflectOdds[key[11]];
+    final int interval = key[13];
+    final Exchange e = new Exchange(key[0] * HEALTH_STEP, key[2] * STRENGTH_STEP,
+        key[6] * HEALTH_STEP, key[8] * STRENGTH_STEP);
+    final Tally tally = new Tally(key[4]);
+
+    Duels duels = new Duels();
+    Duels next = new Duels();
+    e.h = key[1] * HEALTH_STEP;
+    e.hs = key[3] * STRENGTH_STEP;
+    e.hSacks = key[4];
+    e.g = key[7] * HEALTH_STEP;
+    e.gs = key[9] * STRENGTH_STEP;
+    e.gSacks = key[10];
+    follow(e, 1.0, duels, tally);
+    long pokeAt = pokeIntervalMS;
+    long roarAt = key[12];
+    while (duels.size > 0)
+    {
+      final boolean over = Math.min(pokeAt, roarAt) > maxDuelMS;
+      final boolean poke = pokeAt <= roarAt;
+      final double deflect = poke ? gDeflect : hDeflect;
+      for (int i = 0; i < duels.cells.length; i++)
+      {
+        final double chance = duels.chances[i];
+        if (chance > 0)
+        {
+          e.load(duels, i);
+          if (over || chance < MIN_CHANCE)
+          {
+            tally.end(BattleReport.Outcome.DRAWN, chance, e.hSacks);
+          }
+          else if (poke)
+          {
+            final double force = e.hs * e.h * hForce;
+            if (deflect > 0)
+            {
+              e.defendGruman(0);
+              follow(e, chance * deflect, next, tally);
+              e.load(duels, i);
+            }
+            e.defendGruman(force);
+            follow(e, chance * (1 - deflect), next, tally);
+          }
+          else
+          {
+            final double force = e.gs * e.g * gForce;
+            if (deflect > 0)
+            {
+              e.defendHuman(0);
+              follow(e, chance * deflect, next, tally);
+              e.load(duels, i);
+            }
+            e.defendHuman(force);
+            follow(e, chance * (1 - deflect), next, tally);
+          }
+        }
+      }
+      if (poke)
+      {
+        pokeAt += pokeIntervalMS;
+      }
+      else
+      {
+        roarAt += interval;
+      }
+      final Duels spent = duels;
+      duels = next;
+      next = spent;
+      next.clear();
+    }
+    return tally.result();
+  }
+
+  /**
+   * Counts a duel that has ended, or else follows it into the next exchange,
+   * by the rules of BattleSimulator.fight().
+   * @param e the duel's stats
+   * @param chance its chance
+   * @param next the duels of the next exchange
+   * @param tally the duels that have ended
+   */
+  private void follow(final Exchange e, final double chance, final Duels next, final Tally tally)
+  {
+    if (!(e.h > 0))
+    {
+      tally.end(BattleReport.Outcome.LOST, chance, e.hSacks);
+    }
+    else if (e.gSacks <= 0 || e.hSacks >= sacksToWin)
+    {
+      tally.end(BattleReport.Outcome.WON, chance, e.hSacks);
+    }
+    else
+    {
+      next.add(e, chance);
+    }
+  }
+
+  /**
+   * Packs a duel's stats on the grid into a long.
+   * @return packed stats
+   */
+  private static long pack(final int hHealth, final int hStrength, final int hSacks,
+      final int gHealth, final int gStrength, final int gSacks)
+  {
+    return hHealth | (long)hStrength << STEP_BITS | (long)hSacks << 2 * STEP_BITS
+        | (long)gHealth << 2 * STEP_BITS + SACK_BITS | (long)gStrength << 3 * STEP_BITS + SACK_BITS
+        | (long)gSacks << 4 * STEP_BITS + SACK_BITS;
+  }
+
+  /**
+   * Returns a health in steps of the grid.
+   * @param health
+   * @return steps
+   * @throws IllegalArgumentException if it is off the grid's scale
+   */
+  private static int healthSteps(final double health)
+  {
+    return steps(health, HEALTH_STEP);
+  }
+
+  /**
+   * Returns a strength in steps of the grid.
+   * @param strength
+   * @return steps
+   * @throws IllegalArgumentException if it is off the grid's scale
+   */
+  private static int strengthSteps(final double strength)
+  {
+    return steps(strength, STRENGTH_STEP);
+  }
+
+  /**
+   * Returns a stat rounded to the nearest step.
+   * @param stat
+   * @param step
+   * @return steps
+   * @throws IllegalArgumentException if it is off the grid's scale
+   */
+  private static int steps(final double stat, final double step)
+  {
+    final long steps = Math.round(stat / step);
+    if (!(steps >= 0 && steps <= STEP_MASK))
+    {
+      throw new IllegalArgumentException("Cannot put " + stat + " on a grid of " + step);
+    }
+    return (int)steps;
+  }
+
+  /**
+   * Returns the cell of the grid a stat is in: none for none, and one
+   * for each step or part of a step over that.
+   * @param stat
+   * @param step
+   * @return cell
+   */
+  private static int cell(final double stat, final double step)
+  {
+    return (int)Math.min(Math.ceil(stat / step), STEP_MASK);
+  }
+
+  /**
+   * Returns the slot of a strategy in the factor and odds tables.
+   * @param strategy or null for none
+   * @return slot
+   */
+  private static int slotOf(final BattleStrategy strategy)
+  {
+    return strategy == null ? 0 : strategy.ordinal() + 1;
+  }
+}
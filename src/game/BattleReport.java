@@ -0,0 +1,302 @@
+package game;
+
+import players.Gruman;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * What came of many simulated duels fought at one Difficulty by a Human
+ * with one BattleStrategy: how often the Human won, lost or neither
+ * before time ran out, how long the duels took, and how many sacks
+ * changed hands. Wins are also broken down by the strategy the Gruman
+ * happened to have.
+ *
+ * A report is filled by one thread at a time; reports filled apart are
+ * merged into one.
+ */
+public final class BattleReport
+{
+  /**
+   * How a duel ended.
+   */
+  public enum Outcome
+  {
+    /** The Gruman ran out of sacks, or the Human has enough to win. */
+    WON,
+    /** The Human ran out of health. */
+    LOST,
+    /** Neither, before time ran out. */
+    DRAWN
+  }
+
+  /**
+   * The width of the buckets duel lengths are counted in.
+   */
+  public static final int BUCKET_MS = 1000;
+
+  private static final BattleStrategy[] STRATEGIES = BattleStrategy.values();
+
+  private final Game.Difficulty difficulty;
+  private final BattleStrategy strategy;
+  private final int humanSacks;
+  private final long[] outcomes;
+  private final long[] lengths;
+  private final long[] sacks;
+  private final long[] duelsAgainst;
+  private final long[] wonAgainst;
+  private long duels;
+  private long totalMillis;
+  private long totalExchanges;
+  private long nanos;
+
+  /**
+   * Creates an empty report.
+   * @param difficulty the Difficulty fought at
+   * @param strategy the Human's strategy, or null for none
+   * @param humanSacks the sacks the Human starts each duel with
+   * @param maxMillis the longest a duel may last
+   */
+  public BattleReport(final Game.Difficulty difficulty, final BattleStrategy strategy,
+      final int humanSacks, final long maxMillis)
+  {
+    this.difficulty = difficulty;
+    this.strategy = strategy;
+    this.humanSacks = humanSacks;
+    outcomes = new long[Outcome.values().length];
+    lengths = new long[(int)(maxMillis / BUCKET_MS) + 2];
+    sacks = new long[humanSacks + Gruman.MAX_SACKS_TO_START + 1];
+    duelsAgainst = new long[STRATEGIES.length + 1];
+    wonAgainst = new long[STRATEGIES.length + 1];
+  }
+
+  /**
+   * Counts one duel.
+   * @param outcome how it ended
+   * @param millis how long it lasted
+   * @param exchanges how many pokes and roars were made
+   * @param sacksWon the sacks the Human ended with, less those it started with
+   * @param against the Gruman's strategy, or null for none
+   */
+  void add(final Outcome outcome, final long millis, final int exchanges, final int sacksWon,
+      final BattleStrategy against)
+  {
+    duels++;
+    outcomes[outcome.ordinal()]++;
+    totalMillis += millis;
+    totalExchanges += exchanges;
+    lengths[(int)Math.min(millis / BUCKET_MS, lengths.length - 1)]++;
+    sacks[Math.max(0, Math.min(sacksWon + humanSacks, sacks.length - 1))]++;
+    final int slot = slotOf(against);
+    duelsAgainst[slot]++;
+    if (outcome == Outcome.WON)
+    {
+      wonAgainst[slot]++;
+    }
+  }
+
+  /**
+   * Adds the counts of another report of the same duels.
+   * @param other
+   */
+  void merge(final BattleReport other)
+  {
+    duels += other.duels;
+    totalMillis += other.totalMillis;
+    totalExchanges += other.totalExchanges;
+    add(outcomes, other.outcomes);
+    add(lengths, other.lengths);
+    add(sacks, other.sacks);
+    add(duelsAgainst, other.duelsAgainst);
+    add(wonAgainst, other.wonAgainst);
+  }
+
+  /**
+   * Records how long the duels took to simulate.
+   * @param nanos
+   */
+  void setNanos(final long nanos)
+  {
+    this.nanos = nanos;
+  }
+
+  /**
+   * Returns the Difficulty
+   * @return difficulty
+   */
+  public Game.Difficulty getDifficulty()
+  {
+    return difficulty;
+  }
+
+  /**
+   * Returns the Human's strategy
+   * @return strategy, or null for none
+   */
+  public BattleStrategy getStrategy()
+  {
+    return strategy;
+  }
+
+  /**
+   * Returns the number of duels
+   * @return duels
+   */
+  public long getDuels()
+  {
+    return duels;
+  }
+
+  /**
+   * Returns how many duels ended a way
+   * @param outcome
+   * @return duels
+   */
+  public long getCount(final Outcome outcome)
+  {
+    return outcomes[outcome.ordinal()];
+  }
+
+  /**
+   * Returns the share of duels that ended a way
+   * @param outcome
+   * @return from 0 to 1
+   */
+  public double getRate(final Outcome outcome)
+  {
+    return duels == 0 ? 0 : (double)getCount(outcome) / duels;
+  }
+
+  /**
+   * Returns the share of duels won against Grumans with a strategy
+   * @param against the Gruman's strategy, or null for none
+   * @return from 0 to 1, or NaN if no Gruman had it
+   */
+  public double getWinRateAgainst(final BattleStrategy against)
+  {
+    final int slot = slotOf(against);
+    return duelsAgainst[slot] == 0 ? Double.NaN : (double)wonAgainst[slot] / duelsAgainst[slot];
+  }
+
+  /**
+   * Returns the mean length of a duel, in game time
+   * @return milliseconds
+   */
+  public double getMeanMillis()
+  {
+    return duels == 0 ? 0 : (double)totalMillis / duels;
+  }
+
+  /**
+   * Returns the mean number of pokes and roars in a duel
+   * @return exchanges
+   */
+  public double getMeanExchanges()
+  {
+    return duels == 0 ? 0 : (double)totalExchanges / duels;
+  }
+
+  /**
+   * Returns the length that a share of the duels are no longer than,
+   * to the nearest bucket above
+   * @param fraction from 0 to 1
+   * @return milliseconds
+   */
+  public long getMillisPercentile(final double fraction)
+  {
+    final long wanted = (long)Math.ceil(fraction * duels);
+    long seen = 0;
+    int bucket = 0;
+    while (bucket < lengths.length - 1 && seen + lengths[bucket] < wanted)
+    {
+      seen += lengths[bucket];
+      bucket++;
+    }
+    return (bucket + 1L) * BUCKET_MS;
+  }
+
+  /**
+   * Returns how many duels ended with a number of sacks won
+   * @param sacksWon negative for sacks lost
+   * @return duels
+   */
+  public long getSackCount(final int sacksWon)
+  {
+    final int i = sacksWon + humanSacks;
+    return i < 0 || i >= sacks.length ? 0 : sacks[i];
+  }
+
+  /**
+   * Returns the fewest sacks a duel can be won with
+   * @return minus the sacks the Human starts with
+   */
+  public int getMinSacksWon()
+  {
+    return -humanSacks;
+  }
+
+  /**
+   * Returns the most sacks a duel can be won with
+   * @return sacks
+   */
+  public int getMaxSacksWon()
+  {
+    return sacks.length - 1 - humanSacks;
+  }
+
+  /**
+   * Returns the mean number of sacks won in a duel
+   * @return sacks, negative if lost
+   */
+  public double getMeanSacksWon()
+  {
+    long total = 0;
+    for (int i = 0; i < sacks.length; i++)
+    {
+      total += (i - humanSacks) * sacks[i];
+    }
+    return duels == 0 ? 0 : (double)total / duels;
+  }
+
+  /**
+   * Returns how many duels were simulated a second
+   * @return duels per second, or 0 if not timed
+   */
+  public double getDuelsPerSecond()
+  {
+    return nanos == 0 ? 0 : duels * 1e9 / nanos;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%s, %s: %d duels, %.1f%% won, %.1f%% lost, %.1f%% drawn, "
+        + "%.1f s and %.1f exchanges on average, %+.2f sacks",
+        difficulty, strategy == null ? "None" : strategy, duels,
+        100 * getRate(Outcome.WON), 100 * getRate(Outcome.LOST), 100 * getRate(Outcome.DRAWN),
+        getMeanMillis() / 1000, getMeanExchanges(), getMeanSacksWon());
+  }
+
+  /**
+   * Returns where counts against a strategy are kept.
+   * @param against the strategy, or null for none
+   * @return slot
+   */
+  private static int slotOf(final BattleStrategy against)
+  {
+    return against == null ? 0 : against.ordinal() + 1;
+  }
+
+  /**
+   * Adds counts into others.
+   * @param into
+   * @param from
+   */
+  private static void add(final long[] into, final long[] from)
+  {
+    for (int i = 0; i < into.length; i++)
+    {
+      into[i] += from[i];
+    }
+  }
+}
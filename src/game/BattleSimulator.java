@@ -0,0 +1,306 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import players.Gruman;
+import players.Human;
+import utility.KeyedRandom;
+import utility.SingleRandom;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Fights Human against Gruman duels with no Swing and no waiting,
+ * across the threads of a fork-join pool, by the same rules the game
+ * plays on its timers: the Gruman roars after its attack delay and then
+ * at its attack interval, while the Human pokes at a steady rate, as a
+ * player clicking as fast as they can would.
+ *
+ * Each duel is between a new Human, its health cut by the Difficulty as
+ * a new game cuts it, and a new Gruman rolled as the maze rolls them.
+ * It lasts until the Human has no health left, the Gruman has no sacks
+ * left to take, the Human has enough sacks to win the game, or a time
+ * limit passes.
+ *
+ * Duels are fought either as Human and Gruman objects, or in a
+ * DuelBatch of primitive arrays, which is faster and fights the same
+ * duels on average, though not draw for draw.
+ *
+ * The duels are split into tasks that each reseed their thread's random
+ * stream from the seed and their place in the split, so a seed always
+ * gives the same report whichever threads fight it. Each thread gets its
+ * own stream back once its task is done.
+ */
+public final class BattleSimulator
+{
+  /**
+   * How the duels are held while they are fought.
+   */
+  public enum Mode
+  {
+    /** A Human and a Gruman object for each duel. */
+    OBJECTS,
+    /** A DuelBatch of primitive arrays for each task. */
+    BATCHED
+  }
+
+  /**
+   * How often the simulated player pokes, in milliseconds.
+   */
+  public static final int DEFAULT_POKE_INTERVAL_MS = 200;
+
+  /**
+   * How long a duel may last before it is called a draw, in milliseconds.
+   */
+  public static final int DEFAULT_MAX_DUEL_MS = 5 * 60 * 1000;
+
+  /**
+   * The strategies a Human may fight with; null is none.
+   */
+  public static final List<BattleStrategy> HUMAN_STRATEGIES;
+  static
+  {
+    final List<BattleStrategy> strategies = new ArrayList<>();
+    strategies.add(null);
+    strategies.add(BattleStrategy.SHIELD);
+    strategies.add(BattleStrategy.CANE);
+    strategies.add(BattleStrategy.UMBRELLA);
+    HUMAN_STRATEGIES = Collections.unmodifiableList(strategies);
+  }
+
+  private static final int DUELS_PER_TASK = 4096;
+  private static final int BATCH_SIZE = 1024;
+  private static final String HUMAN_NAME = "Simulated Human";
+  private static final String GRUMAN_NAME = "Simulated Gruman";
+
+  private final ForkJoinPool pool;
+  private final Mode mode;
+  private final int pokeIntervalMS;
+  private final int maxDuelMS;
+  private final int humanSacks;
+  private final int sacksToWin;
+
+  /**
+   * Creates a simulator on the common pool, for a Human with no sacks
+   * who pokes every {@value #DEFAULT_POKE_INTERVAL_MS} ms.
+   */
+  public BattleSimulator()
+  {
+    this(ForkJoinPool.commonPool(), DEFAULT_POKE_INTERVAL_MS, DEFAULT_MAX_DUEL_MS, 0,
+        Game.DEFAULT_SACKS_TO_WIN);
+  }
+
+  /**
+   * Creates a simulator that fights with objects.
+   * @param pool the threads to fight on
+   * @param pokeIntervalMS how often the Human pokes
+   * @param maxDuelMS how long a duel may last
+   * @param humanSacks the sacks the Human starts each duel with
+   * @param sacksToWin the sacks that win the game
+   * @throws IllegalArgumentException if an interval or limit is not positive,
+   *  or humanSacks is negative
+   */
+  public BattleSimulator(final ForkJoinPool pool, final int pokeIntervalMS, final int maxDuelMS,
+      final int humanSacks, final int sacksToWin)
+  {
+    this(pool, Mode.OBJECTS, pokeIntervalMS, maxDuelMS, humanSacks, sacksToWin);
+  }
+
+  /**
+   * Creates a simulator.
+   * @param pool the threads to fight on
+   * @param mode how the duels are held
+   * @param pokeIntervalMS how often the Human pokes
+   * @param maxDuelMS how long a duel may last
+   * @param humanSacks the sacks the Human starts each duel with
+   * @param sacksToWin the sacks that win the game
+   * @throws IllegalArgumentException if an interval or limit is not positive,
+   *  or humanSacks is negative
+   */
+  public BattleSimulator(final ForkJoinPool pool, final Mode mode, final int pokeIntervalMS,
+      final int maxDuelMS, final int humanSacks, final int sacksToWin)
+  {
+    if (pokeIntervalMS <= 0 || maxDuelMS <= 0 || sacksToWin <= 0 || humanSacks < 0)
+    {
+      throw new IllegalArgumentException("Cannot simulate poking every " + pokeIntervalMS
+          + " ms for up to " + maxDuelMS + " ms, from " + humanSacks + " sacks to " + sacksToWin);
+    }
+    this.pool = pool;
+    this.mode = mode;
+    this.pokeIntervalMS = pokeIntervalMS;
+    this.maxDuelMS = maxDuelMS;
+    this.humanSacks = humanSacks;
+    this.sacksToWin = sacksToWin;
+  }
+
+  /**
+   * Fights duels at one Difficulty with one strategy.
+   * @param difficulty the Difficulty
+   * @param strategy the Human's strategy, or null for none
+   * @param duels how many duels to fight
+   * @param seed the seed of the duels
+   * @return the report
+   */
+  public BattleReport simulate(final Game.Difficulty difficulty, final BattleStrategy strategy,
+      final long duels, final long seed)
+  {
+    final long start = System.nanoTime();
+    final BattleReport report = pool.invoke(new Fights(difficulty, strategy, seed, 0, duels));
+    report.setNanos(System.nanoTime() - start);
+    return report;
+  }
+
+  /**
+   * Fights duels at every Difficulty with every strategy.
+   * @param duels how many duels to fight for each
+   * @param seed the seed of the duels
+   * @return a report for each, by Difficulty and then by strategy
+   */
+  public List<BattleReport> simulateAll(final long duels, final long seed)
+  {
+    final List<BattleReport> reports = new ArrayList<>();
+    for (Game.Difficulty difficulty : Game.Difficulty.values())
+    {
+      for (BattleStrategy strategy : HUMAN_STRATEGIES)
+      {
+        reports.add(simulate(difficulty, strategy, duels,
+            KeyedRandom.mix(seed ^ KeyedRandom.mix(reports.size() + 1))));
+      }
+    }
+    return reports;
+  }
+
+  /**
+   * Fights one duel to the end and counts it.
+   * @param invader the Human
+   * @param citizen the Gruman
+   * @param report where to count it
+   */
+  void fight(final Human invader, final Gruman citizen, final BattleReport report)
+  {
+    final int startSacks = invader.getSacks();
+    long pokeAt = pokeIntervalMS;
+    long roarAt = citizen.getAttackDelay();
+    long now = 0;
+    int exchanges = 0;
+    BattleReport.Outcome outcome = null;
+    while (outcome == null)
+    {
+      if (!invader.hasHealth())
+      {
+        outcome = BattleReport.Outcome.LOST;
+      }
+      else if (!citizen.hasSacks() || invader.getSacks() >= sacksToWin)
+      {
+        outcome = BattleReport.Outcome.WON;
+      }
+      else if (Math.min(pokeAt, roarAt) > maxDuelMS)
+      {
+        outcome = BattleReport.Outcome.DRAWN;
+      }
+      else if (pokeAt <= roarAt)
+      {
+        now = pokeAt;
+        Duel.defendGruman(invader, citizen, invader.pokeGruman());
+        pokeAt += pokeIntervalMS;
+        exchanges++;
+      }
+      else
+      {
+        now = roarAt;
+        Duel.defendHuman(invader, citizen, citizen.terrifyHuman());
+        roarAt += citizen.getAttackInterval();
+        exchanges++;
+      }
+    }
+    report.add(outcome, now, exchanges, invader.getSacks() - startSacks, citizen.getStrategy());
+  }
+
+  /**
+   * The duels from one index up to another, split in halves
+   * until few enough are left to fight on one thread.
+   */
+  private final class Fights extends RecursiveTask<BattleReport>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final Game.Difficulty difficulty;
+    private final BattleStrategy strategy;
+    private final long seed;
+    private final long from;
+    private final long to;
+
+    /**
+     * Creates the task.
+     * @param difficulty
+     * @param strategy
+     * @param seed
+     * @param from the first duel
+     * @param to the duel after the last
+     */
+    Fights(final Game.Difficulty difficulty, final BattleStrategy strategy, final long seed,
+        final long from, final long to)
+    {
+      this.difficulty = difficulty;
+      this.strategy = strategy;
+      this.seed = seed;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected BattleReport compute()
+    {
+      if (to - from > DUELS_PER_TASK)
+      {
+        final long middle = from + (to - from) / 2;
+        final Fights right = new Fights(difficulty, strategy, seed, middle, to);
+        right.fork();
+        final BattleReport report = new Fights(difficulty, strategy, seed, from, middle).compute();
+        report.merge(right.join());
+        return report;
+      }
+      final BattleReport report = new BattleReport(difficulty, strategy, humanSacks, maxDuelMS);
+      final long taskSeed = KeyedRandom.mix(seed ^ KeyedRandom.mix(from));
+      if (mode == Mode.BATCHED)
+      {
+        final SplittableRandom random = new SplittableRandom(taskSeed);
+        final DuelBatch batch = new DuelBatch(BATCH_SIZE);
+        for (long i = from; i < to; i += BATCH_SIZE)
+        {
+          batch.fill((int)Math.min(BATCH_SIZE, to - i), difficulty, strategy, humanSacks, random);
+          batch.fight(pokeIntervalMS, maxDuelMS, sacksToWin, random);
+          batch.report(report);
+        }
+      }
+      else
+      {
+        // the thread may be one that plays the game, such as a caller
+        // helping the pool, so its own stream is put back afterwards
+        final SplittableRandom own = SingleRandom.getInstance().setThreadSeed(taskSeed);
+        try
+        {
+          for (long i = from; i < to; i++)
+          {
+            final Human invader = new Human(HUMAN_NAME);
+            invader.setHealth(invader.getHealth() * difficulty.FACTOR);
+            invader.setSacks(humanSacks);
+            invader.pickupStrategy(strategy);
+            fight(invader, new Gruman(GRUMAN_NAME), report);
+          }
+        }
+        finally
+        {
+          SingleRandom.getInstance().setThreadStream(own);
+        }
+      }
+      return report;
+    }
+  }
+}
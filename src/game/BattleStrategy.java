@@ -52,6 +52,17 @@ public enum BattleStrategy
       }
       return deflectedForce;
     }
+
+    /**
+     * Returns the odds of deflecting a force.
+     * 
+     * @return {@value #DEFLECT_ODDS}
+     */
+    @Override
+    public double getDeflectOdds()
+    {
+      return DEFLECT_ODDS;
+    }
   },
   /**
    * A strategy that amplifies a poke.
@@ -207,6 +218,26 @@ public enum BattleStrategy
 	 */
 	public abstract double suffer(double force);
 	
+	/**
+	 * Returns how many times stronger this strategy makes an attack.
+	 * 
+	 * @return the factor attack() multiplies a force by
+	 */
+	public double getAttackFactor()
+	{
+	  return attack(1.0);
+	}
+	
+	/**
+	 * Returns the odds of this strategy deflecting a suffered force whole.
+	 * 
+	 * @return from 0 to 1
+	 */
+	public double getDeflectOdds()
+	{
+	  return 0.0;
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -0,0 +1,78 @@
+package game;
+
+import players.Gruman;
+import players.Human;
+import players.Player;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * The rules of a fight between a Human and a Gruman: what happens when
+ * either suffers the other's force, and who wins a sack of treasure.
+ * Game plays them out on its timers; BattleSimulator plays them out
+ * without any.
+ */
+public final class Duel
+{
+  /**
+   * Private constructor, this class only has static methods.
+   */
+  private Duel()
+  {
+  }
+
+  /**
+   * Makes a Human suffer a Gruman's roar. A Human left with no strength
+   * or health loses a sack, if it has any, to the Gruman.
+   * @param invader the Human
+   * @param citizen the Gruman
+   * @param force the force of the roar
+   * @return true if a sack went to the Gruman
+   */
+  public static boolean defendHuman(final Human invader, final Gruman citizen, final double force)
+  {
+    invader.sufferTerror(force);
+    final boolean lost = !(invader.hasStrength() && invader.hasHealth()) && invader.hasSacks();
+    if (lost)
+    {
+      invader.decrementSacks();
+      invader.restoreStrength();
+      winRound(citizen);
+    }
+    return lost;
+  }
+
+  /**
+   * Makes a Gruman suffer a Human's poke. A Gruman left with no strength
+   * or health loses a sack, if it has any, to the Human.
+   * @param invader the Human
+   * @param citizen the Gruman
+   * @param force the force of the poke
+   * @return true if a sack went to the Human
+   */
+  public static boolean defendGruman(final Human invader, final Gruman citizen, final double force)
+  {
+    citizen.sufferPoke(force);
+    final boolean lost = !(citizen.hasStrength() && citizen.hasHealth()) && citizen.hasSacks();
+    if (lost)
+    {
+      citizen.decrementSacks();
+      citizen.restoreStrength();
+      winRound(invader);
+    }
+    return lost;
+  }
+
+  /**
+   * Gives the winner of a round a sack of treasure,
+   * some health back and some strength spent.
+   * @param winner
+   */
+  private static void winRound(final Player winner)
+  {
+    winner.incrementSacks();
+    winner.restoreHealth();
+    winner.reduceStrength();
+  }
+}
@@ -0,0 +1,461 @@
+package game;
+
+import java.util.SplittableRandom;
+
+import players.Gruman;
+import players.Player;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * A batch of duels held as parallel arrays of primitives, one slot per
+ * duel, instead of a Human and a Gruman object each. Filling a batch
+ * rolls every duel in one pass; fighting it plays each duel out in a
+ * tight loop over its slot, with the duel's state held in locals until
+ * it ends, and writes back only how it ended.
+ *
+ * The formulas are those of Player, Human, Gruman, BattleStrategy and
+ * Duel, worked on the arrays: a force is strength times health over
+ * {@value Player#HEALTH_SCALE}, times the attacker's strategy factor; it
+ * is deflected at the defender's strategy odds; it takes health, and a
+ * tenth as much strength; and a side left with no health or strength
+ * gives up a sack. The scales are multiplied in as shares worked out when
+ * the batch is filled rather than divided out on every exchange, which
+ * may round the last bit differently. Stats are rolled over the same
+ * ranges as the constructors roll them, from a random stream of the
+ * batch's own, so a batch fights the same duels as BattleSimulator does
+ * on average, though not draw for draw.
+ *
+ * Duels may also be added one at a time, for Humans carried over from
+ * duels before, and how each ended read back once they are fought.
+ *
+ * The duels are not stepped in lockstep across the batch: with no vector
+ * instructions to hand, each step then loads and stores every lane's state
+ * and draws a deflection for every lane, and a batch fought that way ran at
+ * about half the speed of this loop. A batch is about twice as fast as the
+ * objects, not an order of magnitude.
+ */
+public final class DuelBatch
+{
+  private static final BattleReport.Outcome[] OUTCOMES = BattleReport.Outcome.values();
+  private static final BattleStrategy[] STRATEGIES = BattleStrategy.values();
+  private static final BattleStrategy[] GRUMAN_STRATEGIES = Gruman.getStrategies();
+  private static final double FORCE_SHARE = 1 / Player.HEALTH_SCALE;
+  private static final double STRENGTH_SHARE = 1 / Player.STRENGTH_SCALE;
+  private static final double RESTORE_STRENGTH_SHARE = 1 / (2 * Player.STRENGTH_SCALE);
+
+  private final int capacity;
+  private final double[] attackFactor;
+  private final double[] deflectOdds;
+  private final int maxGrumanSacks;
+  private int size;
+
+  // the Humans
+  private final double[] humanHealth;
+  private final double[] humanMaxHealth;
+  private final double[] humanStrength;
+  private final double[] humanMaxStrength;
+  private final double[] humanForce;
+  private final double[] humanDeflect;
+  private final int[] humanSacks;
+  private final int[] startSacks;
+
+  // the Grumans
+  private final double[] grumanHealth;
+  private final double[] grumanMaxHealth;
+  private final double[] grumanStrength;
+  private final double[] grumanMaxStrength;
+  private final double[] grumanForce;
+  private final double[] grumanDeflect;
+  private final int[] grumanSacks;
+  private final int[] grumanStrategy;
+  private final int[] roarDelay;
+  private final int[] roarInterval;
+
+  // how the duels ended
+  private final int[] outcome;
+  private final long[] millis;
+  private final int[] exchanges;
+
+  /**
+   * Creates an empty batch with the strategies as they are.
+   * @param capacity the most duels it holds
+   */
+  public DuelBatch(final int capacity)
+  {
+    this(capacity, attackFactors(), deflectOdds());
+  }
+
+  /**
+   * Creates an empty batch with strategies of other strengths.
+   * @param capacity the most duels it holds
+   * @param attackFactor the attack factor of each strategy, by ordinal
+   * @param deflectOdds the odds of each strategy deflecting a force, by ordinal
+   */
+  public DuelBatch(final int capacity, final double[] attackFactor, final double[] deflectOdds)
+  {
+    this(capacity, attackFactor, deflectOdds, Gruman.MAX_SACKS_TO_START);
+  }
+
+  /**
+   * Creates an empty batch with strategies of other strengths, and Grumans
+   * that hold another number of sacks at most.
+   * @param capacity the most duels it holds
+   * @param attackFactor the attack factor of each strategy, by ordinal
+   * @param deflectOdds the odds of each strategy deflecting a force, by ordinal
+   * @param maxGrumanSacks the most sacks a Gruman starts with and holds
+   */
+  public DuelBatch(final int capacity, final double[] attackFactor, final double[] deflectOdds,
+      final int maxGrumanSacks)
+  {
+    this.capacity = capacity;
+    this.maxGrumanSacks = maxGrumanSacks;
+    // slot 0 is no strategy
+    this.attackFactor = new double[STRATEGIES.length + 1];
+    this.deflectOdds = new double[STRATEGIES.length + 1];
+    this.attackFactor[0] = 1.0;
+    System.arraycopy(attackFactor, 0, this.attackFactor, 1, STRATEGIES.length);
+    System.arraycopy(deflectOdds, 0, this.deflectOdds, 1, STRATEGIES.length);
+
+    humanHealth = new double[capacity];
+    humanMaxHealth = new double[capacity];
+    humanStrength = new double[capacity];
+    humanMaxStrength = new double[capacity];
+    humanForce = new double[capacity];
+    humanDeflect = new double[capacity];
+    humanSacks = new int[capacity];
+    startSacks = new int[capacity];
+    grumanHealth = new double[capacity];
+    grumanMaxHealth = new double[capacity];
+    grumanStrength = new double[capacity];
+    grumanMaxStrength = new double[capacity];
+    grumanForce = new double[capacity];
+    grumanDeflect = new double[capacity];
+    grumanSacks = new int[capacity];
+    grumanStrategy = new int[capacity];
+    roarDelay = new int[capacity];
+    roarInterval = new int[capacity];
+    outcome = new int[capacity];
+    millis = new long[capacity];
+    exchanges = new int[capacity];
+  }
+
+  /**
+   * Returns the attack factor of each strategy as it is, by ordinal.
+   * @return factors
+   */
+  public static double[] attackFactors()
+  {
+    final double[] factors = new double[STRATEGIES.length];
+    for (BattleStrategy s : STRATEGIES)
+    {
+      factors[s.ordinal()] = s.getAttackFactor();
+    }
+    return factors;
+  }
+
+  /**
+   * Returns the deflect odds of each strategy as it is, by ordinal.
+   * @return odds
+   */
+  public static double[] deflectOdds()
+  {
+    final double[] odds = new double[STRATEGIES.length];
+    for (BattleStrategy s : STRATEGIES)
+    {
+      odds[s.ordinal()] = s.getDeflectOdds();
+    }
+    return odds;
+  }
+
+  /**
+   * Empties the batch and fills it with duels between Humans and Grumans
+   * rolled the way new ones are.
+   * @param duels how many duels, up to the capacity
+   * @param difficulty what cuts the Humans' health
+   * @param strategy the Humans' strategy, or null for none
+   * @param sacks the sacks each Human starts with
+   * @param random the stream to roll from
+   * @throws IllegalArgumentException if the duels do not fit
+   */
+  public void fill(final int duels, final Game.Difficulty difficulty,
+      final BattleStrategy strategy, final int sacks, final SplittableRandom random)
+  {
+    if (duels > capacity)
+    {
+      throw new IllegalArgumentException(duels + " duels do not fit in " + capacity);
+    }
+    size = duels;
+    final int human = slotOf(strategy);
+    for (int i = 0; i < duels; i++)
+    {
+      final double health = 1 + random.nextInt(Player.MAX_HEALTH_POSSIBLE);
+      humanMaxHealth[i] = health;
+      humanHealth[i] = Math.max(0, health * difficulty.FACTOR);
+      humanMaxStrength[i] = humanStrength[i] = 1 + random.nextInt(Player.MAX_STRENGTH_POSSIBLE);
+      humanForce[i] = attackFactor[human] * FORCE_SHARE;
+      humanDeflect[i] = deflectOdds[human];
+      humanSacks[i] = startSacks[i] = sacks;
+      rollGruman(i, random);
+    }
+  }
+
+  /**
+   * Empties the batch.
+   */
+  public void clear()
+  {
+    size = 0;
+  }
+
+  /**
+   * Adds a duel between a Human with some stats and a Gruman rolled the
+   * way new ones are.
+   * @param health the Human's health
+   * @param maxHealth the most health it can have
+   * @param strength its strength
+   * @param maxStrength the most strength it can have
+   * @param sacks its sacks
+   * @param strategy its strategy, or null for none
+   * @param random the stream to roll the Gruman from
+   * @return the duel's slot
+   * @throws IllegalStateException if the batch is full
+   */
+  public int add(final double health, final double maxHealth, final double strength,
+      final double maxStrength, final int sacks, final BattleStrategy strategy,
+      final SplittableRandom random)
+  {
+    if (size == capacity)
+    {
+      throw new IllegalStateException("The batch is full at " + capacity + " duels");
+    }
+    final int i = size++;
+    final int human = slotOf(strategy);
+    humanHealth[i] = health;
+    humanMaxHealth[i] = maxHealth;
+    humanStrength[i] = strength;
+    humanMaxStrength[i] = maxStrength;
+    humanForce[i] = attackFactor[human] * FORCE_SHARE;
+    humanDeflect[i] = deflectOdds[human];
+    humanSacks[i] = startSacks[i] = sacks;
+    rollGruman(i, random);
+    return i;
+  }
+
+  /**
+   * Returns how many duels the batch holds
+   * @return size
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns how a fought duel ended
+   * @param i the duel's slot
+   * @return outcome
+   */
+  public BattleReport.Outcome getOutcome(final int i)
+  {
+    return OUTCOMES[outcome[i]];
+  }
+
+  /**
+   * Returns how long a fought duel lasted
+   * @param i the duel's slot
+   * @return milliseconds
+   */
+  public long getMillis(final int i)
+  {
+    return millis[i];
+  }
+
+  /**
+   * Returns the health the Human of a duel has
+   * @param i the duel's slot
+   * @return health
+   */
+  public double getHumanHealth(final int i)
+  {
+    return humanHealth[i];
+  }
+
+  /**
+   * Returns the strength the Human of a duel has
+   * @param i the duel's slot
+   * @return strength
+   */
+  public double getHumanStrength(final int i)
+  {
+    return humanStrength[i];
+  }
+
+  /**
+   * Returns the sacks the Human of a duel has
+   * @param i the duel's slot
+   * @return sacks
+   */
+  public int getHumanSacks(final int i)
+  {
+    return humanSacks[i];
+  }
+
+  /**
+   * Fights every duel in the batch to its end, each by the rules of
+   * BattleSimulator.fight() and Duel.
+   * @param pokeIntervalMS how often the Humans poke
+   * @param maxDuelMS how long a duel may last
+   * @param sacksToWin the sacks that win the game
+   * @param random the stream to draw deflections from
+   */
+  public void fight(final int pokeIntervalMS, final int maxDuelMS, final int sacksToWin,
+      final SplittableRandom random)
+  {
+    final int won = BattleReport.Outcome.WON.ordinal();
+    final int lost = BattleReport.Outcome.LOST.ordinal();
+    final int drawn = BattleReport.Outcome.DRAWN.ordinal();
+    for (int i = 0; i < size; i++)
+    {
+      double hHealth = humanHealth[i];
+      double hStrength = humanStrength[i];
+      int hSacks = humanSacks[i];
+      final double hMaxHealth = humanMaxHealth[i];
+      final double hMaxStrength = humanMaxStrength[i];
+      final double hForce = humanForce[i];
+      final double hDeflect = humanDeflect[i];
+      double gHealth = grumanHealth[i];
+      double gStrength = grumanStrength[i];
+      int gSacks = grumanSacks[i];
+      final double gMaxHealth = grumanMaxHealth[i];
+      final double gMaxStrength = grumanMaxStrength[i];
+      final double gForce = grumanForce[i];
+      final double gDeflect = grumanDeflect[i];
+      final int interval = roarInterval[i];
+
+      long pokeAt = pokeIntervalMS;
+      long roarAt = roarDelay[i];
+      long now = 0;
+      int count = 0;
+      int end;
+      while (true)
+      {
+        if (!(hHealth > 0))
+        {
+          end = lost;
+          break;
+        }
+        if (gSacks <= 0 || hSacks >= sacksToWin)
+        {
+          end = won;
+          break;
+        }
+        if (Math.min(pokeAt, roarAt) > maxDuelMS)
+        {
+          end = drawn;
+          break;
+        }
+        count++;
+        if (pokeAt <= roarAt)
+        {
+          // Duel.defendGruman()
+          now = pokeAt;
+          pokeAt += pokeIntervalMS;
+          double force = hStrength * hHealth * hForce;
+          if (gDeflect > 0 && random.nextDouble() < gDeflect)
+          {
+            force = 0;
+          }
+          gHealth = Math.max(Math.min(gHealth - force, gMaxHealth), 0);
+          gStrength = Math.max(Math.min(gStrength - force * STRENGTH_SHARE, gMaxStrength), 0);
+          if (!(gStrength > 0 && gHealth > 0) && gSacks > 0)
+          {
+            gSacks--;
+            gStrength = Math.min(gStrength + gMaxStrength * RESTORE_STRENGTH_SHARE, gMaxStrength);
+            hSacks += hSacks == Integer.MAX_VALUE ? 0 : 1;
+            hHealth = Math.min(hHealth + hMaxHealth * STRENGTH_SHARE, hMaxHealth);
+            hStrength = Math.max(hStrength - hMaxStrength * RESTORE_STRENGTH_SHARE, 0);
+          }
+        }
+        else
+        {
+          // Duel.defendHuman()
+          now = roarAt;
+          roarAt += interval;
+          double force = gStrength * gHealth * gForce;
+          if (hDeflect > 0 && random.nextDouble() < hDeflect)
+          {
+            force = 0;
+          }
+          hHealth = Math.max(Math.min(hHealth - force, hMaxHealth), 0);
+          hStrength = Math.max(Math.min(hStrength - force * STRENGTH_SHARE, hMaxStrength), 0);
+          if (!(hStrength > 0 && hHealth > 0) && hSacks > 0)
+          {
+            hSacks--;
+            hStrength = Math.min(hStrength + hMaxStrength * RESTORE_STRENGTH_SHARE, hMaxStrength);
+            gSacks = Math.min(gSacks + 1, maxGrumanSacks);
+            gHealth = Math.min(gHealth + gMaxHealth * STRENGTH_SHARE, gMaxHealth);
+            gStrength = Math.max(gStrength - gMaxStrength * RESTORE_STRENGTH_SHARE, 0);
+          }
+        }
+      }
+      humanHealth[i] = hHealth;
+      humanStrength[i] = hStrength;
+      humanSacks[i] = hSacks;
+      grumanHealth[i] = gHealth;
+      grumanStrength[i] = gStrength;
+      grumanSacks[i] = gSacks;
+      outcome[i] = end;
+      millis[i] = now;
+      exchanges[i] = count;
+    }
+  }
+
+  /**
+   * Counts every duel of the batch.
+   * @param report where to count them
+   */
+  public void report(final BattleReport report)
+  {
+    for (int i = 0; i < size; i++)
+    {
+      final int slot = grumanStrategy[i];
+      report.add(OUTCOMES[outcome[i]], millis[i], exchanges[i], humanSacks[i] - startSacks[i],
+          slot == 0 ? null : STRATEGIES[slot - 1]);
+    }
+  }
+
+  /**
+   * Rolls the Gruman of a duel over the ranges its constructor rolls,
+   * in the same order.
+   * @param i the duel's slot
+   * @param random the stream to roll from
+   */
+  private void rollGruman(final int i, final SplittableRandom random)
+  {
+    grumanSacks[i] = random.nextInt(maxGrumanSacks + 1);
+    grumanMaxHealth[i] = grumanHealth[i] = 1 + random.nextInt(Player.MAX_HEALTH_POSSIBLE);
+    grumanMaxStrength[i] = grumanStrength[i] = 1 + random.nextInt(Player.MAX_STRENGTH_POSSIBLE);
+    final int gruman = slotOf(GRUMAN_STRATEGIES[random.nextInt(GRUMAN_STRATEGIES.length)]);
+    grumanStrategy[i] = gruman;
+    grumanForce[i] = attackFactor[gruman] * FORCE_SHARE;
+    grumanDeflect[i] = deflectOdds[gruman];
+    roarDelay[i] = Gruman.MIN_ATTACK_DELAY_MS
+        + random.nextInt(Gruman.MAX_ATTACK_DELAY_MS - Gruman.MIN_ATTACK_DELAY_MS + 1);
+    roarInterval[i] = Gruman.MIN_ATTACK_INTERVAL_MS
+        + random.nextInt(Gruman.MAX_ATTACK_INTERVAL_MS - Gruman.MIN_ATTACK_INTERVAL_MS + 1);
+    // the heal delay is rolled too, though a duel never waits for it
+    random.nextInt(Gruman.MAX_HEAL_DELAY_MS - Gruman.MIN_HEAL_DELAY_MS + 1);
+  }
+
+  /**
+   * Returns the slot of a strategy in the factor and odds tables.
+   * @param strategy or null for none
+   * @return slot
+   */
+  private static int slotOf(final BattleStrategy strategy)
+  {
+    return strategy == null ? 0 : strategy.ordinal() + 1;
+  }
+}
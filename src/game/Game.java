@@ -4,20 +4,31 @@ import players.*;
 import repository.Sounds;
 import demesnes.Chamber;
 import demesnes.Direction;
+import demesnes.GenerationProgress;
 import demesnes.Location;
 import demesnes.Maze;
 import demesnes.MazeFacade;
+import demesnes.MazeSession;
+import demesnes.RegionMazeGenerator;
+import demesnes.RoamingGrumans;
 import demesnes.Wall;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Observable;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.swing.Timer;
+import utility.Clock;
+import utility.RealTimeClock;
+import utility.SingleRandom;
+import utility.TimingWheel;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 /**
@@ -68,15 +79,93 @@ public class Game implements Serializable
       return name.substring(0, 1) + name.substring(1).toLowerCase();
     }
   }
+  
+  /**
+   * How the maze of a new game is generated.
+   * Classic grows the maze one chamber at a time out from the entrance.
+   * Regions carves square regions of the maze in parallel from a seed.
+   * Endless carves regions from a seed as the human nears them, forever.
+   * Mapped is laid out like Regions, but keeps its chambers in a file.
+   * Paged is laid out like Regions, but keeps only the regions in use on the heap.
+   */
+  public enum Layout
+  {
+    CLASSIC, REGIONS, ENDLESS, MAPPED, PAGED;
+    
+    @Override
+    public String toString()
+    {
+      final String name = super.toString();
+      return name.substring(0, 1) + name.substring(1).toLowerCase();
+    }
+  }
   private String gameStatus;
-  private Timer attackHumanTimer;
-  private Timer healGrumanTimer;
-  private Timer healHumanTimer;
   private String humanName;
   private int numChambers;
   private int sacksToWin;
-  private boolean shouldHealGruman;
-  private boolean shouldHealHuman;
+  private Layout layout;
+  /**
+   * Whether the grumans of the next games roam the maze
+   */
+  private boolean roaming;
+  /**
+   * The grumans roaming this game's maze, or null if they stay put
+   */
+  private RoamingGrumans roamers;
+  /**
+   * The number among the roamers of the gruman met, held while it fights
+   */
+  private int roamingCitizen = NO_ROAMER;
+  private int exploreRadius;
+  /**
+   * The time of the game when it was saved, for the Players' rests
+   */
+  private long gameMillis;
+  /**
+   * Makes the next game's maze while this one is played, or null to make
+   * each maze on the spot
+   */
+  private transient MazePool mazePool;
+  /**
+   * Whether the maze pool has been asked for a maze by this game, and so
+   * follows its configuration
+   */
+  private transient boolean pooling;
+  /**
+   * Works out the odds of the duel at hand, for a hint whether to poke
+   */
+  private transient BattleAdvisor battleAdvisor;
+  /**
+   * Runs the timed effects of the game, in game time, which stands still
+   * while the game is paused
+   */
+  private transient TimingWheel scheduler;
+  /**
+   * Moves the scheduler's time while the game is played, in real time
+   * unless another clock is given
+   */
+  private transient Clock clock;
+  private transient TimingWheel.Timeout attackHumanTimeout;
+  /**
+   * Wakes the game once the human has rested long enough to heal
+   */
+  private transient TimingWheel.Timeout healHumanTimeout;
+  /**
+   * Run once the human has rested out of a fight long enough to heal
+   */
+  private transient Runnable healHumanCallback;
+  /**
+   * Run each time the gruman met roars, also for grumans that roam in
+   */
+  private transient Runnable terrifyHumanCallback;
+  /**
+   * Run when a gruman roams into the human's chamber between moves
+   */
+  private transient Runnable meetGrumanCallback;
+  /**
+   * Run when a gruman roams into or out of a chamber the human can see
+   */
+  private transient Runnable roamGrumanCallback;
   /**
    * Provides logging for our game
    */
@@ -87,13 +176,53 @@ public class Game implements Serializable
   }
 
   /**
-   * Delay for the heal human timer.
+   * How many mazes are made ahead of time for the next game.
    */
-  public static final int HEAL_HUMAN_DELAY_MS = 5000;
+  public static final int MAZE_POOL_DEPTH = 2;
+  /**
+   * Bytes of heap the mazes made ahead of time may take.
+   */
+  public static final long MAZE_POOL_BUDGET = 256L << 20;
+  /**
+   * Roughly the bytes of heap a chamber of a maze kept on the heap takes,
+   * its gruman included.
+   */
+  private static final long BYTES_PER_CHAMBER = 160;
+  /**
+   * Given as the bytes of heap a maze kept in a file takes, so none is
+   * made ahead of time: each would hold a file until the program exits.
+   */
+  private static final long FILE_BACKED_MAZE_BYTES = Long.MAX_VALUE;
+  /**
+   * Roughly how many more columns and rows a new endless maze has carved
+   * than its explore radius asks for, a region on either side.
+   */
+  private static final long ENDLESS_MARGIN = 128;
+  /**
+   * Bytes of heap the chambers of a paged maze may take.
+   */
+  public static final long PAGED_HEAP_BUDGET = 64L << 20;
+  /**
+   * How long the human rests out of a fight to heal.
+   */
+  public static final int HEAL_HUMAN_DELAY_MS = Human.HEAL_DELAY_MS;
+  private static final int NO_ROAMER = -1;
+  /**
+   * How many columns and rows the human can see on each side
+   */
+  private static final int VIEW_RADIUS = 1;
   /**
    * Number of Chambers
    */
   public static final int DEFAULT_NUM_CHAMBERS = 10;
+  /**
+   * How many chambers around the human an endless maze has ready.
+   */
+  public static final int DEFAULT_EXPLORE_RADIUS = 16;
+  /**
+   * The most chambers around the human an endless maze may be asked to have ready.
+   */
+  public static final int MAX_EXPLORE_RADIUS = 256;
   /**
    * Amount of Sacks that you need to win.
    */
@@ -121,9 +250,14 @@ public class Game implements Serializable
   private Maze maze;
 
   /**
-   * Location of human player
+   * What this game has changed in the maze, which may be shared
+   */
+  private MazeSession session;
+
+  /**
+   * Chamber the human player is in
    */
-  private Location location;
+  private Chamber chamber;
 
   private State previousState;
   
@@ -138,15 +272,29 @@ public class Game implements Serializable
   private Difficulty difficulty;
 
   /**
-   * Constructs a new game having one human and one gruman
+   * Constructs a new game having one human and one gruman, which makes
+   * each maze on the spot
    */
   public Game()
   {
+    this(null);
+  }
+
+  /**
+   * Constructs a new game having one human and one gruman, which has its
+   * mazes made ahead of time by a pool, from its first game on
+   * @param mazePool the pool, which may serve other games in turn, or null
+   */
+  public Game(final MazePool mazePool)
+  {
+    this.mazePool = mazePool;
     setUpLogging();
     humanName = DEFAULT_NAME;
     numChambers = DEFAULT_NUM_CHAMBERS;
     sacksToWin = DEFAULT_SACKS_TO_WIN;
     difficulty = Difficulty.MEDIUM;
+    layout = Layout.CLASSIC;
+    exploreRadius = DEFAULT_EXPLORE_RADIUS;
     previousState = state = State.INACTIVE;
   }
 
@@ -240,6 +388,24 @@ public class Game implements Serializable
     return invader.pokeGruman();
   }
 
+  /**
+   * Returns the odds of the Human beating the Gruman it has met, from
+   * their stats now, for a hint whether to poke it. Odds not worked out
+   * yet are worked out by the battle advisor in the background.
+   * 
+   * @return the odds, or null when there is no Gruman, no advisor, or
+   *  the odds are still being worked out
+   */
+  public BattleOdds.Result getBattleOdds()
+  {
+    BattleOdds.Result odds = null;
+    if (citizen != null && battleAdvisor != null)
+    {
+      odds = battleAdvisor.advise(sacksToWin, invader, citizen);
+    }
+    return odds;
+  }
+
   /**
    * Amount of Sacks that the Human has.
    * @return
@@ -297,14 +463,7 @@ public class Game implements Serializable
    */
   public void defendHuman(double force)
   {
-    invader.sufferTerror(force);
-    shouldHealHuman = true;
-    if (!(invader.hasStrength() && invader.hasHealth()) && invader.hasSacks())
-    {
-      invader.decrementSacks();
-      invader.restoreStrength();
-      winRoundGruman();
-    }
+    Duel.defendHuman(invader, citizen, force);
     if (!invader.hasHealth())
     {
       winGameGrumans();
@@ -320,14 +479,7 @@ public class Game implements Serializable
    */
   public void defendGruman(double force)
   {
-    citizen.sufferPoke(force);
-    shouldHealGruman = true;
-    if (!(citizen.hasStrength() && citizen.hasHealth()) && citizen.hasSacks())
-    {
-      citizen.decrementSacks();
-      citizen.restoreStrength();
-      winRoundHuman();
-    }
+    Duel.defendGruman(invader, citizen, force);
     if (hasSacksToWin())
     {
       winGameHuman();
@@ -340,19 +492,106 @@ public class Game implements Serializable
    * Restart the game.
    */
   public void resetGame()
+  {
+    Maze next = null;
+    if (mazePool != null)
+    {
+      pooling = true;
+      try
+      {
+        next = mazePool.take(mazeKey(), mazeFactory(), mazeBytes());
+      }
+      catch (Exception e)
+      {
+        log.warning("Cannot make a maze ahead of time, making it now: " + e);
+      }
+      log.fine("Maze pool: " + mazePool);
+    }
+    if (next == null)
+    {
+      next = createMaze(layout, numChambers, exploreRadius, null);
+    }
+    // no other game plays this maze, so one kept in a file holds this
+    // game's visits and grumans too, rather than an overlay on the heap
+    resetGame(next, next.isOffHeap() ? MazeSession.writingThrough(next) : new MazeSession(next));
+  }
+
+  /**
+   * Starts making the maze for the next game in the background, if it is
+   * not ready already, so its progress can be shown while the current game
+   * waits. Once the progress is finished, resetGame() starts at once.
+   * @return the progress of the maze, or null if it will be made on the spot
+   */
+  public GenerationProgress prepareGame()
+  {
+    GenerationProgress progress = null;
+    if (mazePool != null)
+    {
+      pooling = true;
+      progress = mazePool.prepare(mazeKey(), mazeFactory(), mazeBytes());
+    }
+    return progress;
+  }
+
+  /**
+   * Stops making the maze for the next game, and any more ahead of time
+   * until the game is configured again.
+   */
+  public void cancelPreparedGame()
+  {
+    if (mazePool != null)
+    {
+      mazePool.cancel();
+    }
+  }
+
+  /**
+   * Restart the game in a maze other games may be playing too.
+   * This game keeps what it visits and the grumans it meets to itself.
+   * @param shared the maze to play in
+   */
+  public void resetGame(final Maze shared)
+  {
+    resetGame(shared, new MazeSession(shared));
+  }
+
+  /**
+   * Restart the game in a maze, played through a session on it.
+   * @param shared the maze to play in
+   * @param session the session to play through
+   */
+  private void resetGame(final Maze shared, final MazeSession session)
   {
     stopTimers();
-    attackHumanTimer = healHumanTimer = healGrumanTimer = null;
     
     invader = new Human(humanName);
     invader.setHealth(invader.getHealth() * difficulty.FACTOR);
+    invader.setTimeSource(getScheduler());
   
     citizen = null;
-    location = Location.ORIGIN;
-    this.maze = new Maze(numChambers);
+    this.maze = shared;
+    this.session = session;
+    chamber = session.getEntrance();
     previousState = state;
     state = State.ACTIVE;
-    shouldHealHuman = shouldHealGruman = false;
+    // game time passes while the game is played, for the Players' rests
+    startTicker();
+    roamers = null;
+    roamingCitizen = NO_ROAMER;
+    if (roaming && shared.isEndless())
+    {
+      log.warning("The grumans of an endless maze stay put");
+    }
+    else if (roaming && shared.isOffHeap())
+    {
+      // indexing them would bring every chamber onto the heap
+      log.warning("The grumans of a maze kept in a file stay put");
+    }
+    else if (roaming)
+    {
+      roamers = new RoamingGrumans(shared, SingleRandom.getInstance().nextLong());
+      startRoaming();
+    }
     
     updateStatus();
   }
@@ -363,13 +602,67 @@ public class Game implements Serializable
    * @param numChambers
    * @param sacksToWin
    * @param difficulty
+   * @param layout
    */
-  public void configureGame(String humanName, int numChambers, int sacksToWin, Difficulty difficulty)
+  public void configureGame(String humanName, int numChambers, int sacksToWin, Difficulty difficulty,
+      Layout layout)
   {
     this.humanName = humanName;
     this.numChambers = numChambers;
     this.sacksToWin = sacksToWin;
     this.difficulty = difficulty;
+    this.layout = layout;
+    configureMazePool();
+  }
+  
+  /**
+   * Sets whether the grumans of the next games roam the maze, a tick at a
+   * time, rather than stay in their chambers. Those of endless mazes, and
+   * of mazes kept in a file, stay.
+   * 
+   * @param roaming
+   */
+  public void configureRoaming(boolean roaming)
+  {
+    this.roaming = roaming;
+  }
+  
+  /**
+   * Sets what is run when a gruman roams into the human's chamber between
+   * moves, each time a gruman met that way roars, and when a gruman roams
+   * into or out of a chamber the human can see.
+   * 
+   * @param terrifyHumanCallback
+   * @param meetGrumanCallback
+   * @param roamGrumanCallback
+   */
+  public void setRoamingCallbacks(final Runnable terrifyHumanCallback,
+      final Runnable meetGrumanCallback, final Runnable roamGrumanCallback)
+  {
+    this.terrifyHumanCallback = terrifyHumanCallback;
+    this.meetGrumanCallback = meetGrumanCallback;
+    this.roamGrumanCallback = roamGrumanCallback;
+  }
+  
+  /**
+   * Returns whether the grumans of this game roam the maze.
+   * 
+   * @return true/false
+   */
+  public boolean isRoaming()
+  {
+    return roamers != null;
+  }
+  
+  /**
+   * Sets how many chambers around the human an endless maze has ready.
+   * 
+   * @param exploreRadius
+   */
+  public void configureExploreRadius(int exploreRadius)
+  {
+    this.exploreRadius = exploreRadius;
+    configureMazePool();
   }
   
   /**
@@ -391,7 +684,7 @@ public class Game implements Serializable
     MazeFacade view = null;
     if (maze != null)
     {
-      view = new MazeFacade(location, maze);
+      view = new MazeFacade(chamber.getLocation(), session, VIEW_RADIUS, roamers);
     }
     return view;
   }
@@ -399,54 +692,173 @@ public class Game implements Serializable
   /**
    * Moves the human and responds to some listeners
    * @param dir
-   * @param terrifyHumanCallback
-   * @param healHumanCallback
+   * @param terrifyHumanCallback run each time the gruman met roars
+   * @param healHumanCallback run once the human has rested long enough to heal
    */
-  public void moveHuman(final Direction dir,
-      final ActionListener terrifyHumanCallback,
-      final ActionListener healHumanCallback)
+  public void moveHuman(final Direction dir, final Runnable terrifyHumanCallback,
+      final Runnable healHumanCallback)
   {
-    if (maze.hasDoorAt(dir, location))
+    final Chamber next = session.getNeighbor(chamber, dir);
+    if (next != null)
     {
-      location = new Location(location, dir);
-      invader.pickupStrategy(maze.getStrategy(location));
-      maze.visit(location);
+      chamber = next;
+      session.approach(chamber);
+      invader.pickupStrategy(session.getStrategy(chamber));
+      session.visit(chamber);
       
       stopAttackingHuman();
-      if (citizen != null && shouldHealGruman)
-      {
-        startHealingGruman();
-      }
-      final Gruman oldCitizen = citizen;
-      citizen = maze.getGruman(location);
+      // both heal once they have rested out of the fight long enough
       if (citizen != null)
       {
-        stopHealingHuman();
-        startAttackingHuman(terrifyHumanCallback);
+        citizen.disengage();
       }
-      else if (oldCitizen != null && shouldHealHuman) // citizen went from
-                                                        // non-null to null
+      if (roamingCitizen != NO_ROAMER)
       {
-        startHealingHuman(healHumanCallback);
+        roamers.release(roamingCitizen);
+        roamingCitizen = NO_ROAMER;
       }
+      this.terrifyHumanCallback = terrifyHumanCallback;
+      this.healHumanCallback = healHumanCallback;
+      meetCitizen();
     }
     updateStatus();
   }
 
+  /**
+   * Meets the gruman in the human's chamber, if there is one, and starts
+   * the fight.
+   */
+  private void meetCitizen()
+  {
+    citizen = null;
+    if (roamers == null)
+    {
+      citizen = session.getGruman(chamber);
+    }
+    else
+    {
+      // the lowest numbered gruman here, if several are
+      final int[] here = roamers.getGrumansIn(chamber.getLocation());
+      if (here.length > 0)
+      {
+        roamingCitizen = here[0];
+        roamers.hold(roamingCitizen);
+        citizen = session.getGruman(maze.getChamber(roamers.getHome(roamingCitizen)));
+      }
+    }
+    if (citizen != null)
+    {
+      citizen.setTimeSource(getScheduler());
+      citizen.engage();
+      invader.engage();
+      stopHealingHuman();
+      startAttackingHuman(terrifyHumanCallback);
+    }
+    else
+    {
+      invader.disengage();
+      startHealingHuman();
+    }
+  }
+
+  /**
+   * Wakes the game once the human, wounded and out of a fight, has rested
+   * long enough to heal, so the heal can be shown as it happens. The human
+   * heals on its own as game time passes; this only tells the callback.
+   */
+  private void startHealingHuman()
+  {
+    if (healHumanTimeout == null && healHumanCallback != null && invader.isWounded())
+    {
+      final Runnable callback = healHumanCallback;
+      healHumanTimeout = schedule(new Runnable()
+      {
+
+        @Override
+        public void run()
+        {
+          healHumanTimeout = null;
+          callback.run();
+        }
+
+      }, invader.getRegenerationDelay(), 0);
+    }
+  }
+
   private void stopHealingHuman()
   {
-    if (healHumanTimer != null)
+    if (healHumanTimeout != null)
     {
-      healHumanTimer.stop();
+      healHumanTimeout.cancel();
+      healHumanTimeout = null;
     }
   }
 
+  /**
+   * Moves the roaming grumans every tick, and meets any that roams into
+   * the human's chamber while it has none.
+   */
+  private void startRoaming()
+  {
+    schedule(new Runnable()
+    {
+
+      @Override
+      public void run()
+      {
+        final int[] seen = getVisibleGrumans();
+        roamers.tick();
+        boolean met = false;
+        if (citizen == null && state == State.ACTIVE)
+        {
+          meetCitizen();
+          met = citizen != null;
+          if (met && meetGrumanCallback != null)
+          {
+            meetGrumanCallback.run();
+          }
+        }
+        // meeting one shows the view again anyway
+        if (!met && roamGrumanCallback != null && !Arrays.equals(seen, getVisibleGrumans()))
+        {
+          roamGrumanCallback.run();
+        }
+      }
+
+    }, RoamingGrumans.TICK_MS, RoamingGrumans.TICK_MS);
+  }
+
+  /**
+   * Returns which roaming grumans are in each visited chamber the human
+   * can see, as each chamber's count followed by its grumans, so a tick
+   * that changes the view can be told from one that does not.
+   * @return the grumans seen
+   */
+  private int[] getVisibleGrumans()
+  {
+    final Location here = chamber.getLocation();
+    int[] seen = new int[0];
+    for (final Chamber c : maze.getChambersIn(here.getColumn() - VIEW_RADIUS,
+        here.getRow() - VIEW_RADIUS, here.getColumn() + VIEW_RADIUS, here.getRow() + VIEW_RADIUS))
+    {
+      if (session.hasVisited(c))
+      {
+        final int[] in = roamers.getGrumansIn(c.getLocation());
+        final int at = seen.length;
+        seen = Arrays.copyOf(seen, at + 1 + in.length);
+        seen[at] = in.length;
+        System.arraycopy(in, 0, seen, at + 1, in.length);
+      }
+    }
+    return seen;
+  }
+
   private void stopAttackingHuman()
   {
-    if (attackHumanTimer != null)
+    if (attackHumanTimeout != null)
     {
-      attackHumanTimer.stop();
-      attackHumanTimer = null;
+      attackHumanTimeout.cancel();
+      attackHumanTimeout = null;
     }
   }
 
@@ -468,7 +880,7 @@ public class Game implements Serializable
   {
     boolean val = false;
 
-    if (this.location.equals(l))
+    if (l != null && chamber.getColumn() == l.getColumn() && chamber.getRow() == l.getRow())
     {
       val = true;
     }
@@ -478,19 +890,20 @@ public class Game implements Serializable
 
   public Location getCurrentLocation()
   {
-    return location;
+    return chamber == null ? null : chamber.getLocation();
   }
 
   /**
    * After an initial delay randomly determined at its instatiation, the Gruman
    * will start attacking a Human at some interval.
    */
-  private void startAttackingHuman(final ActionListener callback)
+  private void startAttackingHuman(final Runnable callback)
   {
-    attackHumanTimer = new Timer(citizen.getAttackDelay(), callback);
-    attackHumanTimer.setRepeats(true);
-    attackHumanTimer.setDelay(citizen.getAttackInterval());
-    attackHumanTimer.start();
+    if (callback != null)
+    {
+      attackHumanTimeout = schedule(callback, citizen.getAttackDelay(),
+          citizen.getAttackInterval());
+    }
   }
 
 
@@ -505,18 +918,9 @@ public class Game implements Serializable
     {
       previousState = state;
       state = State.ACTIVE;
-      if (attackHumanTimer != null)
-      {
-        attackHumanTimer.restart();
-      }
-      if (healHumanTimer != null)
-      {
-        healHumanTimer.restart();
-      }
-      if (healGrumanTimer != null)
-      {
-        healGrumanTimer.restart();
-      }
+      // every effect goes on with the time it had left
+      getScheduler().resume();
+      startTicker();
     }
   }
 
@@ -538,20 +942,9 @@ public class Game implements Serializable
    */
   public Map<Direction, Wall> getCurrentChamberWalls()
   {
-    return maze.getWalls(location);
+    return chamber.getWalls();
   }
 
-  /**
-   * Heals the Human and restores some strength.
-   */
-  public void healHuman()
-  {
-    invader.restoreHealth();
-    invader.restoreStrength();
-    shouldHealHuman = false;
-    healHumanTimer = null;
-    updateStatus();
-  }
   /**
    * Checks mad state.
    * @return
@@ -574,12 +967,17 @@ public class Game implements Serializable
     {
       gameStatus = invader.getName()+" wins! With "+
           invader.getSacks()+" sacks and "+
-          (maze.getTotalChambers()-maze.getChambersLeft())+" chambers discovered";
+          session.getChambersVisited()+" chambers discovered";
+    }
+    else if (maze.isEndless())
+    {
+      gameStatus= "Chambers Discovered: "+
+          session.getChambersVisited();
     }
     else
     {
       gameStatus= "Chambers Left: "+
-          maze.getChambersLeft()+"/"+maze.getTotalChambers();
+          session.getChambersLeft()+"/"+maze.getTotalChambers();
     }
   }
 
@@ -590,7 +988,8 @@ public class Game implements Serializable
   {
     if (state == State.ACTIVE)
     {
-      stopTimers();
+      getScheduler().pause();
+      stopTicker();
       previousState = state;
       state = State.INACTIVE;
     }
@@ -607,72 +1006,301 @@ public class Game implements Serializable
   }
   
   /**
-   * Causes human to gain a sack of treasure after poking gruman
+   * Returns the pool making mazes ahead of time.
+   * @return the maze pool, or null if each maze is made on the spot
    */
-  private void winRoundHuman()
+  public MazePool getMazePool()
   {
-    invader.incrementSacks();
-    invader.restoreHealth();
-    invader.reduceStrength();
+    return mazePool;
   }
-
+  
+  /**
+   * Sets the pool making mazes ahead of time, as it is not saved with the
+   * game. It starts making them once the game asks it for a maze.
+   * @param mazePool the pool, or null to make each maze on the spot
+   */
+  public void setMazePool(final MazePool mazePool)
+  {
+    this.mazePool = mazePool;
+    pooling = false;
+  }
+  
+  /**
+   * Sets what works out the odds of the duel at hand, as it is not saved
+   * with the game.
+   * @param battleAdvisor the advisor, or null for no odds
+   */
+  public void setBattleAdvisor(final BattleAdvisor battleAdvisor)
+  {
+    this.battleAdvisor = battleAdvisor;
+  }
+  
+  /**
+   * Has the maze pool make mazes for the configuration now, if this game
+   * has asked it for one already.
+   */
+  private void configureMazePool()
+  {
+    if (mazePool != null && pooling)
+    {
+      mazePool.configure(mazeKey(), mazeFactory(), mazeBytes());
+    }
+  }
+  
   /**
-   * Causes gruman to gain a sack of treasure after terrifying human
+   * Returns what tells the mazes of this configuration from others.
+   * @return key
    */
-  private void winRoundGruman()
+  private String mazeKey()
   {
-    citizen.incrementSacks();
-    citizen.restoreHealth();
-    citizen.reduceStrength();
+    return layout + " " + numChambers + " " + exploreRadius;
   }
   
   /**
-   * After a delay, all of the Gruman's health and strength will be restored.
+   * Returns what makes a maze for this configuration, on any thread.
+   * @return factory
    */
-  private void startHealingGruman()
+  private MazePool.Factory mazeFactory()
   {
-    final Gruman oldCitizen = citizen;
-    healGrumanTimer = new Timer(oldCitizen.getHealDelay(), new ActionListener()
+    final Layout layout = this.layout;
+    final int numChambers = this.numChambers;
+    final int exploreRadius = this.exploreRadius;
+    return new MazePool.Factory()
     {
+      @Override
+      public Maze create(GenerationProgress progress)
+      {
+        return createMaze(layout, numChambers, exploreRadius, progress);
+      }
 
       @Override
-      public void actionPerformed(ActionEvent e)
+      public long getChambers()
       {
-        oldCitizen.resetHealth();
-        oldCitizen.resetStrength();
-        shouldHealGruman = false;
-        healGrumanTimer = null;
+        return layout == Layout.ENDLESS ? 0 : numChambers;
       }
+    };
+  }
+  
+  /**
+   * Estimates the heap a new maze for this configuration takes.
+   * @return bytes
+   */
+  private long mazeBytes()
+  {
+    long bytes;
+    if (layout == Layout.MAPPED || layout == Layout.PAGED)
+    {
+      bytes = FILE_BACKED_MAZE_BYTES;
+    }
+    else if (layout == Layout.ENDLESS)
+    {
+      final long side = 2L * exploreRadius + ENDLESS_MARGIN;
+      bytes = side * side * BYTES_PER_CHAMBER;
+    }
+    else
+    {
+      bytes = numChambers * BYTES_PER_CHAMBER;
+    }
+    return bytes;
+  }
+  
+  /**
+   * Generates the maze for a new game in a layout.
+   * @param layout
+   * @param numChambers
+   * @param exploreRadius
+   * @param progress where to report progress, or null
+   * @return the new maze
+   */
+  private static Maze createMaze(Layout layout, int numChambers, int exploreRadius,
+      GenerationProgress progress)
+  {
+    final Maze newMaze;
+    if (layout == Layout.REGIONS)
+    {
+      newMaze = new RegionMazeGenerator(SingleRandom.getInstance().nextLong()).generate(numChambers,
+          ForkJoinPool.commonPool(), progress);
+    }
+    else if (layout == Layout.ENDLESS)
+    {
+      newMaze = new RegionMazeGenerator(SingleRandom.getInstance().nextLong()).generateEndless(exploreRadius);
+    }
+    else if (layout == Layout.MAPPED || layout == Layout.PAGED)
+    {
+      newMaze = createFileBackedMaze(new RegionMazeGenerator(SingleRandom.getInstance().nextLong()),
+          layout, numChambers, progress);
+    }
+    else
+    {
+      newMaze = new Maze(numChambers, progress);
+    }
+    return newMaze;
+  }
+  
+  /**
+   * Generates a mapped or paged maze backed by a temporary file,
+   * kept until the program exits, or on the heap if the file cannot be written.
+   * @param generator
+   * @param layout
+   * @param numChambers
+   * @param progress where to report progress, or null
+   * @return the maze
+   */
+  private static Maze createFileBackedMaze(RegionMazeGenerator generator, Layout layout,
+      int numChambers, GenerationProgress progress)
+  {
+    Maze newMaze;
+    try
+    {
+      final File file = File.createTempFile("maze", layout == Layout.PAGED ? ".scratch" : ".chambers");
+      file.deleteOnExit();
+      if (layout == Layout.PAGED)
+      {
+        newMaze = generator.generatePaged(numChambers, PAGED_HEAP_BUDGET, file,
+            ForkJoinPool.commonPool(), progress);
+      }
+      else
+      {
+        newMaze = generator.generateMapped(numChambers, file, ForkJoinPool.commonPool(), progress);
+      }
+    }
+    catch (IOException e)
+    {
+      log.warning("Cannot write a maze file, keeping the maze on the heap: " + e);
+      newMaze = generator.generate(numChambers, ForkJoinPool.commonPool(), progress);
+    }
+    return newMaze;
+  }
+  
+  /**
+   * Schedules an effect of the game, and makes sure game time is passing
+   * if the game is being played.
+   * @param task
+   * @param delayMS
+   * @param intervalMS 0 to run once
+   * @return the timeout, to cancel it by
+   */
+  private TimingWheel.Timeout schedule(final Runnable task, final long delayMS,
+      final long intervalMS)
+  {
+    final TimingWheel.Timeout timeout = getScheduler().schedule(task, delayMS, intervalMS);
+    if (state == State.ACTIVE)
+    {
+      startTicker();
+    }
+    return timeout;
+  }
+
+  /**
+   * Returns the scheduler of the game's effects, making it if need be, as
+   * it is not saved with the game. Its time goes on from when the game was
+   * saved, and the Players in play read it to know when they have rested.
+   * @return the scheduler
+   */
+  private TimingWheel getScheduler()
+  {
+    if (scheduler == null)
+    {
+      scheduler = new TimingWheel(gameMillis);
+      if (invader != null)
+      {
+        invader.setTimeSource(scheduler);
+      }
+      if (citizen != null)
+      {
+        citizen.setTimeSource(scheduler);
+      }
+    }
+    return scheduler;
+  }
 
-    });
-    healGrumanTimer.setRepeats(false);
-    healGrumanTimer.start();
+  /**
+   * Saves the game with its time.
+   * @param out
+   * @throws IOException
+   */
+  private void writeObject(final ObjectOutputStream out) throws IOException
+  {
+    gameMillis = getScheduler().now();
+    out.defaultWriteObject();
   }
 
-  private void startHealingHuman(ActionListener callback)
+  /**
+   * Loads the game, and sets the Players in play reading its time again
+   * and its grumans roaming again, if they roam.
+   * @param in
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException
   {
-    healHumanTimer = new Timer(HEAL_HUMAN_DELAY_MS, callback);
-    healHumanTimer.setRepeats(false);
-    healHumanTimer.start();
+    in.defaultReadObject();
+    getScheduler();
+    if (roamers != null && (state == State.ACTIVE || state == State.INACTIVE))
+    {
+      startRoaming();
+    }
   }
-  
+
   /**
-   * Stops the times.
+   * Returns the clock moving the time of the game's effects, a
+   * RealTimeClock unless another was given.
+   * @return the clock
    */
-  private void stopTimers()
+  public Clock getClock()
   {
-    if (healHumanTimer != null)
+    if (clock == null)
     {
-      healHumanTimer.stop();
+      clock = new RealTimeClock();
     }
-    if (healGrumanTimer != null)
+    return clock;
+  }
+
+  /**
+   * Sets the clock moving the time of the game's effects, such as a
+   * VirtualClock to play a scripted game faster than real time. The
+   * effects already scheduled keep the time they have left.
+   * @param clock
+   */
+  public void setClock(final Clock clock)
+  {
+    stopTicker();
+    this.clock = clock;
+    if (state == State.ACTIVE)
     {
-      healGrumanTimer.stop();
+      startTicker();
     }
-    if (attackHumanTimer != null)
+  }
+
+  /**
+   * Starts the clock moving the scheduler's time, unless it is already.
+   */
+  private void startTicker()
+  {
+    getClock().start(getScheduler());
+  }
+
+  /**
+   * Stops the clock moving the scheduler's time.
+   */
+  private void stopTicker()
+  {
+    if (clock != null)
     {
-      attackHumanTimer.stop();
+      clock.stop();
     }
   }
+  
+  /**
+   * Cancels every effect still to come.
+   */
+  private void stopTimers()
+  {
+    stopTicker();
+    getScheduler().clear();
+    getScheduler().resume();
+    attackHumanTimeout = null;
+    healHumanTimeout = null;
+  }
 
 }
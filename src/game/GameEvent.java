@@ -6,5 +6,5 @@ package game;
 public enum GameEvent
 { 
     RESET, LOAD, MOVE, POKE, TERRIFY, HEAL, GAMEOVER, VICTORY, MUTE, UNMUTE, MAD,
-  INSTRUCTIONS, SAVE, STORYLINE, COLOR, HAPPY, CALM, FUNKY, SCARY;
+  INSTRUCTIONS, SAVE, STORYLINE, COLOR, HAPPY, CALM, FUNKY, SCARY, MEET, ROAM, ODDS;
 }
@@ -1,20 +1,19 @@
 package game;
 
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.util.Map;
 import java.util.Observable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 
 import players.Gruman;
 import players.Human;
 import repository.Sounds;
 import demesnes.Chamber;
 import demesnes.Direction;
+import demesnes.GenerationProgress;
 import demesnes.Location;
 import demesnes.Maze;
 import demesnes.MazeFacade;
@@ -27,23 +26,62 @@ import demesnes.Wall;
 public class GameFacade extends Observable
 {
 
-  private Game game;
+  private volatile Game game;
+  /**
+   * Makes the mazes of the games played, one after another, ahead of time
+   */
+  private final MazePool mazePool;
   private final Storage storage;
-  private final ActionListener terrifyHuman;
-  private final ActionListener healHuman;
+  private final Runnable terrifyHuman;
+  private final Runnable meetGruman;
+  private final Runnable roamGruman;
+  private final Runnable healHuman;
+  private final BattleAdvisor battleAdvisor;
   private final Logger log;
   
   public GameFacade()
   {
     log = Logger.getLogger("GameFacade");
-    game = new Game();
+    mazePool = new MazePool(Game.MAZE_POOL_DEPTH, Game.MAZE_POOL_BUDGET);
+    game = new Game(mazePool);
     storage = new Storage();
+    battleAdvisor = new BattleAdvisor(new Runnable()
+    {
+
+      @Override
+      public void run()
+      {
+        // worked out on the advisor's thread; shown on the event thread
+        SwingUtilities.invokeLater(new Runnable()
+        {
+
+          @Override
+          public void run()
+          {
+            setChanged();
+            notifyObservers(GameEvent.ODDS);
+          }
+
+        });
+      }
+
+    });
+    game.setBattleAdvisor(battleAdvisor);
+    // keeps the odds worked out this run for the next
+    Runtime.getRuntime().addShutdownHook(new Thread("save-odds")
+    {
+      @Override
+      public void run()
+      {
+        battleAdvisor.save();
+      }
+    });
     
-    terrifyHuman = new ActionListener()
+    terrifyHuman = new Runnable()
     {
 
       @Override
-      public void actionPerformed(ActionEvent e)
+      public void run()
       {
         // it is possible this event is fired just as the game becomes inactive
         if (game.getState() == Game.State.ACTIVE)
@@ -59,23 +97,42 @@ public class GameFacade extends Observable
             notifyObservers(GameEvent.GAMEOVER);
           }
         }
-        else
-        {
-           final Timer t = (Timer)e.getSource();
-           t.stop();
-        }
+      }
       
+    };
+    
+    meetGruman = new Runnable()
+    {
+
+      @Override
+      public void run()
+      {
+        setChanged();
+        notifyObservers(GameEvent.MEET);
+      }
+      
+    };
+    
+    roamGruman = new Runnable()
+    {
+
+      @Override
+      public void run()
+      {
+        setChanged();
+        notifyObservers(GameEvent.ROAM);
       }
       
     };
+    game.setRoamingCallbacks(terrifyHuman, meetGruman, roamGruman);
     
-    healHuman = new ActionListener()
+    healHuman = new Runnable()
     {
 
       @Override
-      public void actionPerformed(ActionEvent e)
+      public void run()
       {
-        game.healHuman();
+        // the human has healed by now; this shows it
         setChanged();
         notifyObservers(GameEvent.HEAL);
       }
@@ -95,18 +152,65 @@ public class GameFacade extends Observable
     notifyObservers(GameEvent.RESET);
   }
   
+  /**
+   * Starts making the maze for the next game in the background.
+   * @return the progress of the maze, or null if it will be made on the spot
+   */
+  public GenerationProgress prepareGame()
+  {
+    return game.prepareGame();
+  }
+  
+  /**
+   * Stops making the maze for the next game.
+   */
+  public void cancelPreparedGame()
+  {
+    game.cancelPreparedGame();
+  }
+  
   /**
    * Passes a configuration state to the game.
    * @param humanName
    * @param numChambers
    * @param sacksToWin
    * @param difficulty
+   * @param layout
+   */
+  public void configureGame(String humanName, int numChambers, int sacksToWin, Game.Difficulty difficulty,
+      Game.Layout layout)
+  {
+    game.configureGame(humanName, numChambers, sacksToWin, difficulty, layout);
+  }
+  
+
+  /**
+   * Passes to the game how many chambers around the human an endless
+   * maze has ready.
+   * @param exploreRadius
    */
-  public void configureGame(String humanName, int numChambers, int sacksToWin, Game.Difficulty difficulty)
+  public void configureExploreRadius(int exploreRadius)
   {
-    game.configureGame(humanName, numChambers, sacksToWin, difficulty);
+    game.configureExploreRadius(exploreRadius);
   }
   
+  /**
+   * Passes to the game whether the grumans of the next games roam.
+   * @param roaming
+   */
+  public void configureRoaming(boolean roaming)
+  {
+    game.configureRoaming(roaming);
+  }
+  
+  /**
+   * Returns whether the grumans of this game roam the maze.
+   * @return true/false
+   */
+  public boolean isRoaming()
+  {
+    return game.isRoaming();
+  }
 
   /**
    * Calls storage for saving the game.
@@ -130,6 +234,9 @@ public class GameFacade extends Observable
     game.pause();
     storage.setOpenFile();
     game = storage.read();
+    game.setMazePool(mazePool);
+    game.setBattleAdvisor(battleAdvisor);
+    game.setRoamingCallbacks(terrifyHuman, meetGruman, roamGruman);
     game.resume();
     setChanged();
     notifyObservers(GameEvent.LOAD);
@@ -387,6 +494,18 @@ public class GameFacade extends Observable
     game.configureName(text);
   }
   
+  /**
+   * Returns the odds of the human beating the gruman it has met, once
+   * they are worked out; an ODDS event follows when they are.
+   * 
+   * @return the odds, or null when there is no gruman or they are still
+   *  being worked out
+   */
+  public BattleOdds.Result getBattleOdds()
+  {
+    return game.getBattleOdds();
+  }
+  
   /**
    * Returns the human's strategy.
    * 
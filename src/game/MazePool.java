@@ -0,0 +1,384 @@
+package game;
+
+import demesnes.GenerationProgress;
+import demesnes.Maze;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Generates mazes ahead of time on a background thread, so a new game
+ * can start without waiting for its maze. The pool keeps up to a given
+ * number of mazes for one configuration at a time, and fewer if they
+ * would take more than its heap budget. Changing the configuration
+ * drops the mazes made for the old one.
+ *
+ * Each maze handed out is a hit if it was ready, a wait if it was still
+ * being made, and a miss if none was coming and it was made on the spot.
+ *
+ * A game about to start can also ask the pool to prepare its maze and
+ * follow its progress, without blocking, even when the maze is too big
+ * to keep ahead of time; and it can cancel the maze partway through.
+ *
+ * The pool makes nothing until it is first configured, and its thread
+ * stops once it has been idle a while, so a pool no longer used costs
+ * nothing; one pool can serve each game played in turn.
+ */
+public final class MazePool
+{
+  /**
+   * Makes a maze for a configuration, on any thread.
+   */
+  public interface Factory
+  {
+    /**
+     * Makes a maze.
+     * @param progress where to report progress
+     * @return the maze
+     * @throws CancellationException if the progress is cancelled
+     */
+    Maze create(GenerationProgress progress);
+
+    /**
+     * Returns how many chambers the mazes will have.
+     * @return chambers, or 0 if there is no telling
+     */
+    long getChambers();
+  }
+
+  private static final Logger log = Logger.getLogger("Game");
+
+  /**
+   * How long the worker thread waits idle for another maze to make before it stops.
+   */
+  private static final long IDLE_SECONDS = 30;
+
+  private final int depth;
+  private final long budget;
+  private final ThreadPoolExecutor worker;
+
+  // guarded by this
+  private final Deque<Maze> ready;
+  private Object key;
+  private Factory factory;
+  private int capacity;
+  private int prepared;
+  private boolean busy;
+  private GenerationProgress making;
+  private GenerationProgress upcoming;
+  private int hits;
+  private int waits;
+  private int misses;
+  private long waitNanos;
+
+  /**
+   * Creates an empty pool, which makes nothing until it is configured.
+   * @param depth the most mazes to keep ready
+   * @param budget the most bytes of heap the mazes kept ready may take
+   */
+  public MazePool(final int depth, final long budget)
+  {
+    this.depth = depth;
+    this.budget = budget;
+    ready = new ArrayDeque<>();
+    worker = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable r)
+      {
+        final Thread t = new Thread(r, "maze-pool");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+      }
+    });
+    worker.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Sets what kind of maze the pool makes and starts making them.
+   * Configuring the pool as it already is keeps the mazes ready,
+   * and starts making them again if they were cancelled.
+   * A maze too big for the budget, or given as Long.MAX_VALUE bytes,
+   * is never made ahead of time, only when prepared.
+   * @param key what tells one configuration from another
+   * @param factory what makes a maze for the configuration
+   * @param bytesPerMaze roughly how much heap each maze takes
+   */
+  public synchronized void configure(final Object key, final Factory factory,
+      final long bytesPerMaze)
+  {
+    if (!key.equals(this.key))
+    {
+      stop();
+      this.key = key;
+      this.factory = factory;
+    }
+    capacity = (int)Math.min(depth, budget / Math.max(1, bytesPerMaze));
+    refill();
+  }
+
+  /**
+   * Hands out a maze for the current configuration, waiting for the
+   * one being made if there is none ready, or making one if none is coming.
+   * @param key the configuration wanted
+   * @param factory what makes a maze for it
+   * @param bytesPerMaze roughly how much heap each maze takes
+   * @return the maze
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Maze take(final Object key, final Factory factory, final long bytesPerMaze)
+      throws InterruptedException
+  {
+    final Factory make;
+    synchronized (this)
+    {
+      configure(key, factory, bytesPerMaze);
+      final long start = System.nanoTime();
+      boolean waited = false;
+      while (ready.isEmpty() && (making != null || upcoming != null))
+      {
+        waited = true;
+        wait();
+      }
+      if (!ready.isEmpty())
+      {
+        if (waited)
+        {
+          waits++;
+          waitNanos += System.nanoTime() - start;
+        }
+        else
+        {
+          hits++;
+        }
+        final Maze maze = ready.poll();
+        prepared = Math.max(0, prepared - 1);
+        refill();
+        return maze;
+      }
+      misses++;
+      make = factory;
+    }
+    return make.create(new GenerationProgress(make.getChambers()));
+  }
+
+  /**
+   * Starts making the maze for the next game if none is ready or coming,
+   * even one too big to keep ahead of time, and returns its progress.
+   * Once the progress is finished, take() hands the maze out at once.
+   * @param key the configuration wanted
+   * @param factory what makes a maze for it
+   * @param bytesPerMaze roughly how much heap each maze takes
+   * @return the progress of the next maze, or null if the pool is shut down
+   */
+  public synchronized GenerationProgress prepare(final Object key, final Factory factory,
+      final long bytesPerMaze)
+  {
+    configure(key, factory, bytesPerMaze);
+    if (!ready.isEmpty())
+    {
+      return GenerationProgress.finished(factory.getChambers());
+    }
+    if (making == null && upcoming == null)
+    {
+      prepared++;
+      refill();
+    }
+    return making != null ? making : upcoming;
+  }
+
+  /**
+   * Stops making the maze being made and makes no more until
+   * the pool is configured again; the configuration and the mazes
+   * ready are kept, so the next take() of the same one still hits.
+   */
+  public synchronized void cancel()
+  {
+    if (making != null)
+    {
+      making.cancel();
+    }
+    if (upcoming != null)
+    {
+      upcoming.cancel();
+    }
+    making = upcoming = null;
+    capacity = prepared = 0;
+    notifyAll();
+  }
+
+  /**
+   * Cancels the maze being made, drops the mazes ready,
+   * and forgets the configuration.
+   */
+  private synchronized void stop()
+  {
+    cancel();
+    key = null;
+    factory = null;
+    ready.clear();
+  }
+
+  /**
+   * Starts making the next maze if the pool has room, or, if the worker
+   * is still busy with a maze no longer wanted, promises it for later.
+   */
+  private synchronized void refill()
+  {
+    if (making != null || ready.size() >= Math.max(capacity, prepared) || worker.isShutdown())
+    {
+      return;
+    }
+    if (upcoming == null)
+    {
+      upcoming = new GenerationProgress(factory.getChambers());
+    }
+    if (busy)
+    {
+      return;
+    }
+    final GenerationProgress progress = upcoming;
+    final Factory make = factory;
+    upcoming = null;
+    making = progress;
+    busy = true;
+    worker.execute(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        Maze maze = null;
+        boolean failed = false;
+        try
+        {
+          progress.start();
+          maze = make.create(progress);
+        }
+        catch (CancellationException e)
+        {
+          log.fine("Stopped making a maze ahead of time");
+        }
+        catch (RuntimeException | OutOfMemoryError e)
+        {
+          log.warning("Cannot make a maze ahead of time: " + e);
+          failed = true;
+        }
+        synchronized (MazePool.this)
+        {
+          busy = false;
+          if (making == progress)
+          {
+            making = null;
+            if (maze != null)
+            {
+              ready.add(maze);
+              progress.finish();
+            }
+            else if (failed)
+            {
+              // try again only once the pool is configured again
+              cancel();
+              progress.cancel();
+            }
+          }
+          refill();
+          MazePool.this.notifyAll();
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns how many mazes were ready when asked for
+   * @return hits
+   */
+  public synchronized int getHits()
+  {
+    return hits;
+  }
+
+  /**
+   * Returns how many mazes were waited for while they were being made
+   * @return waits
+   */
+  public synchronized int getWaits()
+  {
+    return waits;
+  }
+
+  /**
+   * Returns how many mazes were made on the spot
+   * @return misses
+   */
+  public synchronized int getMisses()
+  {
+    return misses;
+  }
+
+  /**
+   * Returns the total time spent waiting for mazes being made
+   * @return milliseconds
+   */
+  public synchronized double getWaitMillis()
+  {
+    return waitNanos / 1e6;
+  }
+
+  /**
+   * Returns how many mazes are ready now
+   * @return mazes
+   */
+  public synchronized int getReady()
+  {
+    return ready.size();
+  }
+
+  /**
+   * Returns how many mazes the pool keeps ready for the current configuration
+   * @return mazes
+   */
+  public synchronized int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Stops making mazes and drops the ones ready;
+   * from then on every maze is made on the spot.
+   */
+  public void shutdown()
+  {
+    worker.shutdownNow();
+    synchronized (this)
+    {
+      ready.clear();
+      capacity = 0;
+    }
+    try
+    {
+      worker.awaitTermination(1, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return String.format("%d hits, %d waits (%.1f ms), %d misses, %d of %d ready",
+        hits, waits, waitNanos / 1e6, misses, ready.size(), capacity);
+  }
+}
@@ -1,5 +1,7 @@
 package gui;
 
+import game.BattleOdds;
+import game.BattleReport;
 import game.Game;
 import game.Game.Difficulty;
 import game.Game.State;
@@ -32,18 +34,22 @@ import javax.swing.DefaultComboBoxModel;
 import javax.swing.GroupLayout;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import repository.Sounds;
 
 import demesnes.Chamber;
 import demesnes.Direction;
+import demesnes.GenerationProgress;
 import demesnes.Maze;
 import demesnes.Wall;
 
@@ -132,6 +138,21 @@ public class Controller extends JPanel implements Observer
 
   private boolean soundEnabled;
   
+  /**
+   * How often the progress of a maze being made is shown.
+   */
+  private static final int PROGRESS_REFRESH_MS = 100;
+  
+  /**
+   * Steps of the progress bar of a maze being made.
+   */
+  private static final int PROGRESS_STEPS = 1000;
+  
+  /**
+   * What the poke button says, before any hint of the odds.
+   */
+  private static final String POKE_GRUMAN = "Poke Gruman";
+  
   private static final String[] DEFAULT_NAMES = {"Steve, the Knight of Space",
     "Mandy, the Witch of Breath",
     "Thomas, the Thief of Light",
@@ -161,7 +182,7 @@ public class Controller extends JPanel implements Observer
     this.setFocusable(true);
 
     // Create the poke gruman button and disable it
-    pokeGruman = new JButton("Poke Gruman");
+    pokeGruman = new JButton(POKE_GRUMAN);
     updatePokeButton();
 
     //Create the instructions button
@@ -256,12 +277,12 @@ public class Controller extends JPanel implements Observer
               if (!nameField.getText().isEmpty())
               {
                   game.configureName(nameField.getText());
-                  Controller.this.game.resetGame();
+                  startGame();
               }
               else
               {
                   game.configureName(option);
-                  Controller.this.game.resetGame();
+                  startGame();
               }
           }
           else
@@ -423,7 +444,7 @@ public class Controller extends JPanel implements Observer
     sacksToWinField.setText(Integer.toString(Game.DEFAULT_SACKS_TO_WIN));
 
     final JPanel customPanel = new JPanel();
-    customPanel.setLayout(new GridLayout(4, 1, 1, 1));
+    customPanel.setLayout(new GridLayout(7, 1, 1, 1));
     customPanel.setBorder(BorderFactory.createEtchedBorder(EtchedBorder.RAISED));
 
     customPanel.add(new JLabel("Difficulty"));
@@ -435,12 +456,23 @@ public class Controller extends JPanel implements Observer
     final JComboBox<Game.Difficulty> difficultyCombo = new JComboBox<>(difficultyModel);
     customPanel.add(difficultyCombo);
 
+    customPanel.add(new JLabel("Layout"));
+    final JComboBox<Game.Layout> layoutCombo = new JComboBox<>(Game.Layout.values());
+    customPanel.add(layoutCombo);
+    final JTextField radiusField = new JTextField(10);
+    radiusField.setText(Integer.toString(Game.DEFAULT_EXPLORE_RADIUS));
+    customPanel.add(new JLabel("Endless Explore Radius: "));
+    customPanel.add(radiusField);
+
     customPanel.add(new JLabel("Name:"));
     customPanel.add(customNameField);
     customPanel.add(new JLabel("Number of Chambers: "));
     customPanel.add(chamberField);
     customPanel.add(new JLabel("Number of Sacks to Win: "));
     customPanel.add(sacksToWinField);
+    final JCheckBox roamingBox = new JCheckBox();
+    customPanel.add(new JLabel("Grumans Roam: "));
+    customPanel.add(roamingBox);
     
     customGame.addActionListener(new ActionListener()
     {
@@ -457,11 +489,14 @@ public class Controller extends JPanel implements Observer
           {
             int chambers = Maze.MIN_NUMBER_CHAMBERS;
             int sacks = 1;
+            int radius = Game.DEFAULT_EXPLORE_RADIUS;
             try
             {
               chambers = Integer.parseInt(chamberField.getText());
               sacks = Integer.parseInt(sacksToWinField.getText());
-              passed = Maze.MIN_NUMBER_CHAMBERS <= chambers & 0 < sacks; 
+              radius = Integer.parseInt(radiusField.getText());
+              passed = Maze.MIN_NUMBER_CHAMBERS <= chambers & 0 < sacks
+                  & 0 <= radius & radius <= Game.MAX_EXPLORE_RADIUS; 
             }
             catch (NumberFormatException e)
             {
@@ -471,13 +506,17 @@ public class Controller extends JPanel implements Observer
             if (passed)
             {
               game.configureGame(customNameField.getText(), chambers, sacks,
-                  (Game.Difficulty) difficultyCombo.getSelectedItem());
+                  (Game.Difficulty) difficultyCombo.getSelectedItem(),
+                  (Game.Layout) layoutCombo.getSelectedItem());
+              game.configureExploreRadius(radius);
+              game.configureRoaming(roamingBox.isSelected());
             }
             else
             {
               JOptionPane.showMessageDialog(null, "Those inputs didn't work.\n"+
                 "Chambers must be between " + Maze.MIN_NUMBER_CHAMBERS + " and " + Integer.MAX_VALUE
-                + ", and Sacks to Win must be between 1 and " + Integer.MAX_VALUE + ".");
+                + ", Sacks to Win must be between 1 and " + Integer.MAX_VALUE
+                + ", and the Explore Radius between 0 and " + Game.MAX_EXPLORE_RADIUS + ".");
             }
             
           }
@@ -598,16 +637,95 @@ public class Controller extends JPanel implements Observer
    */
   public void updatePokeButton()
   {
+    BattleOdds.Result odds = null;
     if(game.getState() == Game.State.ACTIVE && game.hasGruman() && !game.isGrumanMad())
     {
       pokeGruman.setBackground(Color.RED);
       pokeGruman.setEnabled(true);
+      odds = game.getBattleOdds();
     }
     else
     {
       pokeGruman.setEnabled(false);
       pokeGruman.setBackground(Color.GRAY);
     }
+    
+    //Hint whether to poke, once the odds are worked out
+    if (odds == null)
+    {
+      pokeGruman.setText(POKE_GRUMAN);
+      pokeGruman.setToolTipText(null);
+    }
+    else
+    {
+      pokeGruman.setText(String.format("%s (%.0f%% win)", POKE_GRUMAN,
+          100 * odds.getChance(BattleReport.Outcome.WON)));
+      pokeGruman.setToolTipText((odds.isWorthFighting() ? "Worth poking: " : "Better to abscond: ")
+          + odds);
+    }
+  }
+
+  /**
+   * Starts a new game once its maze is made. A maze not made yet is made
+   * in the background while a dialog shows how far it has got and how long
+   * it should take, so the window keeps responding; cancelling the dialog
+   * stops the maze and goes back to the game being played.
+   */
+  private void startGame()
+  {
+    final GenerationProgress progress = game.prepareGame();
+    if (progress == null || progress.isFinished())
+    {
+      game.resetGame();
+      return;
+    }
+    
+    final JProgressBar bar = new JProgressBar(0, PROGRESS_STEPS);
+    bar.setStringPainted(true);
+    final JLabel status = new JLabel("Making the maze...");
+    final JPanel panel = new JPanel(new GridLayout(2, 1, 1, 1));
+    panel.add(status);
+    panel.add(bar);
+    final JOptionPane pane = new JOptionPane(panel, JOptionPane.INFORMATION_MESSAGE,
+        JOptionPane.DEFAULT_OPTION, null, new Object[] {"Cancel"});
+    final JDialog dialog = pane.createDialog(this, "Making the Maze");
+    final Timer refresh = new Timer(PROGRESS_REFRESH_MS, new ActionListener()
+    {
+      public void actionPerformed(ActionEvent event)
+      {
+        if (progress.isFinished() || progress.isCancelled())
+        {
+          dialog.dispose();
+        }
+        else
+        {
+          bar.setValue((int)(progress.getFraction() * PROGRESS_STEPS));
+          final long remaining = progress.getRemainingMillis();
+          status.setText(String.format("%,d of %,d chambers, %s left",
+              progress.getChambersMade(), progress.getTotalChambers(),
+              remaining < 0 ? "some time" : (remaining + 999) / 1000 + " s"));
+        }
+      }
+    });
+    refresh.start();
+    // modal, so this waits here while the event thread goes on
+    dialog.setVisible(true);
+    refresh.stop();
+    
+    if (progress.isFinished())
+    {
+      game.resetGame();
+    }
+    else
+    {
+      final boolean failed = progress.isCancelled();
+      game.cancelPreparedGame();
+      if (failed)
+      {
+        JOptionPane.showMessageDialog(this, "The maze could not be made. Try fewer chambers.");
+      }
+      game.resume();
+    }
   }
 
   /**
@@ -76,6 +76,8 @@ public class ControllerCommands
     };
     commands.put(GameEvent.POKE, updatePokeButton);
     commands.put(GameEvent.TERRIFY, updatePokeButton);
+    commands.put(GameEvent.MEET, updatePokeButton);
+    commands.put(GameEvent.ODDS, updatePokeButton);
     //commands.put(GameEvent.HEAL, Command.DO_NOTHING);
   }
   
@@ -15,6 +15,8 @@ import java.util.logging.SimpleFormatter;
 import repository.GrumanNames;
 import repository.Names;
 
+import utility.KeyedRandom;
+import utility.KeyedRandom.Purpose;
 import utility.MathHelper;
 import utility.SingleRandom;
 
@@ -64,6 +66,10 @@ public class Gruman extends Player
   static
   {
     log = Logger.getLogger(Gruman.class.getName());
+    //make sure it's turned on
+    log.setLevel(Level.ALL);
+    //When finished, can turn off as follows:
+    log.setLevel(Level.OFF);
   }
   //null means simply use default console handler until we get our own
   private static Handler handler;
@@ -128,42 +134,127 @@ public class Gruman extends Player
  */
   public Gruman(final String name, int sacks, double health, double strength)
   {
-    super(name, Math.min(sacks, MAX_SACKS_TO_START), health, strength,
-        STRATEGIES[SingleRandom.getInstance().nextInt(STRATEGIES.length)]);
+    this(name, sacks, health, strength,
+        STRATEGIES[SingleRandom.getInstance().nextInt(STRATEGIES.length)],
+        SingleRandom.getInstance().nextInt(MIN_ATTACK_DELAY_MS, MAX_ATTACK_DELAY_MS),
+        SingleRandom.getInstance().nextInt(MIN_ATTACK_INTERVAL_MS, MAX_ATTACK_INTERVAL_MS),
+        SingleRandom.getInstance().nextInt(MIN_HEAL_DELAY_MS, MAX_HEAL_DELAY_MS));
+  }
+  
+  /**
+   * Instantiates a Gruman with a valid name, rolling its treasure, health,
+   * strength, strategy and timings from draws keyed by the chamber it
+   * stands in, so the same seed and chamber always roll the same Gruman,
+   * whichever Grumans were rolled before it.
+   * 
+   * @param name
+   *  the name of the Gruman
+   * @param random
+   *  the random source of the maze seed
+   * @param column
+   *  the column of the Gruman's chamber
+   * @param row
+   *  the row of the Gruman's chamber
+   *  
+   * @throws NullPointerException
+   *  if the name is null
+   * @throws IllegalArgumentException
+   *  if the name is empty
+   */
+  public Gruman(final String name, final KeyedRandom random, final int column, final int row)
+  {
+    this(name, random.stream(Purpose.GRUMAN, column, row));
+  }
+  
+  /**
+   * Instantiates a Gruman with a valid name, rolling the rest from a stream of draws.
+   * 
+   * @param name
+   *  the name of the Gruman
+   * @param rolls
+   *  the draws to roll from
+   */
+  private Gruman(final String name, final Random rolls)
+  {
+    this(name,
+        rolls.nextInt(MAX_SACKS_TO_START + 1),
+        1 + rolls.nextInt(MAX_HEALTH_POSSIBLE),
+        1 + rolls.nextInt(MAX_STRENGTH_POSSIBLE),
+        STRATEGIES[rolls.nextInt(STRATEGIES.length)],
+        MIN_ATTACK_DELAY_MS + rolls.nextInt(MAX_ATTACK_DELAY_MS - MIN_ATTACK_DELAY_MS + 1),
+        MIN_ATTACK_INTERVAL_MS + rolls.nextInt(MAX_ATTACK_INTERVAL_MS - MIN_ATTACK_INTERVAL_MS + 1),
+        MIN_HEAL_DELAY_MS + rolls.nextInt(MAX_HEAL_DELAY_MS - MIN_HEAL_DELAY_MS + 1));
+  }
+  
+  /**
+   * Instantiates a Gruman with everything about it given.
+   * 
+   * @param name
+   *  the name of the Gruman
+   * @param sacks
+   *  the number of sacks of treasure to start with
+   * @param health
+   *  the amount of health to start with
+   * @param strength
+   *  the amount of strength to start with
+   * @param strategy
+   *  the battle strategy
+   * @param attackDelayMS
+   *  the delay before the first attack
+   * @param attackIntervalMS
+   *  the interval between attacks
+   * @param healDelayMS
+   *  the delay before healing
+   */
+  private Gruman(final String name, int sacks, double health, double strength,
+      final BattleStrategy strategy, int attackDelayMS, int attackIntervalMS, int healDelayMS)
+  {
+    super(name, Math.min(sacks, MAX_SACKS_TO_START), health, strength, strategy);
     
-    final SingleRandom rand = SingleRandom.getInstance();
-    attackDelayMS = rand.nextInt(MIN_ATTACK_DELAY_MS, MAX_ATTACK_DELAY_MS);
-    attackIntervalMS = rand.nextInt(MIN_ATTACK_INTERVAL_MS, MAX_ATTACK_INTERVAL_MS);
-    healDelayMS = rand.nextInt(MIN_HEAL_DELAY_MS, MAX_HEAL_DELAY_MS);
+    this.attackDelayMS = attackDelayMS;
+    this.attackIntervalMS = attackIntervalMS;
+    this.healDelayMS = healDelayMS;
  
     final String className = getClass().getName();
     if (handler == null)
     {
-      try
-      {
-        //creates this handler
-        //output will go to file named in argument
-        Handler tmp = new FileHandler(className + ".txt");
-        //SimpleFormatter produces plain text(as opposed to XML)
-        tmp.setFormatter(new SimpleFormatter());
-        //attach handler for file output
-        log.addHandler(tmp);
-        handler = tmp;
-      }
-      catch (IOException e)
-      {
-        //if exception is thrown, print trace
-        e.printStackTrace();
-        // just use the console handler instead
-      }
+      openLogFile(className);
     }
-    //make sure it's turned on
-    log.setLevel(Level.ALL);
-    //When finished, can turn off as follows:
-    log.setLevel(Level.OFF);
     
-    //log information for trace
-    log.info("Create " + className + " #" + ID + ": " + this);
+    //log information for trace, building the message only if it is logged
+    if (log.isLoggable(Level.INFO))
+    {
+      log.info("Create " + className + " #" + ID + ": " + this);
+    }
+  }
+  
+  /**
+   * Instantiates a Gruman as it is in another game of the same maze,
+   * with the same name, treasure, health, strength, strategy and timings,
+   * so each game can fight its own copy.
+   * 
+   * @param other
+   *  the Gruman to copy
+   * @throws NullPointerException
+   *  if other is null
+   */
+  public Gruman(final Gruman other)
+  {
+    super(other);
+    attackDelayMS = other.attackDelayMS;
+    attackIntervalMS = other.attackIntervalMS;
+    healDelayMS = other.healDelayMS;
+  }
+  
+  /**
+   * Returns the strategies a new Gruman picks from at random,
+   * null for none, each as likely as it is common in the list.
+   * 
+   * @return the strategies
+   */
+  public static BattleStrategy[] getStrategies()
+  {
+    return STRATEGIES.clone();
   }
   
   /**
@@ -180,7 +271,10 @@ public class Gruman extends Player
       force = strategy.attack(force);
     }
     //Check value of computation BEFORE return statement:
-    log.info("ID = " + ID + ", Roar Force = " + force);
+    if (log.isLoggable(Level.INFO))
+    {
+      log.info("ID = " + ID + ", Roar Force = " + force);
+    }
     return force;
   }
   
@@ -201,18 +295,25 @@ public class Gruman extends Player
     }
     else
     {
+      wound();
       final BattleStrategy strategy = getStrategy();
       if (strategy != null)
       {
         force = getStrategy().suffer(force);
       }
       final double health = getHealth();
-      log.info("ID = " + ID + ", Health = " + health);
+      if (log.isLoggable(Level.INFO))
+      {
+        log.info("ID = " + ID + ", Health = " + health);
+      }
       setHealth(health - force);
       setStrength(getStrength() - force / STRENGTH_SCALE);
     }
     //Check values AFTER change:
-    log.info("ID = " + ID + ", Strength = " + getStrength());
+    if (log.isLoggable(Level.INFO))
+    {
+      log.info("ID = " + ID + ", Strength = " + getStrength());
+    }
   }
   
   /**
@@ -242,6 +343,27 @@ public class Gruman extends Player
     return healDelayMS;
   }
   
+  /**
+   * Returns how long the Gruman must rest out of a fight to regenerate,
+   * its heal delay.
+   * @return milliseconds
+   */
+  @Override
+  public long getRegenerationDelay()
+  {
+    return healDelayMS;
+  }
+  
+  /**
+   * Restores all of the Gruman's health and strength.
+   */
+  @Override
+  protected void regenerate()
+  {
+    resetHealth();
+    resetStrength();
+  }
+  
   @Override
   /**
    * Increment Sacks.
@@ -259,5 +381,33 @@ public class Gruman extends Player
   {
     super.setSacks(Math.min(sacks, MAX_SACKS_TO_START));
   }
-  
-}
\ No newline at end of file
+
+  /**
+   * Sends the log to a file named after the class, the first time
+   * one is created on any thread.
+   * @param className
+   */
+  private static synchronized void openLogFile(final String className)
+  {
+    if (handler == null)
+    {
+      try
+      {
+        //creates this handler
+        //output will go to file named in argument
+        Handler tmp = new FileHandler(className + ".txt");
+        //SimpleFormatter produces plain text(as opposed to XML)
+        tmp.setFormatter(new SimpleFormatter());
+        //attach handler for file output
+        log.addHandler(tmp);
+        handler = tmp;
+      }
+      catch (IOException e)
+      {
+        //if exception is thrown, print trace
+        e.printStackTrace();
+        // just use the console handler instead
+      }
+    }
+  }
+}
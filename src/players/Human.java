@@ -32,6 +32,11 @@ import utility.SingleRandom;
 public class Human extends Player
 {  
   
+  /**
+   * How long a Human must rest out of a fight to regenerate.
+   */
+  public static final int HEAL_DELAY_MS = 5000;
+  
   private static final BattleStrategy[] STRATEGIES;
   static
   {
@@ -47,6 +52,10 @@ public class Human extends Player
   static
   {
     log = Logger.getLogger(Human.class.getName());
+    //make sure it's turned on
+    log.setLevel(Level.ALL);
+    //When finished, can turn off as follows:
+    log.setLevel(Level.OFF);
   }
   private static Handler handler; // null means simply use default console handler until we get our own
   
@@ -109,31 +118,14 @@ public class Human extends Player
     final String className = getClass().getName();
     if (handler == null)
     {
-      try
-      {
-        //creates this handler
-        //output will go to file named in argument
-        Handler tmp = new FileHandler(className + ".txt");
-        //SimpleFormatter produces plain text(as opposed to XML)
-        tmp.setFormatter(new SimpleFormatter());
-        //attach handler for file output
-        log.addHandler(tmp);
-        handler = tmp;
-      }
-      catch (IOException e)
-      {
-        //if exception is thrown, print trace
-        e.printStackTrace();
-        // just use the console handler instead
-      }
+      openLogFile(className);
     }
-    //make sure it's turned on
-    log.setLevel(Level.ALL);
-    //When finished, can turn off as follows:
-    log.setLevel(Level.OFF);
     
-    //log information for trace
-    log.info("Create " + className + " #" + ID + ": " + this);
+    //log information for trace, building the message only if it is logged
+    if (log.isLoggable(Level.INFO))
+    {
+      log.info("Create " + className + " #" + ID + ": " + this);
+    }
   }
   
   /**
@@ -150,7 +142,10 @@ public class Human extends Player
       force = strategy.attack(force);
     }
     //Check value of computation BEFORE return statement:
-    log.info("ID = " + ID + ", Poke Force = " + force);
+    if (log.isLoggable(Level.INFO))
+    {
+      log.info("ID = " + ID + ", Poke Force = " + force);
+    }
     return force;
   }
 
@@ -171,18 +166,46 @@ public class Human extends Player
     }
     else
     {
+      wound();
       final BattleStrategy strategy = getStrategy();
       if (strategy != null)
       {
         force = getStrategy().suffer(force);
       }
       final double health = getHealth();
-      log.info("ID = " + ID + ", Health = " + health);
+      if (log.isLoggable(Level.INFO))
+      {
+        log.info("ID = " + ID + ", Health = " + health);
+      }
       setHealth(health - force);
       setStrength(getStrength() - force / STRENGTH_SCALE);
     }
     //Check values AFTER change:
-    log.info("ID = " + ID + ", Strength = " + getStrength());
+    if (log.isLoggable(Level.INFO))
+    {
+      log.info("ID = " + ID + ", Strength = " + getStrength());
+    }
+  }
+  
+  /**
+   * Returns how long the Human must rest out of a fight to regenerate.
+   * 
+   * @return {@value #HEAL_DELAY_MS} milliseconds
+   */
+  @Override
+  public long getRegenerationDelay()
+  {
+    return HEAL_DELAY_MS;
+  }
+  
+  /**
+   * Restores some of the Human's health and strength.
+   */
+  @Override
+  protected void regenerate()
+  {
+    restoreHealth();
+    restoreStrength();
   }
   
   /**
@@ -224,6 +247,33 @@ public class Human extends Player
     result = PRIME * result + ((name == null) ? 0 : name.hashCode());
     return result;
   }
-  
-  
+
+  /**
+   * Sends the log to a file named after the class, the first time
+   * one is created on any thread.
+   * @param className
+   */
+  private static synchronized void openLogFile(final String className)
+  {
+    if (handler == null)
+    {
+      try
+      {
+        //creates this handler
+        //output will go to file named in argument
+        Handler tmp = new FileHandler(className + ".txt");
+        //SimpleFormatter produces plain text(as opposed to XML)
+        tmp.setFormatter(new SimpleFormatter());
+        //attach handler for file output
+        log.addHandler(tmp);
+        handler = tmp;
+      }
+      catch (IOException e)
+      {
+        //if exception is thrown, print trace
+        e.printStackTrace();
+        // just use the console handler instead
+      }
+    }
+  }
 }
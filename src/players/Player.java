@@ -17,6 +17,7 @@ import java.util.logging.SimpleFormatter;
 
 import utility.MathHelper;
 import utility.SingleRandom;
+import utility.TimeSource;
 
 /**
  * Team Plasma
@@ -32,6 +33,12 @@ import utility.SingleRandom;
  * {@code 0 <= getStrength() && getStrength() <= MAX_STRENGTH
  * && MAX_STRENGTH <= MAX_STRENGTH_POSSIBLE},
  * 
+ * A Player wounded regenerates once it has been out of a fight for its
+ * {@link #getRegenerationDelay()}. Nothing runs when it does: its health
+ * and strength are worked out from the time of the game whenever they are
+ * read, so every Player of a game regenerates at once for no more than the
+ * cost of reading it.
+ * 
  * @author Ten-Young Guh
  *
  */
@@ -62,6 +69,10 @@ public abstract class Player implements Serializable
   private int sacks; // number of sacks of treasure
   private double health; // from 0 to MAX_HEALTH
   private double strength; // from 0 to MAX_STRENGTH
+  private boolean wounded; // since it last regenerated
+  private boolean fighting; // so not regenerating
+  private long restedSince; // game time it was last wounded or left a fight
+  private transient TimeSource time; // null not to regenerate
   
   /**
    * The scale of a Player's ability to annoy.
@@ -130,6 +141,32 @@ public abstract class Player implements Serializable
     
   }
   
+  /**
+   * Instantiates a Player under a new ID with the same name,
+   * number of sacks of treasure, health, strength and strategy as another,
+   * and the same maximums.
+   * 
+   * @param other
+   *  the Player to copy
+   * @throws NullPointerException
+   *  if {@code other == null}
+   */
+  protected Player(final Player other)
+  {
+    ID = counter;
+    name = other.name;
+    sacks = other.sacks;
+    health = other.health;
+    strength = other.strength;
+    MAX_HEALTH = other.MAX_HEALTH;
+    MAX_STRENGTH = other.MAX_STRENGTH;
+    strategy = other.strategy;
+    wounded = other.wounded;
+    fighting = other.fighting;
+    restedSince = other.restedSince;
+    counter++;
+  }
+  
   /**
    * Gets the Player's name.
    * 
@@ -180,6 +217,7 @@ public abstract class Player implements Serializable
    */
   public double getHealth()
   {
+    regenerateIfRested();
     return health;
   }
   
@@ -192,6 +230,7 @@ public abstract class Player implements Serializable
    */
   public double getStrength()
   {
+    regenerateIfRested();
     return strength;
   }
   
@@ -226,7 +265,7 @@ public abstract class Player implements Serializable
    */
   public boolean hasStrength()
   {
-    return strength > 0.0;
+    return getStrength() > 0.0;
   }
   
   /**
@@ -238,7 +277,7 @@ public abstract class Player implements Serializable
    */
   public boolean hasHealth()
   {
-    return health > 0.0;
+    return getHealth() > 0.0;
   }
   
   /**
@@ -263,6 +302,7 @@ public abstract class Player implements Serializable
    */
   public void setHealth(double health)
   {
+    regenerateIfRested();
     this.health = MathHelper.setBounds(0, MAX_HEALTH, health);
   }
   
@@ -275,6 +315,7 @@ public abstract class Player implements Serializable
    */
   public void setStrength(double strength)
   {
+    regenerateIfRested();
     this.strength = MathHelper.setBounds(0, MAX_STRENGTH, strength);
   }
   
@@ -296,6 +337,7 @@ public abstract class Player implements Serializable
    */
   public void resetHealth()
   {
+    regenerateIfRested();
     health = MAX_HEALTH;
   }
   
@@ -304,6 +346,7 @@ public abstract class Player implements Serializable
    */
   public void resetStrength()
   {
+    regenerateIfRested();
     strength = MAX_STRENGTH;
   }
   
@@ -316,6 +359,7 @@ public abstract class Player implements Serializable
    */
   public void restoreHealth()
   {
+    regenerateIfRested();
     health = Math.min(health + MAX_HEALTH / STRENGTH_SCALE, MAX_HEALTH);
   }
   
@@ -327,6 +371,7 @@ public abstract class Player implements Serializable
    */
   public void restoreStrength()
   {
+    regenerateIfRested();
     strength = Math.min(strength + MAX_STRENGTH / (2 * STRENGTH_SCALE), MAX_STRENGTH);
   }
   
@@ -338,9 +383,96 @@ public abstract class Player implements Serializable
    */
   public void reduceStrength()
   {
+    regenerateIfRested();
     strength = Math.max(strength - MAX_STRENGTH / (2 * STRENGTH_SCALE), 0);
   }
   
+  /**
+   * Sets where the Player reads the time of its game from, to know when it
+   * has rested long enough to regenerate. It is not saved with the Player.
+   * 
+   * @param time the time of the game, or null not to regenerate
+   */
+  public void setTimeSource(final TimeSource time)
+  {
+    this.time = time;
+  }
+  
+  /**
+   * Stops the Player regenerating while it fights.
+   */
+  public void engage()
+  {
+    regenerateIfRested();
+    fighting = true;
+  }
+  
+  /**
+   * Lets the Player regenerate once it has rested for its
+   * {@link #getRegenerationDelay()} from now, if it is wounded.
+   */
+  public void disengage()
+  {
+    if (fighting)
+    {
+      fighting = false;
+      restedSince = time == null ? 0 : time.now();
+    }
+  }
+  
+  /**
+   * Returns whether the Player has been wounded since it last regenerated.
+   * 
+   * @return
+   *  {@code true} if it will regenerate once rested,
+   *  {@code false} otherwise
+   */
+  public boolean isWounded()
+  {
+    regenerateIfRested();
+    return wounded;
+  }
+  
+  /**
+   * Marks the Player wounded, so it regenerates once rested, the rest
+   * starting now unless it is fighting. To be called as it suffers a blow.
+   */
+  protected void wound()
+  {
+    regenerateIfRested();
+    wounded = true;
+    if (!fighting)
+    {
+      restedSince = time == null ? 0 : time.now();
+    }
+  }
+  
+  /**
+   * Returns how long the Player must rest out of a fight to regenerate.
+   * 
+   * @return milliseconds of game time
+   */
+  public abstract long getRegenerationDelay();
+  
+  /**
+   * Restores the Player's health and strength as it regenerates.
+   */
+  protected abstract void regenerate();
+  
+  /**
+   * Regenerates the Player if it is wounded and has rested long enough,
+   * which it does once for each time it is wounded and rests.
+   */
+  private void regenerateIfRested()
+  {
+    if (wounded && !fighting && time != null
+        && time.now() - restedSince >= getRegenerationDelay())
+    {
+      wounded = false;
+      regenerate();
+    }
+  }
+  
   /**
    * Provides a String representation of the Player's state.
    * 
@@ -356,7 +488,7 @@ public abstract class Player implements Serializable
     + "Health:\t%.1f "
     + "Strength:\t%.1f "
     + "Strategy:\t%s",
-    getClass().getSimpleName(), name, /*ID,*/ sacks, health, strength, strategy == null? "None" : strategy);
+    getClass().getSimpleName(), name, /*ID,*/ sacks, getHealth(), getStrength(), strategy == null? "None" : strategy);
   }
 
 }
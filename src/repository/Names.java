@@ -14,6 +14,9 @@ import utility.SingleRandom;
 /**
  * Final Project
  * A repository of possible names for a Player subclass.
+ * Mazes made ahead of time take names on the maze pool's thread while
+ * the game takes them on its own, so every method that reads or changes
+ * the names holds the repository's lock.
  * 
  * @author Team Plasma
  *
@@ -63,7 +66,7 @@ public abstract class Names implements Serializable
    * 
    * @return the current number of names
    */
-  public int getCurrentNumberOfNames()
+  public synchronized int getCurrentNumberOfNames()
   {
     return names.size();
   }
@@ -79,7 +82,7 @@ public abstract class Names implements Serializable
    *  if the index is out of range
    *  <code>(index < 0 || index >= getCurrentNumberOfNames())</code>
    */
-  public String getName(final int index)
+  public synchronized String getName(final int index)
   {
     return names.get(index);
   }
@@ -95,7 +98,7 @@ public abstract class Names implements Serializable
    * @throws NullPointerException
    *  if the name is null
    */
-  public int findName(final String name)
+  public synchronized int findName(final String name)
   {
     if (name == null)
     {
@@ -115,7 +118,7 @@ public abstract class Names implements Serializable
    * @throws NullPointerException
    *  if the name is null
    */
-  public boolean hasName(final String name)
+  public synchronized boolean hasName(final String name)
   {
     if (name == null)
     {
@@ -131,7 +134,7 @@ public abstract class Names implements Serializable
    *  {@code true} if the repository contains any names,
    *  {@code false} if it does not.
    */
-  public boolean hasNames()
+  public synchronized boolean hasNames()
   {
     return !names.isEmpty();
   }
@@ -146,7 +149,7 @@ public abstract class Names implements Serializable
    * @return
    *  a randomly removed name from the repository
    */
-  public String takeName()
+  public synchronized String takeName()
   {
     if (names.isEmpty())
     {
@@ -165,7 +168,7 @@ public abstract class Names implements Serializable
    * @throws NullPointerException
    *  if the name is null
    */
-  public boolean addName(final String name)
+  public synchronized boolean addName(final String name)
   {
     final boolean isNull = name == null;
     if (isNull)
@@ -191,7 +194,7 @@ public abstract class Names implements Serializable
    *  if the index is out of range
    *  <code>(index < 0 || index >= getCurrentNumberOfNames())</code>
    */
-  public String replaceName(final int index, final String name)
+  public synchronized String replaceName(final int index, final String name)
   {
     if (name == null)
     {
@@ -215,7 +218,7 @@ public abstract class Names implements Serializable
    * @throws NoSuchElementException
    *  if {@code oldName} does not exist
    */
-  public int replaceName(String oldName, String newName)
+  public synchronized int replaceName(String oldName, String newName)
   {
     if (oldName == null || newName == null)
     {
@@ -234,7 +237,7 @@ public abstract class Names implements Serializable
   /**
    * Removes all the names in this repository.
    */
-  public void eraseNames()
+  public synchronized void eraseNames()
   {
     names.clear();
   }
@@ -242,7 +245,7 @@ public abstract class Names implements Serializable
   /**
    * Resets the repository to an initial set of names.
    */
-  public void resetNames()
+  public synchronized void resetNames()
   {
     names.clear();
     for (final String name : NAMES)
@@ -256,7 +259,7 @@ public abstract class Names implements Serializable
    * 
    * @return the String representation of this repository
    */
-  public String toString()
+  public synchronized String toString()
   {
     return "\n" + getClass().getSimpleName() + " are:\n" + names;
   }
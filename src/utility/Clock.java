@@ -0,0 +1,24 @@
+package utility;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Moves the time of a TimingWheel. A game's effects run in the time of its
+ * wheel, so the clock given to the game decides whether they run as the
+ * player sees time pass, or as fast as a script asks for them.
+ */
+public interface Clock
+{
+  /**
+   * Starts moving the time of a wheel, unless it is already moving. The
+   * clock moves one wheel at a time; starting it on another stops the last.
+   * @param wheel
+   */
+  void start(TimingWheel wheel);
+
+  /**
+   * Stops moving the time of the wheel until start() is called again.
+   */
+  void stop();
+}
@@ -0,0 +1,187 @@
+package utility;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * A random source with no state to move along: every draw is a pure
+ * function of the seed, what the draw is for, the column and row of the
+ * chamber or region it is about, and a counter. Any draw can be made
+ * again on its own, in any order and on any thread, and comes out the
+ * same, so a chamber, a gruman's stats or a power-up can be worked out
+ * without making every draw that came before it.
+ *
+ * Draws for different purposes at the same place are unrelated, so
+ * adding a draw for one purpose never shifts the draws of another.
+ */
+public final class KeyedRandom implements Serializable
+{
+  /**
+   * What a draw is for. New purposes go at the end, since the order
+   * of the purposes is part of every draw.
+   */
+  public enum Purpose
+  {
+    /** The walls knocked through while carving a region. */
+    CARVE,
+    /** Where a partly carved region opens onto the one it grew from. */
+    GATE,
+    /** The door that always joins two regions along their border. */
+    BORDER,
+    /** The other doors along a border between two regions. */
+    STITCH,
+    /** Whether a chamber holds a gruman. */
+    GRUMAN_PLACEMENT,
+    /** A gruman's treasure, health, strength, strategy and timings. */
+    GRUMAN,
+    /** Where a power-up lies in a region, and which one it is. */
+    POWER_UP,
+    /** Whether a roaming gruman moves on a tick, and through which door. */
+    ROAM
+  }
+
+  private static final long serialVersionUID = 1L;
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private final long seed;
+
+  /**
+   * Creates the random source of a seed.
+   * @param seed
+   */
+  public KeyedRandom(long seed)
+  {
+    this.seed = seed;
+  }
+
+  /**
+   * Returns the seed
+   * @return seed
+   */
+  public long getSeed()
+  {
+    return seed;
+  }
+
+  /**
+   * Returns a draw of 64 random bits.
+   * @param purpose what the draw is for
+   * @param column the column of the chamber or region
+   * @param row the row of the chamber or region
+   * @param counter which of its draws this is, from 0
+   * @return the bits
+   */
+  public long bits(Purpose purpose, int column, int row, long counter)
+  {
+    return mix(key(purpose, column, row) + (counter + 1) * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Returns a draw from 0 to bound-1.
+   * @param purpose what the draw is for
+   * @param column the column of the chamber or region
+   * @param row the row of the chamber or region
+   * @param counter which of its draws this is, from 0
+   * @param bound upper limit of the draw, exclusive
+   * @return an integer from 0 to bound-1
+   * @throws IllegalArgumentException if bound is not positive
+   */
+  public int nextInt(Purpose purpose, int column, int row, long counter, int bound)
+  {
+    if (bound <= 0)
+    {
+      throw new IllegalArgumentException("Bound must be positive: " + bound);
+    }
+    return (int)(((bits(purpose, column, row, counter) >>> 32) * bound) >>> 32);
+  }
+
+  /**
+   * Returns a draw from 0 up to 1.
+   * @param purpose what the draw is for
+   * @param column the column of the chamber or region
+   * @param row the row of the chamber or region
+   * @param counter which of its draws this is, from 0
+   * @return a double from 0 up to 1
+   */
+  public double nextDouble(Purpose purpose, int column, int row, long counter)
+  {
+    return (bits(purpose, column, row, counter) >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * Returns a java.util.Random whose draws are this source's draws for
+   * one purpose and place, counter 0, 1, 2 and on, for code that needs
+   * many draws one after another. Two streams for the same purpose and
+   * place make the same draws.
+   * @param purpose what the draws are for
+   * @param column the column of the chamber or region
+   * @param row the row of the chamber or region
+   * @return the stream
+   */
+  public Random stream(Purpose purpose, int column, int row)
+  {
+    return new Stream(key(purpose, column, row));
+  }
+
+  /**
+   * Scrambles the bits of a long, the finalizer of SplitMix64.
+   * @param z
+   * @return the scrambled long
+   */
+  public static long mix(long z)
+  {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Returns the key of all the draws for one purpose and place.
+   * @param purpose
+   * @param column
+   * @param row
+   * @return key
+   */
+  private long key(Purpose purpose, int column, int row)
+  {
+    final long place = ((long)column << 32) | (row & 0xFFFFFFFFL);
+    return mix(mix(seed + (purpose.ordinal() + 1) * GOLDEN_GAMMA) ^ mix(place));
+  }
+
+  @Override
+  public String toString()
+  {
+    return "KeyedRandom " + seed;
+  }
+
+  /**
+   * The draws for one purpose and place, in counter order.
+   */
+  private static final class Stream extends Random
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final long key;
+    private long counter;
+
+    /**
+     * Creates a stream at counter 0.
+     * @param key
+     */
+    Stream(long key)
+    {
+      super(0L);
+      this.key = key;
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+      counter++;
+      return (int)(mix(key + counter * GOLDEN_GAMMA) >>> (64 - bits));
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package utility;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.Timer;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Moves the time of a TimingWheel as real time passes, so its tasks run on
+ * the event dispatch thread when they fall due, give or take a tick. The
+ * clock ticks until it is stopped, whether or not the wheel has tasks to
+ * run, so that time read from the wheel goes on passing; time passed while
+ * it is stopped is not made up.
+ */
+public final class RealTimeClock implements Clock
+{
+  /**
+   * How often the wheel is advanced.
+   */
+  public static final int TICK_MS = 10;
+
+  private final Timer ticker;
+  private TimingWheel wheel;
+  /**
+   * When the wheel was last advanced to, by System.nanoTime()
+   */
+  private long tickedNanos;
+
+  /**
+   * Creates a stopped clock.
+   */
+  public RealTimeClock()
+  {
+    ticker = new Timer(TICK_MS, new ActionListener()
+    {
+
+      @Override
+      public void actionPerformed(ActionEvent e)
+      {
+        final long elapsedMS = (System.nanoTime() - tickedNanos) / 1000000;
+        tickedNanos += elapsedMS * 1000000;
+        wheel.advance(elapsedMS);
+      }
+
+    });
+    ticker.setRepeats(true);
+  }
+
+  @Override
+  public void start(final TimingWheel wheel)
+  {
+    if (this.wheel != wheel)
+    {
+      stop();
+      this.wheel = wheel;
+    }
+    if (!ticker.isRunning())
+    {
+      tickedNanos = System.nanoTime();
+      ticker.start();
+    }
+  }
+
+  @Override
+  public void stop()
+  {
+    ticker.stop();
+  }
+}
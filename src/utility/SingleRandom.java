@@ -1,11 +1,18 @@
 package utility;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Final Project
  * @author Team Plasma
  *
  * Creates a single instance of a pseudo random class
+ *
+ * Each thread draws from a stream of its own, split from one root
+ * the first time the thread draws, so threads never contend for a
+ * shared seed. A single thread makes the same draws after the same
+ * setSeed() every run; workers that must be reproducible however
+ * they are scheduled should each take a stream of their own from
+ * split(), in a fixed order, and draw from that.
  */
 
 public class SingleRandom
@@ -21,7 +28,8 @@ public class SingleRandom
 	  }
 
 	  // Instance Variables
-	  private Random generator;  //This field remains hidden
+	  private SplittableRandom root;  //guarded by this, only split
+	  private volatile ThreadLocal<SplittableRandom> streams;
 
 	  
 	  // Default and other Constructors
@@ -33,19 +41,59 @@ public class SingleRandom
 	   */
 	  private SingleRandom()
 	  {
-	    generator = new Random();
+	    root = new SplittableRandom();
+	    streams = newStreams();
 	  }
 	    
 	  // Instance methods 
 	  /**
 	   * Sets seed for pseudo-random calculation to incoming value
 	   * Invoke for testing to get same random series for multiple runs
-	   * Just a WRAPPER
+	   * Every thread starts a new stream from the new root at its next draw
 	   * @param seed - starting seed for pseudo-random number generator
 	   */
-	  public void setSeed(int seed)  
+	  public synchronized void setSeed(int seed)  
+	  {
+	    root = new SplittableRandom(seed);
+	    streams = newStreams();
+	  }
+	  
+	  /**
+	   * Hands out a new stream split from the root, for one worker to
+	   * draw from on its own. Streams handed out in the same order after
+	   * the same setSeed() make the same draws.
+	   * @return a stream for one thread at a time
+	   */
+	  public synchronized SplittableRandom split()
+	  {
+	    return root.split();
+	  }
+
+	  /**
+	   * Restarts the calling thread's stream from a seed of its own, so a
+	   * task reseeded this way makes the same draws whichever thread runs it.
+	   * A task should hand the stream returned back to setThreadStream()
+	   * when it is done, so the thread goes on with its own draws.
+	   * @param seed - starting seed for the calling thread's stream
+	   * @return the stream the thread drew from until now
+	   */
+	  public SplittableRandom setThreadSeed(long seed)
+	  {
+	    return setThreadStream(new SplittableRandom(seed));
+	  }
+
+	  /**
+	   * Sets the stream the calling thread draws from, such as one
+	   * returned by setThreadSeed() to put back
+	   * @param stream - the stream for the calling thread
+	   * @return the stream the thread drew from until now
+	   */
+	  public SplittableRandom setThreadStream(SplittableRandom stream)
 	  {
-	    generator.setSeed(seed);
+	    final ThreadLocal<SplittableRandom> current = streams;
+	    final SplittableRandom previous = current.get();
+	    current.set(stream);
+	    return previous;
 	  }
 
 	  
@@ -57,7 +105,7 @@ public class SingleRandom
 	   */
 	  public int nextInt(int range)
 	  {
-	    return generator.nextInt(range);
+	    return generator().nextInt(range);
 	  }
 	  
 	  /**
@@ -68,17 +116,27 @@ public class SingleRandom
 	   */
 	  public int nextInt(int lower, int upper)
 	  {
-		  return generator.nextInt(upper-lower+1)+lower;
+		  return generator().nextInt(upper-lower+1)+lower;
 	  }
 	  
 	  /**
-	   * Returns a double from 0 to a given range
+	   * Returns a double from 0 up to a given range
 	   * @param range
-	   * @return a double from 0 to given range
+	   * @return a double from 0 up to given range, exclusive
 	   */
 	  public double nextDouble(double range)
 	  {
-		  return generator.nextDouble();
+		  return generator().nextDouble() * range;
+	  }
+	  
+	  /**
+	   * Returns a pseudo-random long, for seeding other generators
+	   * Just a WRAPPER
+	   * @return a long
+	   */
+	  public long nextLong()
+	  {
+		  return generator().nextLong();
 	  }
 	  
 	  /**
@@ -87,7 +145,33 @@ public class SingleRandom
 	   */
 	  public double nextFloat()
 	  {
-		  return generator.nextFloat();
+		  return (generator().nextInt() >>> 8) * 0x1.0p-24f;
+	  }
+	  
+	  /**
+	   * Returns the calling thread's stream, splitting it from the root
+	   * on the thread's first draw
+	   * @return the stream
+	   */
+	  private SplittableRandom generator()
+	  {
+		  return streams.get();
+	  }
+	  
+	  /**
+	   * Creates the per-thread streams of the current root
+	   * @return streams, none yet split
+	   */
+	  private ThreadLocal<SplittableRandom> newStreams()
+	  {
+		  return new ThreadLocal<SplittableRandom>()
+		  {
+			  @Override
+			  protected SplittableRandom initialValue()
+			  {
+				  return split();
+			  }
+		  };
 	  }
 
 	  // Static methods  
@@ -0,0 +1,17 @@
+package utility;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Tells the time of a game, which need not be the time of day: it may
+ * stand still while the game is paused, or jump ahead in a script.
+ */
+public interface TimeSource
+{
+  /**
+   * Returns the time
+   * @return milliseconds
+   */
+  long now();
+}
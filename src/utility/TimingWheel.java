@@ -0,0 +1,494 @@
+package utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Runs tasks after delays and at intervals of its own time, which moves
+ * only when it is advanced, a millisecond at a time or many at once.
+ * Pausing stops its time, so every task keeps what is left of its delay
+ * however long the pause lasts.
+ *
+ * The tasks are kept in a hierarchical timing wheel: {@value #LEVELS}
+ * wheels of {@value #SLOTS} slots, the first a millisecond to a slot, and
+ * each after it {@value #SLOTS} times coarser. A task goes into the
+ * coarsest wheel it fits; when time reaches its slot, the slot is emptied
+ * into the finer wheels, until the task reaches the finest and runs.
+ * Scheduling and cancelling are O(1), and advancing skips the slots that
+ * hold nothing, so thousands of tasks cost no more per millisecond than
+ * one. Tasks due later than the wheels reach wait in a list until the
+ * coarsest wheel comes round.
+ *
+ * Tasks due at the same millisecond run in the order they were
+ * scheduled, and a task run may schedule others, so the same schedule
+ * advanced the same way always runs the same tasks in the same order.
+ * A wheel is used by one thread at a time.
+ */
+public final class TimingWheel implements TimeSource
+{
+  /**
+   * The wheels of ever coarser slots.
+   */
+  public static final int LEVELS = 4;
+
+  /**
+   * The slots of each wheel.
+   */
+  public static final int SLOTS = 64;
+
+  private static final int SLOT_BITS = 6;
+  private static final int DETACHED = -1;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final long SPAN = 1L << LEVELS * SLOT_BITS;
+  private static final Comparator<Timeout> BY_ORDER = new Comparator<Timeout>()
+  {
+    @Override
+    public int compare(final Timeout a, final Timeout b)
+    {
+      return Long.compare(a.order, b.order);
+    }
+  };
+
+  private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+  private final long[] occupied = new long[LEVELS];
+  private final List<Timeout> far = new ArrayList<>();
+  private final List<Timeout> due = new ArrayList<>();
+  private long now;
+  private long scheduled;
+  private long runs;
+  private int size;
+  private boolean paused;
+
+  /**
+   * A scheduled task, which may be cancelled.
+   */
+  public final class Timeout
+  {
+    private final Runnable task;
+    private final long interval;
+    private long deadline;
+    private long order;
+    private boolean pending;
+    private int level;
+    private Timeout previous;
+    private Timeout next;
+
+    /**
+     * Creates a timeout.
+     * @param task
+     * @param deadline
+     * @param interval 0 to run once
+     */
+    private Timeout(final Runnable task, final long deadline, final long interval)
+    {
+      this.task = task;
+      this.deadline = deadline;
+      this.interval = interval;
+    }
+
+    /**
+     * Stops the task from running again.
+     * @return true if it was still to run
+     */
+    public boolean cancel()
+    {
+      final boolean was = pending;
+      if (pending)
+      {
+        unlink(this);
+        pending = false;
+        size--;
+      }
+      return was;
+    }
+
+    /**
+     * Predicate method whether the task is still to run
+     * @return true/false
+     */
+    public boolean isPending()
+    {
+      return pending;
+    }
+
+    /**
+     * Returns the time left before the task next runs, which does not
+     * pass while the wheel is paused
+     * @return milliseconds, 0 if it is due or will not run
+     */
+    public long getRemainingMillis()
+    {
+      return pending ? Math.max(0, deadline - now) : 0;
+    }
+  }
+
+  /**
+   * Creates a wheel whose time starts at 0.
+   */
+  public TimingWheel()
+  {
+    this(0);
+  }
+
+  /**
+   * Creates a wheel whose time starts where another's left off, so times
+   * taken from that one still count.
+   * @param start milliseconds
+   * @throws IllegalArgumentException if it is negative
+   */
+  public TimingWheel(final long start)
+  {
+    if (start < 0)
+    {
+      throw new IllegalArgumentException("Cannot start at " + start + " ms");
+    }
+    now = start;
+  }
+
+  /**
+   * Schedules a task to run once.
+   * @param task
+   * @param delayMS how long from now
+   * @return the timeout, to cancel it by
+   * @throws IllegalArgumentException if the delay is negative
+   */
+  public Timeout schedule(final Runnable task, final long delayMS)
+  {
+    return schedule(task, delayMS, 0);
+  }
+
+  /**
+   * Schedules a task to run after a delay, and again at an interval after
+   * that until it is cancelled.
+   * @param task
+   * @param delayMS how long from now it first runs
+   * @param intervalMS how long after each run it runs again,
+   *  or 0 to run once
+   * @return the timeout, to cancel it by
+   * @throws IllegalArgumentException if the delay or the interval is negative
+   */
+  public Timeout schedule(final Runnable task, final long delayMS, final long intervalMS)
+  {
+    if (delayMS < 0 || intervalMS < 0)
+    {
+      throw new IllegalArgumentException("Cannot schedule after " + delayMS + " ms every "
+          + intervalMS + " ms");
+    }
+    final Timeout t = new Timeout(task, now + delayMS, intervalMS);
+    t.order = scheduled++;
+    insert(t);
+    size++;
+    return t;
+  }
+
+  /**
+   * Moves time forward, running every task that falls due on the way, in
+   * the order they fall due. Time does not move while the wheel is paused.
+   * @param elapsedMS how far
+   * @throws IllegalArgumentException if it is negative
+   */
+  public void advance(final long elapsedMS)
+  {
+    if (elapsedMS < 0)
+    {
+      throw new IllegalArgumentException("Cannot advance by " + elapsedMS + " ms");
+    }
+    if (!paused)
+    {
+      final long target = now + elapsedMS;
+      runDue();
+      while (now < target && !paused)
+      {
+        now = Math.min(nextSlot(), target);
+        cascade();
+        runDue();
+      }
+    }
+  }
+
+  /**
+   * Moves time straight to the next millisecond a task falls due, but no
+   * further than a limit, and runs every task due then, which is what
+   * advancing a millisecond at a time would do. Time does not move while
+   * the wheel is paused, nor once no task is left to run.
+   * @param maxMS the limit
+   * @return how far time moved
+   * @throws IllegalArgumentException if the limit is negative
+   */
+  public long advanceToNext(final long maxMS)
+  {
+    if (maxMS < 0)
+    {
+      throw new IllegalArgumentException("Cannot advance by " + maxMS + " ms");
+    }
+    final long start = now;
+    if (!paused)
+    {
+      final long target = maxMS > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + maxMS;
+      final long before = runs;
+      runDue();
+      while (runs == before && size > 0 && now < target && !paused)
+      {
+        now = Math.min(nextSlot(), target);
+        cascade();
+        runDue();
+      }
+    }
+    return now - start;
+  }
+
+  /**
+   * Stops time until resume() is called.
+   */
+  public void pause()
+  {
+    paused = true;
+  }
+
+  /**
+   * Starts time again after pause().
+   */
+  public void resume()
+  {
+    paused = false;
+  }
+
+  /**
+   * Predicate method whether time is stopped
+   * @return true/false
+   */
+  public boolean isPaused()
+  {
+    return paused;
+  }
+
+  /**
+   * Cancels every task.
+   */
+  public void clear()
+  {
+    for (int level = 0; level < LEVELS; level++)
+    {
+      for (int slot = 0; slot < SLOTS; slot++)
+      {
+        for (Timeout t = slots[level][slot]; t != null; t = t.next)
+        {
+          t.pending = false;
+        }
+        slots[level][slot] = null;
+      }
+      occupied[level] = 0;
+    }
+    for (Timeout t : far)
+    {
+      t.pending = false;
+    }
+    far.clear();
+    // a task run may clear the wheel before the others due with it run
+    for (Timeout t : due)
+    {
+      t.pending = false;
+    }
+    size = 0;
+  }
+
+  /**
+   * Returns how much time has passed
+   * @return milliseconds
+   */
+  @Override
+  public long now()
+  {
+    return now;
+  }
+
+  /**
+   * Returns how many tasks are still to run
+   * @return tasks
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the time of the next slot that holds tasks or must be emptied
+   * into a finer wheel. That is in the finest wheel that holds any task:
+   * its next full slot in this turn, or else the start of its next turn.
+   * @return milliseconds
+   */
+  private long nextSlot()
+  {
+    long next = (now / SPAN + 1) * SPAN;
+    boolean found = false;
+    for (int level = 0; level < LEVELS && !found; level++)
+    {
+      if (occupied[level] != 0)
+      {
+        found = true;
+        final int shift = level * SLOT_BITS;
+        final int index = (int)(now >>> shift) & SLOT_MASK;
+        final long ahead = index == SLOT_MASK ? 0 : occupied[level] & (-1L << index + 1);
+        final long turn = now >>> shift + SLOT_BITS << shift + SLOT_BITS;
+        if (ahead != 0)
+        {
+          next = turn + ((long)Long.numberOfTrailingZeros(ahead) << shift);
+        }
+        else
+        {
+          next = turn + (1L << shift + SLOT_BITS);
+        }
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Empties the slots time has just reached into the finer wheels,
+   * coarsest first, and the tasks due later than the wheels reached into
+   * the wheels once the coarsest comes round.
+   */
+  private void cascade()
+  {
+    if (now % SPAN == 0 && !far.isEmpty())
+    {
+      final List<Timeout> waiting = new ArrayList<>(far);
+      far.clear();
+      for (Timeout t : waiting)
+      {
+        insert(t);
+      }
+    }
+    int top = 0;
+    while (top + 1 < LEVELS && (now & (1L << (top + 1) * SLOT_BITS) - 1) == 0)
+    {
+      top++;
+    }
+    for (int level = top; level > 0; level--)
+    {
+      final int index = (int)(now >>> level * SLOT_BITS) & SLOT_MASK;
+      Timeout t = slots[level][index];
+      slots[level][index] = null;
+      occupied[level] &= ~(1L << index);
+      while (t != null)
+      {
+        final Timeout next = t.next;
+        insert(t);
+        t = next;
+      }
+    }
+  }
+
+  /**
+   * Runs the tasks due now, in the order they were scheduled, and any
+   * they schedule to run now too.
+   */
+  private void runDue()
+  {
+    final int index = (int)now & SLOT_MASK;
+    while (slots[0][index] != null)
+    {
+      for (Timeout t = slots[0][index]; t != null; t = t.next)
+      {
+        t.level = DETACHED;
+        due.add(t);
+      }
+      slots[0][index] = null;
+      occupied[0] &= ~(1L << index);
+      Collections.sort(due, BY_ORDER);
+      for (Timeout t : due)
+      {
+        // an earlier task may have cancelled it
+        if (t.pending)
+        {
+          if (t.interval > 0)
+          {
+            t.deadline += t.interval;
+            t.order = scheduled++;
+            insert(t);
+          }
+          else
+          {
+            t.pending = false;
+            size--;
+          }
+          runs++;
+          t.task.run();
+        }
+      }
+      due.clear();
+    }
+  }
+
+  /**
+   * Puts a task into the slot of the coarsest wheel that its deadline is
+   * within a turn of, or into the list of those due later.
+   * @param t
+   */
+  private void insert(final Timeout t)
+  {
+    t.pending = true;
+    t.previous = null;
+    final long delta = t.deadline - now;
+    if (delta >= SPAN)
+    {
+      t.level = LEVELS;
+      t.next = null;
+      far.add(t);
+    }
+    else
+    {
+      int level = 0;
+      while (delta >= 1L << (level + 1) * SLOT_BITS)
+      {
+        level++;
+      }
+      final int index = (int)(t.deadline >>> level * SLOT_BITS) & SLOT_MASK;
+      t.level = level;
+      t.next = slots[level][index];
+      if (t.next != null)
+      {
+        t.next.previous = t;
+      }
+      slots[level][index] = t;
+      occupied[level] |= 1L << index;
+    }
+  }
+
+  /**
+   * Takes a task out of its slot, unless it has been taken out to run.
+   * @param t
+   */
+  private void unlink(final Timeout t)
+  {
+    if (t.level == LEVELS)
+    {
+      far.remove(t);
+    }
+    else if (t.level != DETACHED)
+    {
+      final int index = (int)(t.deadline >>> t.level * SLOT_BITS) & SLOT_MASK;
+      if (t.previous == null)
+      {
+        slots[t.level][index] = t.next;
+        if (t.next == null)
+        {
+          occupied[t.level] &= ~(1L << index);
+        }
+      }
+      else
+      {
+        t.previous.next = t.next;
+      }
+      if (t.next != null)
+      {
+        t.next.previous = t.previous;
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package utility;
+
+/**
+ * Final Project
+ * @author Team Plasma
+ *
+ * Moves the time of a TimingWheel only when asked to, jumping straight to
+ * the next task due instead of waiting for it, so a scripted game runs as
+ * fast as its effects can be worked out. The tasks run on the thread that
+ * asks, in the same order as a RealTimeClock would run them for a player
+ * who acts at the same game times.
+ */
+public final class VirtualClock implements Clock
+{
+  private TimingWheel wheel;
+  private boolean running;
+
+  @Override
+  public void start(final TimingWheel wheel)
+  {
+    this.wheel = wheel;
+    running = true;
+  }
+
+  @Override
+  public void stop()
+  {
+    running = false;
+  }
+
+  /**
+   * Predicate method whether the wheel's time may be moved
+   * @return true/false
+   */
+  public boolean isRunning()
+  {
+    return running;
+  }
+
+  /**
+   * Returns the time of the wheel
+   * @return milliseconds, 0 before it is started
+   */
+  public long now()
+  {
+    return wheel == null ? 0 : wheel.now();
+  }
+
+  /**
+   * Moves time forward, running every task that falls due on the way, as if
+   * that much time had passed. Time does not move while the clock is
+   * stopped.
+   * @param elapsedMS how far
+   * @throws IllegalArgumentException if it is negative
+   */
+  public void runFor(final long elapsedMS)
+  {
+    if (elapsedMS < 0)
+    {
+      throw new IllegalArgumentException("Cannot run for " + elapsedMS + " ms");
+    }
+    if (running)
+    {
+      wheel.advance(elapsedMS);
+    }
+  }
+
+  /**
+   * Moves time straight to the next task due and runs it, with any others
+   * due at the same time.
+   * @return how far time moved, or -1 if there was nothing to run or the
+   *  clock is stopped
+   */
+  public long runNext()
+  {
+    long elapsedMS = -1;
+    if (running && wheel.size() > 0)
+    {
+      elapsedMS = wheel.advanceToNext(Long.MAX_VALUE);
+    }
+    return elapsedMS;
+  }
+
+  /**
+   * Runs the tasks due, one time after another, until none are left, the
+   * clock is stopped, or a limit of time has passed, as repeating tasks
+   * never run out by themselves.
+   * @param maxMS the most time to move
+   * @return how far time moved
+   */
+  public long runUntilIdle(final long maxMS)
+  {
+    long elapsedMS = 0;
+    boolean moving = true;
+    while (moving && running && wheel.size() > 0 && elapsedMS < maxMS)
+    {
+      final long step = wheel.advanceToNext(maxMS - elapsedMS);
+      // a task may have paused the game with time standing still
+      moving = step > 0 || running && !wheel.isPaused();
+      elapsedMS += step;
+    }
+    return elapsedMS;
+  }
+}